@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.data.batch;
+
+import co.cask.cdap.api.annotation.Beta;
+
+import java.util.List;
+
+/**
+ * A {@link RecordScannable} that can use a {@link RecordScanFilter} to read only the records and fields that a scan
+ * needs, for example by scanning a range of row keys or by looking up a secondary index.
+ * <p>
+ *   The filter is a hint: the records returned may not all match the conditions of the filter, and may have fields
+ *   that were not asked for. Fields that were not asked for may also be missing. The caller must apply the conditions
+ *   to the records itself.
+ * </p>
+ * @param <RECORD> the type of objects that represents a single record
+ */
+@Beta
+public interface FilterableRecordScannable<RECORD> extends RecordScannable<RECORD> {
+
+  /**
+   * Returns the splits of the dataset that contain the records that may match the given filter.
+   *
+   * @param filter the conditions on the records and the fields to read
+   * @return A list of {@link Split}s.
+   */
+  List<Split> getSplits(RecordScanFilter filter);
+
+  /**
+   * Creates a reader for a split of the dataset that reads the fields of the given filter.
+   *
+   * @param split The split to create a reader for.
+   * @param filter the conditions on the records and the fields to read
+   * @return The instance of a {@link RecordScanner}.
+   */
+  RecordScanner<RECORD> createSplitRecordScanner(Split split, RecordScanFilter filter);
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.data.batch;
+
+import co.cask.cdap.api.annotation.Beta;
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Describes the records that a scan of a {@link FilterableRecordScannable} needs: conditions on fields of the
+ * records, all of which the records must match, and the fields to read.
+ * <p>
+ * Field names are matched ignoring case, since query engines such as Hive use lower case names.
+ * </p>
+ */
+@Beta
+public class RecordScanFilter {
+
+  private static final byte[] ZERO = { 0 };
+
+  private final Map<String, Condition> conditions;
+  private final Set<String> fields;
+
+  // we only allow creating a filter through the builder.
+  private RecordScanFilter(Map<String, Condition> conditions, @Nullable Set<String> fields) {
+    this.conditions = ImmutableMap.copyOf(conditions);
+    this.fields = fields == null ? null : ImmutableSet.copyOf(fields);
+  }
+
+  /**
+   * @return the conditions of this filter, by lower case field name.
+   */
+  public Map<String, Condition> getConditions() {
+    return conditions;
+  }
+
+  /**
+   * @return the condition for a particular field, or {@code null} if there is no condition on the field.
+   */
+  @Nullable
+  public Condition getCondition(String fieldName) {
+    return conditions.get(fieldName.toLowerCase());
+  }
+
+  /**
+   * @return the lower case names of the fields to read, or {@code null} if all the fields must be read.
+   */
+  @Nullable
+  public Set<String> getFields() {
+    return fields;
+  }
+
+  /**
+   * @return whether the given field must be read.
+   */
+  public boolean isFieldRead(String fieldName) {
+    return fields == null || fields.contains(fieldName.toLowerCase());
+  }
+
+  @Override
+  public String toString() {
+    return "conditions=" + conditions.values() + ", fields=" + (fields == null ? "all" : fields);
+  }
+
+  /**
+   * Encodes a value the same way as {@link Bytes} does for the simple types stored in tables.
+   *
+   * @return the encoded value, or {@code null} if the value is not of a simple type.
+   */
+  @Nullable
+  public static byte[] toBytes(Object value) {
+    if (value instanceof byte[]) {
+      return (byte[]) value;
+    }
+    if (value instanceof String) {
+      return Bytes.toBytes((String) value);
+    }
+    if (value instanceof Integer) {
+      return Bytes.toBytes((Integer) value);
+    }
+    if (value instanceof Long) {
+      return Bytes.toBytes((Long) value);
+    }
+    if (value instanceof Float) {
+      return Bytes.toBytes((Float) value);
+    }
+    if (value instanceof Double) {
+      return Bytes.toBytes((Double) value);
+    }
+    if (value instanceof Boolean) {
+      return Bytes.toBytes((Boolean) value);
+    }
+    return null;
+  }
+
+  /**
+   * Use this to create RecordScanFilters.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * A builder for record scan filters. Several bounds on the same field are combined into the narrowest range.
+   */
+  public static class Builder {
+    private final Map<String, Condition> conditions = Maps.newLinkedHashMap();
+    private Set<String> fields;
+
+    /**
+     * Adds a condition that matches by equality.
+     *
+     * @param field the name of the field
+     * @param value the value that matching field values must have
+     */
+    public Builder addValueCondition(String field, Object value) {
+      Preconditions.checkArgument(field != null && !field.isEmpty(), "field name cannot be null or empty.");
+      Preconditions.checkArgument(value != null, "condition value cannot be null.");
+      String name = field.toLowerCase();
+      conditions.put(name, new Condition(name, value, true, value, true));
+      return this;
+    }
+
+    /**
+     * Adds a lower bound on a field.
+     *
+     * @param field the name of the field
+     * @param value the lower bound
+     * @param inclusive whether values equal to the bound match
+     */
+    public Builder addLowerBound(String field, Object value, boolean inclusive) {
+      Preconditions.checkArgument(field != null && !field.isEmpty(), "field name cannot be null or empty.");
+      Preconditions.checkArgument(value != null, "bound cannot be null.");
+      String name = field.toLowerCase();
+      Condition condition = conditions.get(name);
+      if (condition == null) {
+        conditions.put(name, new Condition(name, value, inclusive, null, false));
+      } else if (!condition.isSingleValue()
+        && isNarrower(value, inclusive, condition.lower, condition.lowerInclusive, 1)) {
+        conditions.put(name, new Condition(name, value, inclusive, condition.upper, condition.upperInclusive));
+      }
+      return this;
+    }
+
+    /**
+     * Adds an upper bound on a field.
+     *
+     * @param field the name of the field
+     * @param value the upper bound
+     * @param inclusive whether values equal to the bound match
+     */
+    public Builder addUpperBound(String field, Object value, boolean inclusive) {
+      Preconditions.checkArgument(field != null && !field.isEmpty(), "field name cannot be null or empty.");
+      Preconditions.checkArgument(value != null, "bound cannot be null.");
+      String name = field.toLowerCase();
+      Condition condition = conditions.get(name);
+      if (condition == null) {
+        conditions.put(name, new Condition(name, null, false, value, inclusive));
+      } else if (!condition.isSingleValue()
+        && isNarrower(value, inclusive, condition.upper, condition.upperInclusive, -1)) {
+        conditions.put(name, new Condition(name, condition.lower, condition.lowerInclusive, value, inclusive));
+      }
+      return this;
+    }
+
+    /**
+     * Sets the fields to read. All the fields are read if this is not called.
+     */
+    public Builder setFields(Collection<String> fields) {
+      this.fields = Sets.newHashSet();
+      for (String field : fields) {
+        this.fields.add(field.toLowerCase());
+      }
+      return this;
+    }
+
+    /**
+     * Creates the RecordScanFilter.
+     */
+    public RecordScanFilter build() {
+      return new RecordScanFilter(conditions, fields);
+    }
+
+    /**
+     * Returns whether a new bound is narrower than an existing one, in the given direction: 1 for lower bounds,
+     * -1 for upper bounds. Bounds that can't be compared are not narrower.
+     */
+    private boolean isNarrower(Object bound, boolean inclusive, @Nullable Object existing, boolean existingInclusive,
+                               int direction) {
+      if (existing == null) {
+        return true;
+      }
+      Integer cmp = compare(bound, existing);
+      if (cmp == null) {
+        return false;
+      }
+      return cmp * direction > 0 || (cmp == 0 && existingInclusive && !inclusive);
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private Integer compare(Object value1, Object value2) {
+      if (value1 instanceof byte[] && value2 instanceof byte[]) {
+        return Bytes.compareTo((byte[]) value1, (byte[]) value2);
+      }
+      if (value1 instanceof Comparable && value1.getClass().equals(value2.getClass())) {
+        return ((Comparable<Object>) value1).compareTo(value2);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Represents a condition on a field, by means of a lower bound and an upper bound, either of which may be absent.
+   * An equality condition has equal, inclusive bounds.
+   */
+  public static final class Condition {
+
+    private final String fieldName;
+    private final Object lower;
+    private final boolean lowerInclusive;
+    private final Object upper;
+    private final boolean upperInclusive;
+
+    private Condition(String fieldName, @Nullable Object lower, boolean lowerInclusive,
+                      @Nullable Object upper, boolean upperInclusive) {
+      this.fieldName = fieldName;
+      this.lower = lower;
+      this.lowerInclusive = lowerInclusive;
+      this.upper = upper;
+      this.upperInclusive = upperInclusive;
+    }
+
+    /**
+     * @return the lower case name of the field of this condition
+     */
+    public String getFieldName() {
+      return fieldName;
+    }
+
+    /**
+     * @return the lower bound of this condition, or {@code null} if there is none
+     */
+    @Nullable
+    public Object getLower() {
+      return lower;
+    }
+
+    /**
+     * @return whether the lower bound is inclusive
+     */
+    public boolean isLowerInclusive() {
+      return lowerInclusive;
+    }
+
+    /**
+     * @return the upper bound of this condition, or {@code null} if there is none
+     */
+    @Nullable
+    public Object getUpper() {
+      return upper;
+    }
+
+    /**
+     * @return whether the upper bound is inclusive
+     */
+    public boolean isUpperInclusive() {
+      return upperInclusive;
+    }
+
+    /**
+     * @return whether this condition matches a single value
+     */
+    public boolean isSingleValue() {
+      return lower != null && lower == upper;
+    }
+
+    /**
+     * @return the expected value of a condition that matches a single value
+     */
+    public Object getValue() {
+      Preconditions.checkState(isSingleValue(), "Condition on field '%s' is not a value condition.", fieldName);
+      return lower;
+    }
+
+    /**
+     * Returns the inclusive start of the row keys matching this condition, for rows keyed by the field value encoded
+     * by {@link RecordScanFilter#toBytes(Object)}. For a range condition, this is only meaningful if the encoding
+     * preserves the order of the field values, as it does for strings and byte arrays.
+     *
+     * @return the start row key, or {@code null} if there is no lower bound or it cannot be encoded
+     */
+    @Nullable
+    public byte[] getStartRow() {
+      byte[] key = lower == null ? null : toBytes(lower);
+      if (key == null || lowerInclusive) {
+        return key;
+      }
+      // the first key after the bound
+      return Bytes.add(key, ZERO);
+    }
+
+    /**
+     * Returns the exclusive end of the row keys matching this condition, for rows keyed by the field value encoded
+     * by {@link RecordScanFilter#toBytes(Object)}. See {@link #getStartRow()}.
+     *
+     * @return the stop row key, or {@code null} if there is no upper bound or it cannot be encoded
+     */
+    @Nullable
+    public byte[] getStopRow() {
+      byte[] key = upper == null ? null : toBytes(upper);
+      if (key == null || !upperInclusive) {
+        return key;
+      }
+      return Bytes.add(key, ZERO);
+    }
+
+    @Override
+    public String toString() {
+      if (isSingleValue()) {
+        return fieldName + "==" + lower;
+      }
+      return fieldName + " in " + (lowerInclusive ? "[" : "(") + lower + "..." + upper + (upperInclusive ? "]" : ")");
+    }
+  }
+}
@@ -17,6 +17,8 @@
 package co.cask.cdap.api.dataset.lib;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.batch.FilterableRecordScannable;
+import co.cask.cdap.api.data.batch.RecordScanFilter;
 import co.cask.cdap.api.data.batch.RecordScanner;
 import co.cask.cdap.api.data.batch.Split;
 import co.cask.cdap.api.data.batch.SplitReader;
@@ -30,7 +32,9 @@ import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
+import co.cask.cdap.api.dataset.table.TableSplit;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.Longs;
@@ -39,6 +43,8 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Type;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -92,9 +98,15 @@ import javax.annotation.Nullable;
  *
  * @see co.cask.cdap.api.dataset.lib.IndexedTableDefinition#INDEX_COLUMNS_CONF_KEY
  */
-public class IndexedTable extends AbstractDataset implements Table {
+public class IndexedTable extends AbstractDataset implements Table, FilterableRecordScannable<StructuredRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(IndexedTable.class);
 
+  /**
+   * Maximum number of rows looked up through the index for a record scan. The table is scanned instead if more
+   * rows match.
+   */
+  private static final int MAX_INDEX_LOOKUP_ROWS = 1000;
+
   /**
    * Column key used to store the existence of a row in the secondary index.
    */
@@ -503,7 +515,38 @@ public class IndexedTable extends AbstractDataset implements Table {
 
   @Override
   public RecordScanner<StructuredRecord> createSplitRecordScanner(Split split) {
-    return table.createSplitRecordScanner(split);
+    return new IndexLookupRecordScanner(null);
+  }
+
+  /**
+   * Returns a single split with the rows that have the value of an equality condition of the filter on an indexed
+   * column, if there is such a condition. Otherwise, returns the splits of the data table for the filter.
+   */
+  @Override
+  public List<Split> getSplits(RecordScanFilter filter) {
+    for (byte[] column : indexedColumns) {
+      RecordScanFilter.Condition condition = filter.getCondition(Bytes.toString(column));
+      if (condition == null || !condition.isSingleValue()) {
+        continue;
+      }
+      byte[] value = RecordScanFilter.toBytes(condition.getValue());
+      if (value == null) {
+        continue;
+      }
+      Split split = getIndexLookupSplit(column, value);
+      if (split != null) {
+        return Collections.singletonList(split);
+      }
+    }
+    if (table instanceof FilterableRecordScannable) {
+      return getFilterableTable().getSplits(filter);
+    }
+    return getSplits();
+  }
+
+  @Override
+  public RecordScanner<StructuredRecord> createSplitRecordScanner(Split split, RecordScanFilter filter) {
+    return new IndexLookupRecordScanner(filter);
   }
 
   @Override
@@ -511,6 +554,52 @@ public class IndexedTable extends AbstractDataset implements Table {
     return table.createSplitReader(split);
   }
 
+  /**
+   * Returns a split with the rows indexed by the given value of the given column, or {@code null} if there are more
+   * than {@link #MAX_INDEX_LOOKUP_ROWS} such rows.
+   */
+  @Nullable
+  private Split getIndexLookupSplit(byte[] column, byte[] value) {
+    byte[] rowKeyPrefix = Bytes.concat(column, keyDelimiter, value, keyDelimiter);
+    Scanner indexScan = index.scan(rowKeyPrefix, Bytes.stopKeyForPrefix(rowKeyPrefix));
+    try {
+      List<byte[]> rowKeys = Lists.newArrayList();
+      Row indexRow = indexScan.next();
+      while (indexRow != null) {
+        byte[] rowKey = indexRow.get(IDX_COL);
+        // same verification of the index row as in IndexScanner
+        if (rowKey != null && Bytes.equals(indexRow.getRow(), Bytes.add(rowKeyPrefix, rowKey))) {
+          if (rowKeys.size() == MAX_INDEX_LOOKUP_ROWS) {
+            LOG.debug("More than {} rows indexed by column {}, scanning the table instead.",
+                      MAX_INDEX_LOOKUP_ROWS, Bytes.toStringBinary(column));
+            return null;
+          }
+          rowKeys.add(rowKey);
+        }
+        indexRow = indexScan.next();
+      }
+      return new IndexLookupSplit(rowKeys);
+    } finally {
+      indexScan.close();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private FilterableRecordScannable<StructuredRecord> getFilterableTable() {
+    // a Table is a RecordScannable of StructuredRecord
+    return (FilterableRecordScannable<StructuredRecord>) table;
+  }
+
+  /**
+   * Creates a record scanner of the data table for the given split.
+   */
+  private RecordScanner<StructuredRecord> createTableRecordScanner(Split split, @Nullable RecordScanFilter filter) {
+    if (filter != null && table instanceof FilterableRecordScannable) {
+      return getFilterableTable().createSplitRecordScanner(split, filter);
+    }
+    return table.createSplitRecordScanner(split);
+  }
+
   /* BatchWritable implementation */
 
   @Override
@@ -518,6 +607,80 @@ public class IndexedTable extends AbstractDataset implements Table {
     put(put);
   }
 
+  /**
+   * A split of the rows looked up through the index for a record scan.
+   */
+  static final class IndexLookupSplit extends Split {
+    private final List<byte[]> rowKeys;
+
+    IndexLookupSplit(List<byte[]> rowKeys) {
+      this.rowKeys = rowKeys;
+    }
+
+    List<byte[]> getRowKeys() {
+      return rowKeys;
+    }
+  }
+
+  /**
+   * Reads the records of the rows of an {@link IndexLookupSplit} one row after the other, or the records of any other
+   * split of the data table. The scanner to use is only known once the split is given, since the split given when
+   * the scanner is created may not be the one it is initialized with.
+   */
+  private final class IndexLookupRecordScanner extends RecordScanner<StructuredRecord> {
+    private final RecordScanFilter filter;
+    private Iterator<byte[]> rowKeys;
+    private RecordScanner<StructuredRecord> current;
+
+    private IndexLookupRecordScanner(@Nullable RecordScanFilter filter) {
+      this.filter = filter;
+    }
+
+    @Override
+    public void initialize(Split split) throws InterruptedException {
+      if (split instanceof IndexLookupSplit) {
+        rowKeys = ((IndexLookupSplit) split).getRowKeys().iterator();
+      } else {
+        rowKeys = Collections.emptyIterator();
+        current = createTableRecordScanner(split, filter);
+        current.initialize(split);
+      }
+    }
+
+    @Override
+    public boolean nextRecord() throws InterruptedException {
+      while (true) {
+        if (current != null) {
+          if (current.nextRecord()) {
+            return true;
+          }
+          current.close();
+          current = null;
+        }
+        if (!rowKeys.hasNext()) {
+          return false;
+        }
+        byte[] rowKey = rowKeys.next();
+        Split rowSplit = new TableSplit(rowKey, Bytes.add(rowKey, new byte[] { 0 }));
+        current = createTableRecordScanner(rowSplit, filter);
+        current.initialize(rowSplit);
+      }
+    }
+
+    @Override
+    public StructuredRecord getCurrentRecord() throws InterruptedException {
+      return current == null ? null : current.getCurrentRecord();
+    }
+
+    @Override
+    public void close() {
+      if (current != null) {
+        current.close();
+        current = null;
+      }
+    }
+  }
+
   private class IndexScanner implements Scanner {
     // scanner over index table
     private final Scanner baseScanner;
@@ -19,7 +19,8 @@ package co.cask.cdap.api.dataset.lib;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.batch.BatchReadable;
 import co.cask.cdap.api.data.batch.BatchWritable;
-import co.cask.cdap.api.data.batch.RecordScannable;
+import co.cask.cdap.api.data.batch.FilterableRecordScannable;
+import co.cask.cdap.api.data.batch.RecordScanFilter;
 import co.cask.cdap.api.data.batch.RecordScanner;
 import co.cask.cdap.api.data.batch.RecordWritable;
 import co.cask.cdap.api.data.batch.Scannables;
@@ -45,10 +46,12 @@ import javax.annotation.Nullable;
  */
 public class KeyValueTable extends AbstractDataset implements
   BatchReadable<byte[], byte[]>, BatchWritable<byte[], byte[]>,
-  RecordScannable<KeyValue<byte[], byte[]>>, RecordWritable<KeyValue<byte[], byte[]>> {
+  FilterableRecordScannable<KeyValue<byte[], byte[]>>, RecordWritable<KeyValue<byte[], byte[]>> {
 
   // the fixed single column to use for the key
   static final byte[] KEY_COLUMN = { 'c' };
+  // the name of the key field of the records
+  private static final String KEY_FIELD = "key";
 
   private final Table table;
 
@@ -189,6 +192,25 @@ public class KeyValueTable extends AbstractDataset implements
     return Scannables.splitRecordScanner(createSplitReader(split), new KeyValueRecordMaker());
   }
 
+  /**
+   * Returns the splits for the range of keys of the condition on the key field of the filter, if there is one.
+   */
+  @Override
+  public List<Split> getSplits(RecordScanFilter filter) {
+    RecordScanFilter.Condition condition = filter.getCondition(KEY_FIELD);
+    if (condition == null) {
+      return getSplits();
+    }
+    // keys are ordered like their string or byte array values, so a range of values is a range of keys
+    return getSplits(-1, condition.getStartRow(), condition.getStopRow());
+  }
+
+  @Override
+  public RecordScanner<KeyValue<byte[], byte[]>> createSplitRecordScanner(Split split, RecordScanFilter filter) {
+    // a record is read with a single column, so there is nothing to gain from projection
+    return createSplitRecordScanner(split);
+  }
+
   /**
   * Returns splits for a range of keys in the table.
   * 
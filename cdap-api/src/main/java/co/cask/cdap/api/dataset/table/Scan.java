@@ -20,6 +20,9 @@ import co.cask.cdap.api.annotation.Beta;
 import co.cask.cdap.api.common.Bytes;
 import com.google.common.base.Objects;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
 import javax.annotation.Nullable;
 
 /**
@@ -33,6 +36,7 @@ public class Scan {
   private final byte[] stopRow;
   @Nullable
   private final Filter filter;
+  private final Map<String, String> properties = new TreeMap<String, String>();
 
   /**
    * Creates {@link Scan} for a given start and stop row keys.
@@ -70,12 +74,32 @@ public class Scan {
     return filter;
   }
 
+  /**
+   * Sets a property that tunes how the scan is executed by the underlying storage, for example how many rows are
+   * fetched per round trip. Properties that are not understood by a {@link Table} implementation are ignored.
+   * @param property name of the property
+   * @param value value of the property
+   * @return this {@link Scan}
+   */
+  public Scan setProperty(String property, String value) {
+    properties.put(property, value);
+    return this;
+  }
+
+  /**
+   * @return properties set on this scan with {@link #setProperty(String, String)}
+   */
+  public Map<String, String> getProperties() {
+    return Collections.unmodifiableMap(properties);
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
       .add("startRow", Bytes.toStringBinary(startRow))
       .add("stopRow", Bytes.toStringBinary(stopRow))
       .add("filter", filter)
+      .add("properties", properties)
       .toString();
   }
 }
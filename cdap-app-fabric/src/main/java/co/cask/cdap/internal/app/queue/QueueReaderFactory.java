@@ -22,6 +22,7 @@ import co.cask.cdap.data2.queue.QueueConsumer;
 import co.cask.cdap.data2.transaction.stream.StreamConsumer;
 import com.google.common.base.Function;
 import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 
 import java.nio.ByteBuffer;
 
@@ -32,11 +33,29 @@ public final class QueueReaderFactory {
 
   public <T> QueueReader<T> createQueueReader(Supplier<QueueConsumer> consumerSupplier,
                                               int batchSize, Function<ByteBuffer, T> decoder) {
+    return createQueueReader(consumerSupplier, Suppliers.ofInstance(batchSize), decoder);
+  }
+
+  /**
+   * Creates a {@link QueueReader} for reading from a queue, with the number of entries to dequeue each time
+   * provided by the given batch size {@link Supplier}.
+   */
+  public <T> QueueReader<T> createQueueReader(Supplier<QueueConsumer> consumerSupplier,
+                                              Supplier<Integer> batchSize, Function<ByteBuffer, T> decoder) {
     return new SingleQueue2Reader<>(consumerSupplier, batchSize, decoder);
   }
 
   public <T> QueueReader<T> createStreamReader(Supplier<StreamConsumer> consumerSupplier,
                                                int batchSize, Function<StreamEvent, T> transformer) {
+    return createStreamReader(consumerSupplier, Suppliers.ofInstance(batchSize), transformer);
+  }
+
+  /**
+   * Creates a {@link QueueReader} for reading from a stream, with the number of events to dequeue each time
+   * provided by the given batch size {@link Supplier}.
+   */
+  public <T> QueueReader<T> createStreamReader(Supplier<StreamConsumer> consumerSupplier,
+                                               Supplier<Integer> batchSize, Function<StreamEvent, T> transformer) {
     return new StreamQueueReader<>(consumerSupplier, batchSize, transformer);
   }
 }
@@ -34,10 +34,10 @@ import java.util.concurrent.TimeUnit;
 public final class StreamQueueReader<T> implements QueueReader<T> {
 
   private final Supplier<StreamConsumer> consumerSupplier;
-  private final int batchSize;
+  private final Supplier<Integer> batchSize;
   private final Function<StreamEvent, T> eventTransform;
 
-  StreamQueueReader(Supplier<StreamConsumer> consumerSupplier, int batchSize,
+  StreamQueueReader(Supplier<StreamConsumer> consumerSupplier, Supplier<Integer> batchSize,
                     Function<StreamEvent, T> eventTransform) {
     this.consumerSupplier = consumerSupplier;
     this.batchSize = batchSize;
@@ -48,6 +48,6 @@ public final class StreamQueueReader<T> implements QueueReader<T> {
   public InputDatum<T> dequeue(long timeout, TimeUnit timeoutUnit) throws IOException, InterruptedException {
     StreamConsumer consumer = consumerSupplier.get();
     return new BasicInputDatum<>(QueueName.fromStream(consumer.getStreamId()),
-                                               consumer.poll(batchSize, timeout, timeoutUnit), eventTransform);
+                                               consumer.poll(batchSize.get(), timeout, timeoutUnit), eventTransform);
   }
 }
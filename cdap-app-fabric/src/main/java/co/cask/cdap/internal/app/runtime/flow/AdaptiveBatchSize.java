@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Number of events to dequeue for a process method, which adapts to the outcome of each transaction.
+ * <p>
+ * The average time per event is tracked from committed transactions, and the batch size moves toward the
+ * number of events that can be processed within the target transaction duration. The size at most doubles
+ * per transaction, and only grows if the last dequeue was full, meaning there are more events in the queue.
+ * A transaction conflict halves the batch size, as a smaller batch has lower chance of conflict.
+ * </p>
+ */
+@NotThreadSafe
+final class AdaptiveBatchSize implements Supplier<Integer> {
+
+  // Weight of the latest transaction in the average time per event
+  private static final double SMOOTHING = 0.3d;
+
+  private final int maxSize;
+  private final long targetNanos;
+  private int size;
+  private double nanosPerEvent;
+
+  /**
+   * Creates an instance.
+   *
+   * @param initialSize batch size to start with
+   * @param maxSize maximum batch size
+   * @param targetTxDuration target duration of a transaction
+   * @param unit unit of the target duration
+   */
+  AdaptiveBatchSize(int initialSize, int maxSize, long targetTxDuration, TimeUnit unit) {
+    Preconditions.checkArgument(initialSize > 0, "Initial batch size must be > 0: %s", initialSize);
+    Preconditions.checkArgument(targetTxDuration > 0, "Target transaction duration must be > 0: %s",
+                                targetTxDuration);
+    this.maxSize = Math.max(initialSize, maxSize);
+    this.targetNanos = unit.toNanos(targetTxDuration);
+    this.size = initialSize;
+    this.nanosPerEvent = -1d;
+  }
+
+  @Override
+  public Integer get() {
+    return size;
+  }
+
+  /**
+   * Updates the batch size with a committed transaction.
+   *
+   * @param events number of events processed by the transaction
+   * @param txNanos duration of the transaction in nanoseconds
+   * @return {@code true} if the batch size is changed
+   */
+  boolean committed(int events, long txNanos) {
+    if (events <= 0) {
+      return false;
+    }
+    double latest = (double) Math.max(txNanos, 1L) / events;
+    nanosPerEvent = nanosPerEvent < 0 ? latest : SMOOTHING * latest + (1 - SMOOTHING) * nanosPerEvent;
+
+    long targetSize = (long) (targetNanos / nanosPerEvent);
+    // Don't grow if the queue doesn't have enough events to fill the current batch
+    long newSize = events < size ? Math.min(size, targetSize) : Math.min(size * 2L, targetSize);
+    return setSize(newSize);
+  }
+
+  /**
+   * Updates the batch size with a transaction that failed to commit due to conflict.
+   *
+   * @return {@code true} if the batch size is changed
+   */
+  boolean conflicted() {
+    return setSize(size / 2);
+  }
+
+  private boolean setSize(long newSize) {
+    int oldSize = size;
+    size = (int) Math.max(1L, Math.min(maxSize, newSize));
+    return size != oldSize;
+  }
+}
@@ -29,6 +29,7 @@ import co.cask.cdap.common.logging.LoggingContextAccessor;
 import co.cask.cdap.common.queue.QueueName;
 import co.cask.cdap.internal.app.queue.SingleItemQueueReader;
 import co.cask.cdap.internal.app.runtime.DataFabricFacade;
+import co.cask.tephra.TransactionConflictException;
 import co.cask.tephra.TransactionContext;
 import co.cask.tephra.TransactionFailureException;
 import com.google.common.base.Preconditions;
@@ -52,6 +53,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import javax.annotation.Nullable;
 
 /**
  * This class responsible invoking process methods of a {@link Flowlet}.
@@ -220,6 +222,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     // Begin transaction and dequeue
     TransactionContext txContext = dataFabricFacade.createTransactionManager();
     try {
+      long txStartTime = System.nanoTime();
       txContext.start();
 
       try {
@@ -237,7 +240,8 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
         // Call the process method and commit the transaction. The current process entry will put
         // back to queue in the postProcess method (either a retry copy or itself).
         ProcessMethod.ProcessResult<?> result = processMethod.invoke(input);
-        postProcess(processMethodCallback(processQueue, entry, input), txContext, input, result);
+        postProcess(processMethodCallback(processQueue, entry, input), txContext, input, result,
+                    entry.getProcessSpec().getAdaptiveBatchSize(), txStartTime);
         return true;
 
       } catch (Throwable t) {
@@ -259,7 +263,8 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
    * Process the process result. This method never throws.
    */
   private void postProcess(ProcessMethodCallback callback, TransactionContext txContext,
-                           InputDatum input, ProcessMethod.ProcessResult result) {
+                           InputDatum input, ProcessMethod.ProcessResult result,
+                           @Nullable AdaptiveBatchSize batchSize, long txStartTime) {
     InputContext inputContext = input.getInputContext();
     Throwable failureCause = null;
     FailureReason.Type failureType = FailureReason.Type.IO_ERROR;
@@ -270,6 +275,9 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
           input.reclaim();
         }
         txContext.finish();
+        if (batchSize != null && batchSize.committed(input.size(), System.nanoTime() - txStartTime)) {
+          gaugeBatchSize(input, batchSize);
+        }
       } else {
         failureCause = result.getCause();
         failureType = FailureReason.Type.USER;
@@ -278,6 +286,9 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     } catch (Throwable e) {
       LOG.error("Transaction operation failed: {}", e.getMessage(), e);
       failureType = FailureReason.Type.IO_ERROR;
+      if (batchSize != null && e instanceof TransactionConflictException && batchSize.conflicted()) {
+        gaugeBatchSize(input, batchSize);
+      }
       if (failureCause == null) {
         failureCause = e;
       }
@@ -303,6 +314,18 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     }
   }
 
+  /**
+   * Emits the batch size of a process method as a metric of the input queue.
+   */
+  private void gaugeBatchSize(InputDatum input, AdaptiveBatchSize batchSize) {
+    QueueName queueName = input.getQueueName();
+    if (queueName == null) {
+      return;
+    }
+    flowletContext.getProgramMetrics().childContext(Constants.Metrics.Tag.FLOWLET_QUEUE, queueName.getSimpleName())
+      .gauge("process.batch.size", batchSize.get());
+  }
+
   private InputAcknowledger createInputAcknowledger(final InputDatum input) {
     return new InputAcknowledger() {
       @Override
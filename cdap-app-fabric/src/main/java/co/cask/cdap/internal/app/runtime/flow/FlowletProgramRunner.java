@@ -44,6 +44,7 @@ import co.cask.cdap.app.runtime.ProgramController;
 import co.cask.cdap.app.runtime.ProgramOptions;
 import co.cask.cdap.app.runtime.ProgramRunner;
 import co.cask.cdap.common.async.ExecutorUtils;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.BinaryDecoder;
 import co.cask.cdap.common.lang.InstantiatorFactory;
@@ -71,8 +72,9 @@ import co.cask.cdap.internal.app.runtime.DataFabricFacadeFactory;
 import co.cask.cdap.internal.app.runtime.DataSetFieldSetter;
 import co.cask.cdap.internal.app.runtime.MetricsFieldSetter;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
+import co.cask.cdap.internal.io.DatumReader;
+import co.cask.cdap.internal.io.DatumReaderFactory;
 import co.cask.cdap.internal.io.DatumWriterFactory;
-import co.cask.cdap.internal.io.ReflectionDatumReader;
 import co.cask.cdap.internal.io.SchemaGenerator;
 import co.cask.cdap.internal.lang.Reflections;
 import co.cask.cdap.internal.specification.FlowletMethod;
@@ -82,6 +84,8 @@ import co.cask.common.io.ByteBufferInputStream;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -111,6 +115,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -125,6 +130,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
 
   private final SchemaGenerator schemaGenerator;
   private final DatumWriterFactory datumWriterFactory;
+  private final DatumReaderFactory datumReaderFactory;
   private final DataFabricFacadeFactory dataFabricFacadeFactory;
   private final StreamCoordinatorClient streamCoordinatorClient;
   private final QueueReaderFactory queueReaderFactory;
@@ -132,10 +138,13 @@ public final class FlowletProgramRunner implements ProgramRunner {
   private final DiscoveryServiceClient discoveryServiceClient;
   private final DatasetFramework dsFramework;
   private final UsageRegistry usageRegistry;
+  private final CConfiguration cConf;
 
   @Inject
-  public FlowletProgramRunner(SchemaGenerator schemaGenerator,
+  public FlowletProgramRunner(CConfiguration cConf,
+                              SchemaGenerator schemaGenerator,
                               DatumWriterFactory datumWriterFactory,
+                              DatumReaderFactory datumReaderFactory,
                               DataFabricFacadeFactory dataFabricFacadeFactory,
                               StreamCoordinatorClient streamCoordinatorClient,
                               QueueReaderFactory queueReaderFactory,
@@ -145,6 +154,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
                               UsageRegistry usageRegistry) {
     this.schemaGenerator = schemaGenerator;
     this.datumWriterFactory = datumWriterFactory;
+    this.datumReaderFactory = datumReaderFactory;
     this.dataFabricFacadeFactory = dataFabricFacadeFactory;
     this.streamCoordinatorClient = streamCoordinatorClient;
     this.queueReaderFactory = queueReaderFactory;
@@ -152,6 +162,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
     this.discoveryServiceClient = discoveryServiceClient;
     this.dsFramework = dsFramework;
     this.usageRegistry = usageRegistry;
+    this.cConf = cConf;
   }
 
   @SuppressWarnings("unused")
@@ -516,6 +527,9 @@ public final class FlowletProgramRunner implements ProgramRunner {
                                              ProcessMethod<T> method, ConsumerConfig consumerConfig, int batchSize,
                                              Tick tickAnnotation) {
         List<QueueReader<T>> queueReaders = Lists.newLinkedList();
+        AdaptiveBatchSize adaptiveBatchSize = createAdaptiveBatchSize(inputNames, batchSize);
+        Supplier<Integer> batchSizeSupplier = adaptiveBatchSize == null
+          ? Suppliers.ofInstance(batchSize) : adaptiveBatchSize;
 
         for (Map.Entry<Node, Set<QueueSpecification>> entry : queueSpecs.column(flowletName).entrySet()) {
           for (QueueSpecification queueSpec : entry.getValue()) {
@@ -542,7 +556,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
                   }
                 });
 
-                queueReaders.add(queueReaderFactory.createStreamReader(consumerSupplier, batchSize, decoder));
+                queueReaders.add(queueReaderFactory.createStreamReader(consumerSupplier, batchSizeSupplier, decoder));
 
               } else {
                 int numGroups = getNumGroups(Iterables.concat(queueSpecs.row(entry.getKey()).values()), queueName);
@@ -556,7 +570,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
                                                                                            dataFabricFacade, queueName,
                                                                                            consumerConfig, numGroups);
                 queueConsumerSupplierBuilder.add(consumerSupplier);
-                queueReaders.add(queueReaderFactory.createQueueReader(consumerSupplier, batchSize, decoder));
+                queueReaders.add(queueReaderFactory.createQueueReader(consumerSupplier, batchSizeSupplier, decoder));
               }
             }
           }
@@ -566,14 +580,34 @@ public final class FlowletProgramRunner implements ProgramRunner {
         if (!inputNames.isEmpty() && queueReaders.isEmpty()) {
           return null;
         }
-        return new ProcessSpecification<>(new RoundRobinQueueReader<>(queueReaders), method, tickAnnotation);
+        return new ProcessSpecification<>(new RoundRobinQueueReader<>(queueReaders), method, tickAnnotation,
+                                          adaptiveBatchSize);
       }
     };
   }
 
+  /**
+   * Creates an {@link AdaptiveBatchSize} for a process method if adaptive batch is enabled.
+   *
+   * @return an {@link AdaptiveBatchSize} or {@code null} if adaptive batch is disabled or the method has no input
+   */
+  @Nullable
+  private AdaptiveBatchSize createAdaptiveBatchSize(Set<String> inputNames, int batchSize) {
+    if (inputNames.isEmpty() || !cConf.getBoolean(Constants.AppFabric.FLOWLET_ADAPTIVE_BATCH_ENABLED,
+                                                  Constants.AppFabric.DEFAULT_FLOWLET_ADAPTIVE_BATCH_ENABLED)) {
+      return null;
+    }
+    return new AdaptiveBatchSize(batchSize,
+                                 cConf.getInt(Constants.AppFabric.FLOWLET_ADAPTIVE_BATCH_MAX_SIZE,
+                                              Constants.AppFabric.DEFAULT_FLOWLET_ADAPTIVE_BATCH_MAX_SIZE),
+                                 cConf.getLong(Constants.AppFabric.FLOWLET_ADAPTIVE_BATCH_TARGET_TX_MS,
+                                               Constants.AppFabric.DEFAULT_FLOWLET_ADAPTIVE_BATCH_TARGET_TX_MS),
+                                 TimeUnit.MILLISECONDS);
+  }
+
   private <T> Function<ByteBuffer, T> createInputDatumDecoder(final TypeToken<T> dataType, final Schema schema,
                                                               final SchemaCache schemaCache) {
-    final ReflectionDatumReader<T> datumReader = new ReflectionDatumReader<>(schema, dataType);
+    final DatumReader<T> datumReader = datumReaderFactory.create(dataType, schema);
     final ByteBufferInputStream byteBufferInput = new ByteBufferInputStream(null);
     final BinaryDecoder decoder = new BinaryDecoder(byteBufferInput);
 
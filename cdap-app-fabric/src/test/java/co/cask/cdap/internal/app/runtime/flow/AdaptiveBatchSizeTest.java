@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link AdaptiveBatchSize}.
+ */
+public class AdaptiveBatchSizeTest {
+
+  @Test
+  public void testGrowToTarget() {
+    // 1ms per event, target 100ms per transaction
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(1, 1000, 100, TimeUnit.MILLISECONDS);
+
+    // Batch size at most doubles per transaction
+    int expected = 1;
+    while (expected < 100) {
+      int size = batchSize.get();
+      Assert.assertEquals(expected, size);
+      Assert.assertTrue(batchSize.committed(size, TimeUnit.MILLISECONDS.toNanos(size)));
+      expected = Math.min(expected * 2, 100);
+    }
+    Assert.assertEquals(100, (int) batchSize.get());
+
+    // Stays at the target
+    Assert.assertFalse(batchSize.committed(100, TimeUnit.MILLISECONDS.toNanos(100)));
+    Assert.assertEquals(100, (int) batchSize.get());
+  }
+
+  @Test
+  public void testNoGrowWithoutBacklog() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(10, 1000, 100, TimeUnit.MILLISECONDS);
+
+    // Fast transactions, but the queue doesn't have enough events to fill the batch
+    for (int i = 0; i < 10; i++) {
+      Assert.assertFalse(batchSize.committed(5, TimeUnit.MILLISECONDS.toNanos(1)));
+      Assert.assertEquals(10, (int) batchSize.get());
+    }
+
+    // Grows once the batch is full
+    Assert.assertTrue(batchSize.committed(10, TimeUnit.MILLISECONDS.toNanos(1)));
+    Assert.assertEquals(20, (int) batchSize.get());
+  }
+
+  @Test
+  public void testShrink() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 1000, 100, TimeUnit.MILLISECONDS);
+
+    // Slow transactions shrink the batch, 10ms per event
+    for (int i = 0; i < 20; i++) {
+      int size = batchSize.get();
+      batchSize.committed(size, TimeUnit.MILLISECONDS.toNanos(size * 10));
+    }
+    Assert.assertEquals(10, (int) batchSize.get());
+
+    // Conflict halves the batch
+    Assert.assertTrue(batchSize.conflicted());
+    Assert.assertEquals(5, (int) batchSize.get());
+    batchSize.conflicted();
+    batchSize.conflicted();
+    batchSize.conflicted();
+    Assert.assertEquals(1, (int) batchSize.get());
+    Assert.assertFalse(batchSize.conflicted());
+    Assert.assertEquals(1, (int) batchSize.get());
+  }
+
+  @Test
+  public void testMaxSize() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(1, 50, 100, TimeUnit.MILLISECONDS);
+    for (int i = 0; i < 20; i++) {
+      int size = batchSize.get();
+      batchSize.committed(size, TimeUnit.MICROSECONDS.toNanos(size));
+    }
+    Assert.assertEquals(50, (int) batchSize.get());
+
+    // Max size is at least the initial size
+    batchSize = new AdaptiveBatchSize(100, 50, 100, TimeUnit.MILLISECONDS);
+    batchSize.committed(100, TimeUnit.MICROSECONDS.toNanos(100));
+    Assert.assertEquals(100, (int) batchSize.get());
+  }
+}
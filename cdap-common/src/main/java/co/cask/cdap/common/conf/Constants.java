@@ -98,6 +98,13 @@ public final class Constants {
     public static final String MAPREDUCE_JOB_CLIENT_CONNECT_MAX_RETRIES = "mapreduce.jobclient.connect.max.retries";
     public static final String MAPREDUCE_INCLUDE_CUSTOM_CLASSES = "mapreduce.include.custom.format.classes";
 
+    /**
+     * Adaptive sizing of the dequeue batch of flowlet process methods.
+     */
+    public static final String FLOWLET_ADAPTIVE_BATCH_ENABLED = "app.program.flowlet.adaptive.batch.enabled";
+    public static final String FLOWLET_ADAPTIVE_BATCH_MAX_SIZE = "app.program.flowlet.adaptive.batch.max.size";
+    public static final String FLOWLET_ADAPTIVE_BATCH_TARGET_TX_MS = "app.program.flowlet.adaptive.batch.target.tx.ms";
+
     /**
      * Guice named bindings.
      */
@@ -110,6 +117,9 @@ public final class Constants {
     public static final int DEFAULT_EXEC_THREADS = 20;
     public static final int DEFAULT_BOSS_THREADS = 1;
     public static final int DEFAULT_WORKER_THREADS = 10;
+    public static final boolean DEFAULT_FLOWLET_ADAPTIVE_BATCH_ENABLED = false;
+    public static final int DEFAULT_FLOWLET_ADAPTIVE_BATCH_MAX_SIZE = 1000;
+    public static final long DEFAULT_FLOWLET_ADAPTIVE_BATCH_TARGET_TX_MS = 200L;
 
     /**
      * Query parameter to indicate start time.
@@ -265,12 +275,16 @@ public final class Constants {
     public static final String TTL = "stream.event.ttl";
     public static final String PARTITION_DURATION = "stream.partition.duration";
     public static final String INDEX_INTERVAL = "stream.index.interval";
+    public static final String COMPRESSION = "stream.compression";
     public static final String FILE_PREFIX = "stream.file.prefix";
     public static final String INSTANCE_FILE_PREFIX = "stream.instance.file.prefix";
     public static final String CONSUMER_TABLE_PRESPLITS = "stream.consumer.table.presplits";
     public static final String FILE_CLEANUP_PERIOD = "stream.file.cleanup.period";
     public static final String BATCH_BUFFER_THRESHOLD = "stream.batch.buffer.threshold";
     public static final String NOTIFICATION_THRESHOLD = "stream.notification.threshold";
+    public static final String GROUP_COMMIT_WINDOW_MS = "stream.group.commit.window.ms";
+    public static final String GROUP_COMMIT_MAX_BYTES = "stream.group.commit.max.bytes";
+    public static final String FETCH_PARALLELISM = "stream.fetch.parallelism";
 
     // Stream http service configurations.
     public static final String STREAM_HANDLER = "stream.handler";
@@ -347,6 +361,11 @@ public final class Constants {
     public static final String SERVER_WORKER_THREADS = "router.server.worker.threads";
     public static final String CLIENT_BOSS_THREADS = "router.client.boss.threads";
     public static final String CLIENT_WORKER_THREADS = "router.client.worker.threads";
+    public static final String CLIENT_POOL_MAX_IDLE_CONNECTIONS = "router.client.pool.max.idle.connections";
+    public static final String CLIENT_POOL_IDLE_TIMEOUT_SECS = "router.client.pool.idle.timeout.secs";
+    public static final String METRICS_ENABLED = "router.metrics.enabled";
+    // Strategy for picking the instance of a service, can be overridden for a service by appending "." + service name
+    public static final String ENDPOINT_STRATEGY = "router.endpoint.strategy";
 
     /**
      * Defaults.
@@ -363,6 +382,10 @@ public final class Constants {
     public static final int DEFAULT_SERVER_WORKER_THREADS = 10;
     public static final int DEFAULT_CLIENT_BOSS_THREADS = 1;
     public static final int DEFAULT_CLIENT_WORKER_THREADS = 10;
+    public static final int DEFAULT_CLIENT_POOL_MAX_IDLE_CONNECTIONS = 32;
+    public static final long DEFAULT_CLIENT_POOL_IDLE_TIMEOUT_SECS = 30;
+    public static final boolean DEFAULT_METRICS_ENABLED = false;
+    public static final String DEFAULT_ENDPOINT_STRATEGY = "random";
 
     public static final String GATEWAY_DISCOVERY_NAME = Service.GATEWAY;
     public static final String WEBAPP_DISCOVERY_NAME = "webapp/$HOST";
@@ -401,6 +424,9 @@ public final class Constants {
 
     public static final String SERVER_ADDRESS = "metrics.query.bind.address";
     public static final String SERVER_PORT = "metrics.query.bind.port";
+    public static final String QUERY_PARALLELISM = "metrics.query.parallelism";
+    public static final String QUERY_CACHE_MAX_VALUES = "metrics.query.cache.max.values";
+    public static final String QUERY_CACHE_COMPLETION_DELAY_SECONDS = "metrics.query.cache.completion.delay.seconds";
 
     public static final String KAFKA_TOPIC_PREFIX = "metrics.kafka.topic.prefix";
     public static final String KAFKA_PARTITION_SIZE = "metrics.kafka.partition.size";
@@ -506,6 +532,10 @@ public final class Constants {
         public static final String OP_COUNT = "dataset.store.ops";
         public static final String WRITE_COUNT = "dataset.store.writes";
         public static final String WRITE_BYTES = "dataset.store.bytes";
+        public static final String SCAN_ROWS = "dataset.store.scan.rows";
+        public static final String SCAN_RPCS = "dataset.store.scan.rpcs";
+        public static final String SCAN_BYTES = "dataset.store.scan.bytes";
+        public static final String SCAN_ROWS_RATE = "dataset.store.scan.rows.rate";
       }
     }
 
@@ -716,6 +746,7 @@ public final class Constants {
     public static final String ACTIVE_OPERATION_TIMEOUT_SECS = "explore.active.operation.timeout.secs";
     public static final String INACTIVE_OPERATION_TIMEOUT_SECS = "explore.inactive.operation.timeout.secs";
     public static final String CLEANUP_JOB_SCHEDULE_SECS = "explore.cleanup.job.schedule.secs";
+    public static final String RESULT_PREFETCH_PAGES = "explore.result.prefetch.pages";
 
     public static final String SERVICE_DESCRIPTION = "Service to run ad-hoc queries.";
 
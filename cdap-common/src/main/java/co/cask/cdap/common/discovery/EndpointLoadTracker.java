@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.common.discovery;
+
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.metrics.MetricsTags;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Maps;
+import org.apache.twill.discovery.Discoverable;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps track of the load of endpoints, as the number of outstanding requests and an exponentially weighted moving
+ * average of the response time. Used by {@link LoadAwareEndpointStrategy} to pick endpoints.
+ * <p>
+ * The response time average decays over time when an endpoint gets no response, so that an endpoint that was slow
+ * in the past is eventually tried again.
+ */
+public final class EndpointLoadTracker {
+
+  // Time for the response time average to decay by a factor of e, and the weight of new samples over that time
+  private static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+  // Response time assumed for any endpoint, so that the number of outstanding requests counts for new endpoints
+  private static final long MIN_RESPONSE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final MetricsContext metricsContext;
+  private final LoadingCache<Map.Entry<String, InetSocketAddress>, EndpointLoad> loads;
+
+  public EndpointLoadTracker() {
+    this(null);
+  }
+
+  /**
+   * Creates a tracker.
+   *
+   * @param metricsContext context for emitting the load of each endpoint, or {@code null} to not emit metrics
+   */
+  public EndpointLoadTracker(@Nullable MetricsContext metricsContext) {
+    this.metricsContext = metricsContext;
+    this.loads = CacheBuilder.newBuilder()
+      .expireAfterAccess(1, TimeUnit.HOURS)
+      .build(new CacheLoader<Map.Entry<String, InetSocketAddress>, EndpointLoad>() {
+        @Override
+        public EndpointLoad load(Map.Entry<String, InetSocketAddress> key) throws Exception {
+          return new EndpointLoad(key.getKey(), key.getValue());
+        }
+      });
+  }
+
+  /**
+   * Records the start of a request to the given endpoint.
+   */
+  public void requestStarted(Discoverable endpoint) {
+    getEndpointLoad(endpoint).requestStarted();
+  }
+
+  /**
+   * Records the completion of a request to the given endpoint, successful or not.
+   *
+   * @param responseNanos time in nanoseconds from the start of the request to its completion
+   */
+  public void requestCompleted(Discoverable endpoint, long responseNanos) {
+    getEndpointLoad(endpoint).requestCompleted(responseNanos);
+  }
+
+  /**
+   * Returns the load of the given endpoint, as the expected time in nanoseconds for a new request to complete.
+   */
+  public double getLoad(Discoverable endpoint) {
+    return getEndpointLoad(endpoint).getLoad();
+  }
+
+  private EndpointLoad getEndpointLoad(Discoverable endpoint) {
+    return loads.getUnchecked(Maps.immutableEntry(endpoint.getName(), endpoint.getSocketAddress()));
+  }
+
+  /**
+   * The load of one endpoint.
+   */
+  private final class EndpointLoad {
+    private final MetricsContext endpointMetrics;
+    private int outstanding;
+    private double responseNanos;
+    private long updateNanos;
+
+    private EndpointLoad(String name, InetSocketAddress address) {
+      this.endpointMetrics = metricsContext == null ? null : metricsContext.childContext(
+        MetricsTags.serviceEndpoint(name, address));
+      this.updateNanos = System.nanoTime();
+    }
+
+    private void requestStarted() {
+      int outstanding;
+      synchronized (this) {
+        outstanding = ++this.outstanding;
+      }
+      if (endpointMetrics != null) {
+        endpointMetrics.increment("endpoint.requests", 1);
+        endpointMetrics.gauge("endpoint.requests.outstanding", outstanding);
+      }
+    }
+
+    private void requestCompleted(long responseNanos) {
+      int outstanding;
+      double average;
+      synchronized (this) {
+        long now = System.nanoTime();
+        double weight = Math.exp(-(double) Math.max(0L, now - updateNanos) / DECAY_NANOS);
+        // The first response doesn't get averaged with the initial zero
+        this.responseNanos = this.responseNanos == 0 ? responseNanos
+                                                     : this.responseNanos * weight + responseNanos * (1 - weight);
+        this.updateNanos = now;
+        outstanding = this.outstanding = Math.max(0, this.outstanding - 1);
+        average = this.responseNanos;
+      }
+      if (endpointMetrics != null) {
+        endpointMetrics.gauge("endpoint.requests.outstanding", outstanding);
+        endpointMetrics.gauge("endpoint.response.time.ms", TimeUnit.NANOSECONDS.toMillis((long) average));
+      }
+    }
+
+    private synchronized double getLoad() {
+      double decayed = responseNanos * Math.exp(-(double) Math.max(0L, System.nanoTime() - updateNanos) / DECAY_NANOS);
+      return Math.max(decayed, MIN_RESPONSE_NANOS) * (outstanding + 1);
+    }
+  }
+}
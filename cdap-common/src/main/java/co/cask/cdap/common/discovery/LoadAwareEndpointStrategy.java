@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.common.discovery;
+
+import com.google.common.collect.Lists;
+import org.apache.twill.discovery.Discoverable;
+import org.apache.twill.discovery.ServiceDiscovered;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An {@link EndpointStrategy} that picks the less loaded of two random endpoints, with the load of endpoints given
+ * by an {@link EndpointLoadTracker}. Picking from two random endpoints instead of the least loaded one avoids sending
+ * all the requests to the same endpoint between the updates of the loads.
+ */
+public final class LoadAwareEndpointStrategy extends AbstractEndpointStrategy {
+
+  private final EndpointLoadTracker loadTracker;
+
+  /**
+   * Constructs a load aware endpoint strategy.
+   *
+   * @param serviceDiscovered the endpoints to pick from
+   * @param loadTracker the tracker of the load of the endpoints, which should be told about the requests made to
+   *                    the picked endpoints
+   */
+  public LoadAwareEndpointStrategy(ServiceDiscovered serviceDiscovered, EndpointLoadTracker loadTracker) {
+    super(serviceDiscovered);
+    this.loadTracker = loadTracker;
+  }
+
+  @Override
+  public Discoverable pick() {
+    List<Discoverable> endpoints = Lists.newArrayList(serviceDiscovered);
+    int size = endpoints.size();
+    if (size <= 1) {
+      return size == 0 ? null : endpoints.get(0);
+    }
+
+    Random random = ThreadLocalRandom.current();
+    int first = random.nextInt(size);
+    // Pick the second one from the other endpoints
+    int second = random.nextInt(size - 1);
+    if (second >= first) {
+      second++;
+    }
+
+    Discoverable firstEndpoint = endpoints.get(first);
+    Discoverable secondEndpoint = endpoints.get(second);
+    return loadTracker.getLoad(firstEndpoint) <= loadTracker.getLoad(secondEndpoint) ? firstEndpoint : secondEndpoint;
+  }
+}
@@ -20,12 +20,19 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.exception.HttpExceptionHandler;
 import co.cask.http.NettyHttpService;
 import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import org.jboss.netty.channel.ChannelPipeline;
 
+import java.util.List;
+
 /**
  * Provides a {@link NettyHttpService.Builder} that has common settings built-in.
  */
 public class CommonNettyHttpServiceBuilder extends NettyHttpService.Builder {
+
+  private final List<Function<ChannelPipeline, ChannelPipeline>> pipelineModifiers = Lists.newArrayList();
+
   public CommonNettyHttpServiceBuilder(CConfiguration configuration) {
     super();
     if (configuration.getBoolean(Constants.Security.ENABLED)) {
@@ -39,4 +46,24 @@ public class CommonNettyHttpServiceBuilder extends NettyHttpService.Builder {
     }
     this.setExceptionHandler(new HttpExceptionHandler());
   }
+
+  /**
+   * Adds a modification of the channel pipeline. The modifications are applied in the order they are added,
+   * after the common ones, instead of replacing each other.
+   */
+  @Override
+  public NettyHttpService.Builder modifyChannelPipeline(Function<ChannelPipeline, ChannelPipeline> function) {
+    pipelineModifiers.add(function);
+    final List<Function<ChannelPipeline, ChannelPipeline>> modifiers = ImmutableList.copyOf(pipelineModifiers);
+    return super.modifyChannelPipeline(new Function<ChannelPipeline, ChannelPipeline>() {
+      @Override
+      public ChannelPipeline apply(ChannelPipeline input) {
+        ChannelPipeline pipeline = input;
+        for (Function<ChannelPipeline, ChannelPipeline> modifier : modifiers) {
+          pipeline = modifier.apply(pipeline);
+        }
+        return pipeline;
+      }
+    });
+  }
 }
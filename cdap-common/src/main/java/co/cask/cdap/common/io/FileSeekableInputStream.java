@@ -25,13 +25,22 @@ import java.nio.channels.FileChannel;
  */
 final class FileSeekableInputStream extends SeekableInputStream {
 
+  private final FileInputStream fileInput;
   private final FileChannel fileChannel;
 
   FileSeekableInputStream(FileInputStream in) {
     super(in);
+    this.fileInput = in;
     this.fileChannel = in.getChannel();
   }
 
+  /**
+   * Returns the underlying {@link FileInputStream}.
+   */
+  FileInputStream getFileInputStream() {
+    return fileInput;
+  }
+
   @Override
   public void seek(long pos) throws IOException {
     fileChannel.position(pos);
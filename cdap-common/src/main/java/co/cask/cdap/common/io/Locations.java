@@ -132,6 +132,34 @@ public final class Locations {
     };
   }
 
+  /**
+   * Creates a new {@link InputSupplier} that can provides {@link SeekableInputStream} from the given location.
+   * If the location is a local file, the {@link SeekableInputStream} memory maps the file
+   * (see {@link MappedFileSeekableInputStream}), otherwise it is the same as {@link #newInputSupplier(Location)}.
+   *
+   * @param location Location for the input stream.
+   * @return A {@link InputSupplier}.
+   */
+  public static InputSupplier<? extends SeekableInputStream> newMappedInputSupplier(final Location location) {
+    final InputSupplier<? extends SeekableInputStream> inputSupplier = newInputSupplier(location);
+    return new InputSupplier<SeekableInputStream>() {
+      @Override
+      public SeekableInputStream getInput() throws IOException {
+        SeekableInputStream input = inputSupplier.getInput();
+        if (!(input instanceof FileSeekableInputStream)) {
+          return input;
+        }
+        try {
+          return new MappedFileSeekableInputStream(((FileSeekableInputStream) input).getFileInputStream());
+        } catch (Throwable t) {
+          Closeables.closeQuietly(input);
+          Throwables.propagateIfInstanceOf(t, IOException.class);
+          throw new IOException(t);
+        }
+      }
+    };
+  }
+
   /**
    * Do some processing on the locations contained in the {@code startLocation}, using the {@code processor}. If this
    * location is a directory, all the locations contained in it will also be processed. If the {@code recursive} tag
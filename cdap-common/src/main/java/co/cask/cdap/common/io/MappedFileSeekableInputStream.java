@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.io;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Implements {@link SeekableInputStream} for a local file by memory mapping a region of the file at a time.
+ * Reading past the end of the mapped region maps a new region starting at the current position.
+ * <p>
+ * Once a region shorter than the map size was mapped, the end of the file was reached. Data appended to the file
+ * after that is read through the file channel into a buffer, instead of mapping a new region every time the file
+ * grows, until there is enough data to map a full region again.
+ * <p>
+ * Besides the {@link java.io.InputStream} methods, {@link #read(int)} gives access to the file content without
+ * copying it.
+ */
+public final class MappedFileSeekableInputStream extends SeekableInputStream {
+
+  // Maximum size of a mapped region
+  private static final int DEFAULT_MAP_SIZE = 64 * 1024 * 1024;
+  // Minimum size of the buffer for reading the end of the file without mapping it
+  private static final int TAIL_BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel fileChannel;
+  private final int mapSize;
+  // Either a mapped region or the tail buffer, holding the file content starting at bufferStart
+  private ByteBuffer buffer;
+  private long bufferStart;
+  private ByteBuffer tailBuffer;
+  // Whether the last mapped region reached the end of the file
+  private boolean tailing;
+  private long position;
+
+  MappedFileSeekableInputStream(FileInputStream in) throws IOException {
+    this(in, DEFAULT_MAP_SIZE);
+  }
+
+  MappedFileSeekableInputStream(FileInputStream in, int mapSize) throws IOException {
+    super(in);
+    this.fileChannel = in.getChannel();
+    this.mapSize = mapSize;
+    this.position = fileChannel.position();
+  }
+
+  /**
+   * Returns a {@link ByteBuffer} with the given number of bytes from the current position, which is advanced by
+   * the same amount. The returned buffer shares content with the mapped file. For data appended to the file after
+   * the end of the file was mapped, it shares content with a buffer that is only valid until the next read.
+   *
+   * @param size number of bytes to read
+   * @return a {@link ByteBuffer} with position {@code 0} and limit {@code size}
+   * @throws EOFException if there are less than {@code size} bytes available
+   * @throws IOException if failed to map the file
+   */
+  public ByteBuffer read(int size) throws IOException {
+    if (!ensureBuffered(size)) {
+      throw new EOFException("Expected to read " + size + " bytes at position " + position
+                               + ", but file size is " + fileChannel.size());
+    }
+    ByteBuffer result = buffer.duplicate();
+    int offset = (int) (position - bufferStart);
+    result.limit(offset + size).position(offset);
+    position += size;
+    return result.slice();
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!ensureBuffered(1)) {
+      return -1;
+    }
+    int b = buffer.get((int) (position - bufferStart)) & 0xff;
+    position++;
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!ensureBuffered(1)) {
+      return -1;
+    }
+    int offset = (int) (position - bufferStart);
+    int bytesRead = Math.min(len, buffer.limit() - offset);
+    ByteBuffer result = buffer.duplicate();
+    result.position(offset);
+    result.get(b, off, bytesRead);
+    position += bytesRead;
+    return bytesRead;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = Math.max(0L, Math.min(n, fileChannel.size() - position));
+    position += skipped;
+    return skipped;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return (int) Math.min(Integer.MAX_VALUE, Math.max(0L, fileChannel.size() - position));
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public void seek(long pos) throws IOException {
+    position = pos;
+  }
+
+  @Override
+  public long getPos() throws IOException {
+    return position;
+  }
+
+  @Override
+  public boolean seekToNewSource(long targetPos) throws IOException {
+    return false;
+  }
+
+  @Override
+  public long size() throws IOException {
+    return fileChannel.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    // The mapping is released when the buffer is garbage collected.
+    buffer = null;
+    tailBuffer = null;
+    super.close();
+  }
+
+  /**
+   * Makes sure the given number of bytes starting at the current position are in the buffer, either by mapping
+   * a region of the file or, at the end of a file that grew since it was mapped, by reading into the tail buffer.
+   *
+   * @return {@code true} if the bytes are buffered, {@code false} if the file doesn't have enough bytes
+   */
+  private boolean ensureBuffered(int len) throws IOException {
+    if (buffer != null && position >= bufferStart && position + len <= bufferStart + buffer.limit()) {
+      return true;
+    }
+    long fileSize = fileChannel.size();
+    if (position + len > fileSize) {
+      return false;
+    }
+    long remaining = fileSize - position;
+    if (!tailing || remaining >= mapSize) {
+      long mapLength = Math.max(len, Math.min(mapSize, remaining));
+      buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, mapLength);
+      tailing = mapLength < mapSize;
+    } else if (!fillTailBuffer(len, remaining)) {
+      return false;
+    } else {
+      buffer = tailBuffer;
+    }
+    bufferStart = position;
+    return true;
+  }
+
+  /**
+   * Reads up to the given number of remaining bytes of the file from the current position into the tail buffer.
+   *
+   * @return {@code true} if at least {@code len} bytes were read
+   */
+  private boolean fillTailBuffer(int len, long remaining) throws IOException {
+    int capacity = Math.max(len, TAIL_BUFFER_SIZE);
+    if (tailBuffer == null || tailBuffer.capacity() < capacity) {
+      tailBuffer = ByteBuffer.allocate(capacity);
+    }
+    // The previous content of the tail buffer is replaced, so it can't be the current buffer anymore
+    buffer = null;
+    tailBuffer.clear();
+    tailBuffer.limit((int) Math.min(tailBuffer.capacity(), remaining));
+    long readPosition = position;
+    while (tailBuffer.hasRemaining()) {
+      int bytesRead = fileChannel.read(tailBuffer, readPosition);
+      if (bytesRead < 0) {
+        break;
+      }
+      readPosition += bytesRead;
+    }
+    tailBuffer.flip();
+    return tailBuffer.limit() >= len;
+  }
+}
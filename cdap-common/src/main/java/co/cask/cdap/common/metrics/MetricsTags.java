@@ -20,6 +20,7 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.proto.Id;
 import com.google.common.collect.ImmutableMap;
 
+import java.net.InetSocketAddress;
 import java.util.Map;
 
 /**
@@ -53,4 +54,15 @@ public final class MetricsTags {
       Constants.Metrics.Tag.SERVICE, id.getId(),
       Constants.Metrics.Tag.HANDLER, handlerId);
   }
+
+  /**
+   * Returns the tags for the metrics of an endpoint of a system service, to add to the tags of the system component
+   * that calls the endpoint. The metrics store has no dedicated tags for endpoints, so the name of the service is used
+   * as the handler and the address of the endpoint as the method, which lets them be queried like handler metrics.
+   */
+  public static Map<String, String> serviceEndpoint(String serviceName, InetSocketAddress address) {
+    return ImmutableMap.of(
+      Constants.Metrics.Tag.HANDLER, serviceName,
+      Constants.Metrics.Tag.METHOD, address.getHostName() + ":" + address.getPort());
+  }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.io;
+
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.common.lang.InstantiatorFactory;
+import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.reflect.TypeToken;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import javax.inject.Inject;
+
+/**
+ * A factory class for creating {@link DatumReader} instance for different data type and schema, which is the
+ * counterpart of {@link ASMDatumWriterFactory}. For each schema the data is written with, the readers resolve the
+ * schemas and the data type once, with {@link DatumReaderResolver}, and cache the result. Record fields are set
+ * through the {@link FieldAccessor}s of the given {@link FieldAccessorFactory}, which generates their bytecode with
+ * ASM when it is a {@link ASMFieldAccessorFactory}.
+ */
+public final class ASMDatumReaderFactory implements DatumReaderFactory {
+
+  private final LoadingCache<CacheKey, DatumReaderResolver.ValueReader> valueReaders;
+
+  @Inject
+  public ASMDatumReaderFactory(final FieldAccessorFactory fieldAccessorFactory) {
+    final FieldAccessorFactory finalFieldAccessorFactory = new ReflectionFieldAccessorFactory();
+    final InstantiatorFactory instantiatorFactory = new InstantiatorFactory(true);
+    this.valueReaders = CacheBuilder.newBuilder().build(new CacheLoader<CacheKey, DatumReaderResolver.ValueReader>() {
+      @Override
+      public DatumReaderResolver.ValueReader load(CacheKey key) throws Exception {
+        return new DatumReaderResolver(fieldAccessorFactory, finalFieldAccessorFactory, instantiatorFactory)
+          .resolve(key.sourceSchema, key.targetSchema, key.type);
+      }
+    });
+  }
+
+  /**
+   * Creates a {@link DatumReader} that is able to decode given data type with the given {@link Schema}.
+   * The instance created is thread safe and reusable.
+   *
+   * @param type Type information of the data type to be decoded.
+   * @param schema Schema of the data type.
+   * @param <T> Type of the data type.
+   * @return A {@link DatumReader} instance.
+   */
+  @Override
+  public <T> DatumReader<T> create(TypeToken<T> type, Schema schema) {
+    return new ResolvedDatumReader<>(schema, type);
+  }
+
+  private DatumReaderResolver.ValueReader getValueReader(CacheKey key) throws IOException {
+    try {
+      return valueReaders.get(key);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * A {@link DatumReader} that reads with the resolved reader of the source schema.
+   *
+   * @param <T> Type of the data type.
+   */
+  private final class ResolvedDatumReader<T> implements DatumReader<T> {
+    private final Schema schema;
+    private final TypeToken<T> type;
+    // The reader of the last source schema, which almost never changes
+    private volatile SourceReader lastReader;
+
+    private ResolvedDatumReader(Schema schema, TypeToken<T> type) {
+      this.schema = schema;
+      this.type = type;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T read(Decoder decoder, Schema sourceSchema) throws IOException {
+      SourceReader reader = lastReader;
+      if (reader == null || reader.sourceSchema != sourceSchema) {
+        reader = new SourceReader(sourceSchema, getValueReader(new CacheKey(sourceSchema, schema, type)));
+        lastReader = reader;
+      }
+      return (T) reader.valueReader.read(decoder);
+    }
+  }
+
+  /**
+   * A source schema with its resolved reader.
+   */
+  private static final class SourceReader {
+    private final Schema sourceSchema;
+    private final DatumReaderResolver.ValueReader valueReader;
+
+    private SourceReader(Schema sourceSchema, DatumReaderResolver.ValueReader valueReader) {
+      this.sourceSchema = sourceSchema;
+      this.valueReader = valueReader;
+    }
+  }
+
+  private static final class CacheKey {
+    private final Schema sourceSchema;
+    private final Schema targetSchema;
+    private final TypeToken<?> type;
+
+    private CacheKey(Schema sourceSchema, Schema targetSchema, TypeToken<?> type) {
+      this.sourceSchema = sourceSchema;
+      this.targetSchema = targetSchema;
+      this.type = type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      CacheKey cacheKey = (CacheKey) o;
+      return sourceSchema.equals(cacheKey.sourceSchema) && targetSchema.equals(cacheKey.targetSchema)
+        && type.equals(cacheKey.type);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(sourceSchema, targetSchema, type);
+    }
+  }
+}
@@ -0,0 +1,787 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.io;
+
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.common.lang.Instantiator;
+import co.cask.cdap.common.lang.InstantiatorFactory;
+import co.cask.cdap.internal.lang.Fields;
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+import com.google.common.reflect.TypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Resolves the schema that data was written with against the schema and type to read it as, into a tree of
+ * {@link ValueReader}s. The resolution that {@link ReflectionDatumReader} does for every value, such as matching
+ * the schemas, finding the types, instantiators and field accessors, and looking up enum constants, is done once.
+ * Resolution follows the same rules as {@link ReflectionReader}, except that the branch of a union is chosen when
+ * resolving instead of when reading.
+ */
+@NotThreadSafe
+final class DatumReaderResolver {
+
+  private final FieldAccessorFactory fieldAccessorFactory;
+  private final FieldAccessorFactory finalFieldAccessorFactory;
+  private final InstantiatorFactory instantiatorFactory;
+
+  // the readers of the records being resolved, so that recursive records reuse them
+  private final Map<RecordKey, RecordReader> recordReaders = Maps.newHashMap();
+  private final List<RecordKey> recordKeys = Lists.newArrayList();
+
+  /**
+   * Creates a resolver.
+   *
+   * @param fieldAccessorFactory factory of the accessors to set record fields with
+   * @param finalFieldAccessorFactory factory of the accessors to set final record fields with
+   * @param instantiatorFactory factory of the instantiators of records, collections and maps
+   */
+  DatumReaderResolver(FieldAccessorFactory fieldAccessorFactory, FieldAccessorFactory finalFieldAccessorFactory,
+                      InstantiatorFactory instantiatorFactory) {
+    this.fieldAccessorFactory = fieldAccessorFactory;
+    this.finalFieldAccessorFactory = finalFieldAccessorFactory;
+    this.instantiatorFactory = instantiatorFactory;
+  }
+
+  /**
+   * Resolves a source schema to a target schema and type.
+   *
+   * @param sourceSchema the schema the data was written with
+   * @param targetSchema the schema to read the data as
+   * @param targetType the type of the objects to read
+   * @return a {@link ValueReader} that reads the data written with the source schema as the target type
+   * @throws IOException if the source schema can't be resolved to the target schema and type
+   */
+  ValueReader resolve(Schema sourceSchema, Schema targetSchema, TypeToken<?> targetType) throws IOException {
+    if (sourceSchema.getType() != Schema.Type.UNION && targetSchema.getType() == Schema.Type.UNION) {
+      // Try every target schemas
+      for (Schema schema : targetSchema.getUnionSchemas()) {
+        try {
+          return doResolve(sourceSchema, schema, targetType);
+        } catch (IOException e) {
+          // Continue;
+        }
+      }
+      throw new IOException(String.format("No matching schema to resolve %s to %s", sourceSchema, targetSchema));
+    }
+    return doResolve(sourceSchema, targetSchema, targetType);
+  }
+
+  private ValueReader doResolve(Schema sourceSchema, Schema targetSchema,
+                                TypeToken<?> targetTypeToken) throws IOException {
+    Schema.Type sourceType = sourceSchema.getType();
+    Schema.Type targetType = targetSchema.getType();
+
+    switch (sourceType) {
+      case NULL:
+        check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+        return SimpleReader.NULL;
+      case BYTES:
+        check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+        if (targetTypeToken.getRawType().equals(byte[].class)) {
+          return SimpleReader.BYTES_ARRAY;
+        }
+        if (targetTypeToken.getRawType().equals(UUID.class)) {
+          return SimpleReader.BYTES_UUID;
+        }
+        return SimpleReader.BYTES;
+      case ENUM:
+        check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+        return resolveEnum(sourceSchema, targetSchema, targetTypeToken);
+      case ARRAY:
+        check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+        return resolveArray(sourceSchema, targetSchema, targetTypeToken);
+      case MAP:
+        check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+        return resolveMap(sourceSchema, targetSchema, targetTypeToken);
+      case RECORD:
+        check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+        return resolveRecord(sourceSchema, targetSchema, targetTypeToken);
+      case UNION:
+        return resolveUnion(sourceSchema, targetSchema, targetTypeToken);
+    }
+    // For simple type other than NULL and BYTES
+    if (sourceType.isSimpleType()) {
+      return resolveSimpleType(sourceType, targetType, targetTypeToken);
+    }
+    throw new IOException(String.format("Fails to resolve %s to %s", sourceSchema, targetSchema));
+  }
+
+  private ValueReader resolveSimpleType(Schema.Type sourceType, Schema.Type targetType,
+                                        TypeToken<?> targetTypeToken) throws IOException {
+    Class<?> targetClass = targetTypeToken.getRawType();
+    switch (sourceType) {
+      case BOOLEAN:
+        switch (targetType) {
+          case BOOLEAN:
+            return SimpleReader.BOOLEAN;
+          case STRING:
+            return SimpleReader.BOOLEAN_STRING;
+        }
+        break;
+      case INT:
+        switch (targetType) {
+          case INT:
+            if (targetClass.equals(byte.class) || targetClass.equals(Byte.class)) {
+              return SimpleReader.INT_BYTE;
+            }
+            if (targetClass.equals(char.class) || targetClass.equals(Character.class)) {
+              return SimpleReader.INT_CHAR;
+            }
+            if (targetClass.equals(short.class) || targetClass.equals(Short.class)) {
+              return SimpleReader.INT_SHORT;
+            }
+            return SimpleReader.INT;
+          case LONG:
+            return SimpleReader.INT_LONG;
+          case FLOAT:
+            return SimpleReader.INT_FLOAT;
+          case DOUBLE:
+            return SimpleReader.INT_DOUBLE;
+          case STRING:
+            return SimpleReader.INT_STRING;
+        }
+        break;
+      case LONG:
+        switch (targetType) {
+          case LONG:
+            return SimpleReader.LONG;
+          case FLOAT:
+            return SimpleReader.LONG_FLOAT;
+          case DOUBLE:
+            return SimpleReader.LONG_DOUBLE;
+          case STRING:
+            return SimpleReader.LONG_STRING;
+        }
+        break;
+      case FLOAT:
+        switch (targetType) {
+          case FLOAT:
+            return SimpleReader.FLOAT;
+          case DOUBLE:
+            return SimpleReader.FLOAT_DOUBLE;
+          case STRING:
+            return SimpleReader.FLOAT_STRING;
+        }
+        break;
+      case DOUBLE:
+        switch (targetType) {
+          case DOUBLE:
+            return SimpleReader.DOUBLE;
+          case STRING:
+            return SimpleReader.DOUBLE_STRING;
+        }
+        break;
+      case STRING:
+        switch (targetType) {
+          case STRING:
+            if (targetClass.equals(URI.class)) {
+              return SimpleReader.STRING_URI;
+            }
+            if (targetClass.equals(URL.class)) {
+              return SimpleReader.STRING_URL;
+            }
+            return SimpleReader.STRING;
+        }
+        break;
+    }
+
+    throw new IOException("Fail to resolve type " + sourceType + " to type " + targetType);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private ValueReader resolveEnum(final Schema sourceSchema, Schema targetSchema,
+                                  TypeToken<?> targetType) throws IOException {
+    Class<?> enumClass = targetType.getRawType();
+    check(enumClass.isEnum(), "Fails to resolve %s to %s", sourceSchema, targetType);
+
+    // The enum constants by index in the source schema, null for the values missing in the target
+    final Object[] constants = new Object[sourceSchema.getEnumValues().size()];
+    for (int i = 0; i < constants.length; i++) {
+      String enumValue = sourceSchema.getEnumValue(i);
+      if (targetSchema.getEnumValues().contains(enumValue)) {
+        try {
+          constants[i] = Enum.valueOf((Class) enumClass, enumValue);
+        } catch (IllegalArgumentException e) {
+          // Missing in the enum class, which fails when it is read.
+        }
+      }
+    }
+
+    return new ValueReader() {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        int idx = decoder.readInt();
+        Object constant = idx >= 0 && idx < constants.length ? constants[idx] : null;
+        if (constant == null) {
+          throw new IOException(String.format("Enum value '%s' missing in target.", sourceSchema.getEnumValue(idx)));
+        }
+        return constant;
+      }
+    };
+  }
+
+  private ValueReader resolveArray(Schema sourceSchema, Schema targetSchema,
+                                   TypeToken<?> targetType) throws IOException {
+    TypeToken<?> componentType = null;
+    if (targetType.isArray()) {
+      componentType = targetType.getComponentType();
+    } else if (Collection.class.isAssignableFrom(targetType.getRawType())) {
+      Type type = targetType.getType();
+      check(type instanceof ParameterizedType, "Only parameterized type is supported for collection.");
+      componentType = TypeToken.of(((ParameterizedType) type).getActualTypeArguments()[0]);
+    }
+    check(componentType != null, "Only array or collection type is support for array value.");
+
+    ValueReader elementReader = resolve(sourceSchema.getComponentSchema(),
+                                        targetSchema.getComponentSchema(), componentType);
+    if (targetType.isArray()) {
+      return new ArrayReader(componentType.getRawType(), elementReader);
+    }
+    return new CollectionReader(instantiatorFactory.get(targetType), elementReader);
+  }
+
+  private ValueReader resolveMap(Schema sourceSchema, Schema targetSchema,
+                                 TypeToken<?> targetType) throws IOException {
+    check(Map.class.isAssignableFrom(targetType.getRawType()), "Only map type is supported for map data.");
+    Type type = targetType.getType();
+    check(type instanceof ParameterizedType, "Only parameterized map is supported.");
+    Type[] typeArgs = ((ParameterizedType) type).getActualTypeArguments();
+
+    Map.Entry<Schema, Schema> sourceEntry = sourceSchema.getMapSchema();
+    Map.Entry<Schema, Schema> targetEntry = targetSchema.getMapSchema();
+    return new MapReader(instantiatorFactory.get(targetType),
+                         resolve(sourceEntry.getKey(), targetEntry.getKey(), TypeToken.of(typeArgs[0])),
+                         resolve(sourceEntry.getValue(), targetEntry.getValue(), TypeToken.of(typeArgs[1])));
+  }
+
+  private ValueReader resolveUnion(Schema sourceSchema, Schema targetSchema, TypeToken<?> targetType) {
+    List<Schema> sourceValueSchemas = sourceSchema.getUnionSchemas();
+    ValueReader[] valueReaders = new ValueReader[sourceValueSchemas.size()];
+    for (int i = 0; i < valueReaders.length; i++) {
+      valueReaders[i] = resolveUnionValue(sourceSchema, sourceValueSchemas.get(i), i, targetSchema, targetType);
+    }
+    return new UnionReader(valueReaders);
+  }
+
+  /**
+   * Resolves one of the schemas of a source union. If it can't be resolved, the reader returned fails when the
+   * union has a value of that schema.
+   */
+  private ValueReader resolveUnionValue(Schema sourceSchema, Schema sourceValueSchema, int idx,
+                                        Schema targetSchema, TypeToken<?> targetType) {
+    if (targetSchema.getType() == Schema.Type.UNION) {
+      // A simple optimization to try resolve before resorting to linearly try the union schema.
+      Schema targetValueSchema = targetSchema.getUnionSchema(idx);
+      if (targetValueSchema != null && targetValueSchema.getType() == sourceValueSchema.getType()) {
+        try {
+          return resolve(sourceValueSchema, targetValueSchema, targetType);
+        } catch (IOException e) {
+          // OK to ignore it, as we'll do union schema resolution
+        }
+      }
+      for (Schema schema : targetSchema.getUnionSchemas()) {
+        try {
+          return resolve(sourceValueSchema, schema, targetType);
+        } catch (IOException e) {
+          // It's ok to have exception here, as we'll keep trying until exhausted the target union.
+        }
+      }
+      return new FailReader(String.format("Fail to resolve %s to %s", sourceSchema, targetSchema));
+    }
+
+    try {
+      return resolve(sourceValueSchema, targetSchema, targetType);
+    } catch (IOException e) {
+      return new FailReader(e.getMessage());
+    }
+  }
+
+  private ValueReader resolveRecord(Schema sourceSchema, Schema targetSchema,
+                                    TypeToken<?> targetType) throws IOException {
+    RecordKey key = new RecordKey(sourceSchema, targetSchema, targetType);
+    RecordReader recordReader = recordReaders.get(key);
+    if (recordReader != null) {
+      return recordReader;
+    }
+
+    // Register the reader before resolving the fields, in case the record is recursive
+    recordReader = new RecordReader(instantiatorFactory.get(targetType));
+    int resolvedRecords = recordKeys.size();
+    recordReaders.put(key, recordReader);
+    recordKeys.add(key);
+
+    try {
+      List<Schema.Field> sourceFields = sourceSchema.getFields();
+      FieldAccessor[] fieldAccessors = new FieldAccessor[sourceFields.size()];
+      ValueReader[] fieldReaders = new ValueReader[sourceFields.size()];
+      for (int i = 0; i < fieldReaders.length; i++) {
+        Schema.Field sourceField = sourceFields.get(i);
+        Schema.Field targetField = targetSchema.getField(sourceField.getName());
+        if (targetField == null) {
+          fieldReaders[i] = new SkipReader(sourceField.getSchema());
+          continue;
+        }
+        fieldAccessors[i] = getFieldAccessor(targetType, sourceField.getName());
+        fieldReaders[i] = resolve(sourceField.getSchema(), targetField.getSchema(), fieldAccessors[i].getType());
+      }
+      recordReader.setFields(fieldAccessors, fieldReaders);
+      return recordReader;
+    } catch (Exception e) {
+      // Forget the records resolved with this one, since they may refer to it
+      for (RecordKey recordKey : recordKeys.subList(resolvedRecords, recordKeys.size())) {
+        recordReaders.remove(recordKey);
+      }
+      recordKeys.subList(resolvedRecords, recordKeys.size()).clear();
+      if (e instanceof IOException) {
+        throw (IOException) e;
+      }
+      throw new IOException(e);
+    }
+  }
+
+  private FieldAccessor getFieldAccessor(TypeToken<?> recordType, String fieldName) throws NoSuchFieldException {
+    Field field = Fields.findField(recordType, fieldName);
+    // Generated field accessors set fields directly, which is not allowed for final fields.
+    if (Modifier.isFinal(field.getModifiers())) {
+      return finalFieldAccessorFactory.getFieldAccessor(recordType, fieldName);
+    }
+    return fieldAccessorFactory.getFieldAccessor(recordType, fieldName);
+  }
+
+  private void check(boolean condition, String message, Object... objs) throws IOException {
+    if (!condition) {
+      throw new IOException(String.format(message, objs));
+    }
+  }
+
+  /**
+   * Reads a value of a resolved schema.
+   */
+  interface ValueReader {
+
+    Object read(Decoder decoder) throws IOException;
+  }
+
+  /**
+   * Readers of the values of simple types, to the types they resolve to.
+   */
+  private enum SimpleReader implements ValueReader {
+    NULL {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return decoder.readNull();
+      }
+    },
+    BOOLEAN {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return decoder.readBool();
+      }
+    },
+    BOOLEAN_STRING {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return String.valueOf(decoder.readBool());
+      }
+    },
+    INT {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return decoder.readInt();
+      }
+    },
+    INT_BYTE {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return (byte) decoder.readInt();
+      }
+    },
+    INT_CHAR {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return (char) decoder.readInt();
+      }
+    },
+    INT_SHORT {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return (short) decoder.readInt();
+      }
+    },
+    INT_LONG {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return (long) decoder.readInt();
+      }
+    },
+    INT_FLOAT {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return (float) decoder.readInt();
+      }
+    },
+    INT_DOUBLE {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return (double) decoder.readInt();
+      }
+    },
+    INT_STRING {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return String.valueOf(decoder.readInt());
+      }
+    },
+    LONG {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return decoder.readLong();
+      }
+    },
+    LONG_FLOAT {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return (float) decoder.readLong();
+      }
+    },
+    LONG_DOUBLE {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return (double) decoder.readLong();
+      }
+    },
+    LONG_STRING {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return String.valueOf(decoder.readLong());
+      }
+    },
+    FLOAT {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return decoder.readFloat();
+      }
+    },
+    FLOAT_DOUBLE {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return (double) decoder.readFloat();
+      }
+    },
+    FLOAT_STRING {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return String.valueOf(decoder.readFloat());
+      }
+    },
+    DOUBLE {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return decoder.readDouble();
+      }
+    },
+    DOUBLE_STRING {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return String.valueOf(decoder.readDouble());
+      }
+    },
+    STRING {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return decoder.readString();
+      }
+    },
+    STRING_URI {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return URI.create(decoder.readString());
+      }
+    },
+    STRING_URL {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return new URL(decoder.readString());
+      }
+    },
+    BYTES {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return decoder.readBytes();
+      }
+    },
+    BYTES_ARRAY {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        ByteBuffer buffer = decoder.readBytes();
+        if (buffer.hasArray()) {
+          byte[] array = buffer.array();
+          if (buffer.remaining() == array.length) {
+            return array;
+          }
+          byte[] bytes = new byte[buffer.remaining()];
+          System.arraycopy(array, buffer.arrayOffset() + buffer.position(), bytes, 0, buffer.remaining());
+          return bytes;
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+      }
+    },
+    BYTES_UUID {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        ByteBuffer buffer = decoder.readBytes();
+        if (buffer.remaining() == Longs.BYTES * 2) {
+          return new UUID(buffer.getLong(), buffer.getLong());
+        }
+        return buffer;
+      }
+    }
+  }
+
+  /**
+   * Reads an array value into a Java array.
+   */
+  private static final class ArrayReader implements ValueReader {
+    private final Class<?> componentClass;
+    private final ValueReader elementReader;
+
+    ArrayReader(Class<?> componentClass, ValueReader elementReader) {
+      this.componentClass = componentClass;
+      this.elementReader = elementReader;
+    }
+
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      List<Object> elements = Lists.newArrayList();
+      int len = decoder.readInt();
+      while (len != 0) {
+        for (int i = 0; i < len; i++) {
+          elements.add(elementReader.read(decoder));
+        }
+        len = decoder.readInt();
+      }
+
+      Object array = Array.newInstance(componentClass, elements.size());
+      if (!componentClass.isPrimitive()) {
+        return elements.toArray((Object[]) array);
+      }
+      int idx = 0;
+      for (Object element : elements) {
+        Array.set(array, idx++, element);
+      }
+      return array;
+    }
+  }
+
+  /**
+   * Reads an array value into a {@link Collection}.
+   */
+  private static final class CollectionReader implements ValueReader {
+    private final Instantiator<?> instantiator;
+    private final ValueReader elementReader;
+
+    CollectionReader(Instantiator<?> instantiator, ValueReader elementReader) {
+      this.instantiator = instantiator;
+      this.elementReader = elementReader;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      Collection<Object> collection = (Collection<Object>) instantiator.create();
+      int len = decoder.readInt();
+      while (len != 0) {
+        for (int i = 0; i < len; i++) {
+          collection.add(elementReader.read(decoder));
+        }
+        len = decoder.readInt();
+      }
+      return collection;
+    }
+  }
+
+  /**
+   * Reads a map value.
+   */
+  private static final class MapReader implements ValueReader {
+    private final Instantiator<?> instantiator;
+    private final ValueReader keyReader;
+    private final ValueReader valueReader;
+
+    MapReader(Instantiator<?> instantiator, ValueReader keyReader, ValueReader valueReader) {
+      this.instantiator = instantiator;
+      this.keyReader = keyReader;
+      this.valueReader = valueReader;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      Map<Object, Object> map = (Map<Object, Object>) instantiator.create();
+      int len = decoder.readInt();
+      while (len != 0) {
+        for (int i = 0; i < len; i++) {
+          Object key = keyReader.read(decoder);
+          map.put(key, valueReader.read(decoder));
+        }
+        len = decoder.readInt();
+      }
+      return map;
+    }
+  }
+
+  /**
+   * Reads a union value with the reader of the schema of the value.
+   */
+  private static final class UnionReader implements ValueReader {
+    private final ValueReader[] valueReaders;
+
+    UnionReader(ValueReader[] valueReaders) {
+      this.valueReaders = valueReaders;
+    }
+
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      int idx = decoder.readInt();
+      if (idx < 0 || idx >= valueReaders.length) {
+        throw new IOException("Invalid union index " + idx);
+      }
+      return valueReaders[idx].read(decoder);
+    }
+  }
+
+  /**
+   * Reads a record value, setting the fields of the record that are in the target schema and skipping the others.
+   */
+  private static final class RecordReader implements ValueReader {
+    private final Instantiator<?> instantiator;
+    private FieldAccessor[] fieldAccessors;
+    private ValueReader[] fieldReaders;
+
+    RecordReader(Instantiator<?> instantiator) {
+      this.instantiator = instantiator;
+    }
+
+    void setFields(FieldAccessor[] fieldAccessors, ValueReader[] fieldReaders) {
+      this.fieldAccessors = fieldAccessors;
+      this.fieldReaders = fieldReaders;
+    }
+
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      try {
+        Object record = instantiator.create();
+        for (int i = 0; i < fieldReaders.length; i++) {
+          Object value = fieldReaders[i].read(decoder);
+          if (fieldAccessors[i] != null) {
+            fieldAccessors[i].set(record, value);
+          }
+        }
+        return record;
+      } catch (RuntimeException e) {
+        throw new IOException(e);
+      }
+    }
+  }
+
+  /**
+   * Skips a value that is not in the target schema.
+   */
+  private static final class SkipReader implements ValueReader {
+    private final Schema schema;
+
+    SkipReader(Schema schema) {
+      this.schema = schema;
+    }
+
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      ReflectionDatumReader.skip(decoder, schema);
+      return null;
+    }
+  }
+
+  /**
+   * Fails to read a value of a schema that could not be resolved.
+   */
+  private static final class FailReader implements ValueReader {
+    private final String message;
+
+    FailReader(String message) {
+      this.message = message;
+    }
+
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      throw new IOException(message);
+    }
+  }
+
+  /**
+   * Identifies the resolution of a record schema, by schema instances since recursive schemas refer to themselves.
+   */
+  private static final class RecordKey {
+    private final Schema sourceSchema;
+    private final Schema targetSchema;
+    private final TypeToken<?> targetType;
+
+    RecordKey(Schema sourceSchema, Schema targetSchema, TypeToken<?> targetType) {
+      this.sourceSchema = sourceSchema;
+      this.targetSchema = targetSchema;
+      this.targetType = targetType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      RecordKey other = (RecordKey) o;
+      return sourceSchema == other.sourceSchema && targetSchema == other.targetSchema
+        && targetType.equals(other.targetType);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(System.identityHashCode(sourceSchema), System.identityHashCode(targetSchema),
+                              targetType);
+    }
+  }
+}
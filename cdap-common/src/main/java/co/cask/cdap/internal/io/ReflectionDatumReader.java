@@ -207,7 +207,7 @@ public final class ReflectionDatumReader<T> extends ReflectionReader<Decoder, T>
     }
   }
 
-  private void skip(Decoder decoder, Schema schema) throws IOException {
+  static void skip(Decoder decoder, Schema schema) throws IOException {
     switch (schema.getType()) {
       case NULL:
         break;
@@ -250,7 +250,7 @@ public final class ReflectionDatumReader<T> extends ReflectionReader<Decoder, T>
     }
   }
 
-  private void skipArray(Decoder decoder, Schema componentSchema) throws IOException {
+  private static void skipArray(Decoder decoder, Schema componentSchema) throws IOException {
     int len = decoder.readInt();
     while (len != 0) {
       skip(decoder, componentSchema);
@@ -258,7 +258,7 @@ public final class ReflectionDatumReader<T> extends ReflectionReader<Decoder, T>
     }
   }
 
-  private void skipMap(Decoder decoder, Map.Entry<Schema, Schema> mapSchema) throws IOException {
+  private static void skipMap(Decoder decoder, Map.Entry<Schema, Schema> mapSchema) throws IOException {
     int len = decoder.readInt();
     while (len != 0) {
       skip(decoder, mapSchema.getKey());
@@ -267,7 +267,7 @@ public final class ReflectionDatumReader<T> extends ReflectionReader<Decoder, T>
     }
   }
 
-  private void skipRecord(Decoder decoder, Schema recordSchema) throws IOException {
+  private static void skipRecord(Decoder decoder, Schema recordSchema) throws IOException {
     for (Schema.Field field : recordSchema.getFields()) {
       skip(decoder, field.getSchema());
     }
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.discovery;
+
+import org.apache.twill.discovery.Discoverable;
+import org.apache.twill.discovery.InMemoryDiscoveryService;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link LoadAwareEndpointStrategy}.
+ */
+public class LoadAwareEndpointStrategyTest {
+
+  @Test
+  public void testPickLessLoaded() throws Exception {
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    Discoverable busy = createDiscoverable("service", 1000);
+    Discoverable idle = createDiscoverable("service", 1001);
+    discoveryService.register(busy);
+    discoveryService.register(idle);
+
+    EndpointLoadTracker loadTracker = new EndpointLoadTracker();
+    EndpointStrategy strategy = new LoadAwareEndpointStrategy(discoveryService.discover("service"), loadTracker);
+    Assert.assertNotNull(strategy.pick(5, TimeUnit.SECONDS));
+
+    // Slow responses and outstanding requests on one endpoint
+    for (int i = 0; i < 5; i++) {
+      loadTracker.requestStarted(busy);
+      loadTracker.requestCompleted(busy, TimeUnit.MILLISECONDS.toNanos(100));
+    }
+    loadTracker.requestStarted(busy);
+
+    // With two endpoints, both are always compared
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(idle.getSocketAddress(), strategy.pick().getSocketAddress());
+    }
+
+    // Once the other endpoint gets slower, it is not picked anymore
+    for (int i = 0; i < 5; i++) {
+      loadTracker.requestStarted(idle);
+    }
+    loadTracker.requestCompleted(idle, TimeUnit.SECONDS.toNanos(10));
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(busy.getSocketAddress(), strategy.pick().getSocketAddress());
+    }
+  }
+
+  @Test
+  public void testPickNoEndpoint() {
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    EndpointStrategy strategy = new LoadAwareEndpointStrategy(discoveryService.discover("service"),
+                                                              new EndpointLoadTracker());
+    Assert.assertNull(strategy.pick());
+  }
+
+  private Discoverable createDiscoverable(final String name, final int port) {
+    return new Discoverable() {
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public InetSocketAddress getSocketAddress() {
+        return new InetSocketAddress("localhost", port);
+      }
+    };
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.io;
+
+import com.google.common.io.InputSupplier;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.apache.twill.filesystem.LocationFactory;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Unit test for {@link MappedFileSeekableInputStream}.
+ */
+public class MappedFileSeekableInputStreamTest extends SeekableInputStreamTestBase {
+
+  private static LocationFactory locationFactory;
+
+  @BeforeClass
+  public static void init() throws IOException {
+    locationFactory = new LocalLocationFactory(TMP_FOLDER.newFolder());
+  }
+
+  @Override
+  protected LocationFactory getLocationFactory() {
+    return locationFactory;
+  }
+
+  @Override
+  protected InputSupplier<? extends SeekableInputStream> getInputSupplier(Location location) {
+    return Locations.newMappedInputSupplier(location);
+  }
+
+  @Test
+  public void testMappedInput() throws IOException {
+    Location location = getLocationFactory().create("testMapped");
+    Locations.newOutputSupplier(location).getOutput().close();
+
+    SeekableInputStream input = getInputSupplier(location).getInput();
+    try {
+      Assert.assertTrue(input instanceof MappedFileSeekableInputStream);
+    } finally {
+      input.close();
+    }
+  }
+
+  @Test
+  public void testGrowingFile() throws IOException {
+    Location location = getLocationFactory().create("testGrowing");
+
+    byte[] bytes = new byte[1024];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (i & 0xff);
+    }
+
+    OutputStream output = Locations.newOutputSupplier(location).getOutput();
+    output.write(bytes);
+    sync(output);
+
+    // Use a small map size so that reads go across mapped regions
+    MappedFileSeekableInputStream input =
+      new MappedFileSeekableInputStream(new FileInputStream(new File(location.toURI())), 100);
+    try {
+      byte[] readBytes = new byte[bytes.length];
+      int len = 0;
+      while (len < readBytes.length) {
+        int n = input.read(readBytes, len, readBytes.length - len);
+        Assert.assertTrue(n > 0 && n <= 100);
+        len += n;
+      }
+      Assert.assertArrayEquals(bytes, readBytes);
+      Assert.assertEquals(-1, input.read());
+
+      // Appends more bytes, which should be readable from the same input
+      output.write(bytes);
+      sync(output);
+      Assert.assertEquals(bytes.length * 2, input.size());
+
+      // Read buffers larger than the map size, which shares the file content
+      input.seek(bytes.length - 10);
+      ByteBuffer buffer = input.read(500);
+      Assert.assertEquals(500, buffer.remaining());
+      for (int i = 0; i < 500; i++) {
+        Assert.assertEquals((byte) ((bytes.length - 10 + i) & 0xff), buffer.get());
+      }
+      Assert.assertEquals(bytes.length + 490, input.getPos());
+
+      // Reading beyond the end should fail without moving the position
+      try {
+        input.read(bytes.length);
+        Assert.fail("Expected EOFException");
+      } catch (EOFException e) {
+        // Expected
+      }
+      Assert.assertEquals(bytes.length + 490, input.getPos());
+      Assert.assertEquals(bytes.length - 490, input.skip(bytes.length));
+      Assert.assertEquals(-1, input.read());
+    } finally {
+      output.close();
+      input.close();
+    }
+  }
+
+  @Test
+  public void testTailReads() throws IOException {
+    Location location = getLocationFactory().create("testTail");
+
+    byte[] bytes = new byte[100];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+
+    OutputStream output = Locations.newOutputSupplier(location).getOutput();
+    output.write(bytes);
+    sync(output);
+
+    MappedFileSeekableInputStream input =
+      new MappedFileSeekableInputStream(new FileInputStream(new File(location.toURI())), 1000);
+    try {
+      // The whole file fits in a region shorter than the map size
+      Assert.assertTrue(input.read(bytes.length).isDirect());
+      Assert.assertEquals(-1, input.read());
+
+      // Data appended after the end of the file was mapped is read without mapping the file again
+      for (int i = 1; i <= 3; i++) {
+        output.write(bytes);
+        sync(output);
+        ByteBuffer buffer = input.read(bytes.length);
+        Assert.assertFalse(buffer.isDirect());
+        Assert.assertEquals(ByteBuffer.wrap(bytes), buffer);
+        Assert.assertEquals(bytes.length * (i + 1), input.getPos());
+      }
+
+      // Single byte reads at the end of the file
+      output.write(bytes);
+      sync(output);
+      for (byte b : bytes) {
+        Assert.assertEquals(b & 0xff, input.read());
+      }
+      Assert.assertEquals(-1, input.read());
+
+      // Once there is enough data, a full region is mapped again
+      for (int i = 0; i < 10; i++) {
+        output.write(bytes);
+      }
+      sync(output);
+      Assert.assertTrue(input.read(bytes.length).isDirect());
+    } finally {
+      output.close();
+      input.close();
+    }
+  }
+}
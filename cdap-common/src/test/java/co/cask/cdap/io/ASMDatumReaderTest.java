@@ -0,0 +1,257 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.io;
+
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.data.schema.UnsupportedTypeException;
+import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.internal.io.ASMDatumReaderFactory;
+import co.cask.cdap.internal.io.ASMDatumWriterFactory;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.DatumReader;
+import co.cask.cdap.internal.io.DatumReaderFactory;
+import co.cask.cdap.internal.io.DatumWriter;
+import co.cask.cdap.internal.io.DatumWriterFactory;
+import co.cask.cdap.internal.io.ReflectionDatumWriter;
+import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.reflect.TypeToken;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for the {@link DatumReader}s created by {@link ASMDatumReaderFactory}.
+ */
+public class ASMDatumReaderTest {
+
+  private static final DatumReaderFactory DATUM_READER_FACTORY
+    = new ASMDatumReaderFactory(new ASMFieldAccessorFactory());
+  private static final DatumWriterFactory DATUM_WRITER_FACTORY
+    = new ASMDatumWriterFactory(new ASMFieldAccessorFactory());
+
+  /**
+   * An enum with a value that is not in {@link DatumCodecTest.TestEnum}.
+   */
+  public enum MoreEnum {
+    VALUE1, VALUE2, VALUE3, VALUE4
+  }
+
+  /**
+   * A record with a field that is nullable in {@link NullableRecord}.
+   */
+  public static final class NonNullRecord {
+    int i;
+    String s;
+  }
+
+  /**
+   * A record with nullable fields.
+   */
+  public static final class NullableRecord {
+    Integer i;
+    String s;
+  }
+
+  @Test
+  public void testTypeProject() throws IOException, UnsupportedTypeException {
+    Map<Integer, DatumCodecTest.Value> properties = Maps.newHashMap();
+    properties.put(1, new DatumCodecTest.Value(1, "Name1"));
+    properties.put(2, new DatumCodecTest.Value(2, "Name2"));
+    properties.put(3, null);
+    DatumCodecTest.Record1 r1 = new DatumCodecTest.Record1(10, properties, new URL("http://www.yahoo.com"));
+
+    Schema sourceSchema = new ReflectionSchemaGenerator().generate(DatumCodecTest.Record1.class);
+    Schema targetSchema = new ReflectionSchemaGenerator().generate(DatumCodecTest.Record2.class);
+    byte[] bytes = encode(new ReflectionDatumWriter<DatumCodecTest.Record1>(sourceSchema), r1);
+
+    DatumReader<DatumCodecTest.Record2> reader =
+      DATUM_READER_FACTORY.create(TypeToken.of(DatumCodecTest.Record2.class), targetSchema);
+    // read twice to use both the newly resolved and the cached reader
+    for (int i = 0; i < 2; i++) {
+      DatumCodecTest.Record2 r2 = reader.read(decoder(bytes), sourceSchema);
+
+      Assert.assertEquals(10L, getField(r2, "i"));
+      Map<String, DatumCodecTest.Value> expected = Maps.newHashMap();
+      expected.put("1", new DatumCodecTest.Value(1, "Name1"));
+      expected.put("2", new DatumCodecTest.Value(2, "Name2"));
+      expected.put("3", null);
+      Assert.assertEquals(expected, getField(r2, "properties"));
+      Assert.assertNull(getField(r2, "name"));
+      Assert.assertArrayEquals(new long[] {1L, 2L}, (long[]) getField(r2, "numbers"));
+      Assert.assertEquals(URI.create("http://www.yahoo.com"), getField(r2, "url"));
+      Assert.assertEquals(getField(r1, "uuid"), getField(r2, "uuid"));
+      Assert.assertNull(getField(r2, "nullStr"));
+    }
+  }
+
+  @Test
+  public void testCollection() throws UnsupportedTypeException, IOException {
+    List<String> list = Lists.newArrayList("1", "2", "3");
+    Schema sourceSchema = new ReflectionSchemaGenerator().generate(new TypeToken<List<String>>() { }.getType());
+    byte[] bytes = encode(new ReflectionDatumWriter<List<String>>(sourceSchema), list);
+
+    Schema targetSchema = new ReflectionSchemaGenerator().generate(new TypeToken<Set<String>>() { }.getType());
+    Set<String> set = DATUM_READER_FACTORY.create(new TypeToken<Set<String>>() { }, targetSchema)
+      .read(decoder(bytes), sourceSchema);
+    Assert.assertEquals(Sets.newHashSet("1", "2", "3"), set);
+
+    targetSchema = new ReflectionSchemaGenerator().generate(String[].class);
+    String[] array = DATUM_READER_FACTORY.create(new TypeToken<String[]>() { }, targetSchema)
+      .read(decoder(bytes), sourceSchema);
+    Assert.assertArrayEquals(new String[] {"1", "2", "3"}, array);
+  }
+
+  @Test
+  public void testReduceProjection() throws IOException, UnsupportedTypeException {
+    Schema sourceSchema = new ReflectionSchemaGenerator().generate(DatumCodecTest.MoreFields.class);
+    Schema targetSchema = new ReflectionSchemaGenerator().generate(DatumCodecTest.LessFields.class);
+
+    DatumCodecTest.MoreFields moreFields = new DatumCodecTest.MoreFields(10, 20.2, "30", ImmutableList.of("1", "2"));
+    byte[] bytes = encode(new ReflectionDatumWriter<DatumCodecTest.MoreFields>(sourceSchema), moreFields);
+    DatumCodecTest.LessFields lessFields = DATUM_READER_FACTORY
+      .create(TypeToken.of(DatumCodecTest.LessFields.class), targetSchema).read(decoder(bytes), sourceSchema);
+
+    Assert.assertEquals("30", lessFields.k);
+    Assert.assertEquals(moreFields.inner.b, lessFields.inner.b);
+  }
+
+  @Test
+  public void testEnum() throws IOException, UnsupportedTypeException {
+    Schema sourceSchema = new ReflectionSchemaGenerator().generate(MoreEnum.class);
+    Schema targetSchema = new ReflectionSchemaGenerator().generate(DatumCodecTest.TestEnum.class);
+    ReflectionDatumWriter<MoreEnum> writer = new ReflectionDatumWriter<>(sourceSchema);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    BinaryEncoder encoder = new BinaryEncoder(os);
+    writer.encode(MoreEnum.VALUE1, encoder);
+    writer.encode(MoreEnum.VALUE3, encoder);
+    writer.encode(MoreEnum.VALUE2, encoder);
+    writer.encode(MoreEnum.VALUE4, encoder);
+
+    BinaryDecoder decoder = decoder(os.toByteArray());
+    DatumReader<DatumCodecTest.TestEnum> reader =
+      DATUM_READER_FACTORY.create(TypeToken.of(DatumCodecTest.TestEnum.class), targetSchema);
+    Assert.assertEquals(DatumCodecTest.TestEnum.VALUE1, reader.read(decoder, sourceSchema));
+    Assert.assertEquals(DatumCodecTest.TestEnum.VALUE3, reader.read(decoder, sourceSchema));
+    Assert.assertEquals(DatumCodecTest.TestEnum.VALUE2, reader.read(decoder, sourceSchema));
+    try {
+      reader.read(decoder, sourceSchema);
+      Assert.fail("Expected a missing enum value to fail");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testUnion() throws IOException, UnsupportedTypeException {
+    Schema nonNullSchema = new ReflectionSchemaGenerator().generate(NonNullRecord.class);
+    Schema nullableSchema = new ReflectionSchemaGenerator().generate(NullableRecord.class);
+
+    // non nullable to nullable
+    NonNullRecord nonNull = new NonNullRecord();
+    nonNull.i = 5;
+    nonNull.s = "five";
+    byte[] bytes = encode(new ReflectionDatumWriter<NonNullRecord>(nonNullSchema), nonNull);
+    NullableRecord nullable = DATUM_READER_FACTORY.create(TypeToken.of(NullableRecord.class), nullableSchema)
+      .read(decoder(bytes), nonNullSchema);
+    Assert.assertEquals(Integer.valueOf(5), nullable.i);
+    Assert.assertEquals("five", nullable.s);
+
+    // nullable to non nullable, which only fails for null values
+    DatumReader<NonNullRecord> reader = DATUM_READER_FACTORY.create(TypeToken.of(NonNullRecord.class),
+                                                                     nonNullSchema);
+    nullable.i = 6;
+    nullable.s = "six";
+    bytes = encode(new ReflectionDatumWriter<NullableRecord>(nullableSchema), nullable);
+    nonNull = reader.read(decoder(bytes), nullableSchema);
+    Assert.assertEquals(6, nonNull.i);
+    Assert.assertEquals("six", nonNull.s);
+
+    nullable.i = null;
+    bytes = encode(new ReflectionDatumWriter<NullableRecord>(nullableSchema), nullable);
+    try {
+      reader.read(decoder(bytes), nullableSchema);
+      Assert.fail("Expected a null value to fail for a non nullable field");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testTree() throws IOException, UnsupportedTypeException {
+    TypeToken<ASMDatumCodecTest.Node> type = new TypeToken<ASMDatumCodecTest.Node>() { };
+    Schema schema = new ReflectionSchemaGenerator().generate(type.getType());
+    ASMDatumCodecTest.Node root = new ASMDatumCodecTest.Node(
+      1, new ASMDatumCodecTest.Node(2, null, new ASMDatumCodecTest.Node(3, null, null)),
+      new ASMDatumCodecTest.Node(4, new ASMDatumCodecTest.Node(5, null, null), null));
+    byte[] bytes = encode(DATUM_WRITER_FACTORY.create(type, schema), root);
+
+    ASMDatumCodecTest.Node value = DATUM_READER_FACTORY.create(type, schema)
+      .read(decoder(bytes), new ReflectionSchemaGenerator().generate(type.getType()));
+    Assert.assertEquals(root, value);
+  }
+
+  @Test
+  public void testStreamEvent() throws IOException, UnsupportedTypeException {
+    TypeToken<StreamEvent> type = new TypeToken<StreamEvent>() { };
+    Schema schema = new ReflectionSchemaGenerator().generate(type.getType());
+    StreamEvent event = new StreamEvent(ImmutableMap.of("key", "value"),
+                                        ByteBuffer.wrap("Testing message".getBytes(Charsets.UTF_8)));
+    byte[] bytes = encode(DATUM_WRITER_FACTORY.create(type, schema), event);
+
+    StreamEvent value = DATUM_READER_FACTORY.create(type, schema).read(decoder(bytes), schema);
+    Assert.assertEquals(event.getHeaders(), value.getHeaders());
+    Assert.assertEquals(event.getBody(), value.getBody());
+  }
+
+  private <T> byte[] encode(DatumWriter<T> writer, T value) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writer.encode(value, new BinaryEncoder(os));
+    return os.toByteArray();
+  }
+
+  private BinaryDecoder decoder(byte[] bytes) {
+    return new BinaryDecoder(new ByteArrayInputStream(bytes));
+  }
+
+  private Object getField(Object object, String name) {
+    try {
+      Field field = object.getClass().getDeclaredField(name);
+      field.setAccessible(true);
+      return field.get(object);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
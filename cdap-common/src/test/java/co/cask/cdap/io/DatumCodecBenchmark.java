@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.io;
+
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.internal.io.ASMDatumReaderFactory;
+import co.cask.cdap.internal.io.ASMDatumWriterFactory;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.DatumReader;
+import co.cask.cdap.internal.io.DatumWriter;
+import co.cask.cdap.internal.io.ReflectionDatumReader;
+import co.cask.cdap.internal.io.ReflectionDatumWriter;
+import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
+import co.cask.common.io.ByteBufferInputStream;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the records per second encoded and decoded by the reflection based {@link DatumWriter} and
+ * {@link DatumReader}, and by the ones created by {@link ASMDatumWriterFactory} and {@link ASMDatumReaderFactory},
+ * for records like the events of flowlet queues.
+ * <p>
+ * Usage: {@code DatumCodecBenchmark [records] [rounds]}
+ */
+public class DatumCodecBenchmark {
+
+  /**
+   * Type of the events.
+   */
+  public enum Kind {
+    CLICK, VIEW, PURCHASE
+  }
+
+  /**
+   * An event.
+   */
+  public static final class Event {
+    long timestamp;
+    Kind kind;
+    String user;
+    int count;
+    double amount;
+    Map<String, String> headers;
+    List<String> tags;
+    ByteBuffer body;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int records = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    TypeToken<Event> type = TypeToken.of(Event.class);
+    Schema schema = new ReflectionSchemaGenerator().generate(type.getType());
+    ASMFieldAccessorFactory fieldAccessorFactory = new ASMFieldAccessorFactory();
+
+    Event event = new Event();
+    event.timestamp = System.currentTimeMillis();
+    event.kind = Kind.PURCHASE;
+    event.user = "user123";
+    event.count = 3;
+    event.amount = 42.5;
+    event.headers = ImmutableMap.of("host", "localhost", "path", "/v3/namespaces/default");
+    event.tags = ImmutableList.of("tag1", "tag2");
+    event.body = ByteBuffer.wrap(new byte[64]);
+
+    // the first round warms up
+    for (int round = 0; round <= rounds; round++) {
+      long reflectionEncode = encode(new ReflectionDatumWriter<Event>(schema), event, records);
+      long asmEncode = encode(new ASMDatumWriterFactory(fieldAccessorFactory).create(type, schema), event, records);
+
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      new ReflectionDatumWriter<Event>(schema).encode(event, new BinaryEncoder(output));
+      byte[] bytes = output.toByteArray();
+      long reflectionDecode = decode(new ReflectionDatumReader<>(schema, type), schema, bytes, records);
+      long asmDecode = decode(new ASMDatumReaderFactory(fieldAccessorFactory).create(type, schema),
+                              schema, bytes, records);
+
+      if (round > 0) {
+        System.out.printf("round %d: encode reflection %d records/s, asm %d records/s; " +
+                            "decode reflection %d records/s, asm %d records/s%n", round,
+                          records * TimeUnit.SECONDS.toNanos(1) / reflectionEncode,
+                          records * TimeUnit.SECONDS.toNanos(1) / asmEncode,
+                          records * TimeUnit.SECONDS.toNanos(1) / reflectionDecode,
+                          records * TimeUnit.SECONDS.toNanos(1) / asmDecode);
+      }
+    }
+  }
+
+  private static long encode(DatumWriter<Event> writer, Event event, int records) throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    BinaryEncoder encoder = new BinaryEncoder(output);
+    long startTime = System.nanoTime();
+    for (int i = 0; i < records; i++) {
+      output.reset();
+      writer.encode(event, encoder);
+    }
+    return System.nanoTime() - startTime;
+  }
+
+  private static long decode(DatumReader<Event> reader, Schema schema, byte[] bytes, int records) throws Exception {
+    ByteBufferInputStream input = new ByteBufferInputStream(null);
+    BinaryDecoder decoder = new BinaryDecoder(input);
+    long startTime = System.nanoTime();
+    for (int i = 0; i < records; i++) {
+      input.reset(ByteBuffer.wrap(bytes));
+      if (reader.read(decoder, schema).count != 3) {
+        throw new IllegalStateException("Wrong record decoded");
+      }
+    }
+    return System.nanoTime() - startTime;
+  }
+}
@@ -15,6 +15,7 @@
  */
 package co.cask.cdap.data.stream;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
@@ -22,6 +23,8 @@ import co.cask.cdap.data.file.FileReader;
 import co.cask.cdap.data.file.FileWriter;
 import co.cask.cdap.data.file.ReadFilter;
 import co.cask.cdap.data.file.filter.TTLReadFilter;
+import co.cask.cdap.data.stream.service.ChannelBufferStreamEventData;
+import co.cask.cdap.data.stream.service.MutableStreamEvent;
 import co.cask.cdap.data2.transaction.stream.StreamConfig;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.test.SlowTests;
@@ -34,6 +37,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.io.Closeables;
 import com.google.common.io.Flushables;
@@ -41,6 +45,8 @@ import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.hadoop.hbase.util.Strings;
 import org.apache.twill.filesystem.Location;
 import org.apache.twill.filesystem.LocationFactory;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -175,6 +181,155 @@ public abstract class StreamDataFileTestBase {
     reader.close();
   }
 
+  @Test
+  public void testLargeEventDirectWrite() throws Exception {
+    Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
+    Location eventFile = dir.getTempFile(".dat");
+    Location indexFile = dir.getTempFile(".idx");
+
+    StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventFile),
+                                                           Locations.newOutputSupplier(indexFile),
+                                                           2L);
+
+    // Large bodies are written directly from the buffers, which are a mix of heap and direct buffers.
+    // Small events with the same timestamp go before and after each large event.
+    byte[] chunk = Strings.repeat('x', 50000).getBytes(Charsets.UTF_8);
+    List<ByteBuffer> expected = Lists.newArrayList();
+    MutableStreamEvent event = new MutableStreamEvent();
+    for (int i = 0; i < 10; i++) {
+      ByteBuffer small = Charsets.UTF_8.encode("Small " + i);
+      writer.append(new StreamEvent(ImmutableMap.of("k", "v" + i), small.duplicate(), i));
+      expected.add(small);
+
+      ByteBuffer direct = ByteBuffer.allocateDirect(chunk.length);
+      direct.put(chunk).flip();
+      ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(ChannelBuffers.wrappedBuffer(chunk),
+                                                          ChannelBuffers.wrappedBuffer(direct),
+                                                          ChannelBuffers.wrappedBuffer(Bytes.toBytes(i)));
+      event.set(new ChannelBufferStreamEventData(ImmutableMap.of("k", "large" + i), buffer), i);
+      writer.append(event);
+      expected.add(buffer.toByteBuffer());
+
+      writer.append(new StreamEvent(ImmutableMap.of("k", "v" + i), small.duplicate(), i));
+      expected.add(small);
+    }
+    writer.close();
+
+    StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(eventFile));
+    List<StreamEvent> events = Lists.newArrayList();
+    Assert.assertEquals(expected.size(), reader.read(events, expected.size() + 1, 0, TimeUnit.SECONDS));
+    Assert.assertEquals(-1, reader.read(events, 1, 0, TimeUnit.SECONDS));
+    reader.close();
+
+    for (int i = 0; i < expected.size(); i++) {
+      StreamEvent readEvent = events.get(i);
+      Assert.assertEquals(i / 3, readEvent.getTimestamp());
+      Assert.assertEquals(expected.get(i), readEvent.getBody());
+      Assert.assertEquals((i % 3 == 1 ? "large" : "v") + (i / 3), readEvent.getHeaders().get("k"));
+    }
+
+    // Read with index, which should point to a valid block start
+    for (long ts : new long[] { 2, 5, 8 }) {
+      reader = StreamDataFileReader.createByStartTime(Locations.newInputSupplier(eventFile),
+                                                      Locations.newInputSupplier(indexFile), ts);
+      events.clear();
+      Assert.assertEquals(3, reader.read(events, 3, 0, TimeUnit.SECONDS));
+      for (StreamEvent readEvent : events) {
+        Assert.assertEquals(ts, readEvent.getTimestamp());
+      }
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testCompression() throws Exception {
+    Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
+
+    // Writes the same events without compression and with each compression
+    Map<StreamFileCompression, Location> eventFiles = Maps.newEnumMap(StreamFileCompression.class);
+    Map<StreamFileCompression, Location> indexFiles = Maps.newEnumMap(StreamFileCompression.class);
+    List<StreamEvent> expected = Lists.newArrayList();
+    for (StreamFileCompression compression : StreamFileCompression.values()) {
+      Location eventFile = dir.getTempFile(".dat");
+      Location indexFile = dir.getTempFile(".idx");
+      eventFiles.put(compression, eventFile);
+      indexFiles.put(compression, indexFile);
+
+      StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventFile),
+                                                             Locations.newOutputSupplier(indexFile), 10L,
+                                                             ImmutableMap.<String, String>of(), compression);
+      expected.clear();
+      for (int ts = 0; ts < 100; ts++) {
+        // Blocks of one small event, which are too small to be compressed, and blocks of many compressible events
+        int count = ts % 10 == 0 ? 1 : 20;
+        for (int i = 0; i < count; i++) {
+          String body = count == 1 ? ""
+            : String.format("{\"timestamp\": %d, \"index\": %d, \"status\": \"ok\"}", ts, i);
+          expected.add(StreamFileTestUtils.createEvent(ts, body));
+        }
+        if (ts == 50) {
+          // Large event, which is compressed as a block as well
+          expected.add(StreamFileTestUtils.createEvent(ts, Strings.repeat('l', 100000)));
+        }
+      }
+      for (StreamEvent event : expected) {
+        writer.append(event);
+      }
+      writer.close();
+    }
+
+    long uncompressedSize = eventFiles.get(StreamFileCompression.NONE).length();
+    for (StreamFileCompression compression : StreamFileCompression.values()) {
+      Location eventFile = eventFiles.get(compression);
+      Location indexFile = indexFiles.get(compression);
+      if (compression != StreamFileCompression.NONE) {
+        Assert.assertTrue(eventFile.length() < uncompressedSize / 2);
+      }
+
+      // Read all events, which should have unique and increasing positions
+      StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(eventFile));
+      List<PositionStreamEvent> events = Lists.newArrayList();
+      Assert.assertEquals(expected.size(), reader.read(events, expected.size() + 1, 0, TimeUnit.SECONDS));
+      Assert.assertEquals(-1, reader.read(events, 1, 0, TimeUnit.SECONDS));
+      reader.close();
+
+      for (int i = 0; i < expected.size(); i++) {
+        Assert.assertEquals(expected.get(i).getTimestamp(), events.get(i).getTimestamp());
+        Assert.assertEquals(expected.get(i).getBody(), events.get(i).getBody());
+        if (i > 0) {
+          Assert.assertTrue(events.get(i - 1).getStart() < events.get(i).getStart());
+        }
+      }
+
+      // Read from the position of each event
+      for (int i = 0; i < events.size(); i += 7) {
+        reader = StreamDataFileReader.createWithOffset(Locations.newInputSupplier(eventFile),
+                                                       Locations.newInputSupplier(indexFile),
+                                                       events.get(i).getStart());
+        List<PositionStreamEvent> readEvents = Lists.newArrayList();
+        reader.read(readEvents, 2, 0, TimeUnit.SECONDS);
+        reader.close();
+
+        List<PositionStreamEvent> expectedEvents = events.subList(i, Math.min(i + 2, events.size()));
+        Assert.assertEquals(expectedEvents.size(), readEvents.size());
+        for (int j = 0; j < expectedEvents.size(); j++) {
+          Assert.assertEquals(expectedEvents.get(j).getStart(), readEvents.get(j).getStart());
+          Assert.assertEquals(expectedEvents.get(j).getBody(), readEvents.get(j).getBody());
+        }
+      }
+
+      // Read with index
+      for (long ts : new long[] { 15, 50, 99 }) {
+        reader = StreamDataFileReader.createByStartTime(Locations.newInputSupplier(eventFile),
+                                                        Locations.newInputSupplier(indexFile), ts);
+        List<PositionStreamEvent> readEvents = Lists.newArrayList();
+        Assert.assertEquals(1, reader.read(readEvents, 1, 0, TimeUnit.SECONDS));
+        reader.close();
+        Assert.assertEquals(ts, readEvents.get(0).getTimestamp());
+      }
+    }
+  }
+
   @Test
   public void testTail() throws Exception {
     Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
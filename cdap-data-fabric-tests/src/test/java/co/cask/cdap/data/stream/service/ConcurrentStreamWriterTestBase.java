@@ -88,14 +88,33 @@ public abstract class ConcurrentStreamWriterTestBase {
 
   @Test
   public void testConcurrentWrite() throws Exception {
-    final String streamName = "testConcurrentWrite";
+    TestMetricsCollectorFactory metricsCollectorFactory = testConcurrentWrite("testConcurrentWrite", 0L);
+
+    // Flush metrics are only emitted in group commit mode
+    Assert.assertEquals(0, metricsCollectorFactory.flushes.get());
+  }
+
+  @Test
+  public void testConcurrentWriteGroupCommit() throws Exception {
+    TestMetricsCollectorFactory metricsCollectorFactory = testConcurrentWrite("testConcurrentWriteGroupCommit", 10L);
+
+    // Every request must have been persisted by some flush
+    int threads = Runtime.getRuntime().availableProcessors() * 4;
+    Assert.assertEquals((threads / 2) * 1000 + (threads - threads / 2) * 100, metricsCollectorFactory.requests.get());
+    Assert.assertTrue(metricsCollectorFactory.flushes.get() > 0);
+  }
+
+  private TestMetricsCollectorFactory testConcurrentWrite(String streamName,
+                                                          long groupCommitWindowMs) throws Exception {
     String namespace = "namespace";
     Id.Stream streamId = Id.Stream.from(namespace, streamName);
     StreamAdmin streamAdmin = new TestStreamAdmin(getNamespacedLocationFactory(), Long.MAX_VALUE, 1000);
     int threads = Runtime.getRuntime().availableProcessors() * 4;
 
     StreamFileWriterFactory fileWriterFactory = createStreamFileWriterFactory();
-    final ConcurrentStreamWriter streamWriter = createStreamWriter(streamId, streamAdmin, threads, fileWriterFactory);
+    TestMetricsCollectorFactory metricsCollectorFactory = new TestMetricsCollectorFactory();
+    final ConcurrentStreamWriter streamWriter = createStreamWriter(streamId, streamAdmin, threads, fileWriterFactory,
+                                                                   metricsCollectorFactory, groupCommitWindowMs);
 
     // Starts n threads to write events through stream writer, each thread write 1000 events
     final int msgPerThread = 1000;
@@ -130,6 +149,7 @@ public abstract class ConcurrentStreamWriterTestBase {
 
     reader.close();
     streamWriter.close();
+    return metricsCollectorFactory;
   }
 
   @Test
@@ -204,11 +224,18 @@ public abstract class ConcurrentStreamWriterTestBase {
   private ConcurrentStreamWriter createStreamWriter(Id.Stream streamId, StreamAdmin streamAdmin,
                                                     int threads, StreamFileWriterFactory writerFactory)
     throws Exception {
+    return createStreamWriter(streamId, streamAdmin, threads, writerFactory, new TestMetricsCollectorFactory(), 0L);
+  }
+
+  private ConcurrentStreamWriter createStreamWriter(Id.Stream streamId, StreamAdmin streamAdmin,
+                                                    int threads, StreamFileWriterFactory writerFactory,
+                                                    StreamMetricsCollectorFactory metricsCollectorFactory,
+                                                    long groupCommitWindowMs) throws Exception {
     StreamConfig streamConfig = streamAdmin.getConfig(streamId);
     streamConfig.getLocation().mkdirs();
 
-    return new ConcurrentStreamWriter(COORDINATOR_CLIENT, streamAdmin,
-                                      writerFactory, threads, new TestMetricsCollectorFactory());
+    return new ConcurrentStreamWriter(COORDINATOR_CLIENT, streamAdmin, writerFactory, threads,
+                                      metricsCollectorFactory, groupCommitWindowMs, 1024 * 1024);
   }
 
   private Runnable createWriterTask(final Id.Stream streamId,
@@ -340,6 +367,10 @@ public abstract class ConcurrentStreamWriterTestBase {
   }
 
   private static final class TestMetricsCollectorFactory implements StreamMetricsCollectorFactory {
+
+    private final AtomicInteger flushes = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+
     @Override
     public StreamMetricsCollector createMetricsCollector(Id.Stream streamId) {
       return new StreamMetricsCollector() {
@@ -347,6 +378,12 @@ public abstract class ConcurrentStreamWriterTestBase {
         public void emitMetrics(long bytesWritten, long eventsWritten) {
           // No-op
         }
+
+        @Override
+        public void emitFlushMetrics(int requestCount, long waitNanos, long flushNanos) {
+          flushes.incrementAndGet();
+          requests.addAndGet(requestCount);
+        }
       };
     }
   }
@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data.stream.service;
+
+import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.data.stream.StreamDataFileWriter;
+import co.cask.cdap.data.stream.StreamFileTestUtils;
+import co.cask.cdap.data.stream.StreamFileType;
+import co.cask.cdap.data.stream.StreamUtils;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.apache.twill.common.Threads;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.apache.twill.filesystem.LocationFactory;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests for {@link StreamEventFetcher}.
+ */
+public class StreamEventFetcherTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static final long PARTITION_DURATION = 10000L;
+
+  private static LocationFactory locationFactory;
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void init() throws IOException {
+    locationFactory = new LocalLocationFactory(TMP_FOLDER.newFolder());
+    executor = Executors.newFixedThreadPool(2, Threads.createDaemonThreadFactory("stream-fetch-test-%d"));
+  }
+
+  @AfterClass
+  public static void finish() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testFetch() throws Exception {
+    Location baseLocation = StreamFileTestUtils.createTempDir(locationFactory);
+
+    // 5 partitions, each with two writer instances, and the first instance rolled to a second file.
+    // Each file has events with timestamps interleaving with events in other files of the same partition.
+    List<List<Location>> partitionFiles = Lists.newArrayList();
+    for (int p = 0; p < 5; p++) {
+      long partitionStart = p * PARTITION_DURATION;
+      Location partition = StreamUtils.createPartitionLocation(baseLocation, partitionStart, PARTITION_DURATION);
+      partition.mkdirs();
+
+      partitionFiles.add(Lists.newArrayList(
+        writeFile(partition, "file.0", 0, partitionStart, partitionStart + 5000, 3),
+        writeFile(partition, "file.0", 1, partitionStart + 5000, partitionStart + 10000, 3),
+        writeFile(partition, "file.1", 0, partitionStart + 1, partitionStart + 10000, 3)
+      ));
+    }
+
+    // Read all events
+    List<Long> allTimestamps = getTimestamps(fetch(partitionFiles, 0L, 5 * PARTITION_DURATION, Integer.MAX_VALUE));
+    Assert.assertEquals(5 * (1667 + 1667 + 3333), allTimestamps.size());
+    for (int i = 1; i < allTimestamps.size(); i++) {
+      Assert.assertTrue(allTimestamps.get(i - 1) < allTimestamps.get(i));
+    }
+
+    // Read events in a time range that crosses partitions
+    List<Long> expected = Lists.newArrayList();
+    for (long ts : allTimestamps) {
+      if (ts >= 15000L && ts < 32000L) {
+        expected.add(ts);
+      }
+    }
+    Assert.assertEquals(expected, getTimestamps(fetch(partitionFiles, 15000L, 32000L, Integer.MAX_VALUE)));
+
+    // Read with a limit
+    Assert.assertEquals(expected.subList(0, 1000), getTimestamps(fetch(partitionFiles, 15000L, 32000L, 1000)));
+
+    // Read a time range without event
+    Assert.assertTrue(fetch(partitionFiles, 50000L, 60000L, Integer.MAX_VALUE).isEmpty());
+  }
+
+  private List<StreamEvent> fetch(List<List<Location>> partitionFiles,
+                                  long startTime, long endTime, int limit) throws Exception {
+    List<StreamEvent> events = Lists.newArrayList();
+    StreamEventFetcher fetcher = new StreamEventFetcher(partitionFiles, startTime, endTime, executor, 2, 100);
+    try {
+      while (events.size() < limit) {
+        int eventsRead = fetcher.read(events, Math.min(100, limit - events.size()));
+        if (eventsRead < 0) {
+          break;
+        }
+        Assert.assertTrue(eventsRead > 0);
+      }
+    } finally {
+      fetcher.close();
+    }
+
+    for (StreamEvent event : events) {
+      Assert.assertTrue(event.getTimestamp() >= startTime && event.getTimestamp() < endTime);
+      Assert.assertEquals(Long.toString(event.getTimestamp()), Charsets.UTF_8.decode(event.getBody()).toString());
+    }
+    return events;
+  }
+
+  private List<Long> getTimestamps(List<StreamEvent> events) {
+    List<Long> timestamps = Lists.newArrayListWithCapacity(events.size());
+    for (StreamEvent event : events) {
+      timestamps.add(event.getTimestamp());
+    }
+    return timestamps;
+  }
+
+  /**
+   * Writes a stream file with events with timestamps starting from the given start time, incrementing by step,
+   * until the given end time (exclusive). The body of each event is the timestamp.
+   */
+  private Location writeFile(Location partition, String prefix, int seqId,
+                             long startTime, long endTime, long step) throws IOException {
+    Location eventLocation = StreamUtils.createStreamLocation(partition, prefix, seqId, StreamFileType.EVENT);
+    Location indexLocation = StreamUtils.createStreamLocation(partition, prefix, seqId, StreamFileType.INDEX);
+    StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventLocation),
+                                                           Locations.newOutputSupplier(indexLocation), 1000L);
+    try {
+      for (long ts = startTime; ts < endTime; ts += step) {
+        writer.append(StreamFileTestUtils.createEvent(ts, Long.toString(ts)));
+      }
+    } finally {
+      writer.close();
+    }
+    return eventLocation;
+  }
+}
@@ -24,9 +24,13 @@ import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
 import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Put;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.api.dataset.table.Tables;
+import co.cask.cdap.api.metrics.MetricsCollector;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.data.hbase.HBaseTestBase;
 import co.cask.cdap.data.hbase.HBaseTestFactory;
 import co.cask.cdap.data2.dataset2.lib.table.BufferingTable;
@@ -43,7 +47,9 @@ import co.cask.tephra.TransactionExecutor;
 import co.cask.tephra.TransactionSystemClient;
 import co.cask.tephra.inmemory.DetachedTxSystemClient;
 import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
@@ -67,6 +73,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
@@ -330,6 +337,70 @@ public class HBaseTableTest extends BufferingTableTest<BufferingTable> {
     Assert.assertEquals("t", hcd.getNameAsString());
   }
 
+  @Test
+  public void testScanOptions() throws Exception {
+    String tableName = "scanoptions";
+    getTableAdmin(CONTEXT1, tableName, DatasetProperties.EMPTY).create();
+    DatasetSpecification spec = DatasetSpecification.builder(tableName, HBaseTable.class.getName())
+      .property(HBaseTable.PROPERTY_SCAN_CACHING, "2")
+      .build();
+    // column batching comes from runtime arguments, prefetch from each scan
+    HBaseTable table = new HBaseTable(CONTEXT1, spec, ImmutableMap.of(HBaseTable.PROPERTY_SCAN_BATCH, "3"),
+                                      cConf, testHBase.getConfiguration(), hBaseTableUtil);
+    final Map<String, Long> metrics = Maps.newHashMap();
+    table.setMetricsCollector(new MetricsCollector() {
+      @Override
+      public void increment(String metricName, long value) {
+        Long current = metrics.get(metricName);
+        metrics.put(metricName, current == null ? value : current + value);
+      }
+
+      @Override
+      public void gauge(String metricName, long value) {
+        metrics.put(metricName, value);
+      }
+    });
+
+    DetachedTxSystemClient txSystemClient = new DetachedTxSystemClient();
+    Transaction tx = txSystemClient.startShort();
+    table.startTx(tx);
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 10; j++) {
+        table.put(b("row" + i), b("col" + j), b("val" + i + j));
+      }
+    }
+    table.commitTx();
+
+    for (boolean prefetch : new boolean[] { true, false }) {
+      metrics.clear();
+      tx = txSystemClient.startShort();
+      table.startTx(tx);
+      Scanner scanner = table.scan(new co.cask.cdap.api.dataset.table.Scan(null, null)
+                                     .setProperty(HBaseTable.PROPERTY_SCAN_PREFETCH, String.valueOf(prefetch)));
+      try {
+        for (int i = 0; i < 5; i++) {
+          // wide rows are returned in parts of 3 columns, but must be merged into a single row
+          Row row = scanner.next();
+          Assert.assertNotNull(row);
+          Assert.assertArrayEquals(b("row" + i), row.getRow());
+          Assert.assertEquals(10, row.getColumns().size());
+          for (int j = 0; j < 10; j++) {
+            Assert.assertArrayEquals(b("val" + i + j), row.get(b("col" + j)));
+          }
+        }
+        Assert.assertNull(scanner.next());
+      } finally {
+        scanner.close();
+      }
+      table.commitTx();
+
+      Assert.assertEquals(5L, (long) metrics.get(Constants.Metrics.Name.Dataset.SCAN_ROWS));
+      // 20 partial results, 2 per rpc
+      Assert.assertEquals(11L, (long) metrics.get(Constants.Metrics.Name.Dataset.SCAN_RPCS));
+      Assert.assertTrue(metrics.get(Constants.Metrics.Name.Dataset.SCAN_BYTES) > 0);
+    }
+  }
+
   private static byte[] b(String s) {
     return Bytes.toBytes(s);
   }
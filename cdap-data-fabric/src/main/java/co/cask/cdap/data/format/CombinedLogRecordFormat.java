@@ -22,10 +22,12 @@ import co.cask.cdap.api.data.format.UnexpectedFormatException;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.data.schema.UnsupportedTypeException;
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
-import com.google.common.collect.Lists;
+import com.google.common.base.Charsets;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Stream record format that interprets stream body as data in Combined Log Format.
@@ -33,30 +35,73 @@ import java.util.List;
  * Sample CLF data:
  * 220.181.108.77 - - [01/Feb/2015:06:59:57 +0000] "GET / HTTP/1.1" 301 295 "-"
  * "Mozilla/5.0 (compatible; Baiduspider/2.0; +http://www.baidu.com/search/spider.html)"
- *
+ * <p>
+ * The entries are found by scanning the bytes of the body, and are parsed by parsers compiled from the schema when
+ * the format is configured. Only string values are decoded.
+ * </p>
  */
 public class CombinedLogRecordFormat extends StreamEventRecordFormat<StructuredRecord> {
 
+  private FieldParser[] parsers;
+  // whether a "-" value is a null, which is the case for all fields but the non-nullable string ones
+  private boolean[] dashIsNull;
+
   @Override
   public StructuredRecord read(StreamEvent event) throws UnexpectedFormatException {
-    String bodyAsStr = Bytes.toString(event.getBody());
+    ByteBuffer body = FieldParser.toHeapBuffer(event.getBody());
+    byte[] bytes = body.array();
+    int start = body.arrayOffset() + body.position();
+    int end = start + body.remaining();
+
     StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-    List<String> parts = getLogEntries(bodyAsStr);
-    List<Schema.Field> fields = schema.getFields();
     int index = 0;
-    while (index < fields.size()) {
-      Schema.Field field = fields.get(index);
-      String val = (parts.size() < index || (parts.get(index).equals("-") &&
-                                             field.getSchema().getType() != Schema.Type.STRING))
-                    ? null : parts.get(index);
-      builder.convertAndSet(field.getName(), val);
-      index++;
+    int pos = start;
+    while (pos < end) {
+      if (bytes[pos] == ' ') {
+        // Skip empty spaces
+        pos++;
+        continue;
+      }
+      int entryStart;
+      int entryEnd;
+      if (bytes[pos] == '"') {
+        // Find the closing '"' and extract values within
+        entryStart = pos + 1;
+        entryEnd = findNext(bytes, start, entryStart, end, (byte) '"');
+      } else if (bytes[pos] == '[') {
+        // find the closing ']' and extract values
+        entryStart = pos + 1;
+        entryEnd = findNext(bytes, start, entryStart, end, (byte) ']');
+      } else {
+        // find the next ' ' and extract values
+        entryStart = pos;
+        entryEnd = findNext(bytes, start, pos + 1, end, (byte) ' ');
+      }
+
+      if (entryEnd == -1) {
+        throw new UnexpectedFormatException(String.format("Could not parse data in CLF format. Entry %s",
+                                                          Bytes.toString(body)));
+      }
+
+      // entries after the last field are still scanned, so that a malformed entry anywhere fails the record
+      if (index < parsers.length) {
+        if (dashIsNull[index] && entryEnd - entryStart == 1 && bytes[entryStart] == '-') {
+          parsers[index].setNull(builder);
+        } else {
+          parsers[index].set(builder, bytes, entryStart, entryEnd);
+        }
+        index++;
+      }
+      pos = entryEnd + 1;
     }
 
+    // fields without an entry are null
+    for (; index < parsers.length; index++) {
+      parsers[index].setNull(builder);
+    }
     return builder.build();
   }
 
-
   @Override
   protected Schema getDefaultSchema() {
     return Schema.recordOf("streamEvent",
@@ -87,51 +132,23 @@ public class CombinedLogRecordFormat extends StreamEventRecordFormat<StructuredR
     }
   }
 
-  // parse CLF logEvent and get the record values.
-  private List<String> getLogEntries(String logEvent) {
-    List<String> parts = Lists.newArrayList();
-    int start = 0;
-    while (start < logEvent.length()) {
-      if (logEvent.charAt(start) == ' ') {
-        // Skip empty spaces
-        start++;
-      } else {
-        start = addNextLogEntry(logEvent, start, parts);
-      }
-    }
-    return parts;
-  }
-
-  // addNextLogEntry and return the start position of next entry.
-  private int addNextLogEntry(String data, int start, List<String> parts) {
-    int end = -1;
-    if (data.charAt(start) == '"') {
-      // Find the closing '"' and extract values within
-      start = start + 1;
-      end = findNext(data, start, '"');
-    } else if (data.charAt(start) == '[') {
-      // find the closing ']' and extract values
-      start = start + 1;
-      end = findNext(data, start, ']');
-    } else {
-      // find the next ' ' and extract values
-      end = findNext(data, start + 1, ' ');
-    }
-
-    if (end == -1) {
-      throw new UnexpectedFormatException(String.format("Could not parse data in CLF format. Entry %s", data));
+  @Override
+  protected void configure(Map<String, String> settings) {
+    // compile the parsers of the schema fields
+    List<Schema.Field> fields = schema.getFields();
+    parsers = new FieldParser[fields.size()];
+    dashIsNull = new boolean[fields.size()];
+    for (int i = 0; i < parsers.length; i++) {
+      Schema.Field field = fields.get(i);
+      parsers[i] = FieldParser.create(field, Charsets.UTF_8);
+      dashIsNull[i] = field.getSchema().getType() != Schema.Type.STRING;
     }
-
-    parts.add(data.substring(start, end));
-    return end + 1;
   }
 
-  // Find the next character matching the "entry". Skip the entry that is escaped.
-  private int findNext(String data, int startPosition, char entry) {
-    int position = startPosition;
-    int length = data.length();
-    while (position < length) {
-      if (data.charAt(position) == entry && (position == 0 || data.charAt(position - 1) != '\\')) {
+  // Find the next byte matching the "entry". Skip the entry that is escaped.
+  private int findNext(byte[] bytes, int start, int position, int end, byte entry) {
+    while (position < end) {
+      if (bytes[position] == entry && (position == start || bytes[position - 1] != '\\')) {
         return position;
       }
       position++;
@@ -23,9 +23,10 @@ import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.data.schema.UnsupportedTypeException;
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
 import com.google.common.base.Charsets;
-import com.google.common.base.Splitter;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Iterator;
 import java.util.List;
@@ -41,6 +42,10 @@ import java.util.Map;
  * text. Fields can also be parsed as scalar types - boolean, integer, long, double, float, bytes, and string.
  * In addition, the very last field can be an array of strings.
  * </p>
+ * <p>
+ * The fields are parsed from the bytes of the body, with parsers compiled from the schema when the format is
+ * configured. Only string values are decoded.
+ * </p>
  */
 public class DelimitedStringsRecordFormat extends StreamEventRecordFormat<StructuredRecord> {
   public static final String CHARSET = "charset";
@@ -48,29 +53,82 @@ public class DelimitedStringsRecordFormat extends StreamEventRecordFormat<Struct
   private Charset charset = Charsets.UTF_8;
   private String delimiter = ",";
 
+  // Fields are parsed from the body bytes, which are transcoded to UTF-8 first if the charset is not ASCII compatible
+  private boolean transcode;
+  private byte[] delimiterBytes;
+  private FieldParser[] parsers;
+  // whether an empty value is a null, which is the case for all fields but the non-nullable string ones
+  private boolean[] emptyIsNull;
+  // the string array field, if the schema ends with one
+  private String arrayFieldName;
+  private Charset parseCharset;
+
   @Override
   public StructuredRecord read(StreamEvent event) throws UnexpectedFormatException {
-    String bodyAsStr = Bytes.toString(event.getBody(), charset);
+    byte[] bytes;
+    int pos;
+    int end;
+    if (transcode) {
+      bytes = Bytes.toString(event.getBody(), charset).getBytes(Charsets.UTF_8);
+      pos = 0;
+      end = bytes.length;
+    } else {
+      ByteBuffer body = FieldParser.toHeapBuffer(event.getBody());
+      bytes = body.array();
+      pos = body.arrayOffset() + body.position();
+      end = pos + body.remaining();
+    }
+
     StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-    Iterator<String> bodyFields = Splitter.on(delimiter).split(bodyAsStr).iterator();
-    for (Schema.Field field : schema.getFields()) {
-      Schema fieldSchema = field.getSchema();
-      String fieldName = field.getName();
-      if (isStringArray(fieldSchema)) {
-        List<String> fields = Lists.newArrayList(bodyFields);
-        builder.set(fieldName, fields.toArray(new String[fields.size()]));
+    // a position after the end means that there are no more values
+    for (int i = 0; i < parsers.length; i++) {
+      if (pos > end) {
+        parsers[i].setNull(builder);
+        continue;
+      }
+      int valueEnd = indexOfDelimiter(bytes, pos, end);
+      if (valueEnd == pos && emptyIsNull[i]) {
+        parsers[i].setNull(builder);
       } else {
-        String val = bodyFields.hasNext() ? bodyFields.next() : null;
-        // if the body field is an empty string and the column is not a string type, interpret it as a null.
-        if (val != null && val.isEmpty() && (fieldSchema.getType() != Schema.Type.STRING)) {
-          val = null;
-        }
-        builder.convertAndSet(fieldName, val);
+        parsers[i].set(builder, bytes, pos, valueEnd);
       }
+      pos = valueEnd + delimiterBytes.length;
+    }
+    if (arrayFieldName != null) {
+      List<String> values = Lists.newArrayList();
+      while (pos <= end) {
+        int valueEnd = indexOfDelimiter(bytes, pos, end);
+        values.add(FieldParser.toString(bytes, pos, valueEnd, parseCharset));
+        pos = valueEnd + delimiterBytes.length;
+      }
+      builder.set(arrayFieldName, values.toArray(new String[values.size()]));
     }
     return builder.build();
   }
 
+  /**
+   * Returns the position of the next delimiter from the given position, or the end position if there is none.
+   */
+  private int indexOfDelimiter(byte[] bytes, int from, int end) {
+    byte first = delimiterBytes[0];
+    int last = end - delimiterBytes.length;
+    for (int i = from; i <= last; i++) {
+      if (bytes[i] == first && matchesDelimiter(bytes, i)) {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  private boolean matchesDelimiter(byte[] bytes, int pos) {
+    for (int i = 1; i < delimiterBytes.length; i++) {
+      if (bytes[pos + i] != delimiterBytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @Override
   protected Schema getDefaultSchema() {
     // default is a String[]
@@ -123,5 +181,22 @@ public class DelimitedStringsRecordFormat extends StreamEventRecordFormat<Struct
     if (delimiter != null) {
       this.delimiter = delimiter;
     }
+    Preconditions.checkArgument(!this.delimiter.isEmpty(), "The delimiter may not be the empty string.");
+
+    // compile the parsers of the schema fields
+    transcode = !FieldParser.isAsciiCompatible(charset);
+    parseCharset = transcode ? Charsets.UTF_8 : charset;
+    delimiterBytes = this.delimiter.getBytes(parseCharset);
+    List<Schema.Field> fields = schema.getFields();
+    Schema.Field lastField = fields.get(fields.size() - 1);
+    int size = isStringArray(lastField.getSchema()) ? fields.size() - 1 : fields.size();
+    parsers = new FieldParser[size];
+    emptyIsNull = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      Schema.Field field = fields.get(i);
+      parsers[i] = FieldParser.create(field, parseCharset);
+      emptyIsNull[i] = field.getSchema().getType() != Schema.Type.STRING;
+    }
+    arrayFieldName = size < fields.size() ? lastField.getName() : null;
   }
 }
@@ -0,0 +1,295 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data.format;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.format.UnexpectedFormatException;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.common.base.Charsets;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Parses the bytes of a field in a text record into a value of the simple type of the field schema, with the same
+ * result as {@link StructuredRecord.Builder#convertAndSet(String, String)} gives for the decoded string. Numbers and
+ * booleans are parsed from the bytes directly, and only values that don't take the common form are decoded to be
+ * parsed by the JDK, which also produces the same errors for invalid values.
+ * <p>
+ * The bytes must be in a charset for which {@link #isAsciiCompatible(Charset)} is true, so that ASCII characters
+ * can be found by comparing bytes.
+ */
+abstract class FieldParser {
+
+  private static final double[] DOUBLE_POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+    1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  private static final float[] FLOAT_POWERS_OF_TEN = {
+    1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+  };
+  // Numbers with up to this many digits are exact in a double or a float, and so are the powers of ten above
+  private static final int MAX_DOUBLE_DIGITS = 15;
+  private static final int MAX_FLOAT_DIGITS = 7;
+  // Any long with up to this many digits doesn't overflow
+  private static final int MAX_LONG_DIGITS = 18;
+
+  private final String fieldName;
+
+  private FieldParser(String fieldName) {
+    this.fieldName = fieldName;
+  }
+
+  /**
+   * Creates a {@link FieldParser} for the given field, which must be of a simple type or a nullable simple type.
+   *
+   * @param field the field to parse values of
+   * @param charset charset of the bytes to parse
+   * @return a {@link FieldParser} that parses values of the field
+   * @throws UnexpectedFormatException if the field is not of a simple type or a nullable simple type
+   */
+  static FieldParser create(Schema.Field field, final Charset charset) {
+    final String fieldName = field.getName();
+    Schema schema = field.getSchema();
+    final Schema.Type type;
+    if (schema.getType().isSimpleType()) {
+      type = schema.getType();
+    } else if (schema.isNullableSimple()) {
+      type = schema.getNonNullable().getType();
+    } else {
+      throw new UnexpectedFormatException("Cannot convert a string to schema " + schema);
+    }
+
+    switch (type) {
+      case BOOLEAN:
+        return new FieldParser(fieldName) {
+          @Override
+          Object parse(byte[] bytes, int start, int end) {
+            return parseBoolean(bytes, start, end);
+          }
+        };
+      case INT:
+        return new FieldParser(fieldName) {
+          @Override
+          Object parse(byte[] bytes, int start, int end) {
+            long value = parseLong(bytes, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            return value == Long.MIN_VALUE
+              ? Integer.parseInt(toString(bytes, start, end, charset)) : Integer.valueOf((int) value);
+          }
+        };
+      case LONG:
+        return new FieldParser(fieldName) {
+          @Override
+          Object parse(byte[] bytes, int start, int end) {
+            long value = parseLong(bytes, start, end, Long.MIN_VALUE + 1, Long.MAX_VALUE);
+            return value == Long.MIN_VALUE
+              ? Long.parseLong(toString(bytes, start, end, charset)) : Long.valueOf(value);
+          }
+        };
+      case FLOAT:
+        return new FieldParser(fieldName) {
+          @Override
+          Object parse(byte[] bytes, int start, int end) {
+            return parseFloat(bytes, start, end, charset);
+          }
+        };
+      case DOUBLE:
+        return new FieldParser(fieldName) {
+          @Override
+          Object parse(byte[] bytes, int start, int end) {
+            return parseDouble(bytes, start, end, charset);
+          }
+        };
+      case BYTES:
+        return new FieldParser(fieldName) {
+          @Override
+          Object parse(byte[] bytes, int start, int end) {
+            return Bytes.toBytesBinary(toString(bytes, start, end, charset));
+          }
+        };
+      case STRING:
+        return new FieldParser(fieldName) {
+          @Override
+          Object parse(byte[] bytes, int start, int end) {
+            return toString(bytes, start, end, charset);
+          }
+        };
+      case NULL:
+        return new FieldParser(fieldName) {
+          @Override
+          Object parse(byte[] bytes, int start, int end) {
+            return null;
+          }
+
+          @Override
+          void set(StructuredRecord.Builder builder, byte[] bytes, int start, int end) {
+            // a null field accepts any string, but not a null one
+            builder.convertAndSet(fieldName, toString(bytes, start, end, charset));
+          }
+        };
+      default:
+        // shouldn't ever get here
+        throw new UnexpectedFormatException("Cannot convert a string to schema " + schema);
+    }
+  }
+
+  /**
+   * Returns whether every ASCII character is encoded as the same single byte in the given charset, and no byte of
+   * any other character is an ASCII byte. Text in any other charset needs to be transcoded before it is parsed.
+   */
+  static boolean isAsciiCompatible(Charset charset) {
+    return Charsets.UTF_8.equals(charset) || Charsets.US_ASCII.equals(charset) || Charsets.ISO_8859_1.equals(charset);
+  }
+
+  /**
+   * Returns a {@link ByteBuffer} with the remaining bytes of the given buffer that is backed by an array, which is
+   * the given buffer itself unless it is a direct buffer.
+   */
+  static ByteBuffer toHeapBuffer(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return buffer;
+    }
+    ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+    copy.put(buffer.duplicate()).flip();
+    return copy;
+  }
+
+  static String toString(byte[] bytes, int start, int end, Charset charset) {
+    return new String(bytes, start, end - start, charset);
+  }
+
+  /**
+   * Parses the value between the given positions of the bytes.
+   *
+   * @param bytes the bytes to parse
+   * @param start position of the first byte of the value
+   * @param end position after the last byte of the value
+   * @return the parsed value
+   * @throws UnexpectedFormatException if the value cannot be converted to the type of the field
+   * @throws NumberFormatException if the value is not a valid number for a numeric field
+   */
+  abstract Object parse(byte[] bytes, int start, int end);
+
+  /**
+   * Parses the value between the given positions of the bytes and sets it to the field in the given builder.
+   *
+   * @throws UnexpectedFormatException if the value cannot be converted to the type of the field
+   * @throws NumberFormatException if the value is not a valid number for a numeric field
+   */
+  void set(StructuredRecord.Builder builder, byte[] bytes, int start, int end) {
+    builder.set(fieldName, parse(bytes, start, end));
+  }
+
+  /**
+   * Sets the field in the given builder to null.
+   *
+   * @throws UnexpectedFormatException if the field is not nullable
+   */
+  void setNull(StructuredRecord.Builder builder) {
+    builder.set(fieldName, null);
+  }
+
+  private static Boolean parseBoolean(byte[] bytes, int start, int end) {
+    // same as Boolean.parseBoolean, which is true only for "true" in any case
+    return end - start == 4
+      && (bytes[start] | 0x20) == 't' && (bytes[start + 1] | 0x20) == 'r'
+      && (bytes[start + 2] | 0x20) == 'u' && (bytes[start + 3] | 0x20) == 'e';
+  }
+
+  /**
+   * Parses an optionally signed decimal number of ASCII digits. Returns {@link Long#MIN_VALUE} if the bytes are not
+   * such a number between the given bounds, in which case the caller parses the decoded string instead, either
+   * for the exact number or for the error.
+   */
+  private static long parseLong(byte[] bytes, int start, int end, long min, long max) {
+    int pos = start;
+    boolean negative = false;
+    if (pos < end && (bytes[pos] == '-' || bytes[pos] == '+')) {
+      negative = bytes[pos] == '-';
+      pos++;
+    }
+    if (pos == end || end - pos > MAX_LONG_DIGITS) {
+      return Long.MIN_VALUE;
+    }
+    long value = 0;
+    for (; pos < end; pos++) {
+      int digit = bytes[pos] - '0';
+      if (digit < 0 || digit > 9) {
+        return Long.MIN_VALUE;
+      }
+      value = value * 10 + digit;
+    }
+    value = negative ? -value : value;
+    return value < min || value > max ? Long.MIN_VALUE : value;
+  }
+
+  private static Double parseDouble(byte[] bytes, int start, int end, Charset charset) {
+    // The digits and the power of ten are exact doubles, hence the division is correctly rounded,
+    // giving the same value as Double.parseDouble
+    long mantissa = parseMantissa(bytes, start, end, MAX_DOUBLE_DIGITS, DOUBLE_POWERS_OF_TEN.length - 1);
+    if (mantissa < 0) {
+      return Double.parseDouble(toString(bytes, start, end, charset));
+    }
+    double value = (mantissa >>> 5) / DOUBLE_POWERS_OF_TEN[(int) (mantissa & 0x1f)];
+    return bytes[start] == '-' ? -value : value;
+  }
+
+  private static Float parseFloat(byte[] bytes, int start, int end, Charset charset) {
+    long mantissa = parseMantissa(bytes, start, end, MAX_FLOAT_DIGITS, FLOAT_POWERS_OF_TEN.length - 1);
+    if (mantissa < 0) {
+      return Float.parseFloat(toString(bytes, start, end, charset));
+    }
+    float value = (mantissa >>> 5) / FLOAT_POWERS_OF_TEN[(int) (mantissa & 0x1f)];
+    return bytes[start] == '-' ? -value : value;
+  }
+
+  /**
+   * Parses an optionally signed decimal number of ASCII digits with an optional decimal point and no exponent.
+   * Returns the digits without the decimal point, shifted left by five bits, with the number of digits after the
+   * decimal point in the lower five bits. Returns -1 if the bytes are not such a number, or if there are more
+   * digits than given.
+   */
+  private static long parseMantissa(byte[] bytes, int start, int end, int maxDigits, int maxScale) {
+    int pos = start;
+    if (pos < end && (bytes[pos] == '-' || bytes[pos] == '+')) {
+      pos++;
+    }
+    long digits = 0;
+    int count = 0;
+    int scale = -1;
+    for (; pos < end; pos++) {
+      byte b = bytes[pos];
+      if (b == '.' && scale < 0) {
+        scale = 0;
+        continue;
+      }
+      int digit = b - '0';
+      if (digit < 0 || digit > 9 || ++count > maxDigits) {
+        return -1;
+      }
+      digits = digits * 10 + digit;
+      if (scale >= 0) {
+        scale++;
+      }
+    }
+    if (count == 0 || scale > maxScale) {
+      return -1;
+    }
+    return (digits << 5) | Math.max(scale, 0);
+  }
+}
@@ -154,7 +154,7 @@ public final class LiveStreamFileReader extends LiveFileReader<PositionStreamEve
     private StreamFileOffset offset;
 
     private StreamPositionTransformFileReader(StreamFileOffset offset) throws IOException {
-      this.reader = StreamDataFileReader.createWithOffset(Locations.newInputSupplier(offset.getEventLocation()),
+      this.reader = StreamDataFileReader.createWithOffset(Locations.newMappedInputSupplier(offset.getEventLocation()),
                                                           Locations.newInputSupplier(offset.getIndexLocation()),
                                                           offset.getOffset());
       this.offset = new StreamFileOffset(offset);
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data.stream;
+
+import co.cask.cdap.api.stream.StreamEventData;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implemented by {@link StreamEventData} whose body is held in one or more buffers, for example as received from the
+ * network. A {@link StreamDataFileWriter} writes such a body straight from the buffers, instead of first merging it
+ * into the single {@link ByteBuffer} returned by {@link StreamEventData#getBody()}.
+ */
+public interface ScatteredStreamEventBody {
+
+  /**
+   * Returns the buffers that make up the body, in order. The position and limit of the returned buffers
+   * must not be modified.
+   */
+  ByteBuffer[] getBodyBuffers();
+
+  /**
+   * Returns the total number of bytes in the body.
+   */
+  int getBodySize();
+}
@@ -32,9 +32,11 @@ import com.google.common.io.OutputSupplier;
 import com.google.common.primitives.Longs;
 import org.apache.hadoop.fs.Syncable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.Map;
 import javax.annotation.concurrent.NotThreadSafe;
@@ -48,7 +50,7 @@ import javax.annotation.concurrent.NotThreadSafe;
  * {@code
  *
  * event_file = <header> <data>* <end_marker>
- * header = "E" "1" <properties>
+ * header = "E" "2" <properties>
  * properties = Avro encoded with the properties schema
  * data = <timestamp> <length> <stream_event>+
  * timestamp = 8 bytes int64 for timestamp in milliseconds
@@ -59,6 +61,25 @@ import javax.annotation.concurrent.NotThreadSafe;
  * }
  * </pre>
  *
+ * When written with a {@link StreamFileCompression} other than {@link StreamFileCompression#NONE}, the event file
+ * has header "E" "3" and each data block is compressed individually:
+ *
+ * <pre>
+ * {@code
+ *
+ * data = <timestamp> <length> <compression> <uncompressed_length> <compressed_events>
+ * length = Avro encoded int32 for size in bytes of everything after it in the data block
+ * compression = Avro encoded int32 for the id of the compression of this block
+ * uncompressed_length = Avro encoded int32 for size in bytes for all <stream_event>s
+ * compressed_events = the <stream_event>s compressed as a whole
+ *
+ * }
+ * </pre>
+ *
+ * Since events in a compressed block have no file offset of their own, the position of an event is the offset of
+ * <compression> plus the index of the event in the block. A block is never shorter than the number of events in it,
+ * which keeps positions of events unique and within the block.
+ *
  * Stream index file:
  *
  * <pre>
@@ -78,15 +99,26 @@ import javax.annotation.concurrent.NotThreadSafe;
 public final class StreamDataFileWriter implements TimestampCloseable, Flushable, FileWriter<StreamEvent> {
 
   private static final int BUFFER_SIZE = 256 * 1024;    // 256K
+  // Event body size from which an event appended alone is written directly from its buffers as a data block
+  private static final int DIRECT_WRITE_THRESHOLD = 64 * 1024;    // 64K
+  // Size of the scratch buffer for copying non-heap buffers to the output stream
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
 
   private final OutputStream eventOutput;
   private final OutputStream indexOutput;
   private final long indexInterval;
   private final BufferedEncoder encoder;
   private final BufferedEncoder lengthEncoder;
+  private final StreamFileCompression compression;
+  private byte[] copyBuffer;
+  // Buffers for compressing data blocks
+  private BlockOutputStream blockOutput;
+  private byte[] compressBuffer;
 
   // Timestamp for the current block
   private long currentTimestamp;
+  // Number of events buffered for the current block
+  private int blockEventCount;
   private long position;
   private long nextIndexTime;
   private boolean synced;
@@ -104,6 +136,17 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     this(eventOutputSupplier, indexOutputSupplier, indexInterval, ImmutableMap.<String, String>of());
   }
 
+  /**
+   * Constructs a new instance that writes to given outputs without compression. Same as calling
+   * {@link StreamDataFileWriter#StreamDataFileWriter(OutputSupplier, OutputSupplier, long, Map, StreamFileCompression)}
+   * with {@link StreamFileCompression#NONE}.
+   */
+  public StreamDataFileWriter(OutputSupplier<? extends OutputStream> eventOutputSupplier,
+                              OutputSupplier<? extends OutputStream> indexOutputSupplier,
+                              long indexInterval, Map<String, String> properties) throws IOException {
+    this(eventOutputSupplier, indexOutputSupplier, indexInterval, properties, StreamFileCompression.NONE);
+  }
+
   /**
    * Constructs a new instance that writes to given outputs.
    *
@@ -111,11 +154,13 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
    * @param indexOutputSupplier the provider of the {@link OutputStream} for writing the index
    * @param indexInterval the time interval in milliseconds for emitting a new index entry
    * @param properties the property set that will be stored as file properties
+   * @param compression the compression for data blocks
    * @throws IOException if there is an error in preparing the output streams
    */
   public StreamDataFileWriter(OutputSupplier<? extends OutputStream> eventOutputSupplier,
                               OutputSupplier<? extends OutputStream> indexOutputSupplier,
-                              long indexInterval, Map<String, String> properties) throws IOException {
+                              long indexInterval, Map<String, String> properties,
+                              StreamFileCompression compression) throws IOException {
     this.eventOutput = eventOutputSupplier.getOutput();
     try {
       this.indexOutput = indexOutputSupplier.getOutput();
@@ -124,6 +169,7 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
       throw e;
     }
     this.indexInterval = indexInterval;
+    this.compression = compression;
     this.currentTimestamp = -1L;
     this.closeTimestamp = -1L;
 
@@ -141,6 +187,14 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
   }
 
 
+  /**
+   * Writes an event to the stream file. An event with a large body is written as a data block of its own, directly
+   * from the buffers of the body, without copying it into the write buffer first. If the event implements
+   * {@link ScatteredStreamEventBody}, the body is taken from {@link ScatteredStreamEventBody#getBodyBuffers()}.
+   *
+   * @param event the event to append
+   * @throws IOException
+   */
   @Override
   public void append(StreamEvent event) throws IOException {
     doAppend(event, BUFFER_SIZE);
@@ -220,8 +274,19 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
         position += Bytes.SIZEOF_LONG;
       }
 
+      // Large events that don't need to share a data block with other events are written directly,
+      // unless data blocks are compressed.
+      if (flushLimit != Integer.MAX_VALUE && compression == StreamFileCompression.NONE) {
+        int bodySize = getBodySize(event);
+        if (bodySize >= DIRECT_WRITE_THRESHOLD) {
+          writeDirect(event, bodySize);
+          return;
+        }
+      }
+
       // Encodes the event data into buffer.
       StreamEventDataCodec.encode(event, encoder);
+      blockEventCount++;
 
       // Optionally flush if already filled up the buffer.
       if (encoder.size() >= flushLimit) {
@@ -235,7 +300,8 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
 
   private void init(Map<String, String> properties) throws IOException {
     // Writes the header for event file
-    encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V2);
+    encoder.writeRaw(compression == StreamFileCompression.NONE ? StreamDataFileConstants.MAGIC_HEADER_V2
+                                                               : StreamDataFileConstants.MAGIC_HEADER_V3);
 
     Map<String, String> headers = Maps.newHashMap(properties);
     headers.put(StreamDataFileConstants.Property.Key.SCHEMA, StreamEventDataCodec.STREAM_DATA_SCHEMA.toString());
@@ -278,20 +344,133 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
       indexOffset = position - Bytes.SIZEOF_LONG;
     }
 
-    // Writes the size of the encoded event
-    lengthEncoder.writeInt(encoder.size());
-    int size = lengthEncoder.size();
+    if (compression == StreamFileCompression.NONE) {
+      // Writes the size of the encoded event
+      lengthEncoder.writeInt(encoder.size());
+      int size = lengthEncoder.size();
+      lengthEncoder.writeTo(eventOutput);
+      position += size;
+
+      // Writes all encoded data from the buffer to the output.
+      size = encoder.size();
+      encoder.writeTo(eventOutput);
+      position += size;
+    } else {
+      writeCompressedBlock();
+    }
+    blockEventCount = 0;
+    if (sync) {
+      sync(eventOutput);
+    }
+
+    writeIndex(indexOffset, sync);
+
+    // Reset the current timestamp so that a data block will start.
+    currentTimestamp = -1L;
+    synced = sync;
+  }
+
+  /**
+   * Writes the buffered events as a compressed data block, after the block timestamp.
+   */
+  private void writeCompressedBlock() throws IOException {
+    if (blockOutput == null) {
+      blockOutput = new BlockOutputStream();
+    }
+    int rawSize = encoder.size();
+    blockOutput.reset();
+    encoder.writeTo(blockOutput);
+    byte[] raw = blockOutput.getBuffer();
+
+    int maxSize = compression.maxCompressedLength(rawSize);
+    if (compressBuffer == null || compressBuffer.length < maxSize) {
+      compressBuffer = new byte[maxSize];
+    }
+
+    StreamFileCompression blockCompression = compression;
+    byte[] payload = compressBuffer;
+    int payloadSize = compression.compress(raw, rawSize, compressBuffer);
+
+    // Store the block uncompressed if compression doesn't help, or if the compressed block is too small
+    // to give each event in it a distinct position.
+    if (payloadSize >= rawSize || payloadSize < blockEventCount) {
+      blockCompression = StreamFileCompression.NONE;
+      payload = raw;
+      payloadSize = rawSize;
+    }
+
+    encoder.writeInt(blockCompression.getId());
+    encoder.writeInt(rawSize);
+    int blockHeaderSize = encoder.size();
+
+    lengthEncoder.writeInt(blockHeaderSize + payloadSize);
+    position += lengthEncoder.size();
     lengthEncoder.writeTo(eventOutput);
-    position += size;
 
-    // Writes all encoded data from the buffer to the output.
-    size = encoder.size();
     encoder.writeTo(eventOutput);
-    position += size;
-    if (sync) {
-      sync(eventOutput);
+    eventOutput.write(payload, 0, payloadSize);
+    position += blockHeaderSize + payloadSize;
+  }
+
+  /**
+   * Writes an event as a data block of its own, with the body written straight from the event's buffers.
+   * The encoded block is the same as one written by {@link #flushBlock(boolean)} with only this event in it.
+   *
+   * @param event the event to write
+   * @param bodySize size of the event body
+   * @throws IOException If failed to write.
+   */
+  private void writeDirect(StreamEvent event, int bodySize) throws IOException {
+    // If there are buffered events of the same timestamp, write them out as a block and start a new block
+    if (encoder.size() > 0) {
+      flushBlock(false);
+      currentTimestamp = event.getTimestamp();
+      eventOutput.write(Bytes.toBytes(currentTimestamp));
+      position += Bytes.SIZEOF_LONG;
+    }
+
+    long indexOffset = -1L;
+    if (currentTimestamp >= nextIndexTime) {
+      indexOffset = position - Bytes.SIZEOF_LONG;
+    }
+
+    // The encoded event is the body length, the body, and then the headers
+    StreamEventDataCodec.encodeHeaders(event.getHeaders(), encoder);
+    int headersSize = encoder.size();
+
+    lengthEncoder.writeInt(bodySize);
+    int bodyLengthSize = lengthEncoder.size();
+    lengthEncoder.reset();
+
+    lengthEncoder.writeInt(bodyLengthSize + bodySize + headersSize);
+    position += lengthEncoder.size();
+    lengthEncoder.writeTo(eventOutput);
+
+    lengthEncoder.writeInt(bodySize);
+    lengthEncoder.writeTo(eventOutput);
+    position += bodyLengthSize;
+
+    ByteBuffer[] buffers = event instanceof ScatteredStreamEventBody
+      ? ((ScatteredStreamEventBody) event).getBodyBuffers()
+      : new ByteBuffer[] { event.getBody() };
+    for (ByteBuffer buffer : buffers) {
+      write(buffer, eventOutput);
     }
+    position += bodySize;
+
+    encoder.writeTo(eventOutput);
+    position += headersSize;
+
+    writeIndex(indexOffset, false);
+
+    // Reset the current timestamp so that a data block will start.
+    currentTimestamp = -1L;
+  }
 
+  /**
+   * Writes an index entry for the current data block if the given offset is not negative.
+   */
+  private void writeIndex(long indexOffset, boolean sync) throws IOException {
     if (indexOffset >= 0) {
       encoder.writeRaw(Bytes.toBytes(currentTimestamp));
       encoder.writeRaw(Bytes.toBytes(indexOffset));
@@ -304,10 +483,33 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     } else if (sync) {
       sync(indexOutput);
     }
+  }
 
-    // Reset the current timestamp so that a data block will start.
-    currentTimestamp = -1L;
-    synced = sync;
+  /**
+   * Writes the remaining bytes of the given buffer to the output without changing the buffer position. Non-heap
+   * buffers are copied through a reused scratch buffer.
+   */
+  private void write(ByteBuffer buffer, OutputStream output) throws IOException {
+    if (buffer.hasArray()) {
+      output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      return;
+    }
+    if (copyBuffer == null) {
+      copyBuffer = new byte[COPY_BUFFER_SIZE];
+    }
+    ByteBuffer src = buffer.duplicate();
+    while (src.hasRemaining()) {
+      int len = Math.min(src.remaining(), copyBuffer.length);
+      src.get(copyBuffer, 0, len);
+      output.write(copyBuffer, 0, len);
+    }
+  }
+
+  private static int getBodySize(StreamEvent event) {
+    if (event instanceof ScatteredStreamEventBody) {
+      return ((ScatteredStreamEventBody) event).getBodySize();
+    }
+    return event.getBody().remaining();
   }
 
   private void sync(OutputStream output) throws IOException {
@@ -329,6 +531,20 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     throw ex;
   }
 
+  /**
+   * A {@link ByteArrayOutputStream} that gives access to its buffer, for compressing without copying.
+   */
+  private static final class BlockOutputStream extends ByteArrayOutputStream {
+
+    BlockOutputStream() {
+      super(BUFFER_SIZE);
+    }
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+
   private static Function<OutputStream, Encoder> createEncoderFactory() {
     return new Function<OutputStream, Encoder>() {
       @Override
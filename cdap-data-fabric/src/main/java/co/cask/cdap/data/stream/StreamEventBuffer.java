@@ -19,6 +19,7 @@ package co.cask.cdap.data.stream;
 import co.cask.cdap.common.io.BinaryDecoder;
 import co.cask.cdap.common.io.ByteBuffers;
 import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.common.io.MappedFileSeekableInputStream;
 import co.cask.cdap.common.io.SeekableInputStream;
 import co.cask.cdap.common.stream.StreamEventDataCodec;
 import co.cask.cdap.data.file.ReadFilter;
@@ -33,6 +34,10 @@ import javax.annotation.concurrent.NotThreadSafe;
 /**
  * A buffer for holding encoded stream events. It is used by {@link StreamDataFileReader} for holding
  * encoded stream events in each data block.
+ * <p>
+ * For uncompressed data blocks, the position of an event is its offset in the stream file. For compressed data
+ * blocks, the position of an event is the block content offset plus the index of the event in the block.
+ * </p>
  */
 @NotThreadSafe
 final class StreamEventBuffer {
@@ -41,17 +46,28 @@ final class StreamEventBuffer {
   private final Decoder decoder;
 
   private ByteBuffer buffer;
+  // Buffer for reading data blocks from non memory mapped input
+  private ByteBuffer readBuffer;
+  // Buffers for reading and uncompressing compressed data blocks
+  private byte[] compressedBytes;
+  private byte[] uncompressedBytes;
   private long basePosition;
+  private long endPosition;
+  // Whether event positions are base position plus event index, which is the case for compressed data blocks
+  private boolean indexedPosition;
+  private int eventIndex;
 
   StreamEventBuffer() {
     this.buffer = ByteBuffers.EMPTY_BUFFER;
+    this.readBuffer = ByteBuffers.EMPTY_BUFFER;
     this.bufferInput = new ByteBufferInputStream(buffer);
     this.decoder = new BinaryDecoder(bufferInput);
     this.basePosition = -1L;
   }
 
   /**
-   * Fills the internal buffer by reading from the given input stream.
+   * Fills the internal buffer by reading from the given input stream. If the input is a
+   * {@link MappedFileSeekableInputStream}, the buffer shares content with the mapped file instead.
    *
    * @param input input stream to read from
    * @param size number of bytes to read
@@ -59,20 +75,68 @@ final class StreamEventBuffer {
    * @throws EOFException if failed to read the given number of bytes from the input
    */
   void fillBuffer(SeekableInputStream input, int size) throws IOException {
-    buffer.clear();
-    buffer = ensureCapacity(buffer, size);
+    try {
+      basePosition = input.getPos();
+      endPosition = basePosition + size;
+      indexedPosition = false;
 
+      // For memory mapped file, decode directly from the mapped region
+      if (input instanceof MappedFileSeekableInputStream) {
+        buffer = ((MappedFileSeekableInputStream) input).read(size);
+        bufferInput.reset(buffer);
+        return;
+      }
+
+      readBuffer.clear();
+      buffer = readBuffer = ensureCapacity(readBuffer, size);
+      readFully(input, buffer.array(), size);
+      buffer.limit(size);
+      bufferInput.reset(buffer);
+    } catch (IOException e) {
+      // Make the buffer has nothing to read
+      buffer.position(buffer.limit());
+      basePosition = -1L;
+      throw e;
+    }
+  }
+
+  /**
+   * Fills the internal buffer by reading a compressed data block from the given input stream and
+   * uncompressing it.
+   *
+   * @param input input stream to read from
+   * @param size number of bytes in the data block after the block length
+   * @throws IOException if failed to read from the stream or to uncompress
+   * @throws EOFException if failed to read the given number of bytes from the input
+   */
+  void fillCompressedBuffer(SeekableInputStream input, int size) throws IOException {
     try {
       basePosition = input.getPos();
-      int bytesRead = 0;
-      while (bytesRead != size) {
-        int len = input.read(buffer.array(), bytesRead, size - bytesRead);
-        if (len < 0) {
-          throw new EOFException("Expected to read " + size + ", but only " + bytesRead + " was read");
+      endPosition = basePosition + size;
+      indexedPosition = true;
+      eventIndex = 0;
+
+      if (compressedBytes == null || compressedBytes.length < size) {
+        compressedBytes = new byte[size];
+      }
+      readFully(input, compressedBytes, size);
+
+      // Decodes the compression and the uncompressed size, which are followed by the compressed events
+      buffer = ByteBuffer.wrap(compressedBytes, 0, size);
+      bufferInput.reset(buffer);
+      StreamFileCompression compression = StreamFileCompression.fromId(decoder.readInt());
+      int uncompressedSize = decoder.readInt();
+      int offset = buffer.position();
+
+      if (compression == StreamFileCompression.NONE) {
+        buffer = buffer.slice();
+      } else {
+        if (uncompressedBytes == null || uncompressedBytes.length < uncompressedSize) {
+          uncompressedBytes = new byte[uncompressedSize];
         }
-        bytesRead += len;
+        compression.uncompress(compressedBytes, offset, size - offset, uncompressedBytes, uncompressedSize);
+        buffer = ByteBuffer.wrap(uncompressedBytes, 0, uncompressedSize);
       }
-      buffer.limit(size);
       bufferInput.reset(buffer);
     } catch (IOException e) {
       // Make the buffer has nothing to read
@@ -94,7 +158,13 @@ final class StreamEventBuffer {
    * read from the stream.
    */
   long getPosition() {
-    return basePosition >= 0 ? basePosition + buffer.position() : -1L;
+    if (basePosition < 0) {
+      return -1L;
+    }
+    if (indexedPosition) {
+      return hasEvent() ? basePosition + eventIndex : endPosition;
+    }
+    return basePosition + buffer.position();
   }
 
   /**
@@ -102,7 +172,7 @@ final class StreamEventBuffer {
    * been read from the stream.
    */
   long getEndPosition() {
-    return basePosition >= 0 ? basePosition + buffer.limit() : -1L;
+    return basePosition >= 0 ? endPosition : -1L;
   }
 
   /**
@@ -120,7 +190,8 @@ final class StreamEventBuffer {
       throw new IOException("No more event in the buffer");
     }
 
-    long eventPos = basePosition + buffer.position();
+    long eventPos = getPosition();
+    eventIndex++;
     if (filter.acceptOffset(eventPos)) {
       return new PositionStreamEvent(StreamEventDataCodec.decode(decoder, defaultHeaders), timestamp, eventPos);
     }
@@ -128,6 +199,20 @@ final class StreamEventBuffer {
     return null;
   }
 
+  /**
+   * Reads exactly the given number of bytes from the input into the given array.
+   */
+  private void readFully(SeekableInputStream input, byte[] bytes, int size) throws IOException {
+    int bytesRead = 0;
+    while (bytesRead != size) {
+      int len = input.read(bytes, bytesRead, size - bytesRead);
+      if (len < 0) {
+        throw new EOFException("Expected to read " + size + ", but only " + bytesRead + " was read");
+      }
+      bytesRead += len;
+    }
+  }
+
   /**
    * Ensures that the given {@link ByteBuffer} is of sufficient size.
    *
@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data.stream;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression of data blocks in stream files. Any compression other than {@link #NONE} makes
+ * {@link StreamDataFileWriter} write files in the version 3 format.
+ */
+public enum StreamFileCompression {
+
+  NONE(0) {
+    @Override
+    int maxCompressedLength(int length) {
+      return length;
+    }
+
+    @Override
+    int compress(byte[] input, int length, byte[] output) {
+      System.arraycopy(input, 0, output, 0, length);
+      return length;
+    }
+
+    @Override
+    void uncompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException {
+      if (length != outputLength) {
+        throw new IOException("Expected block size " + outputLength + ", but got " + length);
+      }
+      System.arraycopy(input, offset, output, 0, length);
+    }
+  },
+
+  DEFLATE(1) {
+    @Override
+    int maxCompressedLength(int length) {
+      // Deflate adds 5 bytes per 16K stored block in the worst case, plus the stream header and trailer
+      return length + (length >> 8) + 64;
+    }
+
+    @Override
+    int compress(byte[] input, int length, byte[] output) {
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        int size = 0;
+        while (!deflater.finished()) {
+          size += deflater.deflate(output, size, output.length - size);
+        }
+        return size;
+      } finally {
+        deflater.end();
+      }
+    }
+
+    @Override
+    void uncompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException {
+      Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(input, offset, length);
+        int size = 0;
+        while (size < outputLength && !inflater.finished()) {
+          int len = inflater.inflate(output, size, outputLength - size);
+          if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          size += len;
+        }
+        if (size != outputLength) {
+          throw new IOException("Expected block size " + outputLength + ", but got " + size);
+        }
+      } catch (DataFormatException e) {
+        throw new IOException(e);
+      } finally {
+        inflater.end();
+      }
+    }
+  },
+
+  SNAPPY(2) {
+    @Override
+    int maxCompressedLength(int length) {
+      return Snappy.maxCompressedLength(length);
+    }
+
+    @Override
+    int compress(byte[] input, int length, byte[] output) throws IOException {
+      return Snappy.compress(input, 0, length, output, 0);
+    }
+
+    @Override
+    void uncompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException {
+      if (Snappy.uncompressedLength(input, offset, length) != outputLength) {
+        throw new IOException("Expected block size " + outputLength);
+      }
+      Snappy.uncompress(input, offset, length, output, 0);
+    }
+  };
+
+  private final int id;
+
+  StreamFileCompression(int id) {
+    this.id = id;
+  }
+
+  /**
+   * Returns the id of the compression that is written to the stream file.
+   */
+  int getId() {
+    return id;
+  }
+
+  /**
+   * Returns the {@link StreamFileCompression} of the given id.
+   *
+   * @throws IOException if the id is unknown
+   */
+  static StreamFileCompression fromId(int id) throws IOException {
+    for (StreamFileCompression compression : values()) {
+      if (compression.id == id) {
+        return compression;
+      }
+    }
+    throw new IOException("Unknown stream file compression " + id);
+  }
+
+  /**
+   * Returns the maximum size of compressing the given number of bytes.
+   */
+  abstract int maxCompressedLength(int length);
+
+  /**
+   * Compresses bytes from the input array.
+   *
+   * @param input array with bytes to compress, starting at index 0
+   * @param length number of bytes to compress
+   * @param output array for the compressed bytes, which must have at least {@link #maxCompressedLength(int)} bytes
+   * @return number of bytes written to the output
+   */
+  abstract int compress(byte[] input, int length, byte[] output) throws IOException;
+
+  /**
+   * Uncompresses bytes from the input array to the output array, starting at index 0.
+   *
+   * @throws IOException if failed to uncompress or the uncompressed size is not the expected output length
+   */
+  abstract void uncompress(byte[] input, int offset, int length,
+                           byte[] output, int outputLength) throws IOException;
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data.stream.service;
+
+import co.cask.cdap.api.stream.StreamEventData;
+import co.cask.cdap.common.io.ByteBuffers;
+import co.cask.cdap.data.stream.ScatteredStreamEventBody;
+import org.jboss.netty.buffer.ChannelBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A {@link StreamEventData} with the body in a {@link ChannelBuffer}. The body is written to stream files directly
+ * from the buffer's components, so that a large request body doesn't need to be copied into one contiguous
+ * {@link ByteBuffer}. Such a copy only happens if {@link #getBody()} is called.
+ */
+@NotThreadSafe
+public final class ChannelBufferStreamEventData extends StreamEventData implements ScatteredStreamEventBody {
+
+  private final ChannelBuffer buffer;
+  private ByteBuffer body;
+
+  public ChannelBufferStreamEventData(Map<String, String> headers, ChannelBuffer buffer) {
+    super(headers, ByteBuffers.EMPTY_BUFFER);
+    this.buffer = buffer;
+  }
+
+  @Override
+  public ByteBuffer getBody() {
+    if (body == null) {
+      body = buffer.toByteBuffer();
+    }
+    return body;
+  }
+
+  @Override
+  public ByteBuffer[] getBodyBuffers() {
+    return buffer.toByteBuffers();
+  }
+
+  @Override
+  public int getBodySize() {
+    return buffer.readableBytes();
+  }
+}
@@ -20,6 +20,7 @@ import co.cask.cdap.api.stream.StreamEventData;
 import co.cask.cdap.common.exception.NotFoundException;
 import co.cask.cdap.data.file.FileWriter;
 import co.cask.cdap.data.file.FileWriters;
+import co.cask.cdap.data.stream.ScatteredStreamEventBody;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
 import co.cask.cdap.data.stream.StreamDataFileConstants;
 import co.cask.cdap.data.stream.StreamFileType;
@@ -43,15 +44,19 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -81,12 +86,23 @@ import javax.annotation.concurrent.ThreadSafe;
  * The spin lock between step 2 to step 8 is necessary as it guarantees events enqueued by all threads would eventually
  * get written and flushed.
  *
+ * Optionally, the writer can run in group commit mode, in which step 5 is delayed by a bounded window (in time and in
+ * bytes) so that requests arriving in the meantime are written as part of the same flush. The window adapts to the
+ * observed arrival rate: the writer only waits if requests recently arrived more often than flushes complete, and
+ * stops waiting as soon as no new request arrives within about twice the recent time between arrivals, so that
+ * latency is not increased under light traffic. In this mode, the queue is a blocking queue, so that the writer
+ * can block until the next request arrives instead of spinning. Likewise, in step 8 a thread waits until its request
+ * is completed, or until the writer hands over to it when it is done, instead of spinning through the window.
  */
 @ThreadSafe
 public final class ConcurrentStreamWriter implements Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(ConcurrentStreamWriter.class);
 
+  // Maximum time for a thread to wait for its request before trying to become the writer again in group commit mode.
+  // The writer wakes up waiting threads, this only bounds the delay if a hand over is missed.
+  private static final long MAX_REQUEST_WAIT_MS = 10;
+
   private final StreamCoordinatorClient streamCoordinatorClient;
   private final StreamAdmin streamAdmin;
   private final int workerThreads;
@@ -96,10 +112,27 @@ public final class ConcurrentStreamWriter implements Closeable {
   private final Set<Id.Stream> generationWatched;
   private final List<Cancellable> cancellables;
   private final Lock createLock;
+  private final long groupCommitWindowNanos;
+  private final int groupCommitMaxBytes;
 
   ConcurrentStreamWriter(StreamCoordinatorClient streamCoordinatorClient, StreamAdmin streamAdmin,
                          StreamFileWriterFactory writerFactory, int workerThreads,
                          StreamMetricsCollectorFactory metricsCollectorFactory) {
+    this(streamCoordinatorClient, streamAdmin, writerFactory, workerThreads, metricsCollectorFactory, 0L, 0);
+  }
+
+  /**
+   * Creates a writer that uses group commit if {@code groupCommitWindowMs} is positive.
+   *
+   * @param groupCommitWindowMs maximum time in milliseconds to delay a flush for more requests to arrive
+   * @param groupCommitMaxBytes number of bytes written after which a flush is no longer delayed
+   */
+  ConcurrentStreamWriter(StreamCoordinatorClient streamCoordinatorClient, StreamAdmin streamAdmin,
+                         StreamFileWriterFactory writerFactory, int workerThreads,
+                         StreamMetricsCollectorFactory metricsCollectorFactory,
+                         long groupCommitWindowMs, int groupCommitMaxBytes) {
+    this.groupCommitWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, groupCommitWindowMs));
+    this.groupCommitMaxBytes = groupCommitMaxBytes;
     this.streamCoordinatorClient = streamCoordinatorClient;
     this.streamAdmin = streamAdmin;
     this.workerThreads = workerThreads;
@@ -123,8 +156,22 @@ public final class ConcurrentStreamWriter implements Closeable {
    */
   public void enqueue(Id.Stream streamId,
                       Map<String, String> headers, ByteBuffer body) throws IOException, NotFoundException {
+    enqueue(streamId, new StreamEventData(headers, body));
+  }
+
+  /**
+   * Writes an event to the given stream. If the event data is a {@link ScatteredStreamEventBody}, the body is
+   * written to the stream file from its buffers.
+   *
+   * @param streamId identifier of the stream
+   * @param eventData the event to write
+   *
+   * @throws IOException if failed to write to stream
+   * @throws IllegalArgumentException If the stream doesn't exists
+   */
+  public void enqueue(Id.Stream streamId, StreamEventData eventData) throws IOException, NotFoundException {
     EventQueue eventQueue = getEventQueue(streamId);
-    WriteRequest writeRequest = eventQueue.append(headers, body);
+    WriteRequest writeRequest = eventQueue.append(eventData);
     persistUntilCompleted(streamId, eventQueue, writeRequest);
   }
 
@@ -157,9 +204,24 @@ public final class ConcurrentStreamWriter implements Closeable {
   public void asyncEnqueue(final Id.Stream streamId,
                            Map<String, String> headers, ByteBuffer body,
                            Executor executor) throws IOException, NotFoundException {
+    asyncEnqueue(streamId, new StreamEventData(headers, body), executor);
+  }
+
+  /**
+   * Writes an event to the given stream asynchronously. This method returns when the new event is stored to
+   * the in-memory event queue, but before persisted.
+   *
+   * @param streamId identifier of the stream
+   * @param eventData the event to write
+   * @param executor The executor for performing the async write flush operation
+   * @throws IOException if fails to get stream information
+   * @throws IllegalArgumentException If the stream doesn't exists
+   */
+  public void asyncEnqueue(final Id.Stream streamId, StreamEventData eventData,
+                           Executor executor) throws IOException, NotFoundException {
     // Put the event to the queue first and then execute the write asynchronously
     final EventQueue eventQueue = getEventQueue(streamId);
-    final WriteRequest writeRequest = eventQueue.append(headers, body);
+    final WriteRequest writeRequest = eventQueue.append(eventData);
     executor.execute(new Runnable() {
       @Override
       public void run() {
@@ -255,7 +317,18 @@ public final class ConcurrentStreamWriter implements Closeable {
   private void persistUntilCompleted(Id.Stream streamId, EventQueue eventQueue, WriteRequest request)
     throws IOException {
     while (!request.isCompleted()) {
-      if (!eventQueue.tryWrite()) {
+      if (eventQueue.tryWrite()) {
+        continue;
+      }
+      if (groupCommitWindowNanos > 0) {
+        // Another thread is writing and may hold the flush for the group commit window
+        try {
+          request.awaitSignal(MAX_REQUEST_WAIT_MS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for a write to stream " + streamId);
+        }
+      } else {
         Thread.yield();
       }
     }
@@ -367,20 +440,34 @@ public final class ConcurrentStreamWriter implements Closeable {
     private final Id.Stream streamId;
     private final StreamMetricsCollectorFactory.StreamMetricsCollector metricsCollector;
     private final Queue<WriteRequest> queue;
+    // Same as the queue in group commit mode, in which the writer leader blocks on it for more requests to arrive
+    private final BlockingQueue<WriteRequest> blockingQueue;
     private final AtomicBoolean writerFlag;
     private final WriteRequest.Metrics metrics;
     private final MutableStreamEvent streamEvent;
     private final Function<StreamEventData, StreamEvent> eventTransformer;
     private FileWriter<StreamEventData> fileWriter;
     private boolean closed;
+    // Group commit state, only accessed by the writer leader thread
+    private long lastArrivalNanos;
+    private long avgInterArrivalNanos;
+    private long avgFlushNanos;
 
     EventQueue(Id.Stream streamId, StreamMetricsCollectorFactory.StreamMetricsCollector metricsCollector) {
       this.streamId = streamId;
       this.streamEvent = new MutableStreamEvent();
-      this.queue = new ConcurrentLinkedQueue<>();
+      if (groupCommitWindowNanos > 0) {
+        this.blockingQueue = new LinkedBlockingQueue<>();
+        this.queue = blockingQueue;
+      } else {
+        this.blockingQueue = null;
+        this.queue = new ConcurrentLinkedQueue<>();
+      }
       this.writerFlag = new AtomicBoolean(false);
       this.metrics = new WriteRequest.Metrics();
       this.metricsCollector = metricsCollector;
+      this.lastArrivalNanos = System.nanoTime();
+      this.avgInterArrivalNanos = groupCommitWindowNanos;
       this.eventTransformer = new Function<StreamEventData, StreamEvent>() {
         @Override
         public StreamEvent apply(StreamEventData data) {
@@ -392,12 +479,11 @@ public final class ConcurrentStreamWriter implements Closeable {
     /**
      * Adds an event to the event queue.
      *
-     * @param headers headers of the event
-     * @param body body of the event
+     * @param eventData the event
      * @return A {@link WriteRequest} that contains the status of the request
      */
-    WriteRequest append(Map<String, String> headers, ByteBuffer body) {
-      WriteRequest request = new SingleWriteRequest(headers, body);
+    WriteRequest append(StreamEventData eventData) {
+      WriteRequest request = new SingleWriteRequest(eventData);
       queue.add(request);
       return request;
     }
@@ -446,7 +532,7 @@ public final class ConcurrentStreamWriter implements Closeable {
         fileSize = eventFile.length();
         streamFileFactory.appendFile(streamConfig, eventFile, indexFile, timestampCloseable.getCloseTimestamp());
       } finally {
-        writerFlag.set(false);
+        releaseWriter();
       }
 
       metricsCollector.emitMetrics(fileSize, eventCount);
@@ -461,6 +547,9 @@ public final class ConcurrentStreamWriter implements Closeable {
     boolean tryWrite() {
       int bytesWritten = 0;
       int eventsWritten = 0;
+      int requests = 0;
+      long waitNanos = 0;
+      long flushNanos = 0;
 
       if (!writerFlag.compareAndSet(false, true)) {
         return false;
@@ -474,6 +563,7 @@ public final class ConcurrentStreamWriter implements Closeable {
         List<WriteRequest> processQueue = Lists.newArrayListWithExpectedSize(workerThreads);
         try {
           FileWriter<StreamEventData> writer = getFileWriter();
+          long writeStart = System.nanoTime();
           WriteRequest request = queue.poll();
           streamEvent.setTimestamp(System.currentTimeMillis());
           while (request != null) {
@@ -481,12 +571,22 @@ public final class ConcurrentStreamWriter implements Closeable {
             request.write(writer, metrics);
             request = queue.poll();
           }
+          if (groupCommitWindowNanos > 0 && !processQueue.isEmpty()) {
+            for (WriteRequest processed : processQueue) {
+              updateInterArrival(processed);
+            }
+            waitNanos = waitForMoreRequests(writer, processQueue, writeStart);
+          }
+          long flushStart = System.nanoTime();
           writer.flush();
+          flushNanos = System.nanoTime() - flushStart;
+          avgFlushNanos += (flushNanos - avgFlushNanos) / 8;
           for (WriteRequest processed : processQueue) {
             processed.completed(null);
           }
           bytesWritten = metrics.bytesWritten;
           eventsWritten = metrics.eventsWritten;
+          requests = processQueue.size();
         } catch (Throwable t) {
           // On exception, remove this EventQueue from the map and close this event queue
           eventQueues.remove(streamId, this);
@@ -497,13 +597,84 @@ public final class ConcurrentStreamWriter implements Closeable {
           }
         }
       } finally {
-        writerFlag.set(false);
+        releaseWriter();
       }
 
       metricsCollector.emitMetrics(bytesWritten, eventsWritten);
+      if (groupCommitWindowNanos > 0 && requests > 0) {
+        metricsCollector.emitFlushMetrics(requests, waitNanos, flushNanos);
+      }
       return true;
     }
 
+    /**
+     * Keeps writing newly arriving requests before the flush, as long as they arrive about as fast as they did
+     * recently, and the group commit window and byte limit are not exceeded. This method should only be called
+     * from the writer leader thread.
+     *
+     * @param writer the {@link FileWriter} to write to
+     * @param processQueue list of requests written in this round, to which newly written requests are added
+     * @param writeStart time in nanoseconds when this round of writes started
+     * @return time in nanoseconds spent waiting for more requests
+     */
+    private long waitForMoreRequests(FileWriter<StreamEventData> writer,
+                                     List<WriteRequest> processQueue, long writeStart) throws IOException {
+      // Waiting only pays off if another request is expected before a flush would complete
+      if (avgInterArrivalNanos >= Math.min(groupCommitWindowNanos, avgFlushNanos)) {
+        return 0L;
+      }
+
+      long waitStart = System.nanoTime();
+      long deadline = writeStart + groupCommitWindowNanos;
+      long idleLimit = avgInterArrivalNanos * 2;
+      long lastWrite = waitStart;
+      while (metrics.bytesWritten < groupCommitMaxBytes) {
+        long timeoutNanos = Math.min(deadline, lastWrite + idleLimit) - System.nanoTime();
+        if (timeoutNanos <= 0) {
+          break;
+        }
+        WriteRequest request;
+        try {
+          request = blockingQueue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+          // Flush what has been written so far
+          Thread.currentThread().interrupt();
+          break;
+        }
+        if (request == null) {
+          break;
+        }
+        processQueue.add(request);
+        request.write(writer, metrics);
+        updateInterArrival(request);
+        lastWrite = System.nanoTime();
+      }
+      return System.nanoTime() - waitStart;
+    }
+
+    /**
+     * Updates the moving average of the time between request arrivals with the given request.
+     */
+    private void updateInterArrival(WriteRequest request) {
+      long arrival = request.getArrivalNanos();
+      avgInterArrivalNanos += (Math.max(0L, arrival - lastArrivalNanos) - avgInterArrivalNanos) / 8;
+      lastArrivalNanos = arrival;
+    }
+
+    /**
+     * Gives up being the writer leader. In group commit mode, the thread of the next queued request is woken up,
+     * since it waits instead of trying to become the leader.
+     */
+    private void releaseWriter() {
+      writerFlag.set(false);
+      if (blockingQueue != null) {
+        WriteRequest next = queue.peek();
+        if (next != null) {
+          next.signal();
+        }
+      }
+    }
+
     /**
      * Returns the current {@link FileWriter}. A new {@link FileWriter} will be created
      * if none existed yet. This method should only be called from the writer leader thread.
@@ -533,7 +704,7 @@ public final class ConcurrentStreamWriter implements Closeable {
           doClose();
         } finally {
           done = true;
-          writerFlag.set(false);
+          releaseWriter();
         }
       }
     }
@@ -582,8 +753,18 @@ public final class ConcurrentStreamWriter implements Closeable {
       }
     }
 
-    private State state = State.PENDING;
+    private final long arrivalNanos = System.nanoTime();
+    private volatile State state = State.PENDING;
     private Throwable failure;
+    // Whether the thread of this request was woken up, guarded by this
+    private boolean signalled;
+
+    /**
+     * Returns the {@link System#nanoTime()} when this request was created.
+     */
+    long getArrivalNanos() {
+      return arrivalNanos;
+    }
 
     boolean isCompleted() {
       return state != State.PENDING;
@@ -594,8 +775,28 @@ public final class ConcurrentStreamWriter implements Closeable {
     }
 
     void completed(Throwable failure) {
-      this.state = State.COMPLETED;
       this.failure = failure;
+      this.state = State.COMPLETED;
+      signal();
+    }
+
+    /**
+     * Wakes up the thread waiting in {@link #awaitSignal(long)}, or makes its next call return immediately.
+     */
+    synchronized void signal() {
+      signalled = true;
+      notifyAll();
+    }
+
+    /**
+     * Waits until this request is completed, or the writer leader hands over to the thread of this request,
+     * or the given time elapses.
+     */
+    synchronized void awaitSignal(long timeoutMs) throws InterruptedException {
+      if (!signalled && !isCompleted()) {
+        wait(timeoutMs);
+      }
+      signalled = false;
     }
 
     Throwable getFailure() {
@@ -619,13 +820,18 @@ public final class ConcurrentStreamWriter implements Closeable {
 
     private final StreamEventData eventData;
 
-    SingleWriteRequest(Map<String, String> headers, ByteBuffer body) {
-      this.eventData = new StreamEventData(headers, body);
+    SingleWriteRequest(StreamEventData eventData) {
+      this.eventData = eventData;
     }
 
     @Override
     void write(FileWriter<StreamEventData> writer, Metrics metrics) throws IOException {
-      metrics.increment(eventData.getBody().remaining());
+      // Avoid getBody() on a scattered body, as that would merge the body buffers
+      if (eventData instanceof ScatteredStreamEventBody) {
+        metrics.increment(((ScatteredStreamEventBody) eventData).getBodySize());
+      } else {
+        metrics.increment(eventData.getBody().remaining());
+      }
       writer.append(eventData);
     }
   }
@@ -18,16 +18,18 @@ package co.cask.cdap.data.stream.service;
 
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
 import co.cask.cdap.api.stream.StreamEventData;
+import co.cask.cdap.data.stream.ScatteredStreamEventBody;
 
 import java.nio.ByteBuffer;
 import java.util.Map;
 import javax.annotation.concurrent.NotThreadSafe;
 
 /**
- * A mutable {@link StreamEvent} that allows setting the data and timestamp.
+ * A mutable {@link StreamEvent} that allows setting the data and timestamp. If the data is a
+ * {@link ScatteredStreamEventBody}, its body buffers are exposed through this event as well.
  */
 @NotThreadSafe
-public final class MutableStreamEvent extends StreamEvent {
+public final class MutableStreamEvent extends StreamEvent implements ScatteredStreamEventBody {
 
   private StreamEventData data;
   private long timestamp;
@@ -77,4 +79,20 @@ public final class MutableStreamEvent extends StreamEvent {
   public Map<String, String> getHeaders() {
     return data.getHeaders();
   }
+
+  @Override
+  public ByteBuffer[] getBodyBuffers() {
+    if (data instanceof ScatteredStreamEventBody) {
+      return ((ScatteredStreamEventBody) data).getBodyBuffers();
+    }
+    return new ByteBuffer[] { data.getBody() };
+  }
+
+  @Override
+  public int getBodySize() {
+    if (data instanceof ScatteredStreamEventBody) {
+      return ((ScatteredStreamEventBody) data).getBodySize();
+    }
+    return data.getBody().remaining();
+  }
 }
@@ -0,0 +1,342 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data.stream.service;
+
+import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.data.stream.PositionStreamEvent;
+import co.cask.cdap.data.stream.StreamDataFileReader;
+import co.cask.cdap.data.stream.StreamFileType;
+import co.cask.cdap.data.stream.StreamUtils;
+import co.cask.cdap.data.stream.TimeRangeReadFilter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Reads stream events within a time range from the event files of a list of stream partitions, in timestamp order.
+ * <p>
+ * Each event file is read by its own {@link StreamDataFileReader}, which uses the file index to seek to the start
+ * time. Files are read in batches by tasks running in an {@link ExecutorService}, with the next batch of a file
+ * read while the current one is being consumed. Besides the files of the partition being consumed, files of the
+ * following partitions are read ahead, up to the given number of files. Since partitions don't overlap in time,
+ * events are merged by timestamp among the files of one partition only.
+ * </p>
+ */
+@NotThreadSafe
+final class StreamEventFetcher implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StreamEventFetcher.class);
+
+  private static final Comparator<FileSource> SOURCE_COMPARATOR = new Comparator<FileSource>() {
+    @Override
+    public int compare(FileSource o1, FileSource o2) {
+      long ts1 = o1.peek().getTimestamp();
+      long ts2 = o2.peek().getTimestamp();
+      if (ts1 != ts2) {
+        return ts1 < ts2 ? -1 : 1;
+      }
+      return o1.order < o2.order ? -1 : (o1.order == o2.order ? 0 : 1);
+    }
+  };
+
+  private final ExecutorService executor;
+  private final long startTime;
+  private final long endTime;
+  private final int readAhead;
+  private final int batchSize;
+  private final Iterator<? extends Collection<Location>> partitions;
+  // Sources of partitions that are opened but not yet being merged
+  private final Deque<List<FileSource>> openedPartitions;
+  private final PriorityQueue<FileSource> mergeQueue;
+  private final List<FileSource> allSources;
+  private final AtomicLong eventsScanned;
+  private int sourceCount;
+  private boolean closed;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param partitionFiles event file locations of each partition, ordered by partition start time
+   * @param startTime start timestamp in milliseconds for events to read (inclusive)
+   * @param endTime end timestamp in milliseconds for events to read (exclusive)
+   * @param executor executor for running file reads
+   * @param readAhead maximum number of files being read at the same time, unless a partition has more files
+   * @param batchSize number of events read from a file in one read task
+   */
+  StreamEventFetcher(Iterable<? extends Collection<Location>> partitionFiles, long startTime, long endTime,
+                     ExecutorService executor, int readAhead, int batchSize) {
+    this.executor = executor;
+    this.startTime = startTime;
+    this.endTime = endTime;
+    this.readAhead = readAhead;
+    this.batchSize = batchSize;
+    this.partitions = partitionFiles.iterator();
+    this.openedPartitions = Lists.newLinkedList();
+    this.mergeQueue = new PriorityQueue<>(11, SOURCE_COMPARATOR);
+    this.allSources = Lists.newArrayList();
+    this.eventsScanned = new AtomicLong();
+  }
+
+  /**
+   * Reads events into the given collection.
+   *
+   * @param events collection to add events to
+   * @param maxEvents maximum number of events to read
+   * @return number of events read, or {@code -1} if there are no more events
+   * @throws IOException if failed to read from stream files
+   * @throws InterruptedException if interrupted while waiting for reads to complete
+   */
+  int read(Collection<? super StreamEvent> events, int maxEvents) throws IOException, InterruptedException {
+    if (closed) {
+      throw new IOException("Fetcher already closed.");
+    }
+
+    int eventsRead = 0;
+    while (eventsRead < maxEvents) {
+      if (mergeQueue.isEmpty() && !nextPartition()) {
+        return eventsRead == 0 ? -1 : eventsRead;
+      }
+
+      FileSource source = mergeQueue.poll();
+      if (source == null) {
+        // Partition has no event in the time range
+        continue;
+      }
+      events.add(source.next());
+      eventsRead++;
+      if (source.hasNext()) {
+        mergeQueue.add(source);
+      }
+    }
+
+    readAhead();
+    return eventsRead;
+  }
+
+  /**
+   * Returns the number of events in the time range that are read from the stream files so far, which includes
+   * events that are read ahead but not yet returned by {@link #read(Collection, int)}.
+   */
+  long getEventsScanned() {
+    return eventsScanned.get();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (FileSource source : allSources) {
+      source.close();
+    }
+  }
+
+  /**
+   * Moves to the next partition and fills the merge queue with the files in it that have events.
+   *
+   * @return {@code false} if there is no more partition.
+   */
+  private boolean nextPartition() throws IOException, InterruptedException {
+    if (openedPartitions.isEmpty() && !openPartition()) {
+      return false;
+    }
+
+    List<FileSource> sources = openedPartitions.poll();
+    // Start reading from following partitions while waiting for the first batch of this partition
+    readAhead();
+    for (FileSource source : sources) {
+      if (source.hasNext()) {
+        mergeQueue.add(source);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Opens partitions that follow the partitions already opened, as long as the number of files being read is below
+   * the read ahead limit.
+   */
+  private void readAhead() {
+    while (partitions.hasNext() && countActiveSources() < readAhead) {
+      openPartition();
+    }
+  }
+
+  private int countActiveSources() {
+    int count = mergeQueue.size();
+    for (List<FileSource> sources : openedPartitions) {
+      count += sources.size();
+    }
+    return count;
+  }
+
+  /**
+   * Opens the next partition by starting the reads of all of its files.
+   *
+   * @return {@code false} if there is no more partition.
+   */
+  private boolean openPartition() {
+    if (!partitions.hasNext()) {
+      return false;
+    }
+    List<FileSource> sources = Lists.newArrayList();
+    for (Location eventLocation : partitions.next()) {
+      FileSource source = new FileSource(eventLocation, sourceCount++);
+      source.fetch();
+      sources.add(source);
+      allSources.add(source);
+    }
+    openedPartitions.add(sources);
+    return true;
+  }
+
+  /**
+   * Reads events from a single stream file.
+   */
+  private final class FileSource implements Callable<List<PositionStreamEvent>> {
+
+    private final Location eventLocation;
+    private final int order;
+    private final TimeRangeReadFilter readFilter;
+    private StreamDataFileReader reader;
+    private List<PositionStreamEvent> batch;
+    private int batchIndex;
+    private Future<List<PositionStreamEvent>> pending;
+    private boolean done;
+
+    FileSource(Location eventLocation, int order) {
+      this.eventLocation = eventLocation;
+      this.order = order;
+      this.readFilter = new TimeRangeReadFilter(startTime, endTime);
+      this.batch = ImmutableList.of();
+    }
+
+    /**
+     * Starts reading the next batch of events.
+     */
+    void fetch() {
+      pending = executor.submit(this);
+    }
+
+    /**
+     * Returns {@code true} if there are more events from this file, waiting for the current read if needed.
+     */
+    boolean hasNext() throws IOException, InterruptedException {
+      if (batchIndex < batch.size()) {
+        return true;
+      }
+      if (done) {
+        return false;
+      }
+
+      try {
+        batch = pending.get();
+        batchIndex = 0;
+        pending = null;
+      } catch (ExecutionException e) {
+        Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+        throw Throwables.propagate(e.getCause());
+      }
+
+      // Stops when a read returns nothing, otherwise reads the next batch while this one is consumed
+      done = batch.isEmpty();
+      if (!done) {
+        fetch();
+      }
+      return !done;
+    }
+
+    /**
+     * Returns the next event without consuming it. Must only be called after {@link #hasNext()} returned true.
+     */
+    PositionStreamEvent peek() {
+      return batch.get(batchIndex);
+    }
+
+    /**
+     * Consumes the next event. Must only be called after {@link #hasNext()} returned true.
+     */
+    PositionStreamEvent next() {
+      return batch.get(batchIndex++);
+    }
+
+    @Override
+    public List<PositionStreamEvent> call() throws Exception {
+      if (reader == null) {
+        Location partitionLocation = Locations.getParent(eventLocation);
+        String fileName = eventLocation.getName();
+        Location indexLocation = StreamUtils.createStreamLocation(partitionLocation,
+                                                                  StreamUtils.getNamePrefix(fileName),
+                                                                  StreamUtils.getSequenceId(fileName),
+                                                                  StreamFileType.INDEX);
+        reader = StreamDataFileReader.createByStartTime(Locations.newMappedInputSupplier(eventLocation),
+                                                        Locations.newInputSupplier(indexLocation), startTime);
+      }
+
+      // Keeps reading as long as the filter is active.
+      // This mean there are events in the file, just that they are rejected by the filter.
+      List<PositionStreamEvent> events = Lists.newArrayListWithCapacity(batchSize);
+      readFilter.reset();
+      int eventsRead = reader.read(events, batchSize, 0, TimeUnit.SECONDS, readFilter);
+      while (eventsRead == 0 && readFilter.isActive()) {
+        readFilter.reset();
+        eventsRead = reader.read(events, batchSize, 0, TimeUnit.SECONDS, readFilter);
+      }
+      eventsScanned.addAndGet(events.size());
+      return events;
+    }
+
+    void close() {
+      // Wait for the read in progress, if any, before closing the reader, as the reader is not thread safe.
+      if (pending != null && !pending.cancel(false)) {
+        try {
+          pending.get();
+        } catch (Exception e) {
+          LOG.debug("Exception in reading from {}", eventLocation.toURI(), e);
+        }
+      }
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          LOG.warn("Failed to close reader for {}", eventLocation.toURI(), e);
+        }
+      }
+    }
+  }
+}
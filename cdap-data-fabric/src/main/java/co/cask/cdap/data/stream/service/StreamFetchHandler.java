@@ -17,32 +17,34 @@
 package co.cask.cdap.data.stream.service;
 
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.stream.StreamEventTypeAdapter;
 import co.cask.cdap.common.utils.TimeMathParser;
-import co.cask.cdap.data.file.FileReader;
-import co.cask.cdap.data.file.ReadFilter;
-import co.cask.cdap.data.stream.MultiLiveStreamFileReader;
-import co.cask.cdap.data.stream.StreamEventOffset;
-import co.cask.cdap.data.stream.StreamFileOffset;
 import co.cask.cdap.data.stream.StreamFileType;
 import co.cask.cdap.data.stream.StreamUtils;
-import co.cask.cdap.data.stream.TimeRangeReadFilter;
 import co.cask.cdap.data2.transaction.stream.StreamAdmin;
 import co.cask.cdap.data2.transaction.stream.StreamConfig;
 import co.cask.cdap.proto.Id;
 import co.cask.http.AbstractHttpHandler;
 import co.cask.http.ChunkResponder;
+import co.cask.http.HandlerContext;
 import co.cask.http.HttpResponder;
 import com.google.common.base.Charsets;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.io.Closeables;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.stream.JsonWriter;
 import com.google.inject.Inject;
+import org.apache.twill.common.Threads;
 import org.apache.twill.filesystem.Location;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferOutputStream;
@@ -53,8 +55,13 @@ import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -75,12 +82,26 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
   private final CConfiguration cConf;
   private final StreamAdmin streamAdmin;
   private final StreamMetaStore streamMetaStore;
+  private final MetricsCollectionService metricsCollectionService;
+  private final int fetchParallelism;
+  // Executor for reading stream files of fetch requests
+  private final ExecutorService fetchExecutor;
 
   @Inject
-  public StreamFetchHandler(CConfiguration cConf, StreamAdmin streamAdmin, StreamMetaStore streamMetaStore) {
+  public StreamFetchHandler(CConfiguration cConf, StreamAdmin streamAdmin, StreamMetaStore streamMetaStore,
+                            MetricsCollectionService metricsCollectionService) {
     this.cConf = cConf;
     this.streamAdmin = streamAdmin;
     this.streamMetaStore = streamMetaStore;
+    this.metricsCollectionService = metricsCollectionService;
+    this.fetchParallelism = cConf.getInt(Constants.Stream.FETCH_PARALLELISM);
+
+    // Creates a thread pool that will shrink inactive threads
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(fetchParallelism, fetchParallelism, 60, TimeUnit.SECONDS,
+                                                         new LinkedBlockingQueue<Runnable>(),
+                                                         Threads.createDaemonThreadFactory("stream-fetch-%d"));
+    executor.allowCoreThreadTimeOut(true);
+    this.fetchExecutor = executor;
   }
 
   /**
@@ -120,13 +141,15 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
     startTime = Math.max(startTime, now - streamConfig.getTTL());
     endTime = Math.min(endTime, now);
 
-    // Create the stream event reader
-    try (FileReader<StreamEventOffset, Iterable<StreamFileOffset>> reader = createReader(streamConfig, startTime)) {
-      TimeRangeReadFilter readFilter = new TimeRangeReadFilter(startTime, endTime);
+    Stopwatch stopwatch = new Stopwatch().start();
+    int eventsSent = 0;
+
+    StreamEventFetcher fetcher = createFetcher(streamConfig, startTime, endTime);
+    try {
       List<StreamEvent> events = Lists.newArrayListWithCapacity(100);
 
       // Reads the first batch of events from the stream.
-      int eventsRead = readEvents(reader, events, limit, readFilter);
+      int eventsRead = fetcher.read(events, getReadLimit(limit));
 
       // If empty already, return 204 no content
       if (eventsRead <= 0) {
@@ -145,6 +168,7 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
       jsonWriter.beginArray();
       while (limit > 0 && eventsRead > 0) {
         limit -= eventsRead;
+        eventsSent += eventsRead;
 
         for (StreamEvent event : events) {
           GSON.toJson(event, StreamEvent.class, jsonWriter);
@@ -162,8 +186,9 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
         }
         events.clear();
 
+        // Stops reading once the limit is reached
         if (limit > 0) {
-          eventsRead = readEvents(reader, events, limit, readFilter);
+          eventsRead = fetcher.read(events, getReadLimit(limit));
         }
       }
       jsonWriter.endArray();
@@ -175,23 +200,35 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
         chunkResponder.sendChunk(buffer);
       }
       Closeables.closeQuietly(chunkResponder);
+    } finally {
+      fetcher.close();
+      emitFetchMetrics(streamId, eventsSent, fetcher.getEventsScanned(),
+                       stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
     }
   }
 
+  @Override
+  public void destroy(HandlerContext context) {
+    fetchExecutor.shutdownNow();
+  }
+
   /**
-   * Reads events from the given reader.
+   * Emits metrics for a fetch request.
    */
-  private int readEvents(FileReader<StreamEventOffset, Iterable<StreamFileOffset>> reader,
-                         List<StreamEvent> events, int limit,
-                         TimeRangeReadFilter readFilter) throws IOException, InterruptedException {
-    // Keeps reading as long as the filter is active.
-    // This mean there are events in the stream, just that they are rejected by the filter.
-    int eventsRead = reader.read(events, getReadLimit(limit), 0, TimeUnit.SECONDS, readFilter);
-    while (eventsRead == 0 && readFilter.isActive()) {
-      readFilter.reset();
-      eventsRead = reader.read(events, getReadLimit(limit), 0, TimeUnit.SECONDS, readFilter);
-    }
-    return eventsRead;
+  private void emitFetchMetrics(Id.Stream streamId, int eventsSent, long eventsScanned, long timeMillis) {
+    MetricsContext metricsContext = metricsCollectionService.getContext(getStreamMetricsContext(streamId));
+    metricsContext.increment("fetch.requests", 1);
+    metricsContext.increment("fetch.events", eventsSent);
+    metricsContext.increment("fetch.events.scanned", eventsScanned);
+    metricsContext.increment("fetch.time.ms", timeMillis);
+  }
+
+  private Map<String, String> getStreamMetricsContext(Id.Stream streamId) {
+    return ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, streamId.getNamespaceId(),
+                           Constants.Metrics.Tag.COMPONENT, Constants.Gateway.METRICS_CONTEXT,
+                           Constants.Metrics.Tag.HANDLER, Constants.Gateway.STREAM_HANDLER_NAME,
+                           Constants.Metrics.Tag.INSTANCE_ID, cConf.get(Constants.Stream.CONTAINER_INSTANCE_ID, "0"),
+                           Constants.Metrics.Tag.STREAM, streamId.getId());
   }
 
   /**
@@ -224,101 +261,55 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
   }
 
   /**
-   * Get the first partition location that contains events as specified in start time.
-   *
-   * @return the partition location if found, or {@code null} if not found.
+   * Returns the event files of the partitions that may contain events in the given time range,
+   * ordered by partition start time.
    */
-  private Location getStartPartitionLocation(StreamConfig streamConfig,
-                                             long startTime, int generation) throws IOException {
+  private List<List<Location>> getPartitionFiles(StreamConfig streamConfig,
+                                                 long startTime, long endTime) throws IOException {
+    int generation = StreamUtils.getGeneration(streamConfig);
     Location baseLocation = StreamUtils.createGenerationLocation(streamConfig.getLocation(), generation);
 
-    // Find the partition location with the largest timestamp that is <= startTime
-    // Also find the partition location with the smallest timestamp that is >= startTime
-    long maxPartitionStartTime = 0L;
-    long minPartitionStartTime = Long.MAX_VALUE;
-
-    Location maxPartitionLocation = null;
-    Location minPartitionLocation = null;
+    // The actual file prefix is formed by file prefix in cConf + writer instance id
+    Set<String> filePrefixes = Sets.newHashSet();
+    int instances = cConf.getInt(Constants.Stream.CONTAINER_INSTANCES);
+    String filePrefix = cConf.get(Constants.Stream.FILE_PREFIX);
+    for (int i = 0; i < instances; i++) {
+      filePrefixes.add(filePrefix + '.' + i);
+    }
 
+    // Partitions sorted by start time
+    SortedMap<Long, Location> partitions = Maps.newTreeMap();
     for (Location location : baseLocation.list()) {
       // Partition must be a directory
-      if (!location.isDirectory() || !StreamUtils.isPartition(location.getName())) {
+      String name = location.getName();
+      if (!StreamUtils.isPartition(name) || !location.isDirectory()) {
         continue;
       }
-      long partitionStartTime = StreamUtils.getPartitionStartTime(location.getName());
-
-      if (partitionStartTime > maxPartitionStartTime && partitionStartTime <= startTime) {
-        maxPartitionStartTime = partitionStartTime;
-        maxPartitionLocation = location;
-      }
-      if (partitionStartTime < minPartitionStartTime && partitionStartTime >= startTime) {
-        minPartitionStartTime = partitionStartTime;
-        minPartitionLocation = location;
+      if (StreamUtils.getPartitionStartTime(name) < endTime && StreamUtils.getPartitionEndTime(name) > startTime) {
+        partitions.put(StreamUtils.getPartitionStartTime(name), location);
       }
     }
 
-    return maxPartitionLocation == null ? minPartitionLocation : maxPartitionLocation;
-  }
-
-  /**
-   * Creates a {@link FileReader} that starts reading stream event from the given partition.
-   */
-  private FileReader<StreamEventOffset, Iterable<StreamFileOffset>> createReader(StreamConfig streamConfig,
-                                                                                 long startTime) throws IOException {
-    int generation = StreamUtils.getGeneration(streamConfig);
-    Location startPartition = getStartPartitionLocation(streamConfig, startTime, generation);
-    if (startPartition == null) {
-      return createEmptyReader();
-    }
-
-    List<StreamFileOffset> fileOffsets = Lists.newArrayList();
-    int instances = cConf.getInt(Constants.Stream.CONTAINER_INSTANCES);
-    String filePrefix = cConf.get(Constants.Stream.FILE_PREFIX);
-    for (int i = 0; i < instances; i++) {
-      // The actual file prefix is formed by file prefix in cConf + writer instance id
-      String streamFilePrefix = filePrefix + '.' + i;
-      Location eventLocation = StreamUtils.createStreamLocation(startPartition, streamFilePrefix,
-                                                                0, StreamFileType.EVENT);
-      fileOffsets.add(new StreamFileOffset(eventLocation, 0, generation));
+    List<List<Location>> partitionFiles = Lists.newArrayListWithCapacity(partitions.size());
+    for (Location partition : partitions.values()) {
+      List<Location> eventFiles = Lists.newArrayList();
+      for (Location location : partition.list()) {
+        String name = location.getName();
+        if (StreamFileType.EVENT.isMatched(name) && filePrefixes.contains(StreamUtils.getNamePrefix(name))) {
+          eventFiles.add(location);
+        }
+      }
+      partitionFiles.add(eventFiles);
     }
-
-    MultiLiveStreamFileReader reader = new MultiLiveStreamFileReader(streamConfig, fileOffsets);
-    reader.initialize();
-    return reader;
+    return partitionFiles;
   }
 
   /**
-   * Creates a reader that has no event to read.
+   * Creates a {@link StreamEventFetcher} for reading events in the given time range.
    */
-  private <T, P> FileReader<T, P> createEmptyReader() {
-    return new FileReader<T, P>() {
-      @Override
-      public void initialize() throws IOException {
-        // no-op
-      }
-
-      @Override
-      public int read(Collection<? super T> events, int maxEvents,
-                      long timeout, TimeUnit unit) throws IOException, InterruptedException {
-        return -1;
-      }
-
-      @Override
-      public int read(Collection<? super T> events, int maxEvents,
-                      long timeout, TimeUnit unit, ReadFilter readFilter) throws IOException, InterruptedException {
-        return -1;
-      }
-
-      @Override
-      public void close() throws IOException {
-        // no-op
-      }
-
-      @Override
-      public P getPosition() {
-        throw new UnsupportedOperationException("Position not supported for empty FileReader");
-      }
-    };
+  private StreamEventFetcher createFetcher(StreamConfig streamConfig, long startTime, long endTime) throws IOException {
+    return new StreamEventFetcher(getPartitionFiles(streamConfig, startTime, endTime), startTime, endTime,
+                                  fetchExecutor, fetchParallelism, MAX_EVENTS_PER_READ);
   }
 
   /**
@@ -134,7 +134,9 @@ public final class StreamHandler extends AbstractHttpHandler {
     StreamMetricsCollectorFactory metricsCollectorFactory = createStreamMetricsCollectorFactory();
     this.streamWriter = new ConcurrentStreamWriter(streamCoordinatorClient, streamAdmin, writerFactory,
                                                    cConf.getInt(Constants.Stream.WORKER_THREADS),
-                                                   metricsCollectorFactory);
+                                                   metricsCollectorFactory,
+                                                   cConf.getLong(Constants.Stream.GROUP_COMMIT_WINDOW_MS),
+                                                   cConf.getInt(Constants.Stream.GROUP_COMMIT_MAX_BYTES));
     this.namespaceClient = namespaceClient;
   }
 
@@ -209,7 +211,8 @@ public final class StreamHandler extends AbstractHttpHandler {
     Id.Stream streamId = Id.Stream.from(namespaceId, stream);
 
     try {
-      streamWriter.enqueue(streamId, getHeaders(request, stream), request.getContent().toByteBuffer());
+      streamWriter.enqueue(streamId, new ChannelBufferStreamEventData(getHeaders(request, stream),
+                                                                      request.getContent()));
       responder.sendStatus(HttpResponseStatus.OK);
     } catch (IOException e) {
       LOG.error("Failed to write to stream {}", stream, e);
@@ -225,8 +228,8 @@ public final class StreamHandler extends AbstractHttpHandler {
     Id.Stream streamId = Id.Stream.from(namespaceId, stream);
     // No need to copy the content buffer as we always uses a ChannelBufferFactory that won't reuse buffer.
     // See StreamHttpService
-    streamWriter.asyncEnqueue(streamId, getHeaders(request, stream),
-                              request.getContent().toByteBuffer(), asyncExecutor);
+    streamWriter.asyncEnqueue(streamId, new ChannelBufferStreamEventData(getHeaders(request, stream),
+                                                                         request.getContent()), asyncExecutor);
     responder.sendStatus(HttpResponseStatus.ACCEPTED);
   }
 
@@ -313,6 +316,15 @@ public final class StreamHandler extends AbstractHttpHandler {
               childCollector.increment("collect.events", eventsWritten);
             }
           }
+
+          @Override
+          public void emitFlushMetrics(int requests, long waitNanos, long flushNanos) {
+            // Average batch size, wait time and flush latency can be derived by dividing by collect.flushes
+            childCollector.increment("collect.flushes", 1);
+            childCollector.increment("collect.flush.requests", requests);
+            childCollector.increment("collect.flush.wait.us", TimeUnit.NANOSECONDS.toMicros(waitNanos));
+            childCollector.increment("collect.flush.time.us", TimeUnit.NANOSECONDS.toMicros(flushNanos));
+          }
         };
       }
     };
@@ -35,6 +35,15 @@ public interface StreamMetricsCollectorFactory {
      * @param eventsWritten number of events written to the stream
      */
     void emitMetrics(long bytesWritten, long eventsWritten);
+
+    /**
+     * Emit metrics about one flush of the stream writer. Only called when the writer uses group commit.
+     *
+     * @param requests number of write requests persisted by the flush
+     * @param waitNanos time in nanoseconds the flush was delayed to group more requests into it
+     * @param flushNanos time in nanoseconds the flush took
+     */
+    void emitFlushMetrics(int requests, long waitNanos, long flushNanos);
   }
 
   /**
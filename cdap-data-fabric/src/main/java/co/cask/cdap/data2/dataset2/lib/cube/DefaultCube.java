@@ -31,6 +31,7 @@ import co.cask.cdap.data2.dataset2.lib.timeseries.FactScan;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanResult;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanner;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import com.google.common.base.Throwables;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
@@ -39,6 +40,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +52,11 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 
 /**
@@ -61,13 +68,34 @@ public class DefaultCube implements Cube {
   private static final DimensionValueComparator DIMENSION_VALUE_COMPARATOR = new DimensionValueComparator();
   // hard-limit on max records to scan
   private static final int MAX_RECORDS_TO_SCAN = 100 * 1000;
+  // min number of data points in the time range of a query per scan when splitting it into parallel scans
+  private static final int MIN_POINTS_PER_SCAN = 600;
   private final Map<Integer, FactTable> resolutionToFactTable;
 
   private final Map<String, ? extends Aggregation> aggregations;
+  private final ExecutorService queryExecutor;
+  private final int queryParallelism;
 
   public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
                      Map<String, ? extends Aggregation> aggregations) {
+    this(resolutions, factTableSupplier, aggregations, MoreExecutors.sameThreadExecutor(), 1);
+  }
+
+  /**
+   * Creates an instance of {@link DefaultCube} that executes the scans of a query with the given executor.
+   *
+   * @param resolutions resolutions of the fact tables, in seconds
+   * @param factTableSupplier supplier of the fact table of each resolution
+   * @param aggregations aggregations of the cube by name
+   * @param queryExecutor executor for running the scans of queries
+   * @param queryParallelism max number of scans to split the time range of a query into
+   */
+  public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
+                     Map<String, ? extends Aggregation> aggregations,
+                     ExecutorService queryExecutor, int queryParallelism) {
     this.aggregations = aggregations;
+    this.queryExecutor = queryExecutor;
+    this.queryParallelism = Math.max(1, queryParallelism);
     this.resolutionToFactTable = Maps.newHashMap();
     for (int resolution : resolutions) {
       resolutionToFactTable.put(resolution, factTableSupplier.get(resolution, 3600));
@@ -101,6 +129,18 @@ public class DefaultCube implements Cube {
 
   @Override
   public Collection<TimeSeries> query(CubeQuery query) {
+    return query(query, null);
+  }
+
+  /**
+   * Executes the given query, like {@link #query(CubeQuery)}.
+   *
+   * @param query query to execute
+   * @param truncated if not {@code null}, set to {@code true} if the result is incomplete because the query matched
+   *                  more records than the maximum number of records scanned for a query
+   * @return the time series of the query result
+   */
+  public Collection<TimeSeries> query(CubeQuery query, @Nullable AtomicBoolean truncated) {
     /*
       CubeQuery example: "dataset read ops for app per dataset". Or:
 
@@ -135,9 +175,17 @@ public class DefaultCube implements Cube {
 
       3) While scanning build a table: dimension values -> time -> value. Use measureType as values aggregate
          function if needed.
+
+      The scan is split by measure name and, for long time ranges, into consecutive time ranges. The scans are
+      executed in parallel and their tables are merged.
+
+      If there's no fact table of the query resolution, the one with the coarsest resolution that the query
+      resolution is a multiple of is scanned, and the values are aggregated into the time intervals of the query
+      resolution.
     */
 
-    if (!resolutionToFactTable.containsKey(query.getResolution())) {
+    int resolution = findResolution(query.getResolution());
+    if (resolution < 0) {
       throw new IllegalArgumentException("There's no data aggregated for specified resolution to satisfy the query: " +
                                            query.toString());
     }
@@ -166,13 +214,11 @@ public class DefaultCube implements Cube {
       dimensionValues.add(new DimensionValue(dimensionName, query.getDimensionValues().get(dimensionName)));
     }
 
-    FactScan scan = new FactScan(query.getStartTs(), query.getEndTs(),
-                                 query.getMeasurements().keySet(), dimensionValues);
+    List<FactScan> scans = createScans(query, dimensionValues);
 
-    // 3) execute scan query
-    FactTable table = resolutionToFactTable.get(query.getResolution());
-    FactScanner scanner = table.scan(scan);
-    Table<Map<String, String>, String, Map<Long, Long>> resultMap = getTimeSeries(query, scanner);
+    // 3) execute scans
+    FactTable table = resolutionToFactTable.get(resolution);
+    Table<Map<String, String>, String, Map<Long, Long>> resultMap = executeScans(query, table, scans, truncated);
     return convertToQueryResult(query, resultMap);
   }
 
@@ -245,6 +291,112 @@ public class DefaultCube implements Cube {
     return result;
   }
 
+  /**
+   * Returns the resolution of the fact table to query for the given resolution, which is the given resolution if
+   * there is a fact table for it, or the coarsest resolution that the given one is a multiple of, or {@code -1} if
+   * there's no such resolution.
+   */
+  private int findResolution(int resolution) {
+    if (resolutionToFactTable.containsKey(resolution)) {
+      return resolution;
+    }
+    int result = -1;
+    // "totals" can only be served by the "totals" fact table
+    if (resolution != Integer.MAX_VALUE) {
+      for (int tableResolution : resolutionToFactTable.keySet()) {
+        if (resolution % tableResolution == 0 && tableResolution > result) {
+          result = tableResolution;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Creates scans for the given query, one for each measure name and time range. The time range of the query is
+   * split, on boundaries of the query resolution, if it contains enough data points.
+   */
+  private List<FactScan> createScans(CubeQuery query, List<DimensionValue> dimensionValues) {
+    long resolution = query.getResolution();
+    long startTs = query.getStartTs();
+    long endTs = query.getEndTs();
+
+    // number of time intervals of the query resolution in the time range
+    long intervals = 1;
+    if (resolution != Integer.MAX_VALUE && endTs > startTs) {
+      intervals = endTs / resolution - startTs / resolution + 1;
+    }
+    int timeRanges = (int) Math.max(1, Math.min(queryParallelism, intervals / MIN_POINTS_PER_SCAN));
+    long intervalsPerRange = (intervals + timeRanges - 1) / timeRanges;
+
+    List<FactScan> scans = Lists.newArrayList();
+    long rangeStart = startTs / resolution * resolution;
+    for (int i = 0; i < timeRanges && rangeStart <= endTs; i++) {
+      long rangeEnd = rangeStart + intervalsPerRange * resolution - 1;
+      for (String measureName : query.getMeasurements().keySet()) {
+        scans.add(new FactScan(Math.max(startTs, rangeStart), Math.min(endTs, rangeEnd), measureName, dimensionValues));
+      }
+      rangeStart = rangeEnd + 1;
+    }
+    return scans;
+  }
+
+  /**
+   * Executes the given scans with the query executor and merges their results.
+   */
+  private Table<Map<String, String>, String, Map<Long, Long>> executeScans(final CubeQuery query,
+                                                                           final FactTable table,
+                                                                           List<FactScan> scans,
+                                                                           @Nullable final AtomicBoolean truncated) {
+    // The limit on scanned records is split evenly between the scans, so that a split query doesn't scan more than
+    // the limit in total. Each scan has its own share, so that the result doesn't depend on how fast scans run.
+    final int maxRecordsPerScan = MAX_RECORDS_TO_SCAN / Math.max(1, scans.size());
+    List<AtomicBoolean> truncatedScans = Lists.newArrayList();
+    List<Future<Table<Map<String, String>, String, Map<Long, Long>>>> futures = Lists.newArrayList();
+    try {
+      for (final FactScan scan : scans) {
+        final AtomicBoolean scanTruncated = new AtomicBoolean();
+        truncatedScans.add(scanTruncated);
+        futures.add(queryExecutor.submit(new Callable<Table<Map<String, String>, String, Map<Long, Long>>>() {
+          @Override
+          public Table<Map<String, String>, String, Map<Long, Long>> call() throws Exception {
+            FactScanner scanner = table.scan(scan);
+            try {
+              return getTimeSeries(query, scanner, maxRecordsPerScan, scanTruncated);
+            } finally {
+              scanner.close();
+            }
+          }
+        }));
+      }
+
+      // Scans are in the order of their time ranges. Time ranges after the first truncated one are dropped, so
+      // that the result has no gaps, as if the whole time range was scanned up to the limit.
+      Table<Map<String, String>, String, Map<Long, Long>> result = HashBasedTable.create();
+      long truncatedRangeEnd = Long.MAX_VALUE;
+      for (int i = 0; i < scans.size() && scans.get(i).getStartTs() <= truncatedRangeEnd; i++) {
+        merge(query, result, futures.get(i).get());
+        if (truncatedScans.get(i).get()) {
+          truncatedRangeEnd = scans.get(i).getEndTs();
+          if (truncated != null) {
+            truncated.set(true);
+          }
+        }
+      }
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      // no-op for completed scans, stops the others in case of failure
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
   @Nullable
   private Aggregation findAggregation(CubeQuery query) {
     Aggregation currentBest = null;
@@ -263,11 +415,13 @@ public class DefaultCube implements Cube {
     return currentBest;
   }
 
-  private Table<Map<String, String>, String, Map<Long, Long>> getTimeSeries(CubeQuery query, FactScanner scanner) {
+  private Table<Map<String, String>, String, Map<Long, Long>> getTimeSeries(CubeQuery query, FactScanner scanner,
+                                                                            int maxRecords, AtomicBoolean truncated) {
     // {dimension values, metric} -> {time -> value}s
     Table<Map<String, String>, String, Map<Long, Long>> result = HashBasedTable.create();
 
-    int count = 0;
+    int resolution = query.getResolution();
+    int scannedRecords = 0;
     while (scanner.hasNext()) {
       FactScanResult next = scanner.next();
 
@@ -298,40 +452,58 @@ public class DefaultCube implements Cube {
         continue;
       }
 
+      AggregationFunction function = query.getMeasurements().get(next.getMeasureName());
       for (TimeValue timeValue : next) {
         Map<Long, Long> timeValues = result.get(seriesDimensions, next.getMeasureName());
         if (timeValues == null) {
-          result.put(seriesDimensions, next.getMeasureName(), Maps.<Long, Long>newHashMap());
-        }
-
-        AggregationFunction function = query.getMeasurements().get(next.getMeasureName());
-        if (AggregationFunction.SUM == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value == null ? 0 : value;
-          value += timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MAX == function) {
-          Long value = result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value > timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MIN == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value < timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.LATEST == function) {
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), timeValue.getValue());
-        } else {
-          // should never happen: developer error
-          throw new RuntimeException("Unknown MeasureType: " + function);
+          timeValues = Maps.newHashMap();
+          result.put(seriesDimensions, next.getMeasureName(), timeValues);
         }
+        // the fact table resolution could be finer than the query resolution
+        long timestamp = timeValue.getTimestamp() / resolution * resolution;
+        timeValues.put(timestamp, aggregate(function, timeValues.get(timestamp), timeValue.getValue()));
       }
-      if (++count >= MAX_RECORDS_TO_SCAN) {
+      if (++scannedRecords >= maxRecords) {
+        truncated.set(scanner.hasNext());
         break;
       }
     }
     return result;
   }
 
+  /**
+   * Merges time values of the given partial result table into the result table.
+   */
+  private void merge(CubeQuery query, Table<Map<String, String>, String, Map<Long, Long>> result,
+                     Table<Map<String, String>, String, Map<Long, Long>> partial) {
+    for (Table.Cell<Map<String, String>, String, Map<Long, Long>> cell : partial.cellSet()) {
+      Map<Long, Long> timeValues = result.get(cell.getRowKey(), cell.getColumnKey());
+      if (timeValues == null) {
+        result.put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+        continue;
+      }
+      AggregationFunction function = query.getMeasurements().get(cell.getColumnKey());
+      for (Map.Entry<Long, Long> timeValue : cell.getValue().entrySet()) {
+        timeValues.put(timeValue.getKey(),
+                       aggregate(function, timeValues.get(timeValue.getKey()), timeValue.getValue()));
+      }
+    }
+  }
+
+  private static long aggregate(AggregationFunction function, @Nullable Long current, long value) {
+    if (AggregationFunction.SUM == function) {
+      return current == null ? value : current + value;
+    } else if (AggregationFunction.MAX == function) {
+      return current != null && current > value ? current : value;
+    } else if (AggregationFunction.MIN == function) {
+      return current != null && current < value ? current : value;
+    } else if (AggregationFunction.LATEST == function) {
+      return value;
+    }
+    // should never happen: developer error
+    throw new RuntimeException("Unknown MeasureType: " + function);
+  }
+
   private Collection<TimeSeries> convertToQueryResult(CubeQuery query,
                                                       Table<Map<String, String>, String,
                                                         Map<Long, Long>> resultTable) {
@@ -17,6 +17,8 @@
 package co.cask.cdap.data2.dataset2.lib.table;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.batch.FilterableRecordScannable;
+import co.cask.cdap.api.data.batch.RecordScanFilter;
 import co.cask.cdap.api.data.batch.RecordScanner;
 import co.cask.cdap.api.data.batch.Split;
 import co.cask.cdap.api.data.batch.SplitReader;
@@ -51,7 +53,7 @@ import javax.annotation.Nullable;
 /**
  * Implements some of the methods in a generic way (not necessarily in most efficient way).
  */
-public abstract class AbstractTable implements Table, TransactionAware {
+public abstract class AbstractTable implements Table, FilterableRecordScannable<StructuredRecord>, TransactionAware {
   private static final Logger LOG = LoggerFactory.getLogger(AbstractTable.class);
 
   // empty immutable row's column->value map constant
@@ -189,16 +191,62 @@ public abstract class AbstractTable implements Table, TransactionAware {
   @Override
   public RecordScanner<StructuredRecord> createSplitRecordScanner(Split split) {
     Preconditions.checkArgument(tableSchema != null, "Table has no schema and is not record scannable.");
-    return new StructuredRecordScanner(createSplitReader(split));
+    return new StructuredRecordScanner(createSplitReader(split), tableSchema);
+  }
+
+  /**
+   * Returns the splits for the range of row keys of the condition on the row field of the filter, if there is one.
+   */
+  @Override
+  public List<Split> getSplits(RecordScanFilter filter) {
+    if (tableSchema == null || rowFieldName == null) {
+      return getSplits();
+    }
+    RecordScanFilter.Condition condition = filter.getCondition(rowFieldName);
+    if (condition == null) {
+      return getSplits();
+    }
+    // row keys are ordered like the field values only for strings and bytes, other types can only be looked up
+    Schema.Type rowType = tableSchema.getField(rowFieldName).getSchema().getType();
+    if (!condition.isSingleValue() && rowType != Schema.Type.STRING && rowType != Schema.Type.BYTES) {
+      return getSplits();
+    }
+    return getSplits(-1, condition.getStartRow(), condition.getStopRow());
+  }
+
+  /**
+   * Creates a record scanner that only decodes the fields of the filter. The other fields are missing from the
+   * records.
+   */
+  @Override
+  public RecordScanner<StructuredRecord> createSplitRecordScanner(Split split, RecordScanFilter filter) {
+    Preconditions.checkArgument(tableSchema != null, "Table has no schema and is not record scannable.");
+    if (filter.getFields() == null) {
+      return createSplitRecordScanner(split);
+    }
+    List<Schema.Field> fields = Lists.newArrayList();
+    for (Schema.Field field : tableSchema.getFields()) {
+      // the row field is always read, since it is part of the row key
+      if (filter.isFieldRead(field.getName()) || field.getName().equals(rowFieldName)) {
+        fields.add(field);
+      }
+    }
+    if (fields.isEmpty()) {
+      return createSplitRecordScanner(split);
+    }
+    return new StructuredRecordScanner(createSplitReader(split), Schema.recordOf(tableSchema.getRecordName(), fields));
   }
 
   private class StructuredRecordScanner extends RecordScanner<StructuredRecord> {
     private final ReflectionRowRecordReader rowReader;
     private final SplitReader<byte[], Row> tableSplitReader;
 
-    private StructuredRecordScanner(SplitReader<byte[], Row> tableSplitReader) {
+    /**
+     * Creates a scanner of the records of the given schema, which has the fields of the table schema to decode.
+     */
+    private StructuredRecordScanner(SplitReader<byte[], Row> tableSplitReader, Schema recordSchema) {
       this.tableSplitReader = tableSplitReader;
-      this.rowReader = new ReflectionRowRecordReader(tableSchema, rowFieldName);
+      this.rowReader = new ReflectionRowRecordReader(recordSchema, rowFieldName);
     }
 
     @Override
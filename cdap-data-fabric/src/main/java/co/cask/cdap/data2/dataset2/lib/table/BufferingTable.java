@@ -20,9 +20,11 @@ import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.batch.Split;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.dataset.DataSetException;
+import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.api.dataset.metrics.MeteredDataset;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
 import co.cask.cdap.api.dataset.table.Filter;
+import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Result;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scan;
@@ -69,6 +71,7 @@ import javax.annotation.Nullable;
  * <p>
  * NOTE: current implementation persists changes only at the end of transaction. Beware of OOME. There should be better
  *       implementation for MapReduce case (YMMV though, for counters/aggregations this implementation looks sweet)
+ *       For transactions that change a large number of cells, see {@link WriteBufferType#LOG}.
  * <p>
  * NOTE: Using {@link #get(byte[], byte[], byte[], int)} is generally always not efficient since it always hits the
  *       persisted store even if all needed data is in-memory buffer. See more info at method javadoc
@@ -80,6 +83,30 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   protected static final byte[] DELETE_MARKER = new byte[0];
 
+  /**
+   * Property of the table dataset to select the {@link WriteBufferType} used to keep changes of a transaction.
+   */
+  public static final String PROPERTY_WRITE_BUFFER = "dataset.table.write.buffer";
+
+  /**
+   * Type of the in-memory buffer that keeps changes until the transaction commits.
+   */
+  public enum WriteBufferType {
+    /**
+     * Changes are kept in a sorted map of rows to sorted maps of columns. Works best for small transactions.
+     */
+    MAP,
+    /**
+     * Changes are appended to a log in a pooled heap arena and sorted only when read or persisted.
+     * Works best for transactions that buffer a large number of cells.
+     */
+    LOG,
+    /**
+     * Same as {@link #LOG}, with the arena allocated off heap.
+     */
+    OFF_HEAP_LOG
+  }
+
   // name of the table
   private final String name;
   // conflict detection level
@@ -96,6 +123,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   // Keeps track of what was persisted so far
   private NavigableMap<byte[], NavigableMap<byte[], Update>> toUndo;
 
+  // Log of not yet persisted data, used instead of the buff map if the table is configured with a log write buffer
+  private CellLog cellLog;
+
   // Report data ops metrics to
   private MetricsCollector metricsCollector;
 
@@ -130,6 +160,21 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
    */
   public BufferingTable(String name, ConflictDetection level, boolean enableReadlessIncrements,
                         @Nullable Schema schema, @Nullable String rowFieldName) {
+    this(name, level, enableReadlessIncrements, schema, rowFieldName, WriteBufferType.MAP);
+  }
+
+  /**
+   * Creates an instance of {@link BufferingTable}.
+   *
+   * @param name the name of the table
+   * @param level the conflict detection level
+   * @param enableReadlessIncrements whether or not readless increments are enabled
+   * @param schema the schema of the table, or null if there is no schema
+   * @param rowFieldName the name of the schema field that the row key maps to, or null if there is none
+   * @param writeBufferType the type of the buffer to keep changes of a transaction in
+   */
+  public BufferingTable(String name, ConflictDetection level, boolean enableReadlessIncrements,
+                        @Nullable Schema schema, @Nullable String rowFieldName, WriteBufferType writeBufferType) {
     super(schema, rowFieldName);
     // for optimization purposes we don't allow table name of length greater than Byte.MAX_VALUE
     Preconditions.checkArgument(name.length() < Byte.MAX_VALUE,
@@ -143,6 +188,18 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // Default uses the above scheme. Subclasses can change it by overriding the #getNameAsTxChangePrefix method
     this.nameAsTxChangePrefix = Bytes.add(new byte[]{(byte) name.length()}, Bytes.toBytes(name));
     this.buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    if (writeBufferType != WriteBufferType.MAP) {
+      this.cellLog = new CellLog(writeBufferType == WriteBufferType.OFF_HEAP_LOG);
+    }
+  }
+
+  /**
+   * Returns the {@link WriteBufferType} configured for the given table dataset with the
+   * {@link #PROPERTY_WRITE_BUFFER} property, {@link WriteBufferType#MAP} if none is configured.
+   */
+  public static WriteBufferType getWriteBufferType(DatasetSpecification spec) {
+    String type = spec.getProperty(PROPERTY_WRITE_BUFFER);
+    return type == null ? WriteBufferType.MAP : WriteBufferType.valueOf(type.toUpperCase());
   }
 
   /**
@@ -216,6 +273,24 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
                                                                int limit)
     throws Exception;
 
+  /**
+   * Fetches column->value pairs for a batch of rows from persistent store. Implementations should override it to
+   * fetch all rows in one call to the store, the default implementation calls {@link #getPersisted(byte[], byte[][])}
+   * for every row.
+   * NOTE: persisted store can also be in-memory, it is called "persisted" to distinguish from in-memory buffer.
+   * @param gets rows to fetch with the set of columns for each row. Empty set of columns means fetch everything
+   * @return list of maps of column->value pairs, in the same order as gets, never null.
+   * @throws Exception
+   */
+  protected List<NavigableMap<byte[], byte[]>> getPersisted(List<Get> gets) throws Exception {
+    List<NavigableMap<byte[], byte[]>> results = Lists.newArrayListWithCapacity(gets.size());
+    for (Get get : gets) {
+      List<byte[]> columns = get.getColumns();
+      results.add(getPersisted(get.getRow(), columns.isEmpty() ? null : columns.toArray(new byte[columns.size()][])));
+    }
+    return results;
+  }
+
   /**
    * Scans range of rows from persistent store for a given {@link Scan}.
    * NOTE: persisted store can also be in-memory, it is called "persisted" to distinguish from in-memory buffer.
@@ -230,11 +305,20 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     this.metricsCollector = metricsCollector;
   }
 
+  /**
+   * @return the collector set with {@link #setMetricsCollector(MetricsCollector)}, or {@code null} if none was set
+   */
+  @Nullable
+  protected MetricsCollector getMetricsCollector() {
+    return metricsCollector;
+  }
+
   @Override
   public void close() {
     // releasing resources
     buff = null;
     toUndo = null;
+    cellLog = null;
   }
 
   @Override
@@ -245,7 +329,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       throw new IllegalStateException(msg);
     }
     // starting with fresh buffer when tx starts
-    buff.clear();
+    clearBuffer();
     toUndo = null;
   }
 
@@ -264,6 +348,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   }
 
   private Collection<byte[]> getRowChanges() {
+    if (cellLog != null) {
+      return getRowChanges(cellLog);
+    }
     // we resolve conflicts on row level of individual table
     List<byte[]> changes = new ArrayList<>(buff.size());
     for (byte[] changedRow : buff.keySet()) {
@@ -272,7 +359,21 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     return changes;
   }
 
+  private Collection<byte[]> getRowChanges(CellLog log) {
+    int size = log.sortedSize();
+    List<byte[]> changes = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      if (i == 0 || !log.isSameRow(i - 1, i)) {
+        changes.add(Bytes.add(getNameAsTxChangePrefix(), log.getRow(i)));
+      }
+    }
+    return changes;
+  }
+
   private Collection<byte[]> getColumnChanges() {
+    if (cellLog != null) {
+      return getColumnChanges(cellLog);
+    }
     // we resolve conflicts on row level of individual table
     List<byte[]> changes = new ArrayList<>(buff.size());
     for (Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange : buff.entrySet()) {
@@ -293,8 +394,33 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     return changes;
   }
 
+  private Collection<byte[]> getColumnChanges(CellLog log) {
+    int size = log.sortedSize();
+    List<byte[]> changes = new ArrayList<>(size);
+    byte[] rowTxChange = null;
+    for (int i = 0; i < size; i++) {
+      if (i == 0 || !log.isSameRow(i - 1, i)) {
+        byte[] row = log.getRow(i);
+        // using length + value format to prevent conflicts like row="ab", column="cd" vs row="abc", column="d"
+        rowTxChange = Bytes.add(Bytes.toBytes(row.length), row);
+      }
+      changes.add(Bytes.add(getNameAsTxChangePrefix(), rowTxChange, log.getColumn(i)));
+    }
+    return changes;
+  }
+
   @Override
   public boolean commitTx() throws Exception {
+    if (cellLog != null) {
+      if (!cellLog.isEmpty()) {
+        // the log is sorted and materialized only once, at commit time. Same as below, we first assume that all data
+        // will be persisted
+        toUndo = cellLog.toMap(null, null);
+        cellLog.clear();
+        persist(toUndo);
+      }
+      return true;
+    }
     if (!buff.isEmpty()) {
       // We first assume that all data will be persisted. So that if exception happen during persist we try to
       // rollback everything we had in in-memory buffer.
@@ -313,13 +439,13 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   @Override
   public void postTxCommit() {
     // don't need buffer anymore: tx has been committed
-    buff.clear();
+    clearBuffer();
     toUndo = null;
   }
 
   @Override
   public boolean rollbackTx() throws Exception {
-    buff.clear();
+    clearBuffer();
     if (toUndo != null) {
       undo(toUndo);
       toUndo = null;
@@ -354,16 +480,70 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
   }
 
+  /**
+   * Resolves as much as possible from the in-memory buffer and fetches the rest from persistent store with a single
+   * call to {@link #getPersisted(List)}. Results are returned in the same order as gets.
+   */
+  @Override
+  public List<Row> get(List<Get> gets) {
+    // reporting once per batch
+    reportRead(gets.size());
+    try {
+      List<NavigableMap<byte[], Update>> buffered = Lists.newArrayListWithCapacity(gets.size());
+      List<Get> persistedGets = Lists.newArrayListWithCapacity(gets.size());
+      // position of each get's fetch in persistedGets, -1 if everything was found in buffer
+      int[] persistedIndexes = new int[gets.size()];
+      for (int i = 0; i < gets.size(); i++) {
+        Get get = gets.get(i);
+        NavigableMap<byte[], Update> buffCols = getBuffered(get.getRow());
+        buffered.add(buffCols);
+
+        Get toFetch = get;
+        if (buffCols != null && !get.getColumns().isEmpty()) {
+          List<byte[]> colsToFetchFromPersisted = getColumnsToFetch(buffCols, toArray(get.getColumns()));
+          toFetch = colsToFetchFromPersisted.isEmpty() ? null : new Get(get.getRow(), colsToFetchFromPersisted);
+        }
+        if (toFetch == null) {
+          persistedIndexes[i] = -1;
+        } else {
+          persistedIndexes[i] = persistedGets.size();
+          persistedGets.add(toFetch);
+        }
+      }
+
+      List<NavigableMap<byte[], byte[]>> persisted = persistedGets.isEmpty() ?
+        Collections.<NavigableMap<byte[], byte[]>>emptyList() : getPersisted(persistedGets);
+
+      // overlay buffered values on persisted, same as for single row get
+      List<Row> results = Lists.newArrayListWithCapacity(gets.size());
+      for (int i = 0; i < gets.size(); i++) {
+        Get get = gets.get(i);
+        NavigableMap<byte[], byte[]> persistedCols =
+          persistedIndexes[i] < 0 ? EMPTY_ROW_MAP : persisted.get(persistedIndexes[i]);
+        NavigableMap<byte[], Update> buffCols = buffered.get(i);
+        byte[][] columns = get.getColumns().isEmpty() ? null : toArray(get.getColumns());
+        if (buffCols == null && columns != null) {
+          results.add(new Result(get.getRow(), persistedCols));
+          continue;
+        }
+        NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        result.putAll(persistedCols);
+        if (buffCols != null) {
+          mergeToPersisted(result, buffCols, columns);
+        }
+        results.add(new Result(get.getRow(), unwrapDeletes(result)));
+      }
+      return results;
+    } catch (Exception e) {
+      LOG.debug("multi-get failed for table: " + getTransactionAwareName() + ", gets: " + gets.size(), e);
+      throw new DataSetException("multi-get failed", e);
+    }
+  }
+
   @Override
   public Row get(byte[] row, byte[] startColumn, byte[] stopColumn, int limit) {
     reportRead(1);
-    // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
-    boolean rowDeleted = buffCols == null && buff.containsKey(row);
-    // ANDREAS: can this ever happen?
-    if (rowDeleted) {
-      return new Result(row, Collections.<byte[], byte[]>emptyMap());
-    }
+    NavigableMap<byte[], Update> buffCols = getBuffered(row);
 
     // NOTE: since we cannot tell the exact column set, we always have to go to persisted store.
     //       potential improvement: do not fetch columns available in in-mem buffer (we know them at this point)
@@ -403,6 +583,16 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   }
 
   private void putInternal(byte[] row, byte[][] columns, byte[][] values) {
+    if (cellLog != null) {
+      for (int i = 0; i < columns.length; i++) {
+        if (values[i] != null && values[i].length == 0) {
+          LOG.warn("Write of an empty value is not supported");
+        }
+        // NOTE: the log copies passed arrays into its arena, so no need to protect buffer against changes on client
+        cellLog.appendPut(row, columns[i], values[i]);
+      }
+      return;
+    }
     NavigableMap<byte[], Update> colVals = buff.get(row);
     boolean newRow = false;
     if (colVals == null) {
@@ -510,7 +700,12 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   @Override
   public void increment(byte[] row, byte[][] columns, long[] amounts) {
-    if (enableReadlessIncrements) {
+    if (enableReadlessIncrements && cellLog != null) {
+      for (int i = 0; i < columns.length; i++) {
+        cellLog.appendIncrement(row, columns[i], amounts[i]);
+      }
+      reportWrite(1, getSize(row) + getSize(columns) + getSize(amounts));
+    } else if (enableReadlessIncrements) {
       NavigableMap<byte[], Update> colVals = buff.get(row);
       if (colVals == null) {
         colVals = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
@@ -593,7 +788,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap;
     byte[] startRow = scan.getStartRow();
     byte[] stopRow = scan.getStopRow();
-    if (startRow == null && stopRow == null) {
+    if (cellLog != null) {
+      bufferMap = cellLog.toMap(startRow, stopRow);
+    } else if (startRow == null && stopRow == null) {
       bufferMap = buff;
     } else if (startRow == null) {
       bufferMap = buff.headMap(stopRow, false);
@@ -627,14 +824,24 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
   }
 
+  /**
+   * Returns the buffered changes of the given row, or {@code null} if the row was not changed in this transaction.
+   */
+  @Nullable
+  private NavigableMap<byte[], Update> getBuffered(byte[] row) {
+    return cellLog != null ? cellLog.getRow(row) : buff.get(row);
+  }
+
+  private void clearBuffer() {
+    buff.clear();
+    if (cellLog != null) {
+      cellLog.clear();
+    }
+  }
+
   private Map<byte[], byte[]> getRowMap(byte[] row) throws Exception {
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
-    boolean rowDeleted = buffCols == null && buff.containsKey(row);
-    if (rowDeleted) {
-      return Collections.emptyMap();
-    }
+    NavigableMap<byte[], Update> buffCols = getBuffered(row);
 
     Map<byte[], byte[]> persisted = getPersisted(row, null);
 
@@ -650,12 +857,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   private Map<byte[], byte[]> getRowMap(byte[] row, byte[][] columns) throws Exception {
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
-    boolean rowDeleted = buffCols == null && buff.containsKey(row);
-    if (rowDeleted) {
-      return Collections.emptyMap();
-    }
+    NavigableMap<byte[], Update> buffCols = getBuffered(row);
 
     // if nothing locally, return all from server
     if (buffCols == null) {
@@ -663,6 +865,27 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
 
     // otherwise try to fetch data from in-memory buffer. If not all present - fetch leftover from persisted
+    List<byte[]> colsToFetchFromPersisted = getColumnsToFetch(buffCols, columns);
+
+    // fetching from server those that were not found in in-mem buffer
+    if (colsToFetchFromPersisted.size() > 0) {
+      Map<byte[], byte[]> persistedCols =
+        getPersisted(row, colsToFetchFromPersisted.toArray(new byte[colsToFetchFromPersisted.size()][]));
+      if (persistedCols != null) {
+        result.putAll(persistedCols);
+      }
+    }
+
+    // overlay buffered values on persisted, applying increments where necessary
+    mergeToPersisted(result, buffCols, columns);
+
+    return unwrapDeletes(result);
+  }
+
+  /**
+   * Returns the columns that cannot be resolved from the buffered changes of a row alone.
+   */
+  private static List<byte[]> getColumnsToFetch(NavigableMap<byte[], Update> buffCols, byte[][] columns) {
     List<byte[]> colsToFetchFromPersisted = Lists.newArrayList();
     // try to fetch from local buffer first and then from server if it is not in buffer
     for (byte[] column : columns) {
@@ -677,20 +900,11 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
         colsToFetchFromPersisted.add(column);
       }
     }
+    return colsToFetchFromPersisted;
+  }
 
-    // fetching from server those that were not found in in-mem buffer
-    if (colsToFetchFromPersisted.size() > 0) {
-      Map<byte[], byte[]> persistedCols =
-        getPersisted(row, colsToFetchFromPersisted.toArray(new byte[colsToFetchFromPersisted.size()][]));
-      if (persistedCols != null) {
-        result.putAll(persistedCols);
-      }
-    }
-
-    // overlay buffered values on persisted, applying increments where necessary
-    mergeToPersisted(result, buffCols, columns);
-
-    return unwrapDeletes(result);
+  private static byte[][] toArray(List<byte[]> columns) {
+    return columns.toArray(new byte[columns.size()][]);
   }
 
   /**
@@ -0,0 +1,567 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import javax.annotation.Nullable;
+
+/**
+ * Append-only log of buffered cell changes, used by {@link BufferingTable} as an alternative to a tree of maps.
+ * <p>
+ * Every cell is copied into a pooled arena of {@link ByteBuffer} chunks (either on heap or direct) and referenced from
+ * a single {@code long[]} index, so buffering a cell does not create any objects. The index is sorted by row and column
+ * only when a range of rows is read or the changes are committed, and cells changed more than once are collapsed into
+ * one by applying the same rules as {@link Updates#mergeUpdates(Update, Update)}. Reading a single row looks up the
+ * cells appended since the last sort linearly, so that interleaving writes and reads of single rows doesn't sort the
+ * whole log every time. Chunks are kept across {@link #clear()} calls up to a fixed amount, so that a table used for
+ * many transactions reuses the same memory.
+ * <p>
+ * NOTE: as increments are merged lazily, incrementing a value that is not a long only fails when the cell is read.
+ * <p>
+ * This class is not thread safe.
+ */
+final class CellLog {
+
+  private static final byte TYPE_PUT = 0;
+  private static final byte TYPE_DELETE = 1;
+  private static final byte TYPE_INCREMENT = 2;
+
+  private static final int MIN_CHUNK_SIZE = 64 * 1024;
+  private static final int MAX_CHUNK_SIZE = 8 * 1024 * 1024;
+  // max number of bytes of arena chunks to keep around for next transactions
+  private static final long MAX_RETAINED_BYTES = 4L * MAX_CHUNK_SIZE;
+  private static final int INITIAL_INDEX_SIZE = 1024;
+  private static final int INDEX_RETAIN_SIZE = 1024 * 1024;
+  // max number of cells appended since the last sort that a single row lookup scans, before sorting instead
+  private static final int MAX_UNSORTED_LOOKUP = 4096;
+
+  private final boolean direct;
+  private final List<ByteBuffer> chunks;
+
+  // index of the chunk currently being appended to
+  private int currentChunk;
+  // each entry is (chunk index << 32 | offset in chunk) of a cell record
+  private long[] index;
+  // first eight bytes of the row of each cell in the index, to avoid reading the arena for most comparisons
+  private long[] prefixes;
+  // scratch space for sorting
+  private long[] sortBuffer;
+  private long[] prefixSortBuffer;
+  private int size;
+  // number of entries at the head of the index that are sorted and have unique row+column
+  private int sortedSize;
+
+  /**
+   * Creates a new instance of {@link CellLog}.
+   *
+   * @param direct if {@code true} the arena is allocated off heap with direct buffers
+   */
+  CellLog(boolean direct) {
+    this.direct = direct;
+    this.chunks = Lists.newArrayList();
+    this.index = new long[INITIAL_INDEX_SIZE];
+    this.prefixes = new long[INITIAL_INDEX_SIZE];
+  }
+
+  /**
+   * Appends a put of the given value, or a delete if the value is {@code null}.
+   */
+  void appendPut(byte[] row, byte[] column, @Nullable byte[] value) {
+    add(append(row, column, value == null ? TYPE_DELETE : TYPE_PUT, value, 0L), row);
+  }
+
+  /**
+   * Appends an increment of the given column by the given amount.
+   */
+  void appendIncrement(byte[] row, byte[] column, long amount) {
+    add(append(row, column, TYPE_INCREMENT, null, amount), row);
+  }
+
+  /**
+   * @return {@code true} if nothing was appended since the last call to {@link #clear()}
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return number of bytes taken by the arena chunks, including the chunks kept from previous transactions
+   */
+  long getArenaSize() {
+    long arenaSize = 0;
+    for (ByteBuffer chunk : chunks) {
+      arenaSize += chunk.capacity();
+    }
+    return arenaSize;
+  }
+
+  /**
+   * Discards all cells. Arena chunks are kept for reuse up to a fixed limit.
+   */
+  void clear() {
+    long retained = 0;
+    int keep = 0;
+    while (keep < chunks.size() && retained + chunks.get(keep).capacity() <= MAX_RETAINED_BYTES) {
+      retained += chunks.get(keep).capacity();
+      keep++;
+    }
+    chunks.subList(keep, chunks.size()).clear();
+    for (ByteBuffer chunk : chunks) {
+      chunk.clear();
+    }
+    currentChunk = 0;
+    size = 0;
+    sortedSize = 0;
+    if (index.length > INDEX_RETAIN_SIZE) {
+      index = new long[INITIAL_INDEX_SIZE];
+      prefixes = new long[INITIAL_INDEX_SIZE];
+      sortBuffer = null;
+      prefixSortBuffer = null;
+    }
+  }
+
+  /**
+   * Returns the buffered changes of the given row.
+   *
+   * @return a map of column to {@link Update}, where delete of a column is represented as a {@link PutValue} with
+   *         {@code null} value, or {@code null} if the row has no buffered changes
+   */
+  @Nullable
+  NavigableMap<byte[], Update> getRow(byte[] row) {
+    if (size - sortedSize > MAX_UNSORTED_LOOKUP) {
+      sort();
+    }
+    NavigableMap<byte[], Update> result = null;
+    for (int i = findRow(sortedSize, row); i < sortedSize && rowEquals(index[i], row); i++) {
+      if (result == null) {
+        result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      }
+      result.put(getColumn(i), getUpdate(i));
+    }
+    // cells appended since the last sort are applied on top, in the order they were appended
+    long prefix = prefixOf(row);
+    for (int i = sortedSize; i < size; i++) {
+      if (prefixes[i] == prefix && rowEquals(index[i], row)) {
+        if (result == null) {
+          result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        }
+        byte[] column = getColumn(i);
+        result.put(column, Updates.mergeUpdates(result.get(column), getUpdate(i)));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Materializes buffered changes of the given row range in the same form as the map buffer of
+   * {@link BufferingTable}.
+   *
+   * @param startRow first row of the range, inclusive, or {@code null} to start from the first row
+   * @param stopRow last row of the range, exclusive, or {@code null} to include up to the last row
+   */
+  NavigableMap<byte[], NavigableMap<byte[], Update>> toMap(@Nullable byte[] startRow, @Nullable byte[] stopRow) {
+    sort();
+    NavigableMap<byte[], NavigableMap<byte[], Update>> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    NavigableMap<byte[], Update> columns = null;
+    int start = startRow == null ? 0 : findRow(size, startRow);
+    for (int i = start; i < size; i++) {
+      if (i == start || !isSameRow(i - 1, i)) {
+        byte[] row = getRow(i);
+        if (stopRow != null && Bytes.compareTo(row, stopRow) >= 0) {
+          break;
+        }
+        columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        result.put(row, columns);
+      }
+      columns.put(getColumn(i), getUpdate(i));
+    }
+    return result;
+  }
+
+  /**
+   * Sorts the log, if needed, and returns the number of unique cells in it. The row and column of each cell can then
+   * be accessed by position with {@link #getRow(int)} and {@link #getColumn(int)}, until the next append.
+   */
+  int sortedSize() {
+    sort();
+    return size;
+  }
+
+  /**
+   * @return row of the cell at given position in the sorted log
+   */
+  byte[] getRow(int position) {
+    return readRow(index[position]);
+  }
+
+  /**
+   * @return column of the cell at given position in the sorted log
+   */
+  byte[] getColumn(int position) {
+    return readColumn(index[position]);
+  }
+
+  /**
+   * @return {@code true} if cells at given positions in the sorted log belong to the same row
+   */
+  boolean isSameRow(int position1, int position2) {
+    if (prefixes[position1] != prefixes[position2]) {
+      return false;
+    }
+    long pointer1 = index[position1];
+    long pointer2 = index[position2];
+    ByteBuffer chunk1 = chunks.get(chunkOf(pointer1));
+    ByteBuffer chunk2 = chunks.get(chunkOf(pointer2));
+    int offset1 = offsetOf(pointer1);
+    int offset2 = offsetOf(pointer2);
+    int length1 = chunk1.getInt(offset1);
+    int length2 = chunk2.getInt(offset2);
+    return length1 == length2
+      && compare(chunk1, offset1 + Bytes.SIZEOF_INT, length1, chunk2, offset2 + Bytes.SIZEOF_INT, length2) == 0;
+  }
+
+  private Update getUpdate(int position) {
+    return toUpdate(index[position]);
+  }
+
+  private Update toUpdate(long pointer) {
+    ByteBuffer chunk = chunks.get(chunkOf(pointer));
+    int offset = typeOffset(chunk, offsetOf(pointer));
+    switch (chunk.get(offset)) {
+      case TYPE_PUT:
+        return new PutValue(read(chunk, offset + 1 + Bytes.SIZEOF_INT, chunk.getInt(offset + 1)));
+      case TYPE_DELETE:
+        return new PutValue(null);
+      case TYPE_INCREMENT:
+        return new IncrementValue(chunk.getLong(offset + 1 + Bytes.SIZEOF_INT));
+      default:
+        throw new IllegalStateException("Unknown cell type " + chunk.get(offset));
+    }
+  }
+
+  /**
+   * Returns the position of the first cell with a row not less than the given row, among the given number of sorted
+   * cells at the head of the index.
+   */
+  private int findRow(int sorted, byte[] row) {
+    int low = 0;
+    int high = sorted;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      long pointer = index[mid];
+      ByteBuffer chunk = chunks.get(chunkOf(pointer));
+      int offset = offsetOf(pointer);
+      if (compare(chunk, offset + Bytes.SIZEOF_INT, chunk.getInt(offset), row) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private boolean rowEquals(long pointer, byte[] row) {
+    ByteBuffer chunk = chunks.get(chunkOf(pointer));
+    int offset = offsetOf(pointer);
+    int length = chunk.getInt(offset);
+    return length == row.length && compare(chunk, offset + Bytes.SIZEOF_INT, length, row) == 0;
+  }
+
+  private void add(long pointer, byte[] row) {
+    if (size == index.length) {
+      index = Arrays.copyOf(index, index.length * 2);
+      prefixes = Arrays.copyOf(prefixes, prefixes.length * 2);
+    }
+    index[size] = pointer;
+    prefixes[size] = prefixOf(row);
+    size++;
+  }
+
+  private static long prefixOf(byte[] row) {
+    long prefix = 0;
+    for (int i = 0; i < Bytes.SIZEOF_LONG; i++) {
+      prefix = (prefix << 8) | (i < row.length ? row[i] & 0xff : 0);
+    }
+    return prefix;
+  }
+
+  /**
+   * Writes a cell record into the arena: row length, row, column length, column, type, value length and value.
+   *
+   * @return pointer to the record
+   */
+  private long append(byte[] row, byte[] column, byte type, @Nullable byte[] value, long amount) {
+    int valueLength = type == TYPE_PUT ? value.length : (type == TYPE_INCREMENT ? Bytes.SIZEOF_LONG : 0);
+    int recordLength = 3 * Bytes.SIZEOF_INT + 1 + row.length + column.length + valueLength;
+    ByteBuffer chunk = reserve(recordLength);
+    int offset = chunk.position();
+    chunk.putInt(row.length).put(row);
+    chunk.putInt(column.length).put(column);
+    chunk.put(type).putInt(valueLength);
+    if (type == TYPE_PUT) {
+      chunk.put(value);
+    } else if (type == TYPE_INCREMENT) {
+      chunk.putLong(amount);
+    }
+    return ((long) currentChunk << 32) | offset;
+  }
+
+  /**
+   * Makes the current chunk to have at least the given number of bytes remaining.
+   */
+  private ByteBuffer reserve(int length) {
+    while (currentChunk < chunks.size()) {
+      ByteBuffer chunk = chunks.get(currentChunk);
+      if (chunk.remaining() >= length) {
+        return chunk;
+      }
+      currentChunk++;
+    }
+    // grow chunk size with the arena, so that small transactions take little memory
+    int chunkSize = chunks.isEmpty() ? MIN_CHUNK_SIZE
+      : Math.min(MAX_CHUNK_SIZE, chunks.get(chunks.size() - 1).capacity() * 2);
+    chunkSize = Math.max(chunkSize, length);
+    ByteBuffer chunk = direct ? ByteBuffer.allocateDirect(chunkSize) : ByteBuffer.allocate(chunkSize);
+    chunks.add(chunk);
+    currentChunk = chunks.size() - 1;
+    return chunk;
+  }
+
+  /**
+   * Sorts the cells appended since last sort, merges them into the sorted head of the index and collapses changes of
+   * the same cell. Sorting is stable, so changes of the same cell are collapsed in the order they were appended.
+   */
+  private void sort() {
+    if (sortedSize == size) {
+      return;
+    }
+    if (sortBuffer == null || sortBuffer.length < index.length) {
+      sortBuffer = new long[index.length];
+      prefixSortBuffer = new long[index.length];
+    }
+    mergeSort(sortedSize, size);
+    merge(0, sortedSize, size);
+    collapse();
+    sortedSize = size;
+  }
+
+  private void mergeSort(int from, int to) {
+    if (to - from < 2) {
+      return;
+    }
+    if (to - from <= 8) {
+      // insertion sort for short ranges
+      for (int i = from + 1; i < to; i++) {
+        long pointer = index[i];
+        long prefix = prefixes[i];
+        int j = i - 1;
+        while (j >= from && compareCells(prefixes[j], index[j], prefix, pointer) > 0) {
+          index[j + 1] = index[j];
+          prefixes[j + 1] = prefixes[j];
+          j--;
+        }
+        index[j + 1] = pointer;
+        prefixes[j + 1] = prefix;
+      }
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    mergeSort(from, mid);
+    mergeSort(mid, to);
+    merge(from, mid, to);
+  }
+
+  private void merge(int from, int mid, int to) {
+    if (from == mid || mid == to || compareCells(prefixes[mid - 1], index[mid - 1], prefixes[mid], index[mid]) <= 0) {
+      return;
+    }
+    System.arraycopy(index, from, sortBuffer, from, to - from);
+    System.arraycopy(prefixes, from, prefixSortBuffer, from, to - from);
+    int left = from;
+    int right = mid;
+    for (int i = from; i < to; i++) {
+      if (right >= to || (left < mid && compareCells(prefixSortBuffer[left], sortBuffer[left],
+                                                     prefixSortBuffer[right], sortBuffer[right]) <= 0)) {
+        prefixes[i] = prefixSortBuffer[left];
+        index[i] = sortBuffer[left++];
+      } else {
+        prefixes[i] = prefixSortBuffer[right];
+        index[i] = sortBuffer[right++];
+      }
+    }
+  }
+
+  /**
+   * Replaces every run of changes of the same cell with a single change.
+   */
+  private void collapse() {
+    int last = 0;
+    for (int i = 1; i < size; i++) {
+      if (compareCells(prefixes[last], index[last], prefixes[i], index[i]) == 0) {
+        index[last] = mergeCells(index[last], index[i]);
+      } else {
+        last++;
+        index[last] = index[i];
+        prefixes[last] = prefixes[i];
+      }
+    }
+    size = last + 1;
+  }
+
+  /**
+   * Merges two changes of the same cell, following {@link Updates#mergeUpdates(Update, Update)}.
+   *
+   * @return pointer to the resulting cell record
+   */
+  private long mergeCells(long base, long modifier) {
+    ByteBuffer modifierChunk = chunks.get(chunkOf(modifier));
+    int modifierTypeOffset = typeOffset(modifierChunk, offsetOf(modifier));
+    if (modifierChunk.get(modifierTypeOffset) != TYPE_INCREMENT) {
+      return modifier;
+    }
+    long amount = modifierChunk.getLong(modifierTypeOffset + 1 + Bytes.SIZEOF_INT);
+
+    ByteBuffer baseChunk = chunks.get(chunkOf(base));
+    int baseTypeOffset = typeOffset(baseChunk, offsetOf(base));
+    byte baseType = baseChunk.get(baseTypeOffset);
+    int baseValueLength = baseChunk.getInt(baseTypeOffset + 1);
+    if (baseType == TYPE_PUT && baseValueLength != Bytes.SIZEOF_LONG) {
+      throw new NumberFormatException("Attempted to increment a value that is not convertible to long");
+    }
+    long baseValue = baseType == TYPE_DELETE ? 0L : baseChunk.getLong(baseTypeOffset + 1 + Bytes.SIZEOF_INT);
+
+    // a put followed by an increment becomes a put, two increments stay an increment
+    byte[] row = readRow(base);
+    byte[] column = readColumn(base);
+    if (baseType == TYPE_INCREMENT) {
+      return append(row, column, TYPE_INCREMENT, null, baseValue + amount);
+    }
+    return append(row, column, TYPE_PUT, Bytes.toBytes(baseValue + amount), 0L);
+  }
+
+  private byte[] readRow(long pointer) {
+    ByteBuffer chunk = chunks.get(chunkOf(pointer));
+    int offset = offsetOf(pointer);
+    return read(chunk, offset + Bytes.SIZEOF_INT, chunk.getInt(offset));
+  }
+
+  private byte[] readColumn(long pointer) {
+    ByteBuffer chunk = chunks.get(chunkOf(pointer));
+    int offset = columnOffset(chunk, offsetOf(pointer));
+    return read(chunk, offset + Bytes.SIZEOF_INT, chunk.getInt(offset));
+  }
+
+  /**
+   * Compares two cell records by row and then by column, using the row prefixes first.
+   */
+  private int compareCells(long prefix1, long pointer1, long prefix2, long pointer2) {
+    if (prefix1 != prefix2) {
+      // unsigned comparison
+      return (prefix1 ^ Long.MIN_VALUE) < (prefix2 ^ Long.MIN_VALUE) ? -1 : 1;
+    }
+    return compareCells(pointer1, pointer2);
+  }
+
+  /**
+   * Compares two cell records by row and then by column.
+   */
+  private int compareCells(long pointer1, long pointer2) {
+    ByteBuffer chunk1 = chunks.get(chunkOf(pointer1));
+    ByteBuffer chunk2 = chunks.get(chunkOf(pointer2));
+    int offset1 = offsetOf(pointer1);
+    int offset2 = offsetOf(pointer2);
+    int rowLength1 = chunk1.getInt(offset1);
+    int rowLength2 = chunk2.getInt(offset2);
+    int result = compare(chunk1, offset1 + Bytes.SIZEOF_INT, rowLength1,
+                         chunk2, offset2 + Bytes.SIZEOF_INT, rowLength2);
+    if (result != 0) {
+      return result;
+    }
+    offset1 += Bytes.SIZEOF_INT + rowLength1;
+    offset2 += Bytes.SIZEOF_INT + rowLength2;
+    return compare(chunk1, offset1 + Bytes.SIZEOF_INT, chunk1.getInt(offset1),
+                   chunk2, offset2 + Bytes.SIZEOF_INT, chunk2.getInt(offset2));
+  }
+
+  private static int compare(ByteBuffer buffer1, int offset1, int length1,
+                             ByteBuffer buffer2, int offset2, int length2) {
+    if (buffer1.hasArray() && buffer2.hasArray()) {
+      return Bytes.compareTo(buffer1.array(), buffer1.arrayOffset() + offset1, length1,
+                             buffer2.array(), buffer2.arrayOffset() + offset2, length2);
+    }
+    int length = Math.min(length1, length2);
+    for (int i = 0; i < length; i++) {
+      int a = buffer1.get(offset1 + i) & 0xff;
+      int b = buffer2.get(offset2 + i) & 0xff;
+      if (a != b) {
+        return a - b;
+      }
+    }
+    return length1 - length2;
+  }
+
+  private static int compare(ByteBuffer buffer, int offset, int length, byte[] bytes) {
+    if (buffer.hasArray()) {
+      return Bytes.compareTo(buffer.array(), buffer.arrayOffset() + offset, length, bytes, 0, bytes.length);
+    }
+    int minLength = Math.min(length, bytes.length);
+    for (int i = 0; i < minLength; i++) {
+      int a = buffer.get(offset + i) & 0xff;
+      int b = bytes[i] & 0xff;
+      if (a != b) {
+        return a - b;
+      }
+    }
+    return length - bytes.length;
+  }
+
+  private static byte[] read(ByteBuffer buffer, int offset, int length) {
+    byte[] bytes = new byte[length];
+    if (buffer.hasArray()) {
+      System.arraycopy(buffer.array(), buffer.arrayOffset() + offset, bytes, 0, length);
+    } else {
+      ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position(offset);
+      duplicate.get(bytes);
+    }
+    return bytes;
+  }
+
+  private static int columnOffset(ByteBuffer chunk, int recordOffset) {
+    return recordOffset + Bytes.SIZEOF_INT + chunk.getInt(recordOffset);
+  }
+
+  private static int typeOffset(ByteBuffer chunk, int recordOffset) {
+    int columnOffset = columnOffset(chunk, recordOffset);
+    return columnOffset + Bytes.SIZEOF_INT + chunk.getInt(columnOffset);
+  }
+
+  private static int chunkOf(long pointer) {
+    return (int) (pointer >>> 32);
+  }
+
+  private static int offsetOf(long pointer) {
+    return (int) pointer;
+  }
+}
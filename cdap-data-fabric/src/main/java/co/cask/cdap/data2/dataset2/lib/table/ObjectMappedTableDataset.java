@@ -18,6 +18,8 @@ package co.cask.cdap.data2.dataset2.lib.table;
 
 import co.cask.cdap.api.annotation.Beta;
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.batch.FilterableRecordScannable;
+import co.cask.cdap.api.data.batch.RecordScanFilter;
 import co.cask.cdap.api.data.batch.RecordScanner;
 import co.cask.cdap.api.data.batch.Split;
 import co.cask.cdap.api.data.batch.SplitReader;
@@ -52,7 +54,8 @@ import javax.annotation.Nullable;
  * @param <T> the type of objects in the table
  */
 @Beta
-public class ObjectMappedTableDataset<T> extends AbstractDataset implements ObjectMappedTable<T> {
+public class ObjectMappedTableDataset<T> extends AbstractDataset
+  implements ObjectMappedTable<T>, FilterableRecordScannable<StructuredRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(ObjectMappedTableDataset.class);
 
   private final Table table;
@@ -168,6 +171,30 @@ public class ObjectMappedTableDataset<T> extends AbstractDataset implements Obje
     return table.createSplitRecordScanner(split);
   }
 
+  // the underlying table is keyed by the key field of the objects, so the filter is passed on to it
+
+  @Override
+  public List<Split> getSplits(RecordScanFilter filter) {
+    if (table instanceof FilterableRecordScannable) {
+      return getFilterableTable().getSplits(filter);
+    }
+    return getSplits();
+  }
+
+  @Override
+  public RecordScanner<StructuredRecord> createSplitRecordScanner(Split split, RecordScanFilter filter) {
+    if (table instanceof FilterableRecordScannable) {
+      return getFilterableTable().createSplitRecordScanner(split, filter);
+    }
+    return createSplitRecordScanner(split);
+  }
+
+  @SuppressWarnings("unchecked")
+  private FilterableRecordScannable<StructuredRecord> getFilterableTable() {
+    // a Table is a RecordScannable of StructuredRecord
+    return (FilterableRecordScannable<StructuredRecord>) table;
+  }
+
   @Override
   public SplitReader<byte[], T> createSplitReader(Split split) {
     return new ObjectSplitReader(table.createSplitReader(split));
@@ -16,26 +16,91 @@
 
 package co.cask.cdap.data2.dataset2.lib.table.hbase;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.api.metrics.MetricsCollector;
+import co.cask.cdap.common.conf.Constants;
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * Implements Scanner on top of HBase resultSetScanner.
+ * <p>
+ * Results are pulled from HBase in batches of {@code fetchSize} rows, which is normally the scanner caching so that
+ * every batch is one RPC. If a prefetch executor is given, the next batch is requested in the background as soon
+ * as the current one is handed to the caller, unless the executor has no thread available, in which case the
+ * caller fetches it. When the scan uses column batching, HBase may return a wide row in several partial results;
+ * these are merged back into one {@link Row}. Scan metrics are reported after every batch.
  */
 public class HBaseScanner implements Scanner {
 
+  private static final Logger LOG = LoggerFactory.getLogger(HBaseScanner.class);
+
+  private static final Result[] NO_RESULTS = new Result[0];
+
   private final ResultScanner scanner;
   private final byte[] columnFamily;
+  private final int fetchSize;
+  private final ExecutorService prefetchExecutor;
+  private final boolean partialRows;
+  private final MetricsCollector metricsCollector;
+  private final long startTime;
+
+  private Result[] batch = NO_RESULTS;
+  private int batchPos;
+  private Future<Result[]> pending;
+  private boolean exhausted;
+  // the result read ahead while merging partial rows
+  private Result pushedBack;
+  private boolean closed;
+
+  // metrics not yet reported
+  private long rows;
+  private long rpcs;
+  private long bytes;
+  private long totalRows;
 
   public HBaseScanner(ResultScanner scanner, byte[] columnFamily) {
+    this(scanner, columnFamily, 1, null, false, null);
+  }
+
+  /**
+   * @param scanner the HBase scanner to read from
+   * @param columnFamily the column family to return columns of
+   * @param fetchSize number of results to request from the HBase scanner at once
+   * @param prefetchExecutor executor to fetch the next batch of results in the background with, or {@code null}
+   *                         to fetch every batch when it is needed
+   * @param partialRows whether HBase may return a row in multiple results, i.e. when column batching is enabled
+   * @param metricsCollector collector to report scan metrics to, can be {@code null}
+   */
+  public HBaseScanner(ResultScanner scanner, byte[] columnFamily, int fetchSize,
+                      @Nullable ExecutorService prefetchExecutor, boolean partialRows,
+                      @Nullable MetricsCollector metricsCollector) {
     this.scanner = scanner;
     this.columnFamily = columnFamily;
+    this.fetchSize = Math.max(1, fetchSize);
+    this.prefetchExecutor = prefetchExecutor;
+    this.partialRows = partialRows;
+    this.metricsCollector = metricsCollector;
+    this.startTime = System.nanoTime();
   }
 
   @Override
@@ -48,13 +113,18 @@ public class HBaseScanner implements Scanner {
 
       //Loop until one row is read completely or until end is reached.
       while (true) {
-        Result result = scanner.next();
+        Result result = nextResult();
         if (result == null || result.isEmpty()) {
           break;
         }
 
         Map<byte[], byte[]> rowMap = HBaseTable.getRowMap(result, columnFamily);
+        if (partialRows) {
+          rowMap = mergePartialResults(result.getRow(), rowMap);
+        }
         if (rowMap.size() > 0) {
+          rows++;
+          totalRows++;
           return new co.cask.cdap.api.dataset.table.Result(result.getRow(), rowMap);
         }
       }
@@ -69,6 +139,128 @@ public class HBaseScanner implements Scanner {
 
   @Override
   public void close() {
-    scanner.close();
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (pending != null) {
+      // the HBase scanner must not be closed while a background fetch is still using it
+      try {
+        Uninterruptibles.getUninterruptibly(pending);
+      } catch (ExecutionException e) {
+        LOG.debug("Prefetch failed for a scanner being closed", e.getCause());
+      }
+      pending = null;
+    }
+    if (scanner != null) {
+      scanner.close();
+    }
+    reportMetrics();
+  }
+
+  /**
+   * Reads the results following a row's first result that belong to the same row, and merges their columns.
+   */
+  private Map<byte[], byte[]> mergePartialResults(byte[] row, Map<byte[], byte[]> rowMap) throws IOException {
+    NavigableMap<byte[], byte[]> merged = null;
+    Result result = nextResult();
+    while (result != null && !result.isEmpty() && Bytes.equals(row, result.getRow())) {
+      if (merged == null) {
+        merged = new TreeMap<byte[], byte[]>(Bytes.BYTES_COMPARATOR);
+        merged.putAll(rowMap);
+      }
+      merged.putAll(HBaseTable.getRowMap(result, columnFamily));
+      result = nextResult();
+    }
+    pushedBack = result;
+    return merged == null ? rowMap : merged;
+  }
+
+  @Nullable
+  private Result nextResult() throws IOException {
+    if (pushedBack != null) {
+      Result result = pushedBack;
+      pushedBack = null;
+      return result;
+    }
+    while (batchPos >= batch.length) {
+      if (exhausted) {
+        return null;
+      }
+      batch = fetchBatch();
+      batchPos = 0;
+    }
+    return batch[batchPos++];
+  }
+
+  private Result[] fetchBatch() throws IOException {
+    Result[] results;
+    if (pending == null) {
+      results = scanner.next(fetchSize);
+    } else {
+      try {
+        results = Uninterruptibles.getUninterruptibly(pending);
+      } catch (ExecutionException e) {
+        Throwables.propagateIfPossible(e.getCause(), IOException.class);
+        throw Throwables.propagate(e.getCause());
+      } finally {
+        pending = null;
+      }
+    }
+
+    // a batch smaller than requested means the scanner has no more rows
+    exhausted = results.length < fetchSize;
+    if (prefetchExecutor != null && !exhausted) {
+      pending = submitFetch();
+    }
+
+    rpcs++;
+    for (Result result : results) {
+      for (KeyValue kv : result.raw()) {
+        bytes += kv.getLength();
+      }
+    }
+    reportMetrics();
+    return results;
+  }
+
+  /**
+   * Submits a fetch of the next batch to the prefetch executor. Returns {@code null} if the executor rejects it,
+   * in which case the next batch is fetched when it is needed.
+   */
+  @Nullable
+  private Future<Result[]> submitFetch() {
+    try {
+      return prefetchExecutor.submit(new Callable<Result[]>() {
+        @Override
+        public Result[] call() throws Exception {
+          return scanner.next(fetchSize);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      return null;
+    }
+  }
+
+  private void reportMetrics() {
+    if (metricsCollector == null) {
+      return;
+    }
+    if (rows > 0) {
+      metricsCollector.increment(Constants.Metrics.Name.Dataset.SCAN_ROWS, rows);
+      rows = 0;
+    }
+    if (rpcs > 0) {
+      metricsCollector.increment(Constants.Metrics.Name.Dataset.SCAN_RPCS, rpcs);
+      rpcs = 0;
+    }
+    if (bytes > 0) {
+      metricsCollector.increment(Constants.Metrics.Name.Dataset.SCAN_BYTES, bytes);
+      bytes = 0;
+    }
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    if (elapsedMillis > 0) {
+      metricsCollector.gauge(Constants.Metrics.Name.Dataset.SCAN_ROWS_RATE, totalRows * 1000 / elapsedMillis);
+    }
   }
 }
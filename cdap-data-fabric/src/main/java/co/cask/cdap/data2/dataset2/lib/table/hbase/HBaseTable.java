@@ -18,12 +18,10 @@ package co.cask.cdap.data2.dataset2.lib.table.hbase;
 
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.schema.Schema;
-import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
 import co.cask.cdap.api.dataset.table.Filter;
-import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.common.conf.CConfiguration;
@@ -39,7 +37,6 @@ import co.cask.cdap.data2.util.hbase.HBaseTableUtil;
 import co.cask.tephra.Transaction;
 import co.cask.tephra.TransactionCodec;
 import co.cask.tephra.TxConstants;
-import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
@@ -55,14 +52,18 @@ import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.util.Pair;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
@@ -76,35 +77,79 @@ public class HBaseTable extends BufferingTable {
 
   public static final String DELTA_WRITE = "d";
 
+  // Scan options. Each can be set as a dataset property, as a runtime argument, or on a single
+  // co.cask.cdap.api.dataset.table.Scan with setProperty(); the more specific setting wins.
+  /** Number of rows fetched from a region server per RPC. */
+  public static final String PROPERTY_SCAN_CACHING = "hbase.scan.caching";
+  /** Maximum size in bytes of the results returned by one RPC; unlimited if not set. */
+  public static final String PROPERTY_SCAN_MAX_RESULT_SIZE = "hbase.scan.max.result.size";
+  /** Maximum number of columns returned per result; wide rows are fetched in parts and merged again. */
+  public static final String PROPERTY_SCAN_BATCH = "hbase.scan.batch";
+  /** Whether the blocks read by the scan are kept in the region servers' block cache. */
+  public static final String PROPERTY_SCAN_CACHE_BLOCKS = "hbase.scan.cache.blocks";
+  /**
+   * Whether the next batch of rows is fetched in the background while the current one is consumed. It is off by
+   * default, because a prefetching scanner holds a second batch in memory.
+   */
+  public static final String PROPERTY_SCAN_PREFETCH = "hbase.scan.prefetch";
+
+  // NOTE: by default we assume scanner is used in mapreduce job, hence no cache blocks
+  private static final int DEFAULT_SCAN_CACHING = 1000;
+  private static final boolean DEFAULT_SCAN_CACHE_BLOCKS = false;
+  private static final boolean DEFAULT_SCAN_PREFETCH = false;
+  // Maximum number of scanners of a table that prefetch at the same time; the others fetch when needed
+  private static final int MAX_SCAN_PREFETCH_THREADS = 4;
+
   private final HTable hTable;
+  private final HBaseTableUtil tableUtil;
   private final String hTableName;
   private final byte[] columnFamily;
   private final TransactionCodec txCodec;
   // name length + name of the table: handy to have one cached
   private final byte[] nameAsTxChangePrefix;
+  // scan options from dataset properties and runtime arguments
+  private final Map<String, String> scanProperties;
 
   private Transaction tx;
+  // executor for the prefetching scanners, created by the first one
+  private ExecutorService scanPrefetchExecutor;
 
   public HBaseTable(DatasetContext datasetContext, DatasetSpecification spec,
                     CConfiguration cConf, Configuration hConf, HBaseTableUtil tableUtil) throws IOException {
+    this(datasetContext, spec, ImmutableMap.<String, String>of(), cConf, hConf, tableUtil);
+  }
+
+  public HBaseTable(DatasetContext datasetContext, DatasetSpecification spec, Map<String, String> arguments,
+                    CConfiguration cConf, Configuration hConf, HBaseTableUtil tableUtil) throws IOException {
     super(PrefixedNamespaces.namespace(cConf, datasetContext.getNamespaceId(), spec.getName()),
           ConflictDetection.valueOf(spec.getProperty(PROPERTY_CONFLICT_LEVEL, ConflictDetection.ROW.name())),
           HBaseTableAdmin.supportsReadlessIncrements(spec),
           spec.getProperty(Table.PROPERTY_SCHEMA) == null ?
             null : Schema.parseJson(spec.getProperty(Table.PROPERTY_SCHEMA)),
-          spec.getProperty(Table.PROPERTY_SCHEMA_ROW_FIELD));
+          spec.getProperty(Table.PROPERTY_SCHEMA_ROW_FIELD),
+          getWriteBufferType(spec));
     TableId tableId = TableId.from(datasetContext.getNamespaceId(), spec.getName());
     HTable hTable = tableUtil.createHTable(hConf, tableId);
     // todo: make configurable
     hTable.setWriteBufferSize(HBaseTableUtil.DEFAULT_WRITE_BUFFER_SIZE);
     hTable.setAutoFlush(false);
     this.hTable = hTable;
+    this.tableUtil = tableUtil;
     this.hTableName = Bytes.toStringBinary(hTable.getTableName());
     this.columnFamily = HBaseTableAdmin.getColumnFamily(spec);
     this.txCodec = new TransactionCodec();
     // Overriding the hbase tx change prefix so it resembles the hbase table name more closely, since the HBase
     // table name is not the same as the dataset name anymore
     this.nameAsTxChangePrefix = Bytes.add(new byte[]{(byte) this.hTableName.length()}, Bytes.toBytes(this.hTableName));
+    this.scanProperties = Maps.newHashMap();
+    for (String property : new String[] { PROPERTY_SCAN_CACHING, PROPERTY_SCAN_MAX_RESULT_SIZE, PROPERTY_SCAN_BATCH,
+                                          PROPERTY_SCAN_CACHE_BLOCKS, PROPERTY_SCAN_PREFETCH }) {
+      String value = arguments != null && arguments.containsKey(property) ?
+        arguments.get(property) : spec.getProperty(property);
+      if (value != null) {
+        scanProperties.put(property, value);
+      }
+    }
   }
 
   @Override
@@ -123,34 +168,17 @@ public class HBaseTable extends BufferingTable {
   }
 
   @Override
-  public List<Row> get(List<co.cask.cdap.api.dataset.table.Get> gets) {
-    List<Get> hbaseGets = Lists.transform(gets, new Function<co.cask.cdap.api.dataset.table.Get, Get>() {
-      @Nullable
-      @Override
-      public Get apply(co.cask.cdap.api.dataset.table.Get get) {
-        List<byte[]> cols = get.getColumns();
-        return createGet(get.getRow(), cols == null ? null : cols.toArray(new byte[cols.size()][]));
-      }
-    });
-    try {
-      Result[] results = hTable.get(hbaseGets);
-      return Lists.transform(Arrays.asList(results), new Function<Result, Row>() {
-        @Nullable
-        @Override
-        public Row apply(Result result) {
-          Map<byte[], byte[]> familyMap = result.getFamilyMap(columnFamily);
-          return new co.cask.cdap.api.dataset.table.Result(result.getRow(),
-              familyMap != null ? familyMap : ImmutableMap.<byte[], byte[]>of());
-        }
-      });
-    } catch (IOException ioe) {
-      throw new DataSetException("Multi-get failed on table " + hTableName, ioe);
-    }
+  public byte[] getNameAsTxChangePrefix() {
+    return nameAsTxChangePrefix;
   }
 
   @Override
-  public byte[] getNameAsTxChangePrefix() {
-    return nameAsTxChangePrefix;
+  public void close() {
+    if (scanPrefetchExecutor != null) {
+      scanPrefetchExecutor.shutdownNow();
+      scanPrefetchExecutor = null;
+    }
+    super.close();
   }
 
   @Override
@@ -241,14 +269,45 @@ public class HBaseTable extends BufferingTable {
     return getInternal(row, columns);
   }
 
+  @Override
+  protected List<NavigableMap<byte[], byte[]>> getPersisted(List<co.cask.cdap.api.dataset.table.Get> gets)
+    throws Exception {
+    // fetching all rows with one multi-get, with same visibility as single gets
+    List<Get> hbaseGets = Lists.newArrayListWithCapacity(gets.size());
+    for (co.cask.cdap.api.dataset.table.Get get : gets) {
+      List<byte[]> cols = get.getColumns();
+      hbaseGets.add(createGet(get.getRow(), cols.isEmpty() ? null : cols.toArray(new byte[cols.size()][])));
+    }
+    Result[] results = hTable.get(hbaseGets);
+    List<NavigableMap<byte[], byte[]>> rows = Lists.newArrayListWithCapacity(results.length);
+    for (Result result : results) {
+      if (result == null || result.isEmpty()) {
+        rows.add(EMPTY_ROW_MAP);
+      } else {
+        rows.add(tx == null ? result.getFamilyMap(columnFamily) : getRowMap(result, columnFamily));
+      }
+    }
+    return rows;
+  }
+
   @Override
   protected Scanner scanPersisted(co.cask.cdap.api.dataset.table.Scan scan) throws Exception {
+    Map<String, String> properties = Maps.newHashMap(scanProperties);
+    properties.putAll(scan.getProperties());
+
     Scan hScan = new Scan();
     hScan.addFamily(columnFamily);
-    // todo: should be configurable
-    // NOTE: by default we assume scanner is used in mapreduce job, hence no cache blocks
-    hScan.setCacheBlocks(false);
-    hScan.setCaching(1000);
+    int caching = getIntProperty(properties, PROPERTY_SCAN_CACHING, DEFAULT_SCAN_CACHING);
+    hScan.setCaching(caching);
+    hScan.setCacheBlocks(getBooleanProperty(properties, PROPERTY_SCAN_CACHE_BLOCKS, DEFAULT_SCAN_CACHE_BLOCKS));
+    long maxResultSize = getLongProperty(properties, PROPERTY_SCAN_MAX_RESULT_SIZE, -1L);
+    if (maxResultSize > 0) {
+      tableUtil.setMaxResultSize(hScan, maxResultSize);
+    }
+    int batch = getIntProperty(properties, PROPERTY_SCAN_BATCH, -1);
+    if (batch > 0) {
+      hScan.setBatch(batch);
+    }
 
     byte[] startRow = scan.getStartRow();
     byte[] stopRow = scan.getStopRow();
@@ -264,7 +323,34 @@ public class HBaseTable extends BufferingTable {
     addToOperation(hScan, tx);
 
     ResultScanner resultScanner = hTable.getScanner(hScan);
-    return new HBaseScanner(resultScanner, columnFamily);
+    ExecutorService prefetchExecutor = getBooleanProperty(properties, PROPERTY_SCAN_PREFETCH, DEFAULT_SCAN_PREFETCH)
+      ? getScanPrefetchExecutor() : null;
+    return new HBaseScanner(resultScanner, columnFamily, caching, prefetchExecutor, batch > 0, getMetricsCollector());
+  }
+
+  private ExecutorService getScanPrefetchExecutor() {
+    if (scanPrefetchExecutor == null) {
+      // Tasks are handed off directly, so that a scanner falls back to fetching by itself when all threads are busy
+      scanPrefetchExecutor = new ThreadPoolExecutor(0, MAX_SCAN_PREFETCH_THREADS, 60, TimeUnit.SECONDS,
+                                                    new SynchronousQueue<Runnable>(),
+                                                    Threads.createDaemonThreadFactory("hbase-scan-prefetch-%d"));
+    }
+    return scanPrefetchExecutor;
+  }
+
+  private static int getIntProperty(Map<String, String> properties, String name, int defaultValue) {
+    String value = properties.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+
+  private static long getLongProperty(Map<String, String> properties, String name, long defaultValue) {
+    String value = properties.get(name);
+    return value == null ? defaultValue : Long.parseLong(value);
+  }
+
+  private static boolean getBooleanProperty(Map<String, String> properties, String name, boolean defaultValue) {
+    String value = properties.get(name);
+    return value == null ? defaultValue : Boolean.parseBoolean(value);
   }
 
   private void setFilterIfNeeded(Scan scan, @Nullable Filter filter) {
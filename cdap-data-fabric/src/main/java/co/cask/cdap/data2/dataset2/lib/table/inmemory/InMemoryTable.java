@@ -76,8 +76,13 @@ public class InMemoryTable extends BufferingTable {
 
   public InMemoryTable(DatasetContext datasetContext, String name, ConflictDetection level,
                        CConfiguration cConf, Schema schema, String schemaRowField) {
+    this(datasetContext, name, level, cConf, schema, schemaRowField, WriteBufferType.MAP);
+  }
+
+  public InMemoryTable(DatasetContext datasetContext, String name, ConflictDetection level,
+                       CConfiguration cConf, Schema schema, String schemaRowField, WriteBufferType writeBufferType) {
     super(PrefixedNamespaces.namespace(cConf, datasetContext.getNamespaceId(), name),
-          level, false, schema, schemaRowField);
+          level, false, schema, schemaRowField, writeBufferType);
   }
 
   @Override
@@ -21,6 +21,7 @@ import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
+import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.conf.CConfiguration;
@@ -34,6 +35,7 @@ import co.cask.tephra.Transaction;
 import com.google.common.collect.Maps;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import javax.annotation.Nullable;
@@ -50,8 +52,14 @@ public class LevelDBTable extends BufferingTable {
   public LevelDBTable(DatasetContext datasetContext, String tableName, ConflictDetection level,
                       LevelDBTableService service, CConfiguration cConf,
                       Schema schema, String schemaRowField) throws IOException {
+    this(datasetContext, tableName, level, service, cConf, schema, schemaRowField, WriteBufferType.MAP);
+  }
+
+  public LevelDBTable(DatasetContext datasetContext, String tableName, ConflictDetection level,
+                      LevelDBTableService service, CConfiguration cConf,
+                      Schema schema, String schemaRowField, WriteBufferType writeBufferType) throws IOException {
     super(PrefixedNamespaces.namespace(cConf, datasetContext.getNamespaceId(), tableName), level,
-          false, schema, schemaRowField);
+          false, schema, schemaRowField, writeBufferType);
     this.core = new LevelDBTableCore(getTableName(), service);
   }
 
@@ -110,6 +118,11 @@ public class LevelDBTable extends BufferingTable {
     return core.getRow(row, columns, null, null, -1, tx);
   }
 
+  @Override
+  protected List<NavigableMap<byte[], byte[]>> getPersisted(List<Get> gets) throws Exception {
+    return core.getRows(gets, tx);
+  }
+
   @Override
   protected NavigableMap<byte[], byte[]> getPersisted(byte[] row, byte[] startColumn, byte[] stopColumn, int limit)
     throws Exception {
@@ -17,6 +17,7 @@
 package co.cask.cdap.data2.dataset2.lib.table.leveldb;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Result;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
@@ -27,6 +28,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
@@ -39,7 +41,9 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import javax.annotation.Nullable;
@@ -212,10 +216,51 @@ public class LevelDBTableCore {
   public NavigableMap<byte[], byte[]> getRow(byte[] row, @Nullable byte[][] columns,
                                              byte[] startCol, byte[] stopCol,
                                              int limit, Transaction tx) throws IOException {
-    if (columns != null) {
-      if (columns.length == 0) {
-        return EMPTY_ROW_MAP;
+    if (columns != null && columns.length == 0) {
+      return EMPTY_ROW_MAP;
+    }
+    try (DBIterator iterator = getDB().iterator()) {
+      return getRow(iterator, row, columns, startCol, stopCol, limit, tx);
+    }
+  }
+
+  /**
+   * Reads a batch of rows with a single iterator. Rows are visited in sorted order, so that the iterator only
+   * ever seeks forward.
+   * @param gets rows to read with the columns of each row, empty set of columns means all columns
+   * @return list of column->value maps, in the same order as gets
+   */
+  public List<NavigableMap<byte[], byte[]>> getRows(List<Get> gets, @Nullable Transaction tx) throws IOException {
+    Integer[] order = new Integer[gets.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    final List<Get> toSort = gets;
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return Bytes.compareTo(toSort.get(o1).getRow(), toSort.get(o2).getRow());
       }
+    });
+
+    List<NavigableMap<byte[], byte[]>> rows =
+      Lists.newArrayList(Collections.nCopies(gets.size(), EMPTY_ROW_MAP));
+    try (DBIterator iterator = getDB().iterator()) {
+      for (int index : order) {
+        Get get = gets.get(index);
+        List<byte[]> columns = get.getColumns();
+        rows.set(index, getRow(iterator, get.getRow(),
+                               columns.isEmpty() ? null : columns.toArray(new byte[columns.size()][]),
+                               null, null, -1, tx));
+      }
+    }
+    return rows;
+  }
+
+  private NavigableMap<byte[], byte[]> getRow(DBIterator iterator, byte[] row, @Nullable byte[][] columns,
+                                              byte[] startCol, byte[] stopCol,
+                                              int limit, Transaction tx) throws IOException {
+    if (columns != null) {
       columns = Arrays.copyOf(columns, columns.length);
       Arrays.sort(columns, Bytes.BYTES_COMPARATOR);
       limit = columns.length;
@@ -223,10 +268,8 @@ public class LevelDBTableCore {
 
     byte[] startKey = createStartKey(row, columns == null ? startCol : columns[0]);
     byte[] endKey = createEndKey(row, columns == null ? stopCol : upperBound(columns[columns.length - 1]));
-    try (DBIterator iterator = getDB().iterator()) {
-      iterator.seek(startKey);
-      return getRow(iterator, endKey, tx, false, columns, limit).getSecond();
-    }
+    iterator.seek(startKey);
+    return getRow(iterator, endKey, tx, false, columns, limit).getSecond();
   }
 
   private static Scanner createEmptyScanner() {
@@ -24,6 +24,7 @@ import co.cask.cdap.api.dataset.lib.AbstractDatasetDefinition;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
 import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.data2.dataset2.lib.table.BufferingTable;
 import com.google.inject.Inject;
 
 import java.io.IOException;
@@ -65,7 +66,8 @@ public class LevelDBTableDefinition
     } catch (IOException e) {
       throw new IllegalArgumentException("Invalid schema", e);
     }
-    return new LevelDBTable(datasetContext, spec.getName(), conflictDetection, service, cConf, schema, schemaRowField);
+    return new LevelDBTable(datasetContext, spec.getName(), conflictDetection, service, cConf, schema, schemaRowField,
+                            BufferingTable.getWriteBufferType(spec));
   }
 
   @Override
@@ -24,12 +24,12 @@ import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.data2.dataset2.lib.table.MetricsTable;
-import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Longs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,21 +56,6 @@ public final class FactTable implements Closeable {
   private static final int MAX_RECORDS_TO_SCAN_DURING_SEARCH = 10 * 1000 * 1000;
   private static final int MAX_SCANS_DURING_SEARCH = 10 * 1000;
 
-  private static final Function<byte[], Long> BYTES_TO_LONG = new Function<byte[], Long>() {
-    @Override
-    public Long apply(byte[] input) {
-      return Bytes.toLong(input);
-    }
-  };
-
-  private static final Function<NavigableMap<byte[], byte[]>, NavigableMap<byte[], Long>>
-    TRANSFORM_MAP_BYTE_ARRAY_TO_LONG = new Function<NavigableMap<byte[], byte[]>, NavigableMap<byte[], Long>>() {
-    @Override
-    public NavigableMap<byte[], Long> apply(NavigableMap<byte[], byte[]> input) {
-      return Maps.transformValues(input, BYTES_TO_LONG);
-    }
-  };
-
   private final MetricsTable timeSeriesTable;
   private final EntityTable entityTable;
   private final FactCodec codec;
@@ -102,31 +87,48 @@ public final class FactTable implements Closeable {
   }
 
   public void add(List<Fact> facts) {
-    // Simply collecting all rows/cols/values that need to be put to the underlying table.
-    NavigableMap<byte[], NavigableMap<byte[], byte[]>> gaugesTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    NavigableMap<byte[], NavigableMap<byte[], byte[]>> incrementsTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    // Pre-aggregates measurements with the same dimension values, measure name and time bucket of this table's
+    // resolution, so that each of them is encoded and written once: counters are summed, the last gauge wins.
+    Map<FactKey, long[]> increments = Maps.newHashMap();
+    Map<FactKey, Long> gauges = Maps.newHashMap();
     for (Fact fact : facts) {
+      long timestamp = fact.getTimestamp() / resolution * resolution;
       for (Measurement measurement : fact.getMeasurements()) {
-        byte[] rowKey = codec.createRowKey(fact.getDimensionValues(), measurement.getName(), fact.getTimestamp());
-        byte[] column = codec.createColumn(fact.getTimestamp());
-
+        FactKey key = new FactKey(fact.getDimensionValues(), measurement.getName(), timestamp);
         if (MeasureType.COUNTER == measurement.getType()) {
-          inc(incrementsTable, rowKey, column, measurement.getValue());
+          long[] value = increments.get(key);
+          if (value == null) {
+            increments.put(key, new long[] { measurement.getValue() });
+          } else {
+            value[0] += measurement.getValue();
+          }
         } else {
-          set(gaugesTable, rowKey, column, Bytes.toBytes(measurement.getValue()));
+          gauges.put(key, measurement.getValue());
         }
       }
     }
 
-    NavigableMap<byte[], NavigableMap<byte[], Long>> convertedIncrementsTable =
-      Maps.transformValues(incrementsTable, TRANSFORM_MAP_BYTE_ARRAY_TO_LONG);
-
-    NavigableMap<byte[], NavigableMap<byte[], Long>> convertedGaugesTable =
-      Maps.transformValues(gaugesTable, TRANSFORM_MAP_BYTE_ARRAY_TO_LONG);
+    // Collecting all rows/cols/values that need to be put to the underlying table.
+    NavigableMap<byte[], NavigableMap<byte[], Long>> gaugesTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    NavigableMap<byte[], NavigableMap<byte[], Long>> incrementsTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    for (Map.Entry<FactKey, long[]> entry : increments.entrySet()) {
+      FactKey key = entry.getKey();
+      set(incrementsTable, codec.createRowKey(key.dimensionValues, key.measureName, key.timestamp),
+          codec.createColumn(key.timestamp), entry.getValue()[0]);
+    }
+    for (Map.Entry<FactKey, Long> entry : gauges.entrySet()) {
+      FactKey key = entry.getKey();
+      set(gaugesTable, codec.createRowKey(key.dimensionValues, key.measureName, key.timestamp),
+          codec.createColumn(key.timestamp), entry.getValue());
+    }
 
     // todo: replace with single call, to be able to optimize rpcs in underlying table
-    timeSeriesTable.put(convertedGaugesTable);
-    timeSeriesTable.increment(convertedIncrementsTable);
+    if (!gaugesTable.isEmpty()) {
+      timeSeriesTable.put(gaugesTable);
+    }
+    if (!incrementsTable.isEmpty()) {
+      timeSeriesTable.increment(incrementsTable);
+    }
   }
 
   public FactScanner scan(FactScan scan) {
@@ -385,37 +387,9 @@ public final class FactTable implements Closeable {
     return new FuzzyRowFilter(ImmutableList.of(new ImmutablePair<>(startRow, fuzzyRowMask)));
   }
 
-  // todo: shouldn't we aggregate "before" writing to FactTable? We could do it really efficient outside
-  //       also: the underlying datasets will do aggregation in memory anyways
-  private static void inc(NavigableMap<byte[], NavigableMap<byte[], byte[]>> incrementsTable,
-                   byte[] rowKey, byte[] column, long value) {
-    byte[] oldValue = get(incrementsTable, rowKey, column);
-    long newValue = value;
-    if (oldValue != null) {
-      if (Bytes.SIZEOF_LONG == oldValue.length) {
-        newValue = Bytes.toLong(oldValue) + value;
-      } else if (Bytes.SIZEOF_INT == oldValue.length) {
-        // In 2.4 and older versions we stored it as int
-        newValue = Bytes.toInt(oldValue) + value;
-      } else {
-        // should NEVER happen, unless the table is screwed up manually
-        throw new IllegalStateException(
-          String.format("Could not parse measure @row %s @column %s value %s as int or long",
-                        Bytes.toStringBinary(rowKey), Bytes.toStringBinary(column), Bytes.toStringBinary(oldValue)));
-      }
-
-    }
-    set(incrementsTable, rowKey, column, Bytes.toBytes(newValue));
-  }
-
-  private static byte[] get(NavigableMap<byte[], NavigableMap<byte[], byte[]>> table, byte[] row, byte[] column) {
-    NavigableMap<byte[], byte[]> rowMap = table.get(row);
-    return rowMap == null ? null : rowMap.get(column);
-  }
-
-  private static void set(NavigableMap<byte[], NavigableMap<byte[], byte[]>> table,
-                          byte[] row, byte[] column, byte[] value) {
-    NavigableMap<byte[], byte[]> rowMap = table.get(row);
+  private static void set(NavigableMap<byte[], NavigableMap<byte[], Long>> table,
+                          byte[] row, byte[] column, long value) {
+    NavigableMap<byte[], Long> rowMap = table.get(row);
     if (rowMap == null) {
       rowMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
       table.put(row, rowMap);
@@ -433,4 +407,39 @@ public final class FactTable implements Closeable {
     sb.append("}");
     return sb.toString();
   }
+
+  /**
+   * Key for pre-aggregating measurements written to the same cell.
+   */
+  private static final class FactKey {
+    private final List<DimensionValue> dimensionValues;
+    private final String measureName;
+    private final long timestamp;
+    private final int hashCode;
+
+    FactKey(List<DimensionValue> dimensionValues, String measureName, long timestamp) {
+      this.dimensionValues = dimensionValues;
+      this.measureName = measureName;
+      this.timestamp = timestamp;
+      this.hashCode = 31 * (31 * dimensionValues.hashCode() + measureName.hashCode()) + Longs.hashCode(timestamp);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      FactKey other = (FactKey) o;
+      return timestamp == other.timestamp && measureName.equals(other.measureName)
+        && dimensionValues.equals(other.dimensionValues);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
 }
@@ -32,6 +32,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
@@ -39,6 +40,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
@@ -47,6 +49,11 @@ import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -85,6 +92,10 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
 
   private byte[] scanStartRow;
   private boolean committed;
+  // Batch size of the last dequeue call, used as the batch size for prefetching
+  private int lastBatchSize = 1;
+  // Rows being scanned in the background for the next dequeue, or null if there is no prefetch
+  private Future<PrefetchedRows> prefetchedRows;
   protected Transaction transaction;
   protected int commitCount;
 
@@ -136,6 +147,7 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
 
   @Override
   public DequeueResult<byte[]> dequeue(int maxBatchSize) throws IOException {
+    lastBatchSize = maxBatchSize;
     DequeueResult<byte[]> result = performDequeue(maxBatchSize);
     // Start row can be updated to the largest rowKey in the consumingEntries
     // that is smaller than or equal to scanStartRow. If no such key exists, update start row to scanStartRow
@@ -177,6 +189,9 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
       return true;
     }
 
+    // Rows prefetched during this transaction may carry states that are being reverted
+    discardPrefetch();
+
     // Put the consuming entries back to cache
     entryCache.putAll(consumingEntries);
 
@@ -197,6 +212,71 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
     return true;
   }
 
+  /**
+   * Starts scanning queue rows in the background for the next dequeue, if the entry cache doesn't have enough
+   * entries for it. The scan uses the visibility of the last transaction, and the next dequeue still filters the
+   * scanned rows with its own transaction before claiming them. This method must be called after the last
+   * transaction is committed, so that the scan sees the entry states written by it.
+   *
+   * @param executor executor for running the scan
+   * @param maxBytes maximum number of bytes to hold in memory for the scanned rows
+   * @param scannerFactory creates the scanner in the executor thread
+   */
+  protected final void prefetch(Executor executor, final long maxBytes,
+                                final PrefetchScannerFactory scannerFactory) {
+    if (prefetchedRows != null || transaction == null || entryCache.size() >= lastBatchSize) {
+      return;
+    }
+
+    final Transaction tx = transaction;
+    final byte[] startRow = Arrays.copyOf(scanStartRow, scanStartRow.length);
+    final byte[] stopRow = QueueEntryRow.getStopRowForTransaction(queueRowPrefix, tx);
+    final int numRows = getScanRows(lastBatchSize);
+    FutureTask<PrefetchedRows> task = new FutureTask<>(new Callable<PrefetchedRows>() {
+      @Override
+      public PrefetchedRows call() throws Exception {
+        List<ImmutablePair<byte[], Map<byte[], byte[]>>> rows = Lists.newArrayList();
+        long bytes = 0L;
+        // Start row for continuing the scan after the prefetched rows
+        byte[] nextStartRow = stopRow;
+        QueueScanner scanner = scannerFactory.create(tx, startRow, stopRow, numRows);
+        try {
+          while (rows.size() < numRows && bytes < maxBytes) {
+            ImmutablePair<byte[], Map<byte[], byte[]>> row = scanner.next();
+            if (row == null) {
+              break;
+            }
+            rows.add(row);
+            nextStartRow = Bytes.add(row.getFirst(), new byte[] { 0 });
+            bytes += row.getFirst().length;
+            for (byte[] value : row.getSecond().values()) {
+              bytes += value.length;
+            }
+          }
+        } finally {
+          scanner.close();
+        }
+        if (rows.size() < numRows && bytes < maxBytes) {
+          // Reached the end of the scan
+          nextStartRow = stopRow;
+        }
+        return new PrefetchedRows(tx, startRow, nextStartRow, rows);
+      }
+    });
+    prefetchedRows = task;
+    executor.execute(task);
+  }
+
+  /**
+   * Discards rows being prefetched, if any.
+   */
+  protected final void discardPrefetch() {
+    if (prefetchedRows != null) {
+      prefetchedRows.cancel(false);
+      prefetchedRows = null;
+    }
+  }
+
   /**
    * Called when the start row is updated.
    */
@@ -309,12 +389,21 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
   private void populateRowCache(Set<byte[]> excludeRows, int maxBatchSize, Stopwatch stopwatch) throws IOException {
 
     long readPointer = transaction.getReadPointer();
-
-    // Scan the table for queue entries.
-    int numRows = Math.max(MIN_FETCH_ROWS, maxBatchSize * PREFETCH_BATCHES);
-    QueueScanner scanner = getScanner(scanStartRow,
-                                      QueueEntryRow.getStopRowForTransaction(queueRowPrefix, transaction),
-                                      numRows);
+    long firstInProgress = transaction.getFirstInProgress();
+
+    // Scan the table for queue entries, starting with the rows prefetched for this scan if there are any.
+    int numRows = getScanRows(maxBatchSize);
+    byte[] stopRow = QueueEntryRow.getStopRowForTransaction(queueRowPrefix, transaction);
+    QueueScanner scanner;
+    PrefetchedRows prefetched = takePrefetchedRows();
+    if (prefetched != null) {
+      // Rows of transactions that were in progress at prefetch time are not in the prefetched rows,
+      // hence they can come before the first prefetched row.
+      firstInProgress = Math.min(firstInProgress, prefetched.tx.getFirstInProgress());
+      scanner = new PrefetchedScanner(prefetched, stopRow, numRows);
+    } else {
+      scanner = getScanner(scanStartRow, stopRow, numRows);
+    }
     try {
       // Try fill up the cache
       boolean firstScannedRow = true;
@@ -335,7 +424,7 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
 
         // If it is first row returned by the scanner and was written before the earliest in progress,
         // it's safe to advance scanStartRow to current row because nothing can be written before this row.
-        if (firstScannedRow && writePointer < transaction.getFirstInProgress()) {
+        if (firstScannedRow && writePointer < firstInProgress) {
           firstScannedRow = false;
           scanStartRow = Arrays.copyOf(rowKey, rowKey.length);
         }
@@ -377,6 +466,39 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
     }
   }
 
+  private int getScanRows(int maxBatchSize) {
+    return Math.max(MIN_FETCH_ROWS, maxBatchSize * PREFETCH_BATCHES);
+  }
+
+  /**
+   * Returns the prefetched rows if they were scanned from the current scan start row, waiting for the prefetch
+   * to complete if needed. Returns {@code null} if there are no prefetched rows usable for the current scan.
+   */
+  @Nullable
+  private PrefetchedRows takePrefetchedRows() throws IOException {
+    if (prefetchedRows == null) {
+      return null;
+    }
+    Future<PrefetchedRows> future = prefetchedRows;
+    prefetchedRows = null;
+
+    PrefetchedRows rows;
+    try {
+      rows = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for prefetched rows of queue " + queueName);
+    } catch (ExecutionException e) {
+      LOG.warn("Failed to prefetch rows of queue {}. Scanning again.", queueName, e.getCause());
+      return null;
+    }
+
+    if (!Arrays.equals(rows.startRow, scanStartRow) || rows.tx.getReadPointer() > transaction.getReadPointer()) {
+      return null;
+    }
+    return rows;
+  }
+
   private byte[] encodeStateColumn(ConsumerEntryState state) {
     // State column content is encoded as (writePointer) + (instanceId) + (state)
     byte[] stateContent = new byte[Longs.BYTES + Ints.BYTES + 1];
@@ -415,6 +537,79 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
     return getClass().getSimpleName() + "(queue = " + queueName + ")";
   }
 
+  /**
+   * Creates the {@link QueueScanner} of a prefetch started by
+   * {@link #prefetch(Executor, long, PrefetchScannerFactory)}. It is called from the prefetch executor, hence it
+   * must only use state that is captured when the prefetch is started, and a table client that is not shared with
+   * the consumer thread.
+   */
+  protected interface PrefetchScannerFactory {
+
+    /**
+     * Creates a {@link QueueScanner} that scans with the visibility of the given transaction.
+     */
+    QueueScanner create(Transaction tx, byte[] startRow, byte[] stopRow, int numRows) throws IOException;
+  }
+
+  /**
+   * Rows scanned by {@link #prefetch(Executor, long, PrefetchScannerFactory)}.
+   */
+  private static final class PrefetchedRows {
+
+    private final Transaction tx;
+    private final byte[] startRow;
+    private final byte[] nextStartRow;
+    private final List<ImmutablePair<byte[], Map<byte[], byte[]>>> rows;
+
+    private PrefetchedRows(Transaction tx, byte[] startRow, byte[] nextStartRow,
+                           List<ImmutablePair<byte[], Map<byte[], byte[]>>> rows) {
+      this.tx = tx;
+      this.startRow = startRow;
+      this.nextStartRow = nextStartRow;
+      this.rows = rows;
+    }
+  }
+
+  /**
+   * A {@link QueueScanner} that returns prefetched rows, followed by rows from a scan that continues
+   * from where the prefetch stopped.
+   */
+  private final class PrefetchedScanner implements QueueScanner {
+
+    private final Iterator<ImmutablePair<byte[], Map<byte[], byte[]>>> rows;
+    private final byte[] nextStartRow;
+    private final byte[] stopRow;
+    private final int numRows;
+    private QueueScanner scanner;
+
+    private PrefetchedScanner(PrefetchedRows prefetched, byte[] stopRow, int numRows) {
+      this.rows = prefetched.rows.iterator();
+      this.nextStartRow = prefetched.nextStartRow;
+      this.stopRow = stopRow;
+      this.numRows = numRows;
+    }
+
+    @Override
+    public ImmutablePair<byte[], Map<byte[], byte[]>> next() throws IOException {
+      if (scanner == null) {
+        if (rows.hasNext()) {
+          return rows.next();
+        }
+        scanner = Bytes.compareTo(nextStartRow, stopRow) < 0
+          ? getScanner(nextStartRow, stopRow, numRows)
+          : QueueScanner.EMPTY;
+      }
+      return scanner.next();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (scanner != null) {
+        scanner.close();
+      }
+    }
+  }
+
   /**
    * Implementation of dequeue result.
    */
@@ -27,10 +27,13 @@ public final class QueueConstants {
     public static final String QUEUE_TABLE_COPROCESSOR_DIR = "data.queue.table.coprocessor.dir";
     public static final String QUEUE_TABLE_PRESPLITS = "data.queue.table.presplits";
     public static final String DEQUEUE_TX_PERCENT = "data.queue.dequeue.tx.percent";
+    public static final String DEQUEUE_PREFETCH_MAX_BYTES = "data.queue.dequeue.prefetch.max.bytes";
   }
 
   // This is a hardcoded value for the row key distributor bucket size before CDAP-1946
   public static final int DEFAULT_ROW_KEY_BUCKETS = 16;
+  // Default maximum number of bytes of queue rows prefetched by a consumer, which turns prefetching off
+  public static final long DEFAULT_DEQUEUE_PREFETCH_MAX_BYTES = 0L;
   public static final String QUEUE_CONFIG_TABLE_NAME = QueueType.QUEUE.toString() + ".config";
 
   public static final String DEFAULT_QUEUE_TABLE_COPROCESSOR_DIR = "/queue";
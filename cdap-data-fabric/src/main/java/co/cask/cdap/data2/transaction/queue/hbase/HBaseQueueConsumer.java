@@ -21,6 +21,7 @@ import co.cask.cdap.common.queue.QueueName;
 import co.cask.cdap.data2.queue.ConsumerConfig;
 import co.cask.cdap.data2.queue.DequeueResult;
 import co.cask.cdap.data2.transaction.queue.AbstractQueueConsumer;
+import co.cask.cdap.data2.transaction.queue.QueueConstants;
 import co.cask.cdap.data2.transaction.queue.QueueEntryRow;
 import co.cask.cdap.data2.transaction.queue.QueueScanner;
 import co.cask.tephra.Transaction;
@@ -31,21 +32,42 @@ import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Row;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * Queue consumer for HBase.
+ * <p>
+ * If {@link QueueConstants.ConfigKeys#DEQUEUE_PREFETCH_MAX_BYTES} is positive, the consumer scans the queue rows
+ * for the next dequeue in the background after each committed transaction, so that a dequeue that drains the entry
+ * cache doesn't need to wait for a scan. The memory used by prefetched rows is bounded by that setting. The
+ * background scans use their own {@link HTable}, because an {@link HTable} is not thread safe.
+ * </p>
  */
 abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
 
+  private static final Logger LOG = LoggerFactory.getLogger(HBaseQueueConsumer.class);
+
   private final HTable hTable;
   private final HBaseConsumerState state;
   private final HBaseConsumerStateStore stateStore;
   private final byte[] queueRowPrefix;
   private final HBaseQueueStrategy queueStrategy;
+  private final long prefetchMaxBytes;
+  // Executor for prefetching rows, or null if prefetching is turned off
+  private final ExecutorService prefetchExecutor;
+  // Table for the prefetch scans, created by the first prefetch
+  private HTable prefetchTable;
   private boolean closed;
   private boolean canConsume;
   private boolean completed;
@@ -69,6 +91,9 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
     this.queueRowPrefix = QueueEntryRow.getQueueRowPrefix(queueName);
     this.queueStrategy = queueStrategy;
     this.canConsume = false;
+    this.prefetchMaxBytes = cConf.getLong(QueueConstants.ConfigKeys.DEQUEUE_PREFETCH_MAX_BYTES,
+                                          QueueConstants.DEFAULT_DEQUEUE_PREFETCH_MAX_BYTES);
+    this.prefetchExecutor = prefetchMaxBytes > 0 ? createPrefetchExecutor() : null;
   }
 
   @Override
@@ -134,14 +159,22 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
       }
     }
 
-    Scan scan = createScan(startRow, getScanStopRow(stopRow), numRows);
+    return createScanner(hTable, transaction, startRow, getScanStopRow(stopRow, state.getNextBarrier()), numRows);
+  }
+
+  private QueueScanner createScanner(HTable table, Transaction tx, byte[] startRow,
+                                     byte[] stopRow, int numRows) throws IOException {
+    if (Bytes.compareTo(startRow, stopRow) >= 0) {
+      return QueueScanner.EMPTY;
+    }
+    Scan scan = createScan(tx, startRow, stopRow, numRows);
 
     /** TODO: Remove when {@link DequeueScanAttributes#ATTR_QUEUE_ROW_PREFIX} is removed. It is for transition. **/
     DequeueScanAttributes.setQueueRowPrefix(scan, queueRowPrefix);
     DequeueScanAttributes.set(scan, getConfig());
-    DequeueScanAttributes.set(scan, transaction);
+    DequeueScanAttributes.set(scan, tx);
 
-    return queueStrategy.createScanner(getConfig(), hTable, scan, numRows);
+    return queueStrategy.createScanner(getConfig(), table, scan, numRows);
   }
 
   @Override
@@ -150,6 +183,13 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
       return;
     }
     closed = true;
+    discardPrefetch();
+    if (prefetchExecutor != null) {
+      prefetchExecutor.shutdownNow();
+    }
+    if (prefetchTable != null) {
+      Closeables.closeQuietly(prefetchTable);
+    }
     Closeables.closeQuietly(queueStrategy);
     Closeables.closeQuietly(stateStore);
     Closeables.closeQuietly(hTable);
@@ -178,6 +218,8 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
     stateStore.postTxCommit();
     if (completed) {
       Closeables.closeQuietly(this);
+    } else if (prefetchExecutor != null && canConsume) {
+      startPrefetch();
     }
   }
 
@@ -193,10 +235,39 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
     }
   }
 
-  protected abstract Scan createScan(byte[] startRow, byte[] stopRow, int numRows);
+  protected abstract Scan createScan(Transaction tx, byte[] startRow, byte[] stopRow, int numRows);
+
+  private ExecutorService createPrefetchExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                                                         new LinkedBlockingQueue<Runnable>(),
+                                                         Threads.newDaemonThreadFactory("queue-consumer-prefetch"));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private void startPrefetch() {
+    final HTable table;
+    try {
+      if (prefetchTable == null) {
+        prefetchTable = new HTable(hTable.getConfiguration(), hTable.getTableName());
+      }
+      table = prefetchTable;
+    } catch (IOException e) {
+      LOG.warn("Failed to create table for prefetching rows of queue {}. Not prefetching.", getQueueName(), e);
+      return;
+    }
+
+    // The consumer state is only accessed by the consumer thread, hence the barrier is read before the prefetch
+    final byte[] barrierEndRow = state.getNextBarrier();
+    prefetch(prefetchExecutor, prefetchMaxBytes, new PrefetchScannerFactory() {
+      @Override
+      public QueueScanner create(Transaction tx, byte[] startRow, byte[] stopRow, int numRows) throws IOException {
+        return createScanner(table, tx, startRow, getScanStopRow(stopRow, barrierEndRow), numRows);
+      }
+    });
+  }
 
-  private byte[] getScanStopRow(byte[] stopRow) {
-    byte[] barrierEndRow = state.getNextBarrier();
+  private static byte[] getScanStopRow(byte[] stopRow, @Nullable byte[] barrierEndRow) {
     return barrierEndRow == null || Bytes.compareTo(stopRow, barrierEndRow) < 0 ? stopRow : barrierEndRow;
   }
 }
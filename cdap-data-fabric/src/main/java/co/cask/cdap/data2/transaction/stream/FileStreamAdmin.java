@@ -24,6 +24,7 @@ import co.cask.cdap.common.namespace.NamespacedLocationFactory;
 import co.cask.cdap.common.utils.OSDetector;
 import co.cask.cdap.data.stream.CoordinatorStreamProperties;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
+import co.cask.cdap.data.stream.StreamFileCompression;
 import co.cask.cdap.data.stream.StreamFileOffset;
 import co.cask.cdap.data.stream.StreamUtils;
 import co.cask.cdap.data.stream.service.StreamMetaStore;
@@ -216,7 +217,8 @@ public class FileStreamAdmin implements StreamAdmin {
     }
 
     return new StreamConfig(streamId, config.getPartitionDuration(), config.getIndexInterval(),
-                            config.getTTL(), getStreamLocation(streamId), config.getFormat(), threshold);
+                            config.getTTL(), getStreamLocation(streamId), config.getFormat(), threshold,
+                            config.getCompression());
   }
 
   @Override
@@ -291,9 +293,11 @@ public class FileStreamAdmin implements StreamAdmin {
           Constants.Stream.TTL, cConf.get(Constants.Stream.TTL)));
         int threshold = Integer.parseInt(properties.getProperty(
           Constants.Stream.NOTIFICATION_THRESHOLD, cConf.get(Constants.Stream.NOTIFICATION_THRESHOLD)));
+        StreamFileCompression compression = StreamFileCompression.valueOf(properties.getProperty(
+          Constants.Stream.COMPRESSION, cConf.get(Constants.Stream.COMPRESSION, "none")).toUpperCase());
 
         StreamConfig config = new StreamConfig(streamId, partitionDuration, indexInterval,
-                                               ttl, streamLocation, null, threshold);
+                                               ttl, streamLocation, null, threshold, compression);
         writeConfig(config);
         createStreamFeeds(config);
         alterExploreStream(streamId, true);
@@ -43,6 +43,7 @@ import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.TableExistsException;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.twill.filesystem.Location;
 import org.apache.twill.internal.utils.Dependencies;
@@ -560,6 +561,13 @@ public abstract class HBaseTableUtil {
 
   public abstract BloomType getBloomFilter(HColumnDescriptor columnDescriptor);
 
+  /**
+   * Limits the size of the results returned by one scanner RPC, if supported by the HBase version.
+   * @param scan the {@link Scan} to configure
+   * @param maxResultSize maximum size in bytes
+   */
+  public abstract void setMaxResultSize(Scan scan, long maxResultSize);
+
   public abstract Class<? extends Coprocessor> getTransactionDataJanitorClassForVersion();
   public abstract Class<? extends Coprocessor> getQueueRegionObserverClassForVersion();
   public abstract Class<? extends Coprocessor> getDequeueScanObserverClassForVersion();
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.data.batch;
+
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link RecordScanFilter}.
+ */
+public class RecordScanFilterTest {
+
+  @Test
+  public void testValueCondition() {
+    RecordScanFilter filter = RecordScanFilter.builder()
+      .addValueCondition("Key", "k1")
+      // bounds don't widen or narrow an equality condition
+      .addLowerBound("key", "k0", true)
+      .addUpperBound("key", "k2", false)
+      .build();
+
+    RecordScanFilter.Condition condition = filter.getCondition("KEY");
+    Assert.assertNotNull(condition);
+    Assert.assertEquals("key", condition.getFieldName());
+    Assert.assertTrue(condition.isSingleValue());
+    Assert.assertEquals("k1", condition.getValue());
+    Assert.assertArrayEquals(Bytes.toBytes("k1"), condition.getStartRow());
+    Assert.assertArrayEquals(Bytes.add(Bytes.toBytes("k1"), new byte[] { 0 }), condition.getStopRow());
+
+    Assert.assertNull(filter.getCondition("other"));
+    Assert.assertEquals(ImmutableSet.of("key"), filter.getConditions().keySet());
+  }
+
+  @Test
+  public void testRangeCondition() {
+    RecordScanFilter filter = RecordScanFilter.builder()
+      .addLowerBound("f", 3, true)
+      .addLowerBound("f", 5, true)
+      .addLowerBound("f", 4, true)
+      .addUpperBound("f", 10, true)
+      .addUpperBound("f", 12, false)
+      // the same bound, exclusive, is narrower
+      .addUpperBound("f", 10, false)
+      .build();
+
+    RecordScanFilter.Condition condition = filter.getCondition("f");
+    Assert.assertFalse(condition.isSingleValue());
+    Assert.assertEquals(5, condition.getLower());
+    Assert.assertTrue(condition.isLowerInclusive());
+    Assert.assertEquals(10, condition.getUpper());
+    Assert.assertFalse(condition.isUpperInclusive());
+
+    // bounds of different types can't be compared and are ignored
+    filter = RecordScanFilter.builder()
+      .addLowerBound("f", 3, false)
+      .addLowerBound("f", "x", true)
+      .build();
+    condition = filter.getCondition("f");
+    Assert.assertEquals(3, condition.getLower());
+    Assert.assertFalse(condition.isLowerInclusive());
+    Assert.assertNull(condition.getUpper());
+    Assert.assertNull(condition.getStopRow());
+    // the first key after the exclusive bound
+    Assert.assertArrayEquals(Bytes.add(Bytes.toBytes(3), new byte[] { 0 }), condition.getStartRow());
+  }
+
+  @Test
+  public void testRowKeys() {
+    RecordScanFilter filter = RecordScanFilter.builder()
+      .addLowerBound("s", "b", false)
+      .addUpperBound("s", "d", true)
+      .addUpperBound("b", new byte[] { 1, 2 }, false)
+      .addUpperBound("b", new byte[] { 1 }, false)
+      .addLowerBound("o", new Object(), true)
+      .build();
+
+    RecordScanFilter.Condition condition = filter.getCondition("s");
+    Assert.assertArrayEquals(Bytes.toBytes("b\0"), condition.getStartRow());
+    Assert.assertArrayEquals(Bytes.toBytes("d\0"), condition.getStopRow());
+
+    condition = filter.getCondition("b");
+    Assert.assertNull(condition.getStartRow());
+    Assert.assertArrayEquals(new byte[] { 1 }, condition.getStopRow());
+
+    // values that can't be encoded have no row keys
+    Assert.assertNull(filter.getCondition("o").getStartRow());
+  }
+
+  @Test
+  public void testFields() {
+    RecordScanFilter filter = RecordScanFilter.builder().build();
+    Assert.assertNull(filter.getFields());
+    Assert.assertTrue(filter.isFieldRead("any"));
+    Assert.assertTrue(filter.getConditions().isEmpty());
+
+    filter = RecordScanFilter.builder().setFields(ImmutableList.of("Name", "age")).build();
+    Assert.assertEquals(ImmutableSet.of("name", "age"), filter.getFields());
+    Assert.assertTrue(filter.isFieldRead("NAME"));
+    Assert.assertTrue(filter.isFieldRead("age"));
+    Assert.assertFalse(filter.isFieldRead("address"));
+  }
+
+  @Test
+  public void testInvalidConditions() {
+    try {
+      RecordScanFilter.builder().addValueCondition("f", null);
+      Assert.fail("Expected a null value to be rejected");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      RecordScanFilter.builder().addLowerBound("", 1, true);
+      Assert.fail("Expected an empty field name to be rejected");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      RecordScanFilter.builder().addLowerBound("f", 1, true).build().getCondition("f").getValue();
+      Assert.fail("Expected a range condition to have no value");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+}
@@ -17,22 +17,34 @@
 package co.cask.cdap.api.dataset.lib;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.batch.RecordScanFilter;
+import co.cask.cdap.api.data.batch.RecordScanner;
+import co.cask.cdap.api.data.batch.Split;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.table.Delete;
 import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Put;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.data2.dataset2.DatasetFrameworkTestUtil;
 import co.cask.cdap.data2.dataset2.TableAssert;
 import co.cask.cdap.proto.Id;
 import co.cask.tephra.TransactionExecutor;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.List;
+import javax.annotation.Nullable;
+
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -671,6 +683,101 @@ public class IndexedTableTest {
       dsFrameworkUtil.deleteInstance(incrTabInstance);
     }
   }
+
+  @Test
+  public void testFilteredRecordScan() throws Exception {
+    Id.DatasetInstance recordTabInstance = Id.DatasetInstance.from(DatasetFrameworkTestUtil.NAMESPACE_ID, "recordTab");
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("row", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("idx", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("val", Schema.of(Schema.Type.STRING)));
+    dsFrameworkUtil.createInstance("indexedTable", recordTabInstance, DatasetProperties.builder()
+      .add(IndexedTableDefinition.INDEX_COLUMNS_CONF_KEY, "idx")
+      .add(Table.PROPERTY_SCHEMA, schema.toString())
+      .add(Table.PROPERTY_SCHEMA_ROW_FIELD, "row")
+      .build());
+    try {
+      final IndexedTable rTable = dsFrameworkUtil.getInstance(recordTabInstance);
+      TransactionExecutor tx = dsFrameworkUtil.newTransactionExecutor(rTable);
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          rTable.put(new Put("r1").add("idx", "x").add("val", "1"));
+          rTable.put(new Put("r2").add("idx", "y").add("val", "2"));
+          rTable.put(new Put("r3").add("idx", "x").add("val", "3"));
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          // an equality condition on the indexed column is a single split of the indexed rows
+          RecordScanFilter filter = RecordScanFilter.builder().addValueCondition("idx", "x").build();
+          List<Split> splits = rTable.getSplits(filter);
+          assertEquals(1, splits.size());
+          List<StructuredRecord> records = readRecords(rTable, splits, filter);
+          assertEquals(2, records.size());
+          assertRecord(records.get(0), "r1", "x", "1");
+          assertRecord(records.get(1), "r3", "x", "3");
+
+          // the split is serialized as json when it is given to Hive
+          Gson gson = new Gson();
+          Split split = gson.fromJson(gson.toJson(splits.get(0)), IndexedTable.IndexLookupSplit.class);
+          assertEquals(2, readRecords(rTable, ImmutableList.of(split), filter).size());
+
+          // only the projected fields and the row field are read
+          filter = RecordScanFilter.builder()
+            .addValueCondition("IDX", "x")
+            .setFields(ImmutableList.of("val"))
+            .build();
+          records = readRecords(rTable, rTable.getSplits(filter), filter);
+          assertEquals(2, records.size());
+          assertRecord(records.get(0), "r1", null, "1");
+          assertRecord(records.get(1), "r3", null, "3");
+
+          // a value that is not indexed has no rows
+          filter = RecordScanFilter.builder().addValueCondition("idx", "z").build();
+          assertEquals(0, readRecords(rTable, rTable.getSplits(filter), filter).size());
+
+          // a condition on the row field is a range of rows of the data table
+          filter = RecordScanFilter.builder().addValueCondition("row", "r2").build();
+          records = readRecords(rTable, rTable.getSplits(filter), filter);
+          assertEquals(1, records.size());
+          assertRecord(records.get(0), "r2", "y", "2");
+
+          // conditions on other columns do not restrict the scan
+          filter = RecordScanFilter.builder().addValueCondition("val", "2").build();
+          assertEquals(3, readRecords(rTable, rTable.getSplits(filter), filter).size());
+        }
+      });
+    } finally {
+      dsFrameworkUtil.deleteInstance(recordTabInstance);
+    }
+  }
+
+  private List<StructuredRecord> readRecords(IndexedTable table, List<Split> splits, RecordScanFilter filter)
+    throws InterruptedException {
+    List<StructuredRecord> records = Lists.newArrayList();
+    for (Split split : splits) {
+      RecordScanner<StructuredRecord> scanner = table.createSplitRecordScanner(split, filter);
+      scanner.initialize(split);
+      try {
+        while (scanner.nextRecord()) {
+          records.add(scanner.getCurrentRecord());
+        }
+      } finally {
+        scanner.close();
+      }
+    }
+    return records;
+  }
+
+  private void assertRecord(StructuredRecord record, String row, @Nullable String idx, String val) {
+    assertEquals(row, record.get("row"));
+    assertEquals(idx, record.get("idx"));
+    assertEquals(val, record.get("val"));
+  }
+
   /**
    * Asserts that the given scanner contains no more rows.
    */
@@ -17,6 +17,8 @@
 package co.cask.cdap.api.dataset.lib;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.batch.RecordScanFilter;
+import co.cask.cdap.api.data.batch.RecordScanner;
 import co.cask.cdap.api.data.batch.Split;
 import co.cask.cdap.api.data.batch.SplitReader;
 import co.cask.cdap.api.dataset.DatasetProperties;
@@ -24,6 +26,8 @@ import co.cask.cdap.data2.dataset2.DatasetFrameworkTestUtil;
 import co.cask.cdap.proto.Id;
 import co.cask.tephra.TransactionExecutor;
 import co.cask.tephra.TransactionFailureException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -362,6 +366,67 @@ public class KeyValueTableTest {
     dsFrameworkUtil.deleteInstance(tBatch);
   }
 
+  @Test
+  public void testFilteredRecordScan() throws Exception {
+    Id.DatasetInstance tFilter = Id.DatasetInstance.from(DatasetFrameworkTestUtil.NAMESPACE_ID, "tFilter");
+    dsFrameworkUtil.createInstance("keyValueTable", tFilter, DatasetProperties.EMPTY);
+
+    final KeyValueTable t = dsFrameworkUtil.getInstance(tFilter);
+    TransactionExecutor txnl = dsFrameworkUtil.newTransactionExecutor(t);
+
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (String key : new String[] { "a", "b", "c", "d", "e" }) {
+          t.write(key, "v" + key);
+        }
+      }
+    });
+
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        // a range of keys is scanned as a range of rows
+        RecordScanFilter filter = RecordScanFilter.builder()
+          .addLowerBound("key", "b", true)
+          .addUpperBound("key", "d", false)
+          .build();
+        Assert.assertEquals(ImmutableList.of("b", "c"), readKeys(t, filter));
+
+        filter = RecordScanFilter.builder().addLowerBound("KEY", "c", false).build();
+        Assert.assertEquals(ImmutableList.of("d", "e"), readKeys(t, filter));
+
+        filter = RecordScanFilter.builder().addValueCondition("key", "e").build();
+        Assert.assertEquals(ImmutableList.of("e"), readKeys(t, filter));
+
+        // conditions on other fields do not restrict the scan
+        filter = RecordScanFilter.builder().addValueCondition("value", "va").build();
+        Assert.assertEquals(ImmutableList.of("a", "b", "c", "d", "e"), readKeys(t, filter));
+      }
+    });
+
+    dsFrameworkUtil.deleteInstance(tFilter);
+  }
+
+  // helper to read the keys of the records of the splits of a filter
+  private List<String> readKeys(KeyValueTable t, RecordScanFilter filter) throws InterruptedException {
+    List<String> keys = Lists.newArrayList();
+    for (Split split : t.getSplits(filter)) {
+      RecordScanner<KeyValue<byte[], byte[]>> scanner = t.createSplitRecordScanner(split, filter);
+      scanner.initialize(split);
+      try {
+        while (scanner.nextRecord()) {
+          KeyValue<byte[], byte[]> record = scanner.getCurrentRecord();
+          Assert.assertEquals("v" + Bytes.toString(record.getKey()), Bytes.toString(record.getValue()));
+          keys.add(Bytes.toString(record.getKey()));
+        }
+      } finally {
+        scanner.close();
+      }
+    }
+    return keys;
+  }
+
   // helper to verify that the split readers for the given splits return exactly a set of keys
   private void verifySplits(KeyValueTable t, List<Split> splits, SortedSet<Long> keysToVerify)
     throws InterruptedException {
@@ -106,4 +106,27 @@ public class CombinedLogRecordFormatTest {
     String data = "10.10.10.10[01/Feb/2015:06:47:10 +0000";
     StructuredRecord output = format.read(new StreamEvent(ByteBuffer.wrap(Bytes.toBytes(data))));
   }
+
+  @Test
+  public void testCLFLogWithMissingEntries() throws UnsupportedTypeException, UnexpectedFormatException {
+    CombinedLogRecordFormat format = new CombinedLogRecordFormat();
+    FormatSpecification spec = new FormatSpecification(CombinedLogRecordFormat.class.getCanonicalName(),
+                                                       null, ImmutableMap.<String, String>of());
+    format.initialize(spec);
+    // the body is a slice of a larger buffer, and ends before the referrer
+    String data = "ignored 10.10.10.10 - frank [01/Feb/2015:06:47:10 +0000] \"GET / HTTP/1.1\" 200 2326 ";
+    ByteBuffer body = ByteBuffer.wrap(Bytes.toBytes(data));
+    body.position("ignored ".length());
+    StructuredRecord output = format.read(new StreamEvent(body.slice()));
+
+    Assert.assertEquals("10.10.10.10", output.get("remote_host"));
+    Assert.assertNull(output.get("remote_login"));
+    Assert.assertEquals("frank", output.get("auth_user"));
+    Assert.assertEquals("01/Feb/2015:06:47:10 +0000", output.get("date"));
+    Assert.assertEquals("GET / HTTP/1.1", output.get("request"));
+    Assert.assertEquals(200, output.get("status"));
+    Assert.assertEquals(2326, output.get("content_length"));
+    Assert.assertNull(output.get("referrer"));
+    Assert.assertNull(output.get("user_agent"));
+  }
 }
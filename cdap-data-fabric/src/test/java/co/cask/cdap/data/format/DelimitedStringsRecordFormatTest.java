@@ -30,6 +30,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collections;
 
@@ -244,4 +245,102 @@ public class DelimitedStringsRecordFormatTest {
     Assert.assertEquals("hello world", output.get("f6"));
     Assert.assertArrayEquals(new String[] {"extra1"}, (String[]) output.get("f7"));
   }
+
+  @Test
+  public void testMultiCharDelimiter() throws UnsupportedTypeException, UnexpectedFormatException {
+    Schema schema = Schema.recordOf(
+      "event",
+      Schema.Field.of("f1", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("f2", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("f3", Schema.arrayOf(Schema.of(Schema.Type.STRING)))
+    );
+    DelimitedStringsRecordFormat format = new DelimitedStringsRecordFormat();
+    FormatSpecification spec = new FormatSpecification(DelimitedStringsRecordFormat.class.getCanonicalName(),
+                                                       schema,
+                                                       ImmutableMap.of(DelimitedStringsRecordFormat.DELIMITER, "::"));
+    format.initialize(spec);
+
+    StructuredRecord output = format.read(new StreamEvent(ByteBuffer.wrap(Bytes.toBytes("-42::::a:b::"))));
+    Assert.assertEquals(-42L, output.get("f1"));
+    Assert.assertEquals("", output.get("f2"));
+    Assert.assertArrayEquals(new String[] { "a:b", "" }, (String[]) output.get("f3"));
+
+    output = format.read(new StreamEvent(ByteBuffer.wrap(Bytes.toBytes("9223372036854775807::x"))));
+    Assert.assertEquals(Long.MAX_VALUE, output.get("f1"));
+    Assert.assertEquals("x", output.get("f2"));
+    Assert.assertArrayEquals(new String[0], (String[]) output.get("f3"));
+  }
+
+  @Test
+  public void testCharset() throws UnsupportedTypeException, UnexpectedFormatException {
+    Schema schema = Schema.recordOf(
+      "event",
+      Schema.Field.of("f1", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("f2", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("f3", Schema.of(Schema.Type.DOUBLE))
+    );
+    String body = "123|h\u00e9llo w\u00f6rld|-0.25";
+    for (String charset : new String[] { "UTF-8", "ISO-8859-1", "UTF-16" }) {
+      DelimitedStringsRecordFormat format = new DelimitedStringsRecordFormat();
+      FormatSpecification spec = new FormatSpecification(
+        DelimitedStringsRecordFormat.class.getCanonicalName(), schema,
+        ImmutableMap.of(DelimitedStringsRecordFormat.DELIMITER, "|", DelimitedStringsRecordFormat.CHARSET, charset));
+      format.initialize(spec);
+
+      StructuredRecord output = format.read(new StreamEvent(ByteBuffer.wrap(body.getBytes(Charset.forName(charset)))));
+      Assert.assertEquals(123, output.get("f1"));
+      Assert.assertEquals("h\u00e9llo w\u00f6rld", output.get("f2"));
+      Assert.assertEquals(-0.25d, output.get("f3"));
+    }
+  }
+
+  @Test
+  public void testBodyBuffers() throws UnsupportedTypeException, UnexpectedFormatException {
+    Schema schema = Schema.recordOf(
+      "event",
+      Schema.Field.of("f1", Schema.of(Schema.Type.BOOLEAN)),
+      Schema.Field.of("f2", Schema.of(Schema.Type.FLOAT)),
+      Schema.Field.of("f3", Schema.of(Schema.Type.STRING))
+    );
+    DelimitedStringsRecordFormat format = new DelimitedStringsRecordFormat();
+    format.initialize(new FormatSpecification(DelimitedStringsRecordFormat.class.getCanonicalName(),
+                                              schema, Collections.<String, String>emptyMap()));
+
+    // a slice of a larger array
+    ByteBuffer buffer = ByteBuffer.wrap(Bytes.toBytes("garbage,TRUE,1.5,abc,garbage"), 8, 12).slice();
+    StructuredRecord output = format.read(new StreamEvent(buffer));
+    Assert.assertEquals(true, output.get("f1"));
+    Assert.assertEquals(1.5f, output.get("f2"));
+    Assert.assertEquals("abc", output.get("f3"));
+    Assert.assertEquals(0, buffer.position());
+
+    // a direct buffer
+    byte[] bytes = Bytes.toBytes("false,3.4028235E38,def");
+    buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes).flip();
+    output = format.read(new StreamEvent(buffer));
+    Assert.assertEquals(false, output.get("f1"));
+    Assert.assertEquals(Float.MAX_VALUE, output.get("f2"));
+    Assert.assertEquals("def", output.get("f3"));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testInvalidNumber() throws UnsupportedTypeException, UnexpectedFormatException {
+    Schema schema = Schema.recordOf("event", Schema.Field.of("f1", Schema.of(Schema.Type.INT)));
+    DelimitedStringsRecordFormat format = new DelimitedStringsRecordFormat();
+    format.initialize(new FormatSpecification(DelimitedStringsRecordFormat.class.getCanonicalName(),
+                                              schema, Collections.<String, String>emptyMap()));
+    format.read(new StreamEvent(ByteBuffer.wrap(Bytes.toBytes("2147483648"))));
+  }
+
+  @Test(expected = UnexpectedFormatException.class)
+  public void testMissingNonNullable() throws UnsupportedTypeException, UnexpectedFormatException {
+    Schema schema = Schema.recordOf("event",
+                                    Schema.Field.of("f1", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("f2", Schema.of(Schema.Type.STRING)));
+    DelimitedStringsRecordFormat format = new DelimitedStringsRecordFormat();
+    format.initialize(new FormatSpecification(DelimitedStringsRecordFormat.class.getCanonicalName(),
+                                              schema, Collections.<String, String>emptyMap()));
+    format.read(new StreamEvent(ByteBuffer.wrap(Bytes.toBytes("only one"))));
+  }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data.format;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.format.FormatSpecification;
+import co.cask.cdap.api.data.format.Formats;
+import co.cask.cdap.api.data.format.RecordFormat;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the stream events per second read by the text record formats. For delimited strings, it is compared
+ * with reading the fields the way the format used to, by decoding and splitting the body and converting every
+ * field from its string. For the combined log format, it is compared with the grok format reading the same events
+ * with the combined apache log pattern.
+ * <p>
+ * Usage: {@code RecordFormatBenchmark [events] [rounds]}
+ */
+public class RecordFormatBenchmark {
+
+  private static final Schema CSV_SCHEMA = Schema.recordOf(
+    "event",
+    Schema.Field.of("ts", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("action", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("count", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("amount", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("flag", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("tags", Schema.arrayOf(Schema.of(Schema.Type.STRING))));
+
+  public static void main(String[] args) throws Exception {
+    int events = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    List<StreamEvent> csvEvents = Lists.newArrayListWithCapacity(events);
+    List<StreamEvent> clfEvents = Lists.newArrayListWithCapacity(events);
+    for (int i = 0; i < events; i++) {
+      String csv = (1420070400000L + i) + ",user" + (i % 1000) + ",view," + (i % 10) + "," + (i % 100) + ".25,"
+        + (i % 2 == 0) + ",tag1,tag2";
+      csvEvents.add(new StreamEvent(ByteBuffer.wrap(Bytes.toBytes(csv))));
+      String clf = "10.10." + (i % 256) + ".10 - - [01/Feb/2015:06:47:10 +0000] \"GET /page/" + i + " HTTP/1.1\" 200 "
+        + (i % 10000) + " \"http://cdap.io/\" \"Mozilla/5.0 (compatible; AhrefsBot/5.0; +http://ahrefs.com/robot/)\"";
+      clfEvents.add(new StreamEvent(ByteBuffer.wrap(Bytes.toBytes(clf))));
+    }
+
+    RecordFormat<StreamEvent, StructuredRecord> csvFormat = RecordFormats.createInitializedFormat(
+      new FormatSpecification(Formats.CSV, CSV_SCHEMA, Collections.<String, String>emptyMap()));
+    RecordFormat<StreamEvent, StructuredRecord> clfFormat = RecordFormats.createInitializedFormat(
+      new FormatSpecification(Formats.COMBINED_LOG_FORMAT, null, Collections.<String, String>emptyMap()));
+    RecordFormat<StreamEvent, StructuredRecord> grokFormat = RecordFormats.createInitializedFormat(
+      new FormatSpecification(Formats.GROK, null, GrokRecordFormat.settings("%{COMBINEDAPACHELOG}")));
+
+    // the first round warms up
+    for (int round = 0; round <= rounds; round++) {
+      long startTime = System.nanoTime();
+      for (StreamEvent event : csvEvents) {
+        splitAndConvert(event);
+      }
+      long splitTime = System.nanoTime() - startTime;
+      long csvTime = read(csvFormat, csvEvents);
+      long clfTime = read(clfFormat, clfEvents);
+      long grokTime = read(grokFormat, clfEvents);
+
+      if (round > 0) {
+        System.out.printf("round %d: csv split %d events/s, csv %d events/s; clf %d events/s, grok %d events/s%n",
+                          round,
+                          events * TimeUnit.SECONDS.toNanos(1) / splitTime,
+                          events * TimeUnit.SECONDS.toNanos(1) / csvTime,
+                          events * TimeUnit.SECONDS.toNanos(1) / clfTime,
+                          events * TimeUnit.SECONDS.toNanos(1) / grokTime);
+      }
+    }
+  }
+
+  private static long read(RecordFormat<StreamEvent, StructuredRecord> format, List<StreamEvent> events) {
+    long startTime = System.nanoTime();
+    for (StreamEvent event : events) {
+      if (format.read(event) == null) {
+        throw new IllegalStateException("No record read");
+      }
+    }
+    return System.nanoTime() - startTime;
+  }
+
+  /**
+   * Reads a delimited strings record by decoding and splitting the body, as the format used to.
+   */
+  private static StructuredRecord splitAndConvert(StreamEvent event) {
+    String body = Bytes.toString(event.getBody(), Charsets.UTF_8);
+    StructuredRecord.Builder builder = StructuredRecord.builder(CSV_SCHEMA);
+    Iterator<String> values = Splitter.on(",").split(body).iterator();
+    for (Schema.Field field : CSV_SCHEMA.getFields()) {
+      if (field.getSchema().getType() == Schema.Type.ARRAY) {
+        List<String> remaining = Lists.newArrayList(values);
+        builder.set(field.getName(), remaining.toArray(new String[remaining.size()]));
+      } else {
+        String value = values.hasNext() ? values.next() : null;
+        if (value != null && value.isEmpty() && field.getSchema().getType() != Schema.Type.STRING) {
+          value = null;
+        }
+        builder.convertAndSet(field.getName(), value);
+      }
+    }
+    return builder.build();
+  }
+}
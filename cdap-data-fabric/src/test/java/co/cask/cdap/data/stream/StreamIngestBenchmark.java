@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.data.stream;
+
+import co.cask.cdap.api.stream.StreamEventData;
+import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.data.stream.service.ChannelBufferStreamEventData;
+import co.cask.cdap.data.stream.service.MutableStreamEvent;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing large stream events received as Netty {@link ChannelBuffer}s to a stream file by first copying
+ * the body into one {@link java.nio.ByteBuffer} (before) against writing through
+ * {@link ChannelBufferStreamEventData} (after). Request bodies are composed of 8K chunks, as received from the network,
+ * in heap or direct buffers. Reports throughput and bytes allocated per event by the writing thread.
+ * <p>
+ * Usage: {@code StreamIngestBenchmark [eventSize] [events]}
+ */
+public class StreamIngestBenchmark {
+
+  private static final int CHUNK_SIZE = 8192;
+
+  public static void main(String[] args) throws Exception {
+    int eventSize = args.length > 0 ? Integer.parseInt(args[0]) : 4 * 1024 * 1024;
+    int events = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+    File dir = Files.createTempDir();
+    try {
+      for (boolean direct : new boolean[] { false, true }) {
+        ChannelBuffer body = createBody(eventSize, direct);
+        // warm up, then measure
+        for (int round = 0; round < 2; round++) {
+          for (boolean copy : new boolean[] { true, false }) {
+            Result result = run(dir, body, events, copy);
+            if (round == 1) {
+              System.out.printf("%s buffers, %s: %.1f MB/s, %d bytes allocated per event%n",
+                                direct ? "direct" : "heap", copy ? "copy body (before)" : "scattered body (after)",
+                                (double) eventSize * events / result.nanos * TimeUnit.SECONDS.toNanos(1) / 1048576,
+                                result.allocatedBytes / events);
+            }
+          }
+        }
+      }
+    } finally {
+      DirUtils.deleteDirectoryContents(dir);
+    }
+  }
+
+  private static Result run(File dir, ChannelBuffer body, int events, boolean copy) throws Exception {
+    File eventFile = new File(dir, "events.dat");
+    File indexFile = new File(dir, "events.idx");
+    Map<String, String> headers = ImmutableMap.of("content-type", "application/octet-stream");
+
+    long threadId = Thread.currentThread().getId();
+    long startAllocated = getAllocatedBytes(threadId);
+    long startTime = System.nanoTime();
+
+    StreamDataFileWriter writer = new StreamDataFileWriter(Files.newOutputStreamSupplier(eventFile),
+                                                           Files.newOutputStreamSupplier(indexFile), 10000L);
+    try {
+      MutableStreamEvent event = new MutableStreamEvent();
+      for (int i = 0; i < events; i++) {
+        // This is what StreamHandler does with the request content
+        StreamEventData data = copy
+          ? new StreamEventData(headers, body.toByteBuffer())
+          : new ChannelBufferStreamEventData(headers, body);
+        writer.append(event.set(data, i));
+      }
+    } finally {
+      writer.close();
+    }
+
+    return new Result(System.nanoTime() - startTime, getAllocatedBytes(threadId) - startAllocated);
+  }
+
+  private static ChannelBuffer createBody(int size, boolean direct) {
+    ChannelBuffer[] chunks = new ChannelBuffer[(size + CHUNK_SIZE - 1) / CHUNK_SIZE];
+    for (int i = 0; i < chunks.length; i++) {
+      int chunkSize = Math.min(CHUNK_SIZE, size - i * CHUNK_SIZE);
+      chunks[i] = direct ? ChannelBuffers.directBuffer(chunkSize) : ChannelBuffers.buffer(chunkSize);
+      for (int j = 0; j < chunkSize; j++) {
+        chunks[i].writeByte(j);
+      }
+    }
+    return ChannelBuffers.wrappedBuffer(chunks);
+  }
+
+  private static long getAllocatedBytes(long threadId) {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(threadId);
+  }
+
+  private static final class Result {
+    private final long nanos;
+    private final long allocatedBytes;
+
+    Result(long nanos, long allocatedBytes) {
+      this.nanos = nanos;
+      this.allocatedBytes = allocatedBytes;
+    }
+  }
+}
@@ -16,13 +16,32 @@
 
 package co.cask.cdap.data2.dataset2.lib.cube;
 
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
 import co.cask.cdap.api.dataset.lib.cube.Cube;
+import co.cask.cdap.api.dataset.lib.cube.CubeFact;
+import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
+import co.cask.cdap.api.dataset.lib.cube.MeasureType;
+import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
 import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.twill.common.Threads;
+import org.junit.Assert;
+import org.junit.Test;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -45,4 +64,115 @@ public class DefaultCubeTest extends AbstractCubeTest {
 
     return new DefaultCube(resolutions, supplier, aggregations);
   }
+
+  @Test
+  public void testParallelQuery() throws Exception {
+    Map<String, Aggregation> aggregations = ImmutableMap.<String, Aggregation>of(
+      "agg", new DefaultAggregation(ImmutableList.of("dim1", "dim2")));
+    int[] resolutions = new int[] {1, 60};
+
+    ExecutorService executor = Executors.newFixedThreadPool(4, Threads.createDaemonThreadFactory("cube-query-%d"));
+    try {
+      Cube cube = createCube("parallel", resolutions, aggregations, executor, 4);
+      Cube sequentialCube = createCube("parallel", resolutions, aggregations, executor, 1);
+
+      // write two measures every second for 100 minutes, for two values of dim1
+      List<CubeFact> facts = Lists.newArrayList();
+      for (long ts = 0; ts < 6000; ts++) {
+        for (String dim1 : new String[] {"1", "2"}) {
+          facts.add(new CubeFact(ts)
+                      .addDimensionValues(ImmutableMap.of("dim1", dim1, "dim2", "1"))
+                      .addMeasurement("metric1", MeasureType.COUNTER, 1)
+                      .addMeasurement("metric2", MeasureType.COUNTER, ts));
+        }
+      }
+      cube.add(facts);
+
+      // long time range is split into parallel scans
+      CubeQuery query = CubeQuery.builder()
+        .select()
+          .measurement("metric1", AggregationFunction.SUM)
+          .measurement("metric2", AggregationFunction.MAX)
+        .from(null).resolution(1, TimeUnit.SECONDS)
+        .where()
+          .dimension("dim2", "1")
+          .timeRange(10, 5990)
+        .groupBy()
+          .dimension("dim1")
+        .limit(Integer.MAX_VALUE)
+        .build();
+
+      Collection<TimeSeries> result = cube.query(query);
+      Assert.assertEquals(4, result.size());
+      for (TimeSeries timeSeries : result) {
+        List<TimeValue> timeValues = timeSeries.getTimeValues();
+        Assert.assertEquals(5981, timeValues.size());
+        for (int i = 0; i < timeValues.size(); i++) {
+          long ts = 10 + i;
+          long expected = "metric1".equals(timeSeries.getMeasureName()) ? 1 : ts;
+          Assert.assertEquals(new TimeValue(ts, expected), timeValues.get(i));
+        }
+      }
+      Assert.assertEquals(Sets.newHashSet(sequentialCube.query(query)), Sets.newHashSet(result));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testQueryCoarserResolution() throws Exception {
+    Map<String, Aggregation> aggregations = ImmutableMap.<String, Aggregation>of(
+      "agg", new DefaultAggregation(ImmutableList.of("dim1", "dim2", "dim3")));
+    Cube cube = createCube("resolutions", new int[] {1, 60, Integer.MAX_VALUE}, aggregations,
+                           MoreExecutors.sameThreadExecutor(), 1);
+
+    // value of 1 every second for 10 minutes
+    for (long ts = 0; ts < 600; ts++) {
+      writeInc(cube, "metric1", ts, 1, "1", "1", "1");
+    }
+
+    // 5 minutes and 2 minutes resolutions are served by aggregating the 1 minute resolution
+    verifyCountQuery(cube, 0, 599, 300, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", ImmutableMap.<String, String>of(),
+                                                     timeValues(0, 300, 300, 300))));
+    verifyCountQuery(cube, 120, 599, 120, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", ImmutableMap.<String, String>of(),
+                                                     timeValues(120, 120, 240, 120, 360, 120, 480, 120))));
+    // 10 seconds resolution is served by aggregating the 1 second resolution
+    verifyCountQuery(cube, 5, 29, 10, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", ImmutableMap.<String, String>of(),
+                                                     timeValues(0, 5, 10, 10, 20, 10))));
+
+    // resolution finer than any fact table is not supported
+    cube = createCube("resolutions", new int[] {60, Integer.MAX_VALUE}, aggregations,
+                      MoreExecutors.sameThreadExecutor(), 1);
+    try {
+      verifyCountQuery(cube, 0, 599, 30, "metric1", AggregationFunction.SUM,
+                       ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(), ImmutableList.<TimeSeries>of());
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Creates a {@link DefaultCube} with a separate fact table for each resolution.
+   */
+  private Cube createCube(final String name, int[] resolutions, Map<String, ? extends Aggregation> aggregations,
+                          ExecutorService queryExecutor, int queryParallelism) {
+    FactTableSupplier supplier = new FactTableSupplier() {
+      @Override
+      public FactTable get(int resolution, int rollTime) {
+        InMemoryTableService.create(name + ".entity");
+        InMemoryTableService.create(name + ".data." + resolution);
+        return new FactTable(new InMemoryMetricsTable(name + ".data." + resolution),
+                             new EntityTable(new InMemoryMetricsTable(name + ".entity")),
+                             resolution, rollTime);
+      }
+    };
+    return new DefaultCube(resolutions, supplier, aggregations, queryExecutor, queryParallelism);
+  }
 }
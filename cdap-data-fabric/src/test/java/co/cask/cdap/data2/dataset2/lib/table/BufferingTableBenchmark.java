@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.table.ConflictDetection;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
+import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.tephra.Transaction;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Compares the {@link BufferingTable.WriteBufferType}s of {@link BufferingTable} by the number of bytes allocated per
+ * transaction, the heap retained by the buffer right before commit (which is what the garbage collector has to
+ * copy while the transaction is running) and by the commit latency. Persisting is a no-op that walks all changes,
+ * so that only the cost of buffering is measured.
+ * <p>
+ * Usage: {@code BufferingTableBenchmark [cellsPerTx] [transactions]}
+ */
+public class BufferingTableBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int cells = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int transactions = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+    for (BufferingTable.WriteBufferType type : BufferingTable.WriteBufferType.values()) {
+      // warm up
+      run(type, cells, 5);
+    }
+    for (BufferingTable.WriteBufferType type : BufferingTable.WriteBufferType.values()) {
+      run(type, cells, transactions);
+    }
+  }
+
+  private static void run(BufferingTable.WriteBufferType type, int cells, int transactions) throws Exception {
+    NoOpTable table = new NoOpTable(type);
+    byte[][] columns = new byte[][] { Bytes.toBytes("c1"), Bytes.toBytes("c2") };
+    byte[][] values = new byte[][] { Bytes.toBytes(1L), Bytes.toBytes(2L) };
+
+    long allocated = 0;
+    long retained = 0;
+    long gcAllocated = 0;
+    long writeNanos = 0;
+    long commitNanos = 0;
+    long baseHeap = getUsedHeap();
+    for (int i = 0; i < transactions; i++) {
+      long startAllocated = getAllocatedBytes();
+      long startTime = System.nanoTime();
+      table.startTx(new Transaction(i, i + 1, new long[0], new long[0], Transaction.NO_TX_IN_PROGRESS));
+      for (int j = 0; j < cells / columns.length; j++) {
+        // spread rows to not write them in order
+        table.put(Bytes.toBytes(Integer.reverse(j)), columns, values);
+      }
+      long commitStart = System.nanoTime();
+      if (i == transactions - 1) {
+        // only measured once, as it requires a full gc
+        long beforeGc = getAllocatedBytes();
+        retained = getUsedHeap() - baseHeap;
+        gcAllocated = getAllocatedBytes() - beforeGc;
+        commitStart = System.nanoTime();
+      }
+      table.getTxChanges();
+      table.commitTx();
+      table.postTxCommit();
+      long endTime = System.nanoTime();
+
+      allocated += getAllocatedBytes() - startAllocated - (i == transactions - 1 ? gcAllocated : 0);
+      writeNanos += commitStart - startTime;
+      commitNanos += endTime - commitStart;
+    }
+
+    System.out.printf("%-14s cells/tx: %d, allocated/tx: %,d bytes, retained before commit: %,d bytes, " +
+                        "write/tx: %d ms, commit/tx: %d ms%n",
+                      type, cells, allocated / transactions, retained,
+                      TimeUnit.NANOSECONDS.toMillis(writeNanos / transactions),
+                      TimeUnit.NANOSECONDS.toMillis(commitNanos / transactions));
+  }
+
+  private static long getUsedHeap() {
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static long getAllocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+      .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * A {@link BufferingTable} that keeps nothing.
+   */
+  private static final class NoOpTable extends BufferingTable {
+
+    private long persisted;
+
+    NoOpTable(WriteBufferType type) {
+      super("benchmark", ConflictDetection.ROW, false, null, null, type);
+    }
+
+    @Override
+    protected void persist(NavigableMap<byte[], NavigableMap<byte[], Update>> buff) throws Exception {
+      for (Map.Entry<byte[], NavigableMap<byte[], Update>> row : buff.entrySet()) {
+        persisted += row.getValue().size();
+      }
+    }
+
+    @Override
+    protected void undo(NavigableMap<byte[], NavigableMap<byte[], Update>> persisted) throws Exception {
+      // no-op
+    }
+
+    @Override
+    protected NavigableMap<byte[], byte[]> getPersisted(byte[] row, @Nullable byte[][] columns) throws Exception {
+      return EMPTY_ROW_MAP;
+    }
+
+    @Override
+    protected NavigableMap<byte[], byte[]> getPersisted(byte[] row, byte[] startColumn, byte[] stopColumn,
+                                                        int limit) throws Exception {
+      return EMPTY_ROW_MAP;
+    }
+
+    @Override
+    protected Scanner scanPersisted(Scan scan) throws Exception {
+      return new Scanner() {
+        @Nullable
+        @Override
+        public Row next() {
+          return null;
+        }
+
+        @Override
+        public void close() {
+          // no-op
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Tests for {@link CellLog}.
+ */
+public class CellLogTest {
+
+  @Test
+  public void testHeap() {
+    testLog(new CellLog(false));
+  }
+
+  @Test
+  public void testDirect() {
+    testLog(new CellLog(true));
+  }
+
+  @Test
+  public void testMatchesMapBuffer() {
+    // apply the same random changes to a log and to a map with Updates.mergeUpdates() and compare
+    Random random = new Random(0);
+    CellLog log = new CellLog(false);
+    for (int tx = 0; tx < 3; tx++) {
+      log.clear();
+      NavigableMap<byte[], NavigableMap<byte[], Update>> expected = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      for (int i = 0; i < 20000; i++) {
+        byte[] row = Bytes.toBytes("r" + random.nextInt(500));
+        byte[] column = Bytes.toBytes("c" + random.nextInt(10));
+        Update update;
+        int op = random.nextInt(3);
+        if (op == 0) {
+          long value = random.nextInt(100);
+          log.appendPut(row, column, Bytes.toBytes(value));
+          update = new PutValue(Bytes.toBytes(value));
+        } else if (op == 1) {
+          log.appendPut(row, column, null);
+          update = new PutValue(null);
+        } else {
+          long amount = random.nextInt(10);
+          log.appendIncrement(row, column, amount);
+          update = new IncrementValue(amount);
+        }
+        NavigableMap<byte[], Update> columns = expected.get(row);
+        if (columns == null) {
+          columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+          expected.put(row, columns);
+        }
+        columns.put(column, Updates.mergeUpdates(columns.get(column), update));
+
+        // reading in between appends must not change the result, whether the log gets sorted or not
+        if (i % 500 == 0) {
+          assertSameRow(expected.get(row), log.getRow(row));
+        }
+      }
+      assertSameRows(expected, log.toMap(null, null));
+    }
+  }
+
+  private void testLog(CellLog log) {
+    Assert.assertTrue(log.isEmpty());
+    Assert.assertNull(log.getRow(Bytes.toBytes("r1")));
+
+    log.appendPut(Bytes.toBytes("r2"), Bytes.toBytes("c1"), Bytes.toBytes("v1"));
+    log.appendPut(Bytes.toBytes("r1"), Bytes.toBytes("c2"), Bytes.toBytes("v2"));
+    log.appendPut(Bytes.toBytes("r1"), Bytes.toBytes("c1"), Bytes.toBytes("v3"));
+    log.appendIncrement(Bytes.toBytes("r3"), Bytes.toBytes("c1"), 5L);
+    Assert.assertFalse(log.isEmpty());
+
+    // reading a row finds the cells that are not sorted yet
+    NavigableMap<byte[], Update> row1 = log.getRow(Bytes.toBytes("r1"));
+    Assert.assertEquals(2, row1.size());
+    Assert.assertArrayEquals(Bytes.toBytes("v3"), ((PutValue) row1.get(Bytes.toBytes("c1"))).getValue());
+    Assert.assertArrayEquals(Bytes.toBytes("v2"), ((PutValue) row1.get(Bytes.toBytes("c2"))).getValue());
+
+    log.appendPut(Bytes.toBytes("r1"), Bytes.toBytes("c1"), null);
+    log.appendIncrement(Bytes.toBytes("r3"), Bytes.toBytes("c1"), 7L);
+    log.appendPut(Bytes.toBytes("r2"), Bytes.toBytes("c1"), Bytes.toBytes(10L));
+    log.appendIncrement(Bytes.toBytes("r2"), Bytes.toBytes("c1"), 2L);
+    Assert.assertEquals(12L, Bytes.toLong(log.getRow(Bytes.toBytes("r2")).get(Bytes.toBytes("c1")).getBytes()));
+
+    // sorting merges the later appends with the sorted cells
+    Assert.assertEquals(4, log.sortedSize());
+    Assert.assertArrayEquals(Bytes.toBytes("r1"), log.getRow(0));
+    Assert.assertArrayEquals(Bytes.toBytes("c1"), log.getColumn(0));
+    Assert.assertTrue(log.isSameRow(0, 1));
+    Assert.assertFalse(log.isSameRow(1, 2));
+
+    // scanning sorts the cells appended since
+    log.appendIncrement(Bytes.toBytes("r3"), Bytes.toBytes("c1"), 1L);
+    log.appendIncrement(Bytes.toBytes("r3"), Bytes.toBytes("c1"), -1L);
+
+    NavigableMap<byte[], NavigableMap<byte[], Update>> all = log.toMap(null, null);
+    Assert.assertEquals(3, all.size());
+    Assert.assertNull(((PutValue) all.get(Bytes.toBytes("r1")).get(Bytes.toBytes("c1"))).getValue());
+    byte[] incrementedPut = ((PutValue) all.get(Bytes.toBytes("r2")).get(Bytes.toBytes("c1"))).getValue();
+    Assert.assertEquals(12L, Bytes.toLong(incrementedPut));
+    Assert.assertEquals(12L, ((IncrementValue) all.get(Bytes.toBytes("r3")).get(Bytes.toBytes("c1"))).getValue()
+      .longValue());
+
+    NavigableMap<byte[], NavigableMap<byte[], Update>> range = log.toMap(Bytes.toBytes("r2"), Bytes.toBytes("r3"));
+    Assert.assertEquals(1, range.size());
+    Assert.assertArrayEquals(Bytes.toBytes("r2"), range.firstKey());
+
+    // large values should get a chunk of their own
+    byte[] large = new byte[1024 * 1024];
+    log.appendPut(Bytes.toBytes("r4"), Bytes.toBytes("c1"), large);
+    Assert.assertArrayEquals(large, ((PutValue) log.getRow(Bytes.toBytes("r4")).get(Bytes.toBytes("c1"))).getValue());
+
+    long arenaSize = log.getArenaSize();
+    log.clear();
+    Assert.assertTrue(log.isEmpty());
+    Assert.assertNull(log.getRow(Bytes.toBytes("r1")));
+    // arena is reused
+    Assert.assertEquals(arenaSize, log.getArenaSize());
+    log.appendPut(Bytes.toBytes("r1"), Bytes.toBytes("c1"), Bytes.toBytes("v1"));
+    Assert.assertEquals(arenaSize, log.getArenaSize());
+  }
+
+  private void assertSameRows(NavigableMap<byte[], NavigableMap<byte[], Update>> expected,
+                              NavigableMap<byte[], NavigableMap<byte[], Update>> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (Map.Entry<byte[], NavigableMap<byte[], Update>> entry : expected.entrySet()) {
+      assertSameRow(entry.getValue(), actual.get(entry.getKey()));
+    }
+  }
+
+  private void assertSameRow(NavigableMap<byte[], Update> expected, NavigableMap<byte[], Update> actual) {
+    Assert.assertNotNull(actual);
+    Assert.assertEquals(expected.size(), actual.size());
+    for (Map.Entry<byte[], Update> entry : expected.entrySet()) {
+      Update actualUpdate = actual.get(entry.getKey());
+      Assert.assertNotNull(actualUpdate);
+      Assert.assertEquals(entry.getValue().getClass(), actualUpdate.getClass());
+      Assert.assertArrayEquals(entry.getValue().getBytes(), actualUpdate.getBytes());
+    }
+  }
+}
@@ -1048,6 +1048,63 @@ public abstract class TableTest<T extends Table> {
     }
   }
 
+  @Test
+  public void testMultiGetWithBufferedChanges() throws Exception {
+    String testMultiGet = "testMultiGetBuffered";
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, testMultiGet);
+    admin.create();
+    try {
+      Transaction tx = txClient.startShort();
+      Table table = getTable(CONTEXT1, testMultiGet);
+      ((TransactionAware) table).startTx(tx);
+      for (int i = 0; i < 10; i++) {
+        table.put(new Put(Bytes.toBytes("r" + i)).add(C1, V1).add(C2, L4));
+      }
+      Assert.assertTrue(txClient.canCommit(tx, ((TransactionAware) table).getTxChanges()));
+      Assert.assertTrue(((TransactionAware) table).commitTx());
+      Assert.assertTrue(txClient.commit(tx));
+
+      // changes made in the same tx must be visible to multi-get, same as to single gets
+      Transaction tx2 = txClient.startShort();
+      ((TransactionAware) table).startTx(tx2);
+      table.put(R1, C1, V2);
+      table.delete(Bytes.toBytes("r2"), C1);
+      table.increment(Bytes.toBytes("r3"), C2, 1L);
+      table.put(Bytes.toBytes("r10"), C3, V3);
+      table.delete(Bytes.toBytes("r4"));
+
+      List<Get> gets = Lists.newArrayList();
+      for (int i = 10; i >= 0; i--) {
+        gets.add(new Get(Bytes.toBytes("r" + i)));
+        gets.add(new Get(Bytes.toBytes("r" + i), C1, C2, C3));
+        gets.add(new Get(Bytes.toBytes("r" + i), C1));
+        gets.add(new Get(Bytes.toBytes("r" + i), C2));
+      }
+      // row that does not exist
+      gets.add(new Get(Bytes.toBytes("r100")));
+
+      List<Row> results = table.get(gets);
+      Assert.assertEquals(gets.size(), results.size());
+      for (int i = 0; i < gets.size(); i++) {
+        Row expected = table.get(gets.get(i));
+        Row actual = results.get(i);
+        Assert.assertArrayEquals(gets.get(i).getRow(), actual.getRow());
+        Assert.assertEquals(expected.getColumns().size(), actual.getColumns().size());
+        for (Map.Entry<byte[], byte[]> column : expected.getColumns().entrySet()) {
+          Assert.assertArrayEquals(column.getValue(), actual.get(column.getKey()));
+        }
+      }
+      Assert.assertArrayEquals(V2, results.get(4 * 9 + 2).get(C1));
+      Assert.assertEquals(5L, Bytes.toLong(results.get(4 * 7 + 3).get(C2)));
+      Assert.assertTrue(results.get(4 * 6).isEmpty());
+      Assert.assertArrayEquals(V3, results.get(0).get(C3));
+      Assert.assertTrue(results.get(results.size() - 1).isEmpty());
+      Assert.assertTrue(txClient.commit(tx2));
+    } finally {
+      admin.drop();
+    }
+  }
+
   @Test
   public void testScanAndDelete() throws Exception {
     DatasetAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE);
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table.leveldb;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.DatasetContext;
+import co.cask.cdap.api.dataset.table.ConflictDetection;
+import co.cask.cdap.api.dataset.table.Get;
+import co.cask.cdap.api.dataset.table.Put;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.PrefixedNamespaces;
+import co.cask.tephra.Transaction;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a batch of rows from a {@link LevelDBTable} with {@link LevelDBTable#get(List)} against reading
+ * them with one {@link LevelDBTable#get(Get)} per row. A quarter of the rows are changed in the reading transaction,
+ * so that both buffered and persisted rows are read.
+ * <p>
+ * Usage: {@code LevelDBMultiGetBenchmark [rows] [batchSize] [batches]}
+ */
+public class LevelDBMultiGetBenchmark {
+
+  private static final byte[] COLUMN = Bytes.toBytes("c");
+
+  public static void main(String[] args) throws Exception {
+    int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    int batches = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+    File dir = Files.createTempDir();
+    try {
+      CConfiguration cConf = CConfiguration.create();
+      cConf.set(Constants.CFG_DATA_LEVELDB_DIR, dir.getAbsolutePath());
+      LevelDBTableService service = new LevelDBTableService();
+      service.setConfiguration(cConf);
+      DatasetContext context = DatasetContext.from("benchmark");
+      service.ensureTableExists(PrefixedNamespaces.namespace(cConf, context.getNamespaceId(), "table"));
+      LevelDBTable table = new LevelDBTable(context, "table", ConflictDetection.ROW, service, cConf, null, null);
+
+      long txId = 1;
+      table.startTx(newTx(txId++));
+      for (int i = 0; i < rows; i++) {
+        table.put(new Put(Bytes.toBytes(i)).add(COLUMN, Bytes.toBytes((long) i)));
+      }
+      table.commitTx();
+      table.postTxCommit();
+
+      Random random = new Random(0);
+      // warm up, then measure
+      for (int round = 0; round < 2; round++) {
+        long singleNanos = 0;
+        long batchNanos = 0;
+        for (int batch = 0; batch < batches; batch++) {
+          List<Get> gets = Lists.newArrayListWithCapacity(batchSize);
+          for (int i = 0; i < batchSize; i++) {
+            gets.add(new Get(Bytes.toBytes(random.nextInt(rows)), COLUMN));
+          }
+          table.startTx(newTx(txId++));
+          for (int i = 0; i < batchSize / 4; i++) {
+            table.put(gets.get(i).getRow(), COLUMN, Bytes.toBytes(-1L));
+          }
+          Collections.shuffle(gets, random);
+
+          long start = System.nanoTime();
+          List<Row> batchResult = table.get(gets);
+          batchNanos += System.nanoTime() - start;
+
+          start = System.nanoTime();
+          for (Get get : gets) {
+            table.get(get);
+          }
+          singleNanos += System.nanoTime() - start;
+
+          if (batchResult.size() != gets.size()) {
+            throw new IllegalStateException("Expected " + gets.size() + " rows, got " + batchResult.size());
+          }
+          table.rollbackTx();
+        }
+        if (round > 0) {
+          long total = (long) batchSize * batches;
+          System.out.printf("rows: %d, batch size: %d, single gets: %d rows/s, multi-get: %d rows/s%n",
+                            rows, batchSize,
+                            total * TimeUnit.SECONDS.toNanos(1) / singleNanos,
+                            total * TimeUnit.SECONDS.toNanos(1) / batchNanos);
+        }
+      }
+      table.close();
+      service.dropTable(PrefixedNamespaces.namespace(cConf, context.getNamespaceId(), "table"));
+    } finally {
+      DirUtils.deleteDirectoryContents(dir);
+    }
+  }
+
+  private static Transaction newTx(long txId) {
+    return new Transaction(txId, txId, new long[0], new long[0], Transaction.NO_TX_IN_PROGRESS);
+  }
+}
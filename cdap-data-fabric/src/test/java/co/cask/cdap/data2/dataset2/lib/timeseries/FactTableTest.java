@@ -505,6 +505,52 @@ public class FactTableTest {
     }
   }
 
+  @Test
+  public void testPreAggregation() throws Exception {
+    InMemoryTableService.create("PreAggEntityTable");
+    InMemoryTableService.create("PreAggDataTable");
+    int resolution = 10;
+
+    FactTable table = new FactTable(new InMemoryMetricsTable("PreAggDataTable"),
+                                    new EntityTable(new InMemoryMetricsTable("PreAggEntityTable")),
+                                    resolution, 3600);
+
+    long ts = ((System.currentTimeMillis() / 1000) / resolution) * resolution;
+
+    // Facts in one batch that fall into the same cells: counters are summed, the last gauge value is kept
+    List<Fact> facts = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      // Two facts per resolution bucket
+      long factTs = ts + (i / 2) * resolution + i % 2;
+      facts.add(new Fact(factTs, dimValues("dim1", "value1", "dim2", "value2"),
+                         ImmutableList.of(new Measurement("count", MeasureType.COUNTER, i),
+                                          new Measurement("gauge", MeasureType.GAUGE, i))));
+      facts.add(new Fact(factTs, dimValues("dim1", "value1", "dim2", "other"),
+                         new Measurement("count", MeasureType.COUNTER, 1)));
+    }
+    table.add(facts);
+    // Adding another batch increments the counters
+    table.add(ImmutableList.of(new Fact(ts, dimValues("dim1", "value1", "dim2", "value2"),
+                                        new Measurement("count", MeasureType.COUNTER, 100))));
+
+    long[] counts = new long[10];
+    long[] gauges = new long[10];
+    long[] others = new long[10];
+    for (int i = 0; i < 10; i++) {
+      counts[i] = 4 * i + 1;
+      gauges[i] = 2 * i + 1;
+      others[i] = 2;
+    }
+    counts[0] += 100;
+
+    Table<String, List<DimensionValue>, List<TimeValue>> expected = HashBasedTable.create();
+    expected.put("count", dimValues("dim1", "value1", "dim2", "value2"), timeValues(ts, resolution, counts));
+    expected.put("count", dimValues("dim1", "value1", "dim2", "other"), timeValues(ts, resolution, others));
+    expected.put("gauge", dimValues("dim1", "value1", "dim2", "value2"), timeValues(ts, resolution, gauges));
+    assertScan(table, expected, new FactScan(ts, ts + 10 * resolution, ImmutableList.of("count", "gauge"),
+                                             dimValues("dim1", "value1", "dim2", null)));
+  }
+
   private List<TimeValue> timeValues(long ts, int resolution, long... values) {
     List<TimeValue> timeValues = Lists.newArrayList();
     for (int i = 0; i < values.length; i++) {
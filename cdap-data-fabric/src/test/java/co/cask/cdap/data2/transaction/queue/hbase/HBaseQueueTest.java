@@ -607,6 +607,58 @@ public abstract class HBaseQueueTest extends QueueTest {
     Assert.assertEquals(ImmutableList.of(0, 1, 2, 3, 4, 5), dequeued.get(0));
   }
 
+  @Test (timeout = 120000L)
+  public void testDequeuePrefetch() throws Exception {
+    long prefetchMaxBytes = cConf.getLong(QueueConstants.ConfigKeys.DEQUEUE_PREFETCH_MAX_BYTES,
+                                          QueueConstants.DEFAULT_DEQUEUE_PREFETCH_MAX_BYTES);
+    try {
+      // Dequeue the same number of entries with and without prefetching
+      for (long maxBytes : new long[] { 0L, 8 * 1024 * 1024L }) {
+        cConf.setLong(QueueConstants.ConfigKeys.DEQUEUE_PREFETCH_MAX_BYTES, maxBytes);
+        QueueName queueName = QueueName.fromFlowlet(Constants.DEFAULT_NAMESPACE, "app", "prefetchflow", "flowlet",
+                                                    "queue" + maxBytes);
+        ConsumerGroupConfig groupConfig = new ConsumerGroupConfig(0L, 1, DequeueStrategy.FIFO, null);
+        configureGroups(queueName, ImmutableList.of(groupConfig));
+
+        int count = 2000;
+        createEnqueueRunnable(queueName, count, 100, null).run();
+
+        final List<Integer> dequeued = Lists.newArrayListWithCapacity(count);
+        final QueueConsumer consumer = queueClientFactory.createConsumer(queueName,
+                                                                         new ConsumerConfig(groupConfig, 0), 1);
+        try {
+          TransactionExecutor txExecutor = Transactions.createTransactionExecutor(executorFactory,
+                                                                                  (TransactionAware) consumer);
+          long startTime = System.nanoTime();
+          int dequeueCount = 0;
+          while (dequeued.size() < count) {
+            txExecutor.execute(new TransactionExecutor.Subroutine() {
+              @Override
+              public void apply() throws Exception {
+                for (byte[] data : consumer.dequeue(10)) {
+                  dequeued.add(Bytes.toInt(data));
+                }
+              }
+            });
+            dequeueCount++;
+          }
+          long elapsed = System.nanoTime() - startTime;
+          LOG.info("Dequeue with prefetch max bytes {}: {} events, {} us per dequeue, {} events/s",
+                   maxBytes, count, elapsed / dequeueCount / 1000, count * 1000000000L / elapsed);
+        } finally {
+          consumer.close();
+        }
+
+        // Each entry is dequeued exactly once, in enqueue order
+        for (int i = 0; i < count; i++) {
+          Assert.assertEquals(i, (int) dequeued.get(i));
+        }
+      }
+    } finally {
+      cConf.setLong(QueueConstants.ConfigKeys.DEQUEUE_PREFETCH_MAX_BYTES, prefetchMaxBytes);
+    }
+  }
+
   @Override
   protected void verifyConsumerConfigExists(QueueName... queueNames) throws Exception {
     for (QueueName queueName : queueNames) {
@@ -344,7 +344,8 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
   }
 
   /**
-   * Result iterator which polls Explore service using HTTP to get next results.
+   * Result iterator which gets the results from the Explore service using HTTP, either as a stream of results or by
+   * polling for the next results.
    */
   private static final class ClientExploreExecutionResult extends AbstractIterator<QueryResult>
     implements ExploreExecutionResult {
@@ -353,6 +354,9 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
 
     private int fetchSize = DEFAULT_FETCH_SIZE;
     private Iterator<QueryResult> delegate;
+    // The results are streamed, unless the Explore service does not support it, in which case they are paged
+    private QueryResultStream stream;
+    private boolean paged;
     private List<ColumnDesc> resultSchema = null;
 
     private final ExploreHttpClient exploreClient;
@@ -380,17 +384,19 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
         return delegate.next();
       }
       try {
-        // call the endpoint 'next' to get more results and set delegate
-        List<QueryResult> nextResults = convertRows(exploreClient.nextResults(handle, fetchSize));
+        // get more results from the stream, or call the endpoint 'next', and set delegate
+        List<QueryResult> nextResults = convertRows(fetchNextResults());
         delegate = nextResults.iterator();
 
         // At this point, if delegate has no result, there are no more results at all
         if (!delegate.hasNext()) {
+          closeStream();
           return endOfData();
         }
         return delegate.next();
       } catch (ExploreException e) {
         LOG.error("Exception while iterating through the results of query {}", handle.getHandle(), e);
+        closeStream();
         throw Throwables.propagate(e);
       } catch (HandleNotFoundException e) {
         // Handle may have timed out, or the handle given is just unknown
@@ -399,6 +405,24 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
       }
     }
 
+    private List<QueryResult> fetchNextResults() throws ExploreException, HandleNotFoundException {
+      if (stream == null && !paged) {
+        // Stream the results if the Explore service supports it, otherwise page through them
+        stream = exploreClient.streamResults(handle, fetchSize);
+        paged = stream == null;
+      }
+      return paged ? exploreClient.nextResults(handle, fetchSize) : stream.next();
+    }
+
+    private void closeStream() {
+      if (stream != null) {
+        stream.close();
+        stream = null;
+        // the stream has returned all the results
+        paged = true;
+      }
+    }
+
     private List<QueryResult> convertRows(List<QueryResult> rows) throws ExploreException {
       List<ColumnDesc> schema = getResultSchema();
       ImmutableList.Builder<QueryResult> builder = ImmutableList.builder();
@@ -412,6 +436,11 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
           Object columnValue = rowIterator.next();
           ColumnDesc schemaColumn = schemaIterator.next();
           String columnType = schemaColumn.getType();
+          if (columnValue instanceof Float) {
+            // Streamed results contain FLOAT values as Float, whereas GSon deserializes them as Double.
+            // Both are returned as the Double that GSon gives for the same value.
+            columnValue = Double.valueOf(columnValue.toString());
+          }
           if (columnValue != null && columnValue instanceof Double && columnType != null) {
             if (schemaColumn.getType().equals("INT")) {
               columnValue = ((Double) columnValue).intValue();
@@ -422,9 +451,9 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
             } else if (schemaColumn.getType().equals("TINYINT")) {
               columnValue = ((Double) columnValue).byteValue();
             }
-          } else if ("BINARY".equals(columnType)) {
+          } else if ("BINARY".equals(columnType) && !(columnValue instanceof byte[])) {
             // A BINARY value is a byte array, which is deserialized by GSon into a list of
-            // double objects - here we recreate a byte[] object.
+            // double objects - here we recreate a byte[] object. Streamed results contain the byte[] object.
             List<Object> binary;
             if (columnValue instanceof List) {
               binary = (List) columnValue;
@@ -462,6 +491,7 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
 
     @Override
     public void close() throws IOException {
+      closeStream();
       try {
         exploreClient.close(handle);
       } catch (HandleNotFoundException e) {
@@ -44,6 +44,7 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
 import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonSyntaxException;
@@ -52,6 +53,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
@@ -206,6 +208,52 @@ abstract class ExploreHttpClient implements Explore {
     throw new ExploreException("Cannot get next results. Reason: " + getDetails(response));
   }
 
+  /**
+   * Opens a stream of the remaining results of a query, which the Explore service fetches ahead of the reader and
+   * sends in pages of the given size as they are fetched.
+   *
+   * @param handle handle of the query
+   * @param size number of rows in a page
+   * @return the stream of results, or null if the Explore service does not support streaming results, or the
+   *         handle is not found, in which case {@link #nextResults(QueryHandle, int)} should be used instead
+   * @throws ExploreException on any error opening the stream
+   */
+  @Nullable
+  QueryResultStream streamResults(QueryHandle handle, int size) throws ExploreException {
+    String resolvedUrl = resolve(String.format("data/explore/queries/%s/%s", handle.getHandle(), "results"));
+    HttpURLConnection connection = null;
+    try {
+      connection = (HttpURLConnection) new URL(resolvedUrl).openConnection();
+      connection.setRequestMethod("POST");
+      if (getAuthorizationToken() != null && !getAuthorizationToken().isEmpty()) {
+        connection.setRequestProperty("Authorization", "Bearer " + getAuthorizationToken());
+      }
+      connection.setDoOutput(true);
+      connection.getOutputStream().write(GSON.toJson(ImmutableMap.of("size", size)).getBytes(Charsets.UTF_8));
+
+      int responseCode = connection.getResponseCode();
+      if (responseCode == HttpURLConnection.HTTP_OK) {
+        return new QueryResultStream(handle, connection);
+      }
+      InputStream errorStream = connection.getErrorStream();
+      String message = String.format("Response code: %s, message:'%s', body: '%s'",
+                                     responseCode, connection.getResponseMessage(),
+                                     errorStream == null ?
+                                       "null" : new String(ByteStreams.toByteArray(errorStream), Charsets.UTF_8));
+      connection.disconnect();
+      if (responseCode == HttpURLConnection.HTTP_NOT_FOUND || responseCode == HttpURLConnection.HTTP_BAD_METHOD) {
+        return null;
+      }
+      throw new ExploreException("Cannot stream results. Reason: " + message);
+    } catch (IOException e) {
+      if (connection != null) {
+        connection.disconnect();
+      }
+      throw new ExploreException(String.format("Error connecting to Explore Service at %s while streaming results",
+                                               resolvedUrl), e);
+    }
+  }
+
   @Override
   public List<QueryResult> previewResults(QueryHandle handle)
     throws ExploreException, HandleNotFoundException, SQLException {
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.explore.client;
+
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.explore.service.ExploreException;
+import co.cask.cdap.explore.utils.QueryResultCodec;
+import co.cask.cdap.proto.QueryHandle;
+import co.cask.cdap.proto.QueryResult;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closeables;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.List;
+
+/**
+ * The results of a query streamed by the results endpoint of the Explore service, in the encoding of
+ * {@link QueryResultCodec}. The pages are read with {@link #next()} as they arrive, until it returns an empty page.
+ */
+final class QueryResultStream implements Closeable {
+  private final QueryHandle handle;
+  private final HttpURLConnection connection;
+  private final InputStream input;
+  private final BinaryDecoder decoder;
+  private boolean done;
+
+  QueryResultStream(QueryHandle handle, HttpURLConnection connection) throws IOException {
+    this.handle = handle;
+    this.connection = connection;
+    this.input = new BufferedInputStream(connection.getInputStream());
+    this.decoder = new BinaryDecoder(input);
+  }
+
+  /**
+   * Returns the next page of results, waiting for it to arrive if needed.
+   *
+   * @return the next page of results, which is empty when all the results have been read
+   * @throws ExploreException if the results cannot be read, or fetching them failed in the Explore service
+   */
+  List<QueryResult> next() throws ExploreException {
+    if (done) {
+      return ImmutableList.of();
+    }
+    try {
+      List<QueryResult> results = QueryResultCodec.decodePage(decoder);
+      done = results.isEmpty();
+      return results;
+    } catch (IOException e) {
+      done = true;
+      throw new ExploreException("Failed to read the results of query " + handle.getHandle(), e);
+    } catch (ExploreException e) {
+      done = true;
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() {
+    Closeables.closeQuietly(input);
+    connection.disconnect();
+  }
+}
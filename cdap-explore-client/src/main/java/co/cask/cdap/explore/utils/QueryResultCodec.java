@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.explore.utils;
+
+import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.common.io.Encoder;
+import co.cask.cdap.explore.service.ExploreException;
+import co.cask.cdap.proto.QueryResult;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Binary encoding of the query results streamed by the results endpoint of the Explore service.
+ * <p>
+ * The results are a sequence of pages. A page is the number of rows, followed by the rows. A row is the number of
+ * columns, followed by the columns, each of which is a type tag followed by the value. The results end with an empty
+ * page. If fetching the results fails after the response has started, the results end with a page of size -1,
+ * followed by the error message.
+ */
+public final class QueryResultCodec {
+
+  public static final String CONTENT_TYPE = "application/octet-stream";
+
+  private static final Gson GSON = new Gson();
+
+  private static final int NULL = 0;
+  private static final int BOOLEAN = 1;
+  private static final int BYTE = 2;
+  private static final int SHORT = 3;
+  private static final int INT = 4;
+  private static final int LONG = 5;
+  private static final int FLOAT = 6;
+  private static final int DOUBLE = 7;
+  private static final int STRING = 8;
+  private static final int BYTES = 9;
+  // any other value is encoded as its json
+  private static final int JSON = 10;
+
+  private static final int ERROR = -1;
+
+  private QueryResultCodec() {
+  }
+
+  /**
+   * Encodes a page of rows. An empty page ends the results.
+   */
+  public static void encodePage(List<QueryResult> rows, Encoder encoder) throws IOException {
+    encoder.writeInt(rows.size());
+    for (QueryResult row : rows) {
+      List<Object> columns = row.getColumns();
+      encoder.writeInt(columns.size());
+      for (Object column : columns) {
+        encodeValue(column, encoder);
+      }
+    }
+  }
+
+  /**
+   * Encodes the error that ends the results.
+   */
+  public static void encodeError(String message, Encoder encoder) throws IOException {
+    encoder.writeInt(ERROR);
+    encoder.writeString(message == null ? "" : message);
+  }
+
+  /**
+   * Decodes the next page of rows.
+   *
+   * @return the rows of the page, which is empty at the end of the results
+   * @throws ExploreException if the results end with an error
+   */
+  public static List<QueryResult> decodePage(Decoder decoder) throws IOException, ExploreException {
+    int size = decoder.readInt();
+    if (size == ERROR) {
+      throw new ExploreException("Failed to fetch query results. Reason: " + decoder.readString());
+    }
+    ImmutableList.Builder<QueryResult> rows = ImmutableList.builder();
+    for (int i = 0; i < size; i++) {
+      int columnCount = decoder.readInt();
+      List<Object> columns = Lists.newArrayListWithCapacity(columnCount);
+      for (int j = 0; j < columnCount; j++) {
+        columns.add(decodeValue(decoder));
+      }
+      rows.add(new QueryResult(columns));
+    }
+    return rows.build();
+  }
+
+  private static void encodeValue(Object value, Encoder encoder) throws IOException {
+    if (value == null) {
+      encoder.writeInt(NULL);
+    } else if (value instanceof Boolean) {
+      encoder.writeInt(BOOLEAN).writeBool((Boolean) value);
+    } else if (value instanceof Byte) {
+      encoder.writeInt(BYTE).writeInt((Byte) value);
+    } else if (value instanceof Short) {
+      encoder.writeInt(SHORT).writeInt((Short) value);
+    } else if (value instanceof Integer) {
+      encoder.writeInt(INT).writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      encoder.writeInt(LONG).writeLong((Long) value);
+    } else if (value instanceof Float) {
+      encoder.writeInt(FLOAT).writeFloat((Float) value);
+    } else if (value instanceof Double) {
+      encoder.writeInt(DOUBLE).writeDouble((Double) value);
+    } else if (value instanceof String) {
+      encoder.writeInt(STRING).writeString((String) value);
+    } else if (value instanceof byte[]) {
+      encoder.writeInt(BYTES).writeBytes((byte[]) value);
+    } else {
+      encoder.writeInt(JSON).writeString(GSON.toJson(value));
+    }
+  }
+
+  private static Object decodeValue(Decoder decoder) throws IOException {
+    int tag = decoder.readInt();
+    switch (tag) {
+      case NULL:
+        return null;
+      case BOOLEAN:
+        return decoder.readBool();
+      case BYTE:
+        return (byte) decoder.readInt();
+      case SHORT:
+        return (short) decoder.readInt();
+      case INT:
+        return decoder.readInt();
+      case LONG:
+        return decoder.readLong();
+      case FLOAT:
+        return decoder.readFloat();
+      case DOUBLE:
+        return decoder.readDouble();
+      case STRING:
+        return decoder.readString();
+      case BYTES:
+        ByteBuffer buffer = decoder.readBytes();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+      case JSON:
+        return GSON.fromJson(decoder.readString(), Object.class);
+      default:
+        throw new IOException("Unknown type tag " + tag + " in query results");
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.explore.utils;
+
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.explore.service.ExploreException;
+import co.cask.cdap.proto.QueryResult;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit test for {@link QueryResultCodec}.
+ */
+public class QueryResultCodecTest {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    List<QueryResult> page1 = ImmutableList.of(
+      new QueryResult(Arrays.<Object>asList(null, true, (byte) -3, (short) 300, 70000, Long.MAX_VALUE)),
+      new QueryResult(Arrays.<Object>asList(1.5f, -2.25d, "ünïcode", new byte[] { 0, 1, -1 })),
+      new QueryResult(Arrays.<Object>asList(ImmutableMap.of("key", "value"), ImmutableList.of("a", "b"))));
+    List<QueryResult> page2 = ImmutableList.of(new QueryResult(ImmutableList.<Object>of()));
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    BinaryEncoder encoder = new BinaryEncoder(output);
+    QueryResultCodec.encodePage(page1, encoder);
+    QueryResultCodec.encodePage(page2, encoder);
+    QueryResultCodec.encodePage(ImmutableList.<QueryResult>of(), encoder);
+
+    Decoder decoder = new BinaryDecoder(new ByteArrayInputStream(output.toByteArray()));
+    List<QueryResult> decoded = QueryResultCodec.decodePage(decoder);
+    Assert.assertEquals(3, decoded.size());
+
+    List<Object> columns = decoded.get(0).getColumns();
+    Assert.assertEquals(Arrays.<Object>asList(null, true, (byte) -3, (short) 300, 70000, Long.MAX_VALUE), columns);
+    Assert.assertEquals(Byte.class, columns.get(2).getClass());
+    Assert.assertEquals(Short.class, columns.get(3).getClass());
+
+    columns = decoded.get(1).getColumns();
+    Assert.assertEquals(1.5f, columns.get(0));
+    Assert.assertEquals(-2.25d, columns.get(1));
+    Assert.assertEquals("ünïcode", columns.get(2));
+    Assert.assertArrayEquals(new byte[] { 0, 1, -1 }, (byte[]) columns.get(3));
+
+    // Other values are sent as json, and decoded the same way as results that are paged
+    columns = decoded.get(2).getColumns();
+    Assert.assertEquals(ImmutableMap.of("key", "value"), columns.get(0));
+    Assert.assertEquals(ImmutableList.of("a", "b"), columns.get(1));
+
+    Assert.assertEquals(page2, QueryResultCodec.decodePage(decoder));
+    // An empty page ends the results
+    Assert.assertTrue(QueryResultCodec.decodePage(decoder).isEmpty());
+  }
+
+  @Test
+  public void testError() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    BinaryEncoder encoder = new BinaryEncoder(output);
+    QueryResultCodec.encodePage(ImmutableList.of(new QueryResult(ImmutableList.<Object>of("row"))), encoder);
+    QueryResultCodec.encodeError("Query failed", encoder);
+
+    Decoder decoder = new BinaryDecoder(new ByteArrayInputStream(output.toByteArray()));
+    Assert.assertEquals(ImmutableList.of(new QueryResult(ImmutableList.<Object>of("row"))),
+                        QueryResultCodec.decodePage(decoder));
+    try {
+      QueryResultCodec.decodePage(decoder);
+      Assert.fail("Expected the error to be decoded as an exception");
+    } catch (ExploreException e) {
+      Assert.assertTrue(e.getMessage().contains("Query failed"));
+    }
+  }
+}
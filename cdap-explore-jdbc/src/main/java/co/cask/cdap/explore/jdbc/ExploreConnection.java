@@ -52,12 +52,21 @@ public class ExploreConnection implements Connection {
   private static final Logger LOG = LoggerFactory.getLogger(ExploreConnection.class);
 
   private final String namespace;
+  private final int fetchSize;
   private ExploreClient exploreClient;
   private boolean isClosed = false;
 
   ExploreConnection(ExploreClient exploreClient, String namespace) {
+    this(exploreClient, namespace, 0);
+  }
+
+  /**
+   * @param fetchSize fetch size of the statements created by this connection, zero to use the default
+   */
+  ExploreConnection(ExploreClient exploreClient, String namespace, int fetchSize) {
     this.exploreClient = exploreClient;
     this.namespace = namespace;
+    this.fetchSize = fetchSize;
   }
 
   @Override
@@ -65,7 +74,11 @@ public class ExploreConnection implements Connection {
     if (isClosed) {
       throw new SQLException("Can't create Statement, connection is closed");
     }
-    return new ExploreStatement(this, exploreClient, namespace);
+    ExploreStatement statement = new ExploreStatement(this, exploreClient, namespace);
+    if (fetchSize > 0) {
+      statement.setFetchSize(fetchSize);
+    }
+    return statement;
   }
 
   @Override
@@ -73,7 +86,11 @@ public class ExploreConnection implements Connection {
     if (isClosed) {
       throw new SQLException("Can't create Statement, connection is closed");
     }
-    return new ExplorePreparedStatement(this, exploreClient, sql, namespace);
+    ExplorePreparedStatement statement = new ExplorePreparedStatement(this, exploreClient, sql, namespace);
+    if (fetchSize > 0) {
+      statement.setFetchSize(fetchSize);
+    }
+    return statement;
   }
 
   @Override
@@ -79,11 +79,22 @@ public class ExploreDriver implements Driver {
       namespace = Constants.DEFAULT_NAMESPACE;
     }
 
+    // fetch size of the statements created by the connection, zero to use the default
+    int fetchSize = 0;
+    List<String> fetchSizeParams = Lists.newArrayList(params.getExtraInfos().get(ConnectionParams.Info.FETCH_SIZE));
+    if (!fetchSizeParams.isEmpty() && !fetchSizeParams.get(0).isEmpty()) {
+      try {
+        fetchSize = Integer.parseInt(fetchSizeParams.get(0));
+      } catch (NumberFormatException e) {
+        throw new SQLException("Invalid fetch size " + fetchSizeParams.get(0), e);
+      }
+    }
+
     ExploreClient exploreClient = new FixedAddressExploreClient(params.getHost(), params.getPort(), authToken);
     if (!exploreClient.isServiceAvailable()) {
       throw new SQLException("Cannot connect to " + url + ", service unavailable");
     }
-    return new ExploreConnection(exploreClient, namespace);
+    return new ExploreConnection(exploreClient, namespace, fetchSize);
   }
 
   @Override
@@ -172,7 +183,8 @@ public class ExploreDriver implements Driver {
      */
     public enum Info {
       EXPLORE_AUTH_TOKEN("auth.token"),
-      NAMESPACE("namespace");
+      NAMESPACE("namespace"),
+      FETCH_SIZE("fetch.size");
 
       private final String name;
 
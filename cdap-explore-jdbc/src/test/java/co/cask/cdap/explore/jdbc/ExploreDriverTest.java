@@ -17,11 +17,14 @@
 package co.cask.cdap.explore.jdbc;
 
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.explore.utils.QueryResultCodec;
 import co.cask.cdap.proto.ColumnDesc;
 import co.cask.cdap.proto.QueryHandle;
 import co.cask.cdap.proto.QueryResult;
 import co.cask.cdap.proto.QueryStatus;
 import co.cask.http.AbstractHttpHandler;
+import co.cask.http.ChunkResponder;
 import co.cask.http.HttpResponder;
 import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
@@ -30,11 +33,15 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.junit.AfterClass;
@@ -54,6 +61,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -129,6 +137,12 @@ public class ExploreDriverTest {
                            ExploreDriver.ConnectionParams.Info.EXPLORE_AUTH_TOKEN, "bar"),
       connectionParams.getExtraInfos());
 
+    connectionParams = driver.parseConnectionUrl(baseUrl + "?auth.token=foo&fetch.size=1000");
+    Assert.assertEquals(
+      ImmutableMultimap.of(ExploreDriver.ConnectionParams.Info.EXPLORE_AUTH_TOKEN, "foo",
+                           ExploreDriver.ConnectionParams.Info.FETCH_SIZE, "1000"),
+      connectionParams.getExtraInfos());
+
     // Test that we don't decode URL more than once
     connectionParams = driver.parseConnectionUrl(baseUrl + "?" +
                                                  ExploreDriver.ConnectionParams.Info.EXPLORE_AUTH_TOKEN.getName() +
@@ -213,6 +227,72 @@ public class ExploreDriverTest {
     statement.close();
   }
 
+  @Test
+  public void testStreamedResults() throws Exception {
+    MockExploreExecutorHandler handler = new MockExploreExecutorHandler(true);
+    MockHttpService streamingService = new MockHttpService(handler);
+    streamingService.startAndWait();
+    try {
+      String url = String.format("%s%s:%d?namespace=testNamespace&fetch.size=1",
+                                 Constants.Explore.Jdbc.URL_PREFIX, "localhost", streamingService.getPort());
+      Connection connection = DriverManager.getConnection(url);
+      PreparedStatement statement = connection.prepareStatement("fake sql query");
+      ResultSet resultSet = statement.executeQuery();
+
+      Assert.assertTrue(resultSet.next());
+      Assert.assertEquals(1, resultSet.getInt(1));
+      Assert.assertEquals("one", resultSet.getString(2));
+      // Streamed FLOAT values are returned as Double, the same as the paged ones
+      Assert.assertEquals(1.1d, resultSet.getObject(3));
+      Assert.assertTrue(resultSet.next());
+      Assert.assertEquals(2, resultSet.getInt(1));
+      Assert.assertEquals("two", resultSet.getString(2));
+      Assert.assertEquals(2.2d, resultSet.getObject(3));
+      Assert.assertFalse(resultSet.next());
+      resultSet.close();
+      statement.close();
+      connection.close();
+
+      // The results are streamed in pages of the fetch size of the connection, without calling next
+      Assert.assertEquals(1, handler.resultsRequests.get());
+      Assert.assertEquals(1, handler.resultsFetchSize.get());
+      Assert.assertEquals(0, handler.nextRequests.get());
+    } finally {
+      streamingService.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testPagedResultsFallback() throws Exception {
+    MockExploreExecutorHandler handler = new MockExploreExecutorHandler(false);
+    MockHttpService pagingService = new MockHttpService(handler);
+    pagingService.startAndWait();
+    try {
+      String url = String.format("%s%s:%d?namespace=testNamespace",
+                                 Constants.Explore.Jdbc.URL_PREFIX, "localhost", pagingService.getPort());
+      Connection connection = DriverManager.getConnection(url);
+      PreparedStatement statement = connection.prepareStatement("fake sql query");
+      ResultSet resultSet = statement.executeQuery();
+
+      Assert.assertTrue(resultSet.next());
+      Assert.assertEquals(1, resultSet.getInt(1));
+      Assert.assertEquals("one", resultSet.getString(2));
+      Assert.assertTrue(resultSet.next());
+      Assert.assertEquals(2, resultSet.getInt(1));
+      Assert.assertEquals("two", resultSet.getString(2));
+      Assert.assertFalse(resultSet.next());
+      resultSet.close();
+      statement.close();
+      connection.close();
+
+      // The service responds to the results request with 404, hence the results are paged with next
+      Assert.assertEquals(1, handler.resultsRequests.get());
+      Assert.assertEquals(2, handler.nextRequests.get());
+    } finally {
+      pagingService.stopAndWait();
+    }
+  }
+
   @Test(timeout = 2000L)
   public void testCancelQuery() throws Exception {
     Connection connection = DriverManager.getConnection(exploreServiceUrl);
@@ -246,6 +326,20 @@ public class ExploreDriverTest {
     private static final Set<String> canceledHandles = Sets.newHashSet();
     private static final Set<String> longRunningQueries = Sets.newHashSet();
 
+    // Whether the results endpoint is served; without it, the client falls back to paging
+    private final boolean streamResults;
+    private final AtomicInteger resultsRequests = new AtomicInteger();
+    private final AtomicInteger resultsFetchSize = new AtomicInteger();
+    private final AtomicInteger nextRequests = new AtomicInteger();
+
+    public MockExploreExecutorHandler() {
+      this(false);
+    }
+
+    public MockExploreExecutorHandler(boolean streamResults) {
+      this.streamResults = streamResults;
+    }
+
     @GET
     @Path("explore/status")
     public void status(HttpRequest request, HttpResponder responder) {
@@ -302,16 +396,47 @@ public class ExploreDriverTest {
         responder.sendStatus(HttpResponseStatus.NOT_FOUND);
         return;
       }
-      List<ColumnDesc> schema = ImmutableList.of(
+      List<ColumnDesc> schema = Lists.newArrayList(
           new ColumnDesc("column1", "INT", 1, ""),
           new ColumnDesc("column2", "STRING", 2, "")
       );
+      if (streamResults) {
+        schema.add(new ColumnDesc("column3", "FLOAT", 3, ""));
+      }
       responder.sendJson(HttpResponseStatus.OK, schema);
     }
 
+    @POST
+    @Path("data/explore/queries/{id}/results")
+    public void streamQueryResults(HttpRequest request, HttpResponder responder,
+                                   @PathParam("id") String id) throws IOException {
+      resultsRequests.incrementAndGet();
+      if (!streamResults || closedHandles.contains(id)) {
+        responder.sendStatus(HttpResponseStatus.NOT_FOUND);
+        return;
+      }
+      int size = Integer.parseInt(decodeArguments(request).get("size"));
+      resultsFetchSize.set(size);
+
+      List<QueryResult> rows = ImmutableList.of(
+        new QueryResult(ImmutableList.<Object>of(1, "one", 1.1f)),
+        new QueryResult(ImmutableList.<Object>of(2, "two", 2.2f)));
+      ChunkResponder chunkResponder = responder.sendChunkStart(
+        HttpResponseStatus.OK, ImmutableMultimap.of(HttpHeaders.Names.CONTENT_TYPE, QueryResultCodec.CONTENT_TYPE));
+      try {
+        for (List<QueryResult> page : Lists.partition(rows, size)) {
+          sendPage(chunkResponder, page);
+        }
+        sendPage(chunkResponder, ImmutableList.<QueryResult>of());
+      } finally {
+        Closeables.closeQuietly(chunkResponder);
+      }
+    }
+
     @POST
     @Path("data/explore/queries/{id}/next")
     public void getQueryNextResults(HttpRequest request, HttpResponder responder, @PathParam("id") String id) {
+      nextRequests.incrementAndGet();
       if (closedHandles.contains(id)) {
         responder.sendStatus(HttpResponseStatus.NOT_FOUND);
         return;
@@ -325,6 +450,12 @@ public class ExploreDriverTest {
       responder.sendJson(HttpResponseStatus.OK, rows);
     }
 
+    private void sendPage(ChunkResponder chunkResponder, List<QueryResult> page) throws IOException {
+      ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+      QueryResultCodec.encodePage(page, new BinaryEncoder(new ChannelBufferOutputStream(buffer)));
+      chunkResponder.sendChunk(buffer);
+    }
+
     private Map<String, String> decodeArguments(HttpRequest request) throws IOException {
       ChannelBuffer content = request.getContent();
       if (!content.readable()) {
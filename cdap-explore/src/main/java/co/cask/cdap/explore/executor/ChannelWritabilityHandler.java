@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.explore.executor;
+
+import com.google.common.base.Function;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets a handler method that streams a large response wait for the channel of its request to be writable before
+ * writing more, so that the response is not buffered in memory faster than the client reads it.
+ * <p>
+ * The handler is added right before the dispatcher of the pipeline, after the execution handler, hence it runs in
+ * the thread that calls the handler method. That thread must not be a Netty I/O thread, since the channel can't be
+ * flushed while it waits.
+ */
+final class ChannelWritabilityHandler extends SimpleChannelUpstreamHandler {
+
+  // Interval to check writability at. The channel interest change events go through the same ordered executor
+  // as the request being handled, hence they can't be waited for.
+  private static final long WAIT_MILLIS = 10;
+
+  private static final ThreadLocal<Channel> CURRENT_CHANNEL = new ThreadLocal<>();
+
+  /**
+   * Returns a function that adds this handler to a channel pipeline.
+   */
+  static Function<ChannelPipeline, ChannelPipeline> addToPipeline() {
+    return new Function<ChannelPipeline, ChannelPipeline>() {
+      @Override
+      public ChannelPipeline apply(ChannelPipeline input) {
+        input.addBefore("dispatcher", "writability", new ChannelWritabilityHandler());
+        return input;
+      }
+    };
+  }
+
+  /**
+   * Waits until the channel of the request handled by the current thread is writable. Returns immediately if
+   * the current thread is not handling a request behind this handler.
+   *
+   * @return true if the channel is writable, false if it is closed
+   */
+  static boolean awaitWritable() throws InterruptedException {
+    Channel channel = CURRENT_CHANNEL.get();
+    if (channel == null) {
+      return true;
+    }
+    while (channel.isConnected() && !channel.isWritable()) {
+      TimeUnit.MILLISECONDS.sleep(WAIT_MILLIS);
+    }
+    return channel.isConnected();
+  }
+
+  @Override
+  public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+    CURRENT_CHANNEL.set(ctx.getChannel());
+    try {
+      super.messageReceived(ctx, e);
+    } finally {
+      CURRENT_CHANNEL.remove();
+    }
+  }
+}
@@ -67,7 +67,12 @@ public class ExploreExecutorService extends AbstractIdleService {
     int workerThreads = cConf.getInt(Constants.Explore.WORKER_THREADS, 10);
     int execThreads = cConf.getInt(Constants.Explore.EXEC_THREADS, 10);
 
-    this.httpService = new CommonNettyHttpServiceBuilder(cConf)
+    CommonNettyHttpServiceBuilder builder = new CommonNettyHttpServiceBuilder(cConf);
+    if (execThreads > 0) {
+      // Lets the handlers that stream query results wait for the client to read them
+      builder.modifyChannelPipeline(ChannelWritabilityHandler.addToPipeline());
+    }
+    this.httpService = builder
         .addHttpHandlers(handlers)
         .setHost(cConf.get(Constants.Explore.SERVER_ADDRESS))
         .setHandlerHooks(ImmutableList.of(
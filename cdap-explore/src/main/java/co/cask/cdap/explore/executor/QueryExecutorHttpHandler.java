@@ -16,27 +16,41 @@
 
 package co.cask.cdap.explore.executor;
 
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.io.BinaryEncoder;
 import co.cask.cdap.explore.service.ExploreService;
 import co.cask.cdap.explore.service.HandleNotFoundException;
+import co.cask.cdap.explore.utils.QueryResultCodec;
 import co.cask.cdap.proto.ColumnDesc;
 import co.cask.cdap.proto.QueryHandle;
 import co.cask.cdap.proto.QueryResult;
 import co.cask.cdap.proto.QueryStatus;
 import co.cask.http.ChunkResponder;
+import co.cask.http.HandlerContext;
 import co.cask.http.HttpResponder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.io.Closeables;
 import com.google.inject.Inject;
+import org.apache.twill.common.Threads;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
 import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -50,10 +64,19 @@ import javax.ws.rs.PathParam;
 public class QueryExecutorHttpHandler extends AbstractQueryExecutorHttpHandler {
   private static final Logger LOG = LoggerFactory.getLogger(QueryExecutorHttpHandler.class);
   private final ExploreService exploreService;
+  private final int prefetchPages;
+  private final ExecutorService fetchExecutor;
 
   @Inject
-  public QueryExecutorHttpHandler(ExploreService exploreService) {
+  public QueryExecutorHttpHandler(ExploreService exploreService, CConfiguration cConf) {
     this.exploreService = exploreService;
+    this.prefetchPages = cConf.getInt(Constants.Explore.RESULT_PREFETCH_PAGES);
+    this.fetchExecutor = Executors.newCachedThreadPool(Threads.createDaemonThreadFactory("explore-result-fetcher-%d"));
+  }
+
+  @Override
+  public void destroy(HandlerContext context) {
+    fetchExecutor.shutdownNow();
   }
 
   @DELETE
@@ -192,11 +215,82 @@ public class QueryExecutorHttpHandler extends AbstractQueryExecutorHttpHandler {
     }
   }
 
+  @POST
+  @Path("data/explore/queries/{id}/results")
+  public void streamQueryResults(HttpRequest request, HttpResponder responder, @PathParam("id") String id) {
+    // NOTE: this call is a POST because it is not idempotent: cursor of results is moved
+    ChunkResponder chunkResponder = null;
+    QueryResultFetcher fetcher = null;
+    try {
+      QueryHandle handle = QueryHandle.fromId(id);
+      ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+      BinaryEncoder encoder = new BinaryEncoder(new ChannelBufferOutputStream(buffer));
+      if (handle.equals(QueryHandle.NO_OP)) {
+        QueryResultCodec.encodePage(ImmutableList.<QueryResult>of(), encoder);
+        responder.sendContent(HttpResponseStatus.OK, buffer, QueryResultCodec.CONTENT_TYPE, null);
+        return;
+      }
+
+      Map<String, String> args = decodeArguments(request);
+      int size = args.containsKey("size") ? Integer.valueOf(args.get("size")) : DOWNLOAD_FETCH_CHUNK_SIZE;
+      fetcher = new QueryResultFetcher(exploreService, handle, size, prefetchPages);
+      fetcher.start(fetchExecutor);
+
+      // Errors in fetching the first page are still sent as a response status
+      List<QueryResult> results = fetcher.next();
+      chunkResponder = responder.sendChunkStart(
+        HttpResponseStatus.OK, ImmutableMultimap.of(HttpHeaders.Names.CONTENT_TYPE, QueryResultCodec.CONTENT_TYPE));
+      while (true) {
+        QueryResultCodec.encodePage(results, encoder);
+        chunkResponder.sendChunk(buffer);
+        if (results.isEmpty()) {
+          break;
+        }
+        buffer = ChannelBuffers.dynamicBuffer();
+        encoder = new BinaryEncoder(new ChannelBufferOutputStream(buffer));
+        awaitClient();
+        results = fetcher.next();
+      }
+    } catch (IOException e) {
+      // The client has closed the connection, or has sent invalid arguments
+      LOG.debug("Failed to stream results of query {}", id, e);
+      if (chunkResponder == null) {
+        responder.sendString(HttpResponseStatus.BAD_REQUEST, e.getMessage());
+      }
+    } catch (IllegalArgumentException e) {
+      LOG.debug("Got exception:", e);
+      if (!sendStreamError(chunkResponder, e.getMessage())) {
+        responder.sendString(HttpResponseStatus.BAD_REQUEST, e.getMessage());
+      }
+    } catch (SQLException e) {
+      LOG.debug("Got exception:", e);
+      String message = String.format("[SQLState %s] %s", e.getSQLState(), e.getMessage());
+      if (!sendStreamError(chunkResponder, message)) {
+        responder.sendString(HttpResponseStatus.BAD_REQUEST, message);
+      }
+    } catch (HandleNotFoundException e) {
+      if (!sendStreamError(chunkResponder, "Query is not found")) {
+        responder.sendStatus(HttpResponseStatus.NOT_FOUND);
+      }
+    } catch (Throwable e) {
+      LOG.error("Got exception:", e);
+      if (!sendStreamError(chunkResponder, e.getMessage())) {
+        responder.sendStatus(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+      }
+    } finally {
+      if (fetcher != null) {
+        fetcher.close();
+      }
+      Closeables.closeQuietly(chunkResponder);
+    }
+  }
+
   @POST
   @Path("data/explore/queries/{id}/download")
   public void downloadQueryResults(HttpRequest request, HttpResponder responder, @PathParam("id") final String id) {
     // NOTE: this call is a POST because it is not idempotent: cursor of results is moved
     boolean responseStarted = false;
+    QueryResultFetcher fetcher = null;
     try {
       QueryHandle handle = QueryHandle.fromId(id);
       if (handle.equals(QueryHandle.NO_OP) ||
@@ -211,8 +305,10 @@ public class QueryExecutorHttpHandler extends AbstractQueryExecutorHttpHandler {
 
       List<QueryResult> results;
       results = exploreService.previewResults(handle);
+      fetcher = new QueryResultFetcher(exploreService, handle, DOWNLOAD_FETCH_CHUNK_SIZE, prefetchPages);
+      fetcher.start(fetchExecutor);
       if (results.isEmpty()) {
-        results = exploreService.nextResults(handle, DOWNLOAD_FETCH_CHUNK_SIZE);
+        results = fetcher.next();
       }
 
       ChunkResponder chunkResponder = responder.sendChunkStart(HttpResponseStatus.OK, null);
@@ -222,13 +318,19 @@ public class QueryExecutorHttpHandler extends AbstractQueryExecutorHttpHandler {
           appendCSVRow(sb, result);
           sb.append('\n');
         }
-        // If failed to send to client, just propagate the IOException and let netty-http to handle
         chunkResponder.sendChunk(ChannelBuffers.wrappedBuffer(sb.toString().getBytes("UTF-8")));
         sb.delete(0, sb.length());
-        results = exploreService.nextResults(handle, DOWNLOAD_FETCH_CHUNK_SIZE);
+        awaitClient();
+        results = fetcher.next();
       }
       Closeables.closeQuietly(chunkResponder);
 
+    } catch (IOException e) {
+      // The client has closed the connection
+      LOG.debug("Failed to download results of query {}", id, e);
+      if (!responseStarted) {
+        responder.sendStatus(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+      }
     } catch (IllegalArgumentException e) {
       LOG.debug("Got exception:", e);
       // We can't send another response if sendChunkStart has been called
@@ -254,6 +356,42 @@ public class QueryExecutorHttpHandler extends AbstractQueryExecutorHttpHandler {
       if (!responseStarted) {
         responder.sendStatus(HttpResponseStatus.INTERNAL_SERVER_ERROR);
       }
+    } finally {
+      if (fetcher != null) {
+        fetcher.close();
+      }
+    }
+  }
+
+  /**
+   * Waits for the client to read the results that have been sent, before the next page is taken from the
+   * fetcher. Without this, the responses would buffer the results as fast as they are fetched, regardless of
+   * how many pages the fetcher prefetches.
+   *
+   * @throws IOException if the client has closed the connection
+   */
+  private void awaitClient() throws IOException, InterruptedException {
+    if (!ChannelWritabilityHandler.awaitWritable()) {
+      throw new IOException("Connection closed by the client");
+    }
+  }
+
+  /**
+   * Ends a started stream of results with an error.
+   *
+   * @return false if the response has not been started, in which case the error should be sent as the response
+   */
+  private boolean sendStreamError(@Nullable ChunkResponder chunkResponder, @Nullable String message) {
+    if (chunkResponder == null) {
+      return false;
+    }
+    try {
+      ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+      QueryResultCodec.encodeError(message, new BinaryEncoder(new ChannelBufferOutputStream(buffer)));
+      chunkResponder.sendChunk(buffer);
+    } catch (IOException e) {
+      LOG.debug("Failed to send error to the client", e);
     }
+    return true;
   }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.explore.executor;
+
+import co.cask.cdap.explore.service.ExploreException;
+import co.cask.cdap.explore.service.ExploreService;
+import co.cask.cdap.explore.service.HandleNotFoundException;
+import co.cask.cdap.proto.QueryHandle;
+import co.cask.cdap.proto.QueryResult;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches the results of a query from the {@link ExploreService} in a background thread, and spools up to a given
+ * number of pages ahead of the reader, so that fetching the next page from Hive overlaps with sending the current
+ * one to the client. The pages are read with {@link #next()} until it returns an empty page.
+ */
+final class QueryResultFetcher implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(QueryResultFetcher.class);
+
+  private final ExploreService exploreService;
+  private final QueryHandle handle;
+  private final int pageSize;
+  // a page of rows, or the Throwable that failed the fetch
+  private final BlockingQueue<Object> pages;
+  private volatile boolean closed;
+  private boolean done;
+
+  QueryResultFetcher(ExploreService exploreService, QueryHandle handle, int pageSize, int prefetchPages) {
+    Preconditions.checkArgument(pageSize > 0, "Page size must be positive.");
+    Preconditions.checkArgument(prefetchPages > 0, "Number of pages to prefetch must be positive.");
+    this.exploreService = exploreService;
+    this.handle = handle;
+    this.pageSize = pageSize;
+    this.pages = new ArrayBlockingQueue<>(prefetchPages);
+  }
+
+  /**
+   * Starts fetching the results with the given executor.
+   */
+  void start(Executor executor) {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        fetch();
+      }
+    });
+  }
+
+  /**
+   * Returns the next page of results, waiting for it to be fetched if needed.
+   *
+   * @return the next page of results, which is empty when all the results have been read
+   */
+  @SuppressWarnings("unchecked")
+  List<QueryResult> next() throws ExploreException, HandleNotFoundException, SQLException, InterruptedException {
+    Preconditions.checkState(!closed, "Fetcher for query %s is closed.", handle.getHandle());
+    if (done) {
+      return ImmutableList.of();
+    }
+    Object page = pages.take();
+    if (page instanceof Throwable) {
+      done = true;
+      Throwable cause = (Throwable) page;
+      Throwables.propagateIfPossible(cause, ExploreException.class, HandleNotFoundException.class);
+      Throwables.propagateIfInstanceOf(cause, SQLException.class);
+      throw Throwables.propagate(cause);
+    }
+    List<QueryResult> results = (List<QueryResult>) page;
+    done = results.isEmpty();
+    return results;
+  }
+
+  /**
+   * Stops fetching. Results that have been fetched but not read are dropped.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    pages.clear();
+  }
+
+  private void fetch() {
+    try {
+      List<QueryResult> results;
+      do {
+        results = exploreService.nextResults(handle, pageSize);
+      } while (put(results) && !results.isEmpty());
+    } catch (Throwable t) {
+      LOG.debug("Failed to fetch results of query {}", handle.getHandle(), t);
+      put(t);
+    }
+  }
+
+  /**
+   * Puts a page into the queue, waiting for space, unless the fetcher is closed.
+   *
+   * @return true if the page was put, false if the fetcher is closed
+   */
+  private boolean put(Object page) {
+    try {
+      while (!closed) {
+        if (pages.offer(page, 100, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+}
@@ -16,6 +16,8 @@
 
 package co.cask.cdap.hive.datasets;
 
+import co.cask.cdap.api.data.batch.FilterableRecordScannable;
+import co.cask.cdap.api.data.batch.RecordScanFilter;
 import co.cask.cdap.api.data.batch.RecordScannable;
 import co.cask.cdap.api.data.batch.RecordScanner;
 import co.cask.cdap.api.data.batch.Split;
@@ -42,7 +44,10 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Map reduce input format to read from datasets that implement RecordScannable.
+ * Map reduce input format to read from datasets that implement RecordScannable. For datasets that implement
+ * {@link FilterableRecordScannable}, the conditions of the query and the columns it reads are passed to the dataset,
+ * so that it reads only the records and fields that may be needed. Hive still applies the conditions of the query
+ * to the records.
  */
 public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
   private static final Gson GSON = new Gson();
@@ -57,7 +62,12 @@ public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
       JobContext jobContext = ShimLoader.getHadoopShims().newJobContext(job);
       Path[] tablePaths = FileInputFormat.getInputPaths(jobContext);
 
-      List<Split> dsSplits = recordScannable.getSplits();
+      List<Split> dsSplits;
+      if (recordScannable instanceof FilterableRecordScannable) {
+        dsSplits = ((FilterableRecordScannable) recordScannable).getSplits(RecordScanFilters.create(jobConf));
+      } else {
+        dsSplits = recordScannable.getSplits();
+      }
 
       InputSplit[] inputSplits = new InputSplit[dsSplits.size()];
       for (int i = 0; i < dsSplits.size(); i++) {
@@ -80,18 +90,23 @@ public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
     }
     final DatasetInputSplit datasetInputSplit = (DatasetInputSplit) split;
 
-    final RecordScanner recordScanner = recordScannable.createSplitRecordScanner(
-        new Split() {
-          @Override
-          public long getLength() {
-            try {
-              return split.getLength();
-            } catch (IOException e) {
-              throw new RuntimeException(e);
-            }
-          }
+    Split scannerSplit = new Split() {
+      @Override
+      public long getLength() {
+        try {
+          return split.getLength();
+        } catch (IOException e) {
+          throw new RuntimeException(e);
         }
-    );
+      }
+    };
+    final RecordScanner recordScanner;
+    if (recordScannable instanceof FilterableRecordScannable) {
+      RecordScanFilter filter = RecordScanFilters.create(jobConf);
+      recordScanner = ((FilterableRecordScannable) recordScannable).createSplitRecordScanner(scannerSplit, filter);
+    } else {
+      recordScanner = recordScannable.createSplitRecordScanner(scannerSplit);
+    }
 
     return new RecordReader<Void, ObjectWritable>() {
       private final AtomicBoolean initialized = new AtomicBoolean(false);
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.hive.datasets;
+
+import co.cask.cdap.api.data.batch.RecordScanFilter;
+import co.cask.cdap.hive.predicate.QueryPredicates;
+import co.cask.cdap.hive.predicate.QueryPredicates.CompareOp;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
+import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Creates the {@link RecordScanFilter} of a Hive query on a dataset, from the filter expression and the columns to
+ * read that Hive puts in the job configuration of the table scan.
+ */
+final class RecordScanFilters {
+  private static final Logger LOG = LoggerFactory.getLogger(RecordScanFilters.class);
+
+  private RecordScanFilters() {
+  }
+
+  /**
+   * Returns the filter of the table scan configured in the given configuration. The conditions of the filter are
+   * the comparisons of columns with constants that all the records returned by the query must match.
+   */
+  static RecordScanFilter create(Configuration conf) {
+    RecordScanFilter.Builder builder = RecordScanFilter.builder();
+
+    if (!conf.getBoolean(ColumnProjectionUtils.READ_ALL_COLUMNS, true)) {
+      List<String> columns = Lists.newArrayList(
+        Splitter.on(',').trimResults().omitEmptyStrings()
+          .split(conf.get(ColumnProjectionUtils.READ_COLUMN_NAMES_CONF_STR, "")));
+      if (!columns.isEmpty()) {
+        builder.setFields(columns);
+      }
+    }
+
+    // the conf contains a 'hive.io.filter.expr.serialized' key which contains the serialized form of ExprNodeDesc
+    String serializedExpr = conf.get(TableScanDesc.FILTER_EXPR_CONF_STR);
+    if (serializedExpr == null) {
+      return builder.build();
+    }
+
+    try {
+      ExprNodeGenericFuncDesc expr = QueryPredicates.deserializeExpression(serializedExpr, conf);
+
+      // Analyze the query to extract the comparisons of columns with constants that are and-ed together
+      IndexPredicateAnalyzer analyzer = QueryPredicates.createAnalyzer();
+      analyzer.clearAllowedColumnNames();
+      allowColumnNames(analyzer, expr);
+
+      List<IndexSearchCondition> conditions = Lists.newArrayList();
+      analyzer.analyzePredicate(expr, conditions);
+
+      for (IndexSearchCondition condition : conditions) {
+        CompareOp op = CompareOp.from(condition.getComparisonOp());
+        ExprNodeColumnDesc column = condition.getColumnDesc();
+        Object value = condition.getConstantDesc() == null ? null
+          : toColumnType(condition.getConstantDesc().getValue(), column.getTypeString());
+        if (op == null || value == null) {
+          // Not a supported operation or value
+          continue;
+        }
+
+        switch (op) {
+          case EQUAL:
+            builder.addValueCondition(column.getColumn(), value);
+            break;
+          case GREATER:
+          case EQUAL_OR_GREATER:
+            builder.addLowerBound(column.getColumn(), value, op == CompareOp.EQUAL_OR_GREATER);
+            break;
+          case LESS:
+          case EQUAL_OR_LESS:
+            builder.addUpperBound(column.getColumn(), value, op == CompareOp.EQUAL_OR_LESS);
+            break;
+        }
+      }
+    } catch (Throwable t) {
+      LOG.warn("Exception analyzing query predicate. A full table scan will be performed.", t);
+    }
+
+    RecordScanFilter filter = builder.build();
+    LOG.debug("Record scan filter for the query: {}", filter);
+    return filter;
+  }
+
+  /**
+   * Allows all the columns used in the given expression to be analyzed.
+   */
+  private static void allowColumnNames(IndexPredicateAnalyzer analyzer, ExprNodeDesc expr) {
+    if (expr instanceof ExprNodeColumnDesc) {
+      analyzer.allowColumnName(((ExprNodeColumnDesc) expr).getColumn());
+    }
+    if (expr.getChildren() != null) {
+      for (ExprNodeDesc child : expr.getChildren()) {
+        allowColumnNames(analyzer, child);
+      }
+    }
+  }
+
+  /**
+   * Converts a constant to the Java type of the values of a column, without any loss.
+   *
+   * @return the converted value, or {@code null} if the value can't be converted
+   */
+  @Nullable
+  private static Object toColumnType(@Nullable Object value, String columnType) {
+    if (value == null) {
+      return null;
+    }
+    if (serdeConstants.STRING_TYPE_NAME.equals(columnType)) {
+      return value instanceof String ? value : null;
+    }
+    if (serdeConstants.BINARY_TYPE_NAME.equals(columnType)) {
+      return value instanceof byte[] || value instanceof String ? value : null;
+    }
+    if (serdeConstants.INT_TYPE_NAME.equals(columnType)) {
+      return value instanceof Integer ? value : null;
+    }
+    if (serdeConstants.BIGINT_TYPE_NAME.equals(columnType)) {
+      return value instanceof Long || value instanceof Integer ? ((Number) value).longValue() : null;
+    }
+    if (serdeConstants.FLOAT_TYPE_NAME.equals(columnType)) {
+      return value instanceof Float ? value : null;
+    }
+    if (serdeConstants.DOUBLE_TYPE_NAME.equals(columnType)) {
+      return value instanceof Double ? value : null;
+    }
+    if (serdeConstants.BOOLEAN_TYPE_NAME.equals(columnType)) {
+      return value instanceof Boolean ? value : null;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.hive.predicate;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+
+import javax.annotation.Nullable;
+
+/**
+ * Helpers for the input formats to analyze the filter expression of a Hive query, which Hive puts in the job
+ * configuration of the table scan.
+ */
+public final class QueryPredicates {
+
+  private QueryPredicates() {
+  }
+
+  /**
+   * Deserializes the filter expression of a table scan.
+   *
+   * @param serializedExpr the value of {@link org.apache.hadoop.hive.ql.plan.TableScanDesc#FILTER_EXPR_CONF_STR}
+   * @param conf the job configuration
+   * @throws Exception if the expression can't be deserialized
+   */
+  public static ExprNodeGenericFuncDesc deserializeExpression(String serializedExpr,
+                                                              Configuration conf) throws Exception {
+    // Hack to deal with the fact that older versions of Hive use
+    // Utilities.deserializeExpression(String, Configuration),
+    // whereas newer versions use Utilities.deserializeExpression(String).
+    try {
+      return Utilities.deserializeExpression(serializedExpr);
+    } catch (NoSuchMethodError e) {
+      return (ExprNodeGenericFuncDesc) Utilities.class.getMethod(
+        "deserializeExpression", String.class, Configuration.class).invoke(null, serializedExpr, conf);
+    }
+  }
+
+  /**
+   * Creates an {@link IndexPredicateAnalyzer} that extracts the comparisons of all the {@link CompareOp}s. The
+   * columns to analyze still have to be allowed by the caller.
+   */
+  public static IndexPredicateAnalyzer createAnalyzer() {
+    IndexPredicateAnalyzer analyzer = new IndexPredicateAnalyzer();
+    for (CompareOp op : CompareOp.values()) {
+      analyzer.addComparisonOp(op.getOpClassName());
+    }
+    return analyzer;
+  }
+
+  /**
+   * The comparison operations of columns with constants that can be used to narrow a scan.
+   */
+  public enum CompareOp {
+    EQUAL(GenericUDFOPEqual.class.getName()),
+    EQUAL_OR_GREATER(GenericUDFOPEqualOrGreaterThan.class.getName()),
+    EQUAL_OR_LESS(GenericUDFOPEqualOrLessThan.class.getName()),
+    GREATER(GenericUDFOPGreaterThan.class.getName()),
+    LESS(GenericUDFOPLessThan.class.getName());
+
+    private final String opClassName;
+
+    private CompareOp(String opClassName) {
+      this.opClassName = opClassName;
+    }
+
+    public String getOpClassName() {
+      return opClassName;
+    }
+
+    /**
+     * Returns a {@link CompareOp} by matching the given class name or {@code null} if there is none matching.
+     */
+    @Nullable
+    public static CompareOp from(String opClassName) {
+      for (CompareOp op : values()) {
+        if (op.getOpClassName().equals(opClassName)) {
+          return op;
+        }
+      }
+      return null;
+    }
+  }
+}
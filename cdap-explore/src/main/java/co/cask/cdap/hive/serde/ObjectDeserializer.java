@@ -21,9 +21,15 @@ import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.format.UnexpectedFormatException;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.hive.objectinspector.ObjectInspectorFactory;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.FieldAccessor;
+import co.cask.cdap.internal.io.FieldAccessorFactory;
+import co.cask.cdap.internal.io.ReflectionFieldAccessorFactory;
+import co.cask.cdap.internal.lang.Fields;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
 import org.apache.hadoop.hive.serde.serdeConstants;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
@@ -33,9 +39,10 @@ import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.StructTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -49,12 +56,19 @@ import java.util.UUID;
  * that Hive can understand.
  */
 public class ObjectDeserializer {
+  private static final Logger LOG = LoggerFactory.getLogger(ObjectDeserializer.class);
+
   private final List<String> fieldNames;
   private final List<TypeInfo> fieldTypes;
   private final ObjectInspector inspector;
   // we can almost do without the schema. The problem is that everything in Hive is lowercase,
   // but when we look up record fields we need the case sensitive field name.
   private final Schema schema;
+  // flatteners of the records by schema, for the top level record and for the nested records.
+  private final Map<Schema, RecordFlattener> flatteners = Maps.newConcurrentMap();
+  // generates the bytecode of field accessors, reflection is used for the fields it fails on
+  private final FieldAccessorFactory fieldAccessorFactory;
+  private final FieldAccessorFactory reflectionFieldAccessorFactory = new ReflectionFieldAccessorFactory();
 
   /**
    * Creates an ObjectTranslator that will be able to deserialize objects that fit a {@link Schema} into objects
@@ -86,12 +100,19 @@ public class ObjectDeserializer {
 
   @VisibleForTesting
   ObjectDeserializer(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema, int fieldOffset) {
+    this(fieldNames, fieldTypes, schema, fieldOffset, new ASMFieldAccessorFactory());
+  }
+
+  @VisibleForTesting
+  ObjectDeserializer(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema, int fieldOffset,
+                     FieldAccessorFactory fieldAccessorFactory) {
     this.fieldNames = fieldNames.subList(fieldOffset, fieldNames.size());
     this.fieldTypes = fieldTypes.subList(fieldOffset, fieldTypes.size());
     // inspector should still use all names and types passed in. This is in case there are some fields that are
     // determined outside of this class, such as the stream case where timestamp and headers are read elsewhere
     this.inspector = createInspector(fieldNames, fieldTypes);
     this.schema = schema;
+    this.fieldAccessorFactory = fieldAccessorFactory;
   }
 
   /**
@@ -147,17 +168,18 @@ public class ObjectDeserializer {
       schema = schema.getNonNullable();
     }
 
-    Map<String, Schema.Field> fieldMap = getFieldMap(schema);
-    List<Object> objectFields = Lists.newArrayListWithCapacity(fieldNames.size());
-    for (int i = 0; i < fieldNames.size(); i++) {
-      String hiveName = fieldNames.get(i);
-      TypeInfo fieldType = fieldTypes.get(i);
-      Schema.Field schemaField = fieldMap.get(hiveName);
-      // use the name from the schema field in case it is not all lowercase
-      Object recordField = getRecordField(obj, schemaField.getName());
-      objectFields.add(deserializeField(recordField, fieldType, schemaField.getSchema()));
+    return getFlattener(schema, fieldNames, fieldTypes).flatten(obj);
+  }
+
+  // get the flattener of the records of a schema, creating it the first time the schema is seen.
+  private RecordFlattener getFlattener(Schema schema, List<String> fieldNames, List<TypeInfo> fieldTypes) {
+    RecordFlattener flattener = flatteners.get(schema);
+    if (flattener == null) {
+      // concurrent creations give equivalent flatteners, so it does not matter which one is kept
+      flattener = new RecordFlattener(schema, fieldNames, fieldTypes);
+      flatteners.put(schema, flattener);
     }
-    return objectFields;
+    return flattener;
   }
 
   /**
@@ -313,19 +335,6 @@ public class ObjectDeserializer {
     return translatedMap;
   }
 
-  // get a field from the object using the get method if the object is a StructuredRecord,
-  // or using reflection if it is not.
-  private Object getRecordField(Object record, String fieldName)
-    throws NoSuchFieldException, IllegalAccessException {
-    if (record instanceof StructuredRecord) {
-      return ((StructuredRecord) record).get(fieldName);
-    }
-    Class recordClass = record.getClass();
-    Field field = recordClass.getDeclaredField(fieldName);
-    field.setAccessible(true);
-    return field.get(record);
-  }
-
   // get a map from the expected hive name of a field in the schema to the field in the schema.
   private Map<String, Schema.Field> getFieldMap(Schema schema) {
     Map<String, Schema.Field> fieldMap = Maps.newHashMap();
@@ -335,6 +344,19 @@ public class ObjectDeserializer {
     return fieldMap;
   }
 
+  // get an accessor of a field of a record class, generating its bytecode if possible
+  private FieldAccessor getFieldAccessor(Class<?> recordClass, String fieldName) throws NoSuchFieldException {
+    TypeToken<?> recordType = TypeToken.of(recordClass);
+    // check that the field exists, since the accessor factories only fail with an unchecked exception
+    Fields.findField(recordType, fieldName);
+    try {
+      return fieldAccessorFactory.getFieldAccessor(recordType, fieldName);
+    } catch (RuntimeException e) {
+      LOG.debug("Failed to generate accessor of field {} of {}. Using reflection instead.", fieldName, recordClass, e);
+      return reflectionFieldAccessorFactory.getFieldAccessor(recordType, fieldName);
+    }
+  }
+
   private ObjectInspector createInspector(List<String> fieldNames, List<TypeInfo> fieldTypes) {
     List<ObjectInspector> fieldInspectors = Lists.newArrayListWithCapacity(fieldTypes.size());
     for (TypeInfo typeInfo : fieldTypes) {
@@ -342,4 +364,76 @@ public class ObjectDeserializer {
     }
     return ObjectInspectorFactory.getStandardStructObjectInspector(fieldNames, fieldInspectors);
   }
+
+  /**
+   * Flattens the records of a schema into the list of the values of the Hive fields. The schema fields matching the
+   * Hive fields are looked up once, and the fields of record objects are read through {@link FieldAccessor}s, which
+   * are generated once per record class.
+   */
+  private final class RecordFlattener {
+    private final Schema.Field[] schemaFields;
+    private final TypeInfo[] fieldTypes;
+    // the accessors of the last record class seen, which is almost always the only one
+    private volatile RecordAccessors recordAccessors;
+
+    RecordFlattener(Schema schema, List<String> fieldNames, List<TypeInfo> fieldTypes) {
+      Map<String, Schema.Field> fieldMap = getFieldMap(schema);
+      this.schemaFields = new Schema.Field[fieldNames.size()];
+      this.fieldTypes = fieldTypes.toArray(new TypeInfo[fieldTypes.size()]);
+      for (int i = 0; i < schemaFields.length; i++) {
+        schemaFields[i] = fieldMap.get(fieldNames.get(i));
+      }
+    }
+
+    List<Object> flatten(Object obj) throws NoSuchFieldException, IllegalAccessException {
+      List<Object> objectFields = Lists.newArrayListWithCapacity(schemaFields.length);
+      if (obj instanceof StructuredRecord) {
+        StructuredRecord record = (StructuredRecord) obj;
+        Schema recordSchema = record.getSchema();
+        for (int i = 0; i < schemaFields.length; i++) {
+          // use the name from the schema field in case it is not all lowercase
+          String fieldName = schemaFields[i].getName();
+          if (recordSchema.getField(fieldName) == null) {
+            // the field was not read by the scan because the query does not use it
+            objectFields.add(null);
+            continue;
+          }
+          objectFields.add(deserializeField(record.get(fieldName), fieldTypes[i], schemaFields[i].getSchema()));
+        }
+        return objectFields;
+      }
+
+      FieldAccessor[] accessors = getAccessors(obj.getClass());
+      for (int i = 0; i < schemaFields.length; i++) {
+        objectFields.add(deserializeField(accessors[i].get(obj), fieldTypes[i], schemaFields[i].getSchema()));
+      }
+      return objectFields;
+    }
+
+    private FieldAccessor[] getAccessors(Class<?> recordClass) throws NoSuchFieldException {
+      RecordAccessors accessors = recordAccessors;
+      if (accessors != null && accessors.recordClass == recordClass) {
+        return accessors.accessors;
+      }
+      FieldAccessor[] fieldAccessors = new FieldAccessor[schemaFields.length];
+      for (int i = 0; i < schemaFields.length; i++) {
+        fieldAccessors[i] = getFieldAccessor(recordClass, schemaFields[i].getName());
+      }
+      recordAccessors = new RecordAccessors(recordClass, fieldAccessors);
+      return fieldAccessors;
+    }
+  }
+
+  /**
+   * The accessors of the fields of a record class, in the order of the Hive fields.
+   */
+  private static final class RecordAccessors {
+    private final Class<?> recordClass;
+    private final FieldAccessor[] accessors;
+
+    RecordAccessors(Class<?> recordClass, FieldAccessor[] accessors) {
+      this.recordClass = recordClass;
+      this.accessors = accessors;
+    }
+  }
 }
@@ -23,22 +23,18 @@ import co.cask.cdap.data.stream.StreamUtils;
 import co.cask.cdap.data2.transaction.stream.StreamAdmin;
 import co.cask.cdap.data2.transaction.stream.StreamConfig;
 import co.cask.cdap.hive.context.ContextManager;
+import co.cask.cdap.hive.predicate.QueryPredicates;
+import co.cask.cdap.hive.predicate.QueryPredicates.CompareOp;
 import co.cask.cdap.proto.Id;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.hive.ql.exec.Utilities;
 import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
 import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
 import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
 import org.apache.hadoop.hive.ql.plan.TableScanDesc;
-import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
-import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
-import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan;
-import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
-import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
 import org.apache.hadoop.io.ObjectWritable;
 import org.apache.hadoop.mapred.InputFormat;
 import org.apache.hadoop.mapred.InputSplit;
@@ -128,22 +124,10 @@ public class HiveStreamInputFormat implements InputFormat<Void, ObjectWritable>
     }
 
     try {
-      ExprNodeGenericFuncDesc expr;
-      // Hack to deal with the fact that older versions of Hive use
-      // Utilities.deserializeExpression(String, Configuration),
-      // whereas newer versions use Utilities.deserializeExpression(String).
-      try {
-        expr = Utilities.deserializeExpression(serializedExpr);
-      } catch (NoSuchMethodError e) {
-        expr = (ExprNodeGenericFuncDesc) Utilities.class.getMethod(
-          "deserializeExpression", String.class, Configuration.class).invoke(null, serializedExpr, conf);
-      }
+      ExprNodeGenericFuncDesc expr = QueryPredicates.deserializeExpression(serializedExpr, conf);
 
       // Analyze the query to extract predicates that can be used for indexing (i.e. setting start/end time)
-      IndexPredicateAnalyzer analyzer = new IndexPredicateAnalyzer();
-      for (CompareOp op : CompareOp.values()) {
-        analyzer.addComparisonOp(op.getOpClassName());
-      }
+      IndexPredicateAnalyzer analyzer = QueryPredicates.createAnalyzer();
 
       // Stream can only be indexed by timestamp
       analyzer.clearAllowedColumnNames();
@@ -187,35 +171,4 @@ public class HiveStreamInputFormat implements InputFormat<Void, ObjectWritable>
 
     return builder.setStartTime(startTime).setEndTime(endTime);
   }
-
-  private enum CompareOp {
-    EQUAL(GenericUDFOPEqual.class.getName()),
-    EQUAL_OR_GREATER(GenericUDFOPEqualOrGreaterThan.class.getName()),
-    EQUAL_OR_LESS(GenericUDFOPEqualOrLessThan.class.getName()),
-    GREATER(GenericUDFOPGreaterThan.class.getName()),
-    LESS(GenericUDFOPLessThan.class.getName());
-
-    private final String opClassName;
-
-    private CompareOp(String opClassName) {
-      this.opClassName = opClassName;
-    }
-
-    public String getOpClassName() {
-      return opClassName;
-    }
-
-    /**
-     * Returns a {@link CompareOp} by matching the given class name or {@code null} if there is none matching.
-     */
-    @Nullable
-    public static CompareOp from(String opClassName) {
-      for (CompareOp op : values()) {
-        if (op.getOpClassName().equals(opClassName)) {
-          return op;
-        }
-      }
-      return null;
-    }
-  }
 }
@@ -156,4 +156,31 @@ public class HiveExploreObjectMappedTableTestRun extends BaseHiveExploreServiceT
                Lists.newArrayList(new QueryResult(Lists.<Object>newArrayList(record1.intField, record1.stringField)))
     );
   }
+
+  @Test
+  public void testSelectRowKeyRange() throws Exception {
+    String command = String.format("select intfield, stringfield from %s where row_key >= '2' and row_key < '5'",
+                                   MY_TABLE_NAME);
+    runCommand(NAMESPACE_ID, command,
+               true,
+               Lists.newArrayList(new ColumnDesc("intfield", "INT", 1, null),
+                                  new ColumnDesc("stringfield", "STRING", 2, null)),
+               Lists.newArrayList(new QueryResult(Lists.<Object>newArrayList(record2.intField, record2.stringField)))
+    );
+
+    command = String.format("select row_key from %s where row_key > '123' and row_key <= '456' and intfield < 0",
+                            MY_TABLE_NAME);
+    runCommand(NAMESPACE_ID, command,
+               true,
+               Lists.newArrayList(new ColumnDesc("row_key", "STRING", 1, null)),
+               Lists.newArrayList(new QueryResult(Lists.<Object>newArrayList("456")))
+    );
+
+    command = String.format("select row_key from %s where row_key > '456'", MY_TABLE_NAME);
+    runCommand(NAMESPACE_ID, command,
+               false,
+               Lists.newArrayList(new ColumnDesc("row_key", "STRING", 1, null)),
+               Lists.<QueryResult>newArrayList()
+    );
+  }
 }
@@ -16,14 +16,18 @@
 
 package co.cask.cdap.explore.service;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetDefinition;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.discovery.RandomEndpointStrategy;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.Decoder;
 import co.cask.cdap.explore.client.ExploreExecutionResult;
 import co.cask.cdap.explore.jdbc.ExploreDriver;
 import co.cask.cdap.explore.service.datasets.KeyStructValueTableDefinition;
 import co.cask.cdap.explore.service.datasets.NotRecordScannableTableDefinition;
+import co.cask.cdap.explore.utils.QueryResultCodec;
 import co.cask.cdap.hive.datasets.DatasetInputFormat;
 import co.cask.cdap.hive.datasets.DatasetSerDe;
 import co.cask.cdap.hive.datasets.DatasetStorageHandler;
@@ -52,7 +56,11 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
+import java.net.URL;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -580,6 +588,68 @@ public class HiveExploreServiceTestRun extends BaseHiveExploreServiceTest {
     connection.close();
   }
 
+  @Test
+  public void streamResultsTest() throws Exception {
+    DiscoveryServiceClient discoveryServiceClient = injector.getInstance(DiscoveryServiceClient.class);
+    Discoverable discoverable = new RandomEndpointStrategy(discoveryServiceClient.discover(
+      Constants.Service.EXPLORE_HTTP_USER_SERVICE)).pick();
+    InetSocketAddress addr = discoverable.getSocketAddress();
+
+    QueryHandle handle = exploreService.execute(NAMESPACE_ID, "select key, value from " + MY_TABLE_NAME);
+    try {
+      Assert.assertEquals(QueryStatus.OpStatus.FINISHED,
+                          waitForCompletionStatus(handle, 200, TimeUnit.MILLISECONDS, 50).getStatus());
+
+      // Ask for pages of one row, to have the results streamed in more than one chunk
+      HttpURLConnection urlConn = openResultsConnection(addr, handle);
+      try {
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, urlConn.getResponseCode());
+        Assert.assertEquals(QueryResultCodec.CONTENT_TYPE, urlConn.getContentType());
+
+        Decoder decoder = new BinaryDecoder(urlConn.getInputStream());
+        List<QueryResult> results = Lists.newArrayList();
+        List<QueryResult> page = QueryResultCodec.decodePage(decoder);
+        while (!page.isEmpty()) {
+          Assert.assertEquals(1, page.size());
+          results.addAll(page);
+          page = QueryResultCodec.decodePage(decoder);
+        }
+        Assert.assertEquals(
+          ImmutableList.of(
+            new QueryResult(Lists.<Object>newArrayList("1", "{\"name\":\"first\",\"ints\":[1,2,3,4,5]}")),
+            new QueryResult(Lists.<Object>newArrayList("2", "{\"name\":\"two\",\"ints\":[10,11,12,13,14]}"))),
+          trimColumnValues(results.iterator()));
+      } finally {
+        urlConn.disconnect();
+      }
+    } finally {
+      exploreService.close(handle);
+    }
+
+    // Unknown queries are reported with a response status, so that clients can fall back to paging
+    HttpURLConnection urlConn = openResultsConnection(addr, QueryHandle.generate());
+    try {
+      Assert.assertEquals(HttpURLConnection.HTTP_NOT_FOUND, urlConn.getResponseCode());
+    } finally {
+      urlConn.disconnect();
+    }
+  }
+
+  private HttpURLConnection openResultsConnection(InetSocketAddress addr, QueryHandle handle) throws IOException {
+    URL url = new URL(String.format("http://%s:%d%s/data/explore/queries/%s/results", addr.getHostName(),
+                                    addr.getPort(), Constants.Gateway.API_VERSION_3, handle.getHandle()));
+    HttpURLConnection urlConn = (HttpURLConnection) url.openConnection();
+    urlConn.setRequestMethod("POST");
+    urlConn.setDoOutput(true);
+    OutputStream os = urlConn.getOutputStream();
+    try {
+      os.write(Bytes.toBytes("{\"size\":\"1\"}"));
+    } finally {
+      os.close();
+    }
+    return urlConn;
+  }
+
   @Test
   public void testJoin() throws Exception {
     Id.DatasetInstance myTable1 = Id.DatasetInstance.from(NAMESPACE_ID, "my_table_1");
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.hive.serde;
+
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rows per second that {@link ObjectDeserializer} flattens into Hive rows, which is the work done by
+ * {@code DatasetSerDe.deserialize} for every record of a dataset. It is compared with reading the fields the way the
+ * deserializer used to, by looking up the schema fields and the class fields with reflection for every record.
+ * <p>
+ * Usage: {@code ObjectDeserializerBenchmark [records] [rounds]}
+ */
+public class ObjectDeserializerBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int records = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    Schema schema = new ReflectionSchemaGenerator().generate(Record.class);
+    List<String> fieldNames = Lists.newArrayList();
+    List<TypeInfo> fieldTypes = Lists.newArrayList();
+    for (Schema.Field field : schema.getFields()) {
+      fieldNames.add(field.getName().toLowerCase());
+    }
+    fieldTypes.add(TypeInfoFactory.doubleTypeInfo);
+    fieldTypes.add(TypeInfoFactory.floatTypeInfo);
+    fieldTypes.add(TypeInfoFactory.intTypeInfo);
+    fieldTypes.add(TypeInfoFactory.longTypeInfo);
+    fieldTypes.add(TypeInfoFactory.stringTypeInfo);
+    fieldTypes.add(TypeInfoFactory.stringTypeInfo);
+    ObjectDeserializer deserializer = new ObjectDeserializer(fieldNames, fieldTypes, schema);
+
+    List<Record> input = Lists.newArrayListWithCapacity(records);
+    for (int i = 0; i < records; i++) {
+      input.add(new Record(i));
+    }
+
+    // the first round warms up
+    for (int round = 0; round <= rounds; round++) {
+      long checksum = 0;
+      long startTime = System.nanoTime();
+      for (Record record : input) {
+        checksum += reflectionFlatten(record, fieldNames, schema).size();
+      }
+      long reflectionTime = System.nanoTime() - startTime;
+
+      startTime = System.nanoTime();
+      for (Record record : input) {
+        checksum += ((List<?>) deserializer.deserialize(record)).size();
+      }
+      long deserializerTime = System.nanoTime() - startTime;
+
+      if (round > 0) {
+        System.out.printf("round %d: reflection %d rows/s, deserializer %d rows/s (checksum %d)%n", round,
+                          records * TimeUnit.SECONDS.toNanos(1) / reflectionTime,
+                          records * TimeUnit.SECONDS.toNanos(1) / deserializerTime,
+                          checksum);
+      }
+    }
+  }
+
+  /**
+   * Flattens a record by looking up its fields for every record, as the deserializer used to.
+   */
+  private static List<Object> reflectionFlatten(Object record, List<String> fieldNames,
+                                                Schema schema) throws Exception {
+    Map<String, Schema.Field> fieldMap = Maps.newHashMap();
+    for (Schema.Field field : schema.getFields()) {
+      fieldMap.put(field.getName().toLowerCase(), field);
+    }
+    List<Object> objectFields = Lists.newArrayListWithCapacity(fieldNames.size());
+    for (String fieldName : fieldNames) {
+      Field field = record.getClass().getDeclaredField(fieldMap.get(fieldName).getName());
+      field.setAccessible(true);
+      Object value = field.get(record);
+      objectFields.add(value instanceof CharSequence ? value.toString() : value);
+    }
+    return objectFields;
+  }
+
+  static final class Record {
+    double doubleField;
+    float floatField;
+    int intField;
+    long longField;
+    String stringField;
+    String otherStringField;
+
+    Record(int i) {
+      this.doubleField = i / 3d;
+      this.floatField = i / 7f;
+      this.intField = i;
+      this.longField = i * 1000L;
+      this.stringField = "string" + i;
+      this.otherStringField = "other" + (i % 100);
+    }
+  }
+}
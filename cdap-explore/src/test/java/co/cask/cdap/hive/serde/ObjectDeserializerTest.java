@@ -19,11 +19,18 @@ package co.cask.cdap.hive.serde;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.FieldAccessor;
+import co.cask.cdap.internal.io.FieldAccessorFactory;
 import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
 import co.cask.cdap.internal.io.SchemaGenerator;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.reflect.TypeToken;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
 import org.junit.Assert;
@@ -36,6 +43,7 @@ import java.net.URL;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -202,6 +210,86 @@ public class ObjectDeserializerTest {
     }
   }
 
+  // a plain java object, with private fields that are only exposed through getters
+  public static class Address {
+    private String city;
+    private int zip;
+
+    public Address(String city, int zip) {
+      this.city = city;
+      this.zip = zip;
+    }
+
+    public String getCity() {
+      return city;
+    }
+
+    public int getZip() {
+      return zip;
+    }
+  }
+
+  public static class Person {
+    private String name;
+    private long id;
+    private Address address;
+
+    public Person(String name, long id, Address address) {
+      this.name = name;
+      this.id = id;
+      this.address = address;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public Address getAddress() {
+      return address;
+    }
+
+    private static List<String> getFieldNames() {
+      return Lists.newArrayList("name", "id", "address");
+    }
+
+    private static List<TypeInfo> getFieldTypes() {
+      return Lists.newArrayList(
+        TypeInfoFactory.stringTypeInfo,
+        TypeInfoFactory.longTypeInfo,
+        TypeInfoFactory.getStructTypeInfo(Lists.newArrayList("city", "zip"),
+                                          Lists.<TypeInfo>newArrayList(TypeInfoFactory.stringTypeInfo,
+                                                                       TypeInfoFactory.intTypeInfo))
+      );
+    }
+  }
+
+  /**
+   * A {@link FieldAccessorFactory} that records the fields it is asked for, and fails for all of them if it has no
+   * factory to delegate to.
+   */
+  private static final class RecordingFieldAccessorFactory implements FieldAccessorFactory {
+
+    private final FieldAccessorFactory delegate;
+    private final Set<String> fields = Sets.newHashSet();
+
+    private RecordingFieldAccessorFactory(FieldAccessorFactory delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public FieldAccessor getFieldAccessor(TypeToken<?> type, String fieldName) {
+      fields.add(type.getRawType().getSimpleName() + "." + fieldName);
+      if (delegate == null) {
+        throw new UnsupportedOperationException("No accessor for " + fieldName);
+      }
+      return delegate.getFieldAccessor(type, fieldName);
+    }
+  }
+
   @Test
   public void testIdentityTranslations() throws Exception {
     List<String> names = Lists.newArrayList("dummy-name");
@@ -384,6 +472,35 @@ public class ObjectDeserializerTest {
     assertSimpleRecordEquals((List<Object>) expected.get(2), (List<Object>) translated.get(2));
   }
 
+  @Test
+  public void testFlattenPojo() throws Exception {
+    // fields are read through generated accessors, for the nested record too
+    RecordingFieldAccessorFactory factory = new RecordingFieldAccessorFactory(new ASMFieldAccessorFactory());
+    assertFlattenPojo(factory);
+    Assert.assertEquals(ImmutableSet.of("Person.name", "Person.id", "Person.address", "Address.city", "Address.zip"),
+                        factory.fields);
+  }
+
+  @Test
+  public void testFlattenPojoReflectionFallback() throws Exception {
+    // fields are read with reflection if no accessor can be generated
+    RecordingFieldAccessorFactory factory = new RecordingFieldAccessorFactory(null);
+    assertFlattenPojo(factory);
+    Assert.assertEquals(5, factory.fields.size());
+  }
+
+  private void assertFlattenPojo(FieldAccessorFactory factory) throws Exception {
+    ObjectDeserializer translator = new ObjectDeserializer(Person.getFieldNames(), Person.getFieldTypes(),
+                                                           schemaGenerator.generate(Person.class), 0, factory);
+    Person alice = new Person("alice", 1L, new Address("springfield", 12345));
+    Person bob = new Person("bob", 2L, new Address("shelbyville", 54321));
+    // the accessors of the first record are reused for the next ones
+    Assert.assertEquals(ImmutableList.of("alice", 1L, ImmutableList.of("springfield", 12345)),
+                        translator.translateRecord(alice));
+    Assert.assertEquals(ImmutableList.of("bob", 2L, ImmutableList.of("shelbyville", 54321)),
+                        translator.translateRecord(bob));
+  }
+
   @SuppressWarnings("unchecked")
   private void assertSimpleRecordEquals(List<Object> expected, List<Object> actual) {
     // compare the non-array fields
@@ -16,9 +16,11 @@
 
 package co.cask.cdap.gateway.router;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.conf.SConfiguration;
+import co.cask.cdap.gateway.router.handlers.BackendConnectionPool;
 import co.cask.cdap.gateway.router.handlers.HttpRequestHandler;
 import co.cask.cdap.gateway.router.handlers.HttpStatusRequestHandler;
 import co.cask.cdap.gateway.router.handlers.SecurityAuthenticationHttpHandler;
@@ -50,8 +52,8 @@ import org.jboss.netty.channel.socket.nio.NioClientBossPool;
 import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioWorkerPool;
+import org.jboss.netty.handler.codec.http.HttpClientCodec;
 import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
-import org.jboss.netty.handler.codec.http.HttpRequestEncoder;
 import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,6 +79,8 @@ public class NettyRouter extends AbstractIdleService {
 
   private final int clientBossThreadPoolSize;
   private final int clientWorkerThreadPoolSize;
+  private final int clientPoolMaxIdleConnections;
+  private final long clientPoolIdleTimeoutSecs;
   private final InetAddress hostname;
   private final Map<String, Integer> serviceToPortMap;
 
@@ -92,6 +96,8 @@ public class NettyRouter extends AbstractIdleService {
 
   private ServerBootstrap serverBootstrap;
   private ClientBootstrap clientBootstrap;
+  private BackendConnectionPool connectionPool;
+  private MetricsCollectionService metricsCollectionService;
 
   private DiscoveryServiceClient discoveryServiceClient;
 
@@ -116,6 +122,10 @@ public class NettyRouter extends AbstractIdleService {
                                                  Constants.Router.DEFAULT_CLIENT_BOSS_THREADS);
     this.clientWorkerThreadPoolSize = cConf.getInt(Constants.Router.CLIENT_WORKER_THREADS,
                                                    Constants.Router.DEFAULT_CLIENT_WORKER_THREADS);
+    this.clientPoolMaxIdleConnections = cConf.getInt(Constants.Router.CLIENT_POOL_MAX_IDLE_CONNECTIONS,
+                                                     Constants.Router.DEFAULT_CLIENT_POOL_MAX_IDLE_CONNECTIONS);
+    this.clientPoolIdleTimeoutSecs = cConf.getLong(Constants.Router.CLIENT_POOL_IDLE_TIMEOUT_SECS,
+                                                   Constants.Router.DEFAULT_CLIENT_POOL_IDLE_TIMEOUT_SECS);
 
     this.hostname = hostname;
     this.serviceToPortMap = Maps.newHashMap();
@@ -167,6 +177,13 @@ public class NettyRouter extends AbstractIdleService {
     LOG.info("Service to Port Mapping - {}", this.serviceToPortMap);
   }
 
+  @SuppressWarnings("unused")
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    // Optional injection is used since metrics of the router are only emitted when there is a metrics service
+    this.metricsCollectionService = metricsCollectionService;
+  }
+
   @Override
   protected void startUp() throws Exception {
     ChannelUpstreamHandler connectionTracker =  new SimpleChannelUpstreamHandler() {
@@ -194,6 +211,7 @@ public class NettyRouter extends AbstractIdleService {
       }
     } finally {
       serverBootstrap.shutdown();
+      connectionPool.close();
       clientBootstrap.shutdown();
       clientBootstrap.releaseExternalResources();
       serverBootstrap.releaseExternalResources();
@@ -245,7 +263,7 @@ public class NettyRouter extends AbstractIdleService {
           }
           // for now there's only one hardcoded rule, but if there will be more, we may want it generic and configurable
           pipeline.addLast("http-request-handler",
-                           new HttpRequestHandler(clientBootstrap, serviceLookup, ImmutableList.<ProxyRule>of()));
+                           new HttpRequestHandler(connectionPool, serviceLookup, ImmutableList.<ProxyRule>of()));
           return pipeline;
         }
       }
@@ -294,12 +312,17 @@ public class NettyRouter extends AbstractIdleService {
       public ChannelPipeline getPipeline() throws Exception {
         ChannelPipeline pipeline = Channels.pipeline();
         pipeline.addLast("tracker", connectionTracker);
-        pipeline.addLast("request-encoder", new HttpRequestEncoder());
+        // Responses are decoded to know when a connection can be given back to the pool
+        pipeline.addLast("codec", new HttpClientCodec());
         return pipeline;
       }
     });
 
     clientBootstrap.setOption("bufferFactory", new DirectChannelBufferFactory());
+    clientBootstrap.setOption("keepAlive", true);
+
+    connectionPool = new BackendConnectionPool(clientBootstrap, clientPoolMaxIdleConnections,
+                                               clientPoolIdleTimeoutSecs, metricsCollectionService);
   }
 
   private boolean isSSLEnabled() {
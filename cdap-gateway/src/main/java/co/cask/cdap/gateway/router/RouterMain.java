@@ -16,21 +16,30 @@
 
 package co.cask.cdap.gateway.router;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.guice.ConfigModule;
 import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
 import co.cask.cdap.common.guice.IOModule;
+import co.cask.cdap.common.guice.KafkaClientModule;
 import co.cask.cdap.common.guice.LocationRuntimeModule;
 import co.cask.cdap.common.guice.ZKClientModule;
 import co.cask.cdap.common.kerberos.SecurityUtil;
+import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
 import co.cask.cdap.common.runtime.DaemonMain;
+import co.cask.cdap.metrics.guice.MetricsClientRuntimeModule;
 import co.cask.cdap.security.guice.SecurityModules;
 import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.Futures;
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.Scopes;
+import com.google.inject.util.Modules;
 import org.apache.twill.common.Services;
+import org.apache.twill.kafka.client.KafkaClientService;
 import org.apache.twill.zookeeper.ZKClientService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +51,8 @@ public class RouterMain extends DaemonMain {
   private static final Logger LOG = LoggerFactory.getLogger(RouterMain.class);
 
   private ZKClientService zkClientService;
+  private KafkaClientService kafkaClientService;
+  private MetricsCollectionService metricsCollectionService;
   private NettyRouter router;
 
   public static void main(String[] args) {
@@ -73,6 +84,10 @@ public class RouterMain extends DaemonMain {
 
       Injector injector = createGuiceInjector(cConf);
       zkClientService = injector.getInstance(ZKClientService.class);
+      if (isMetricsEnabled(cConf)) {
+        kafkaClientService = injector.getInstance(KafkaClientService.class);
+      }
+      metricsCollectionService = injector.getInstance(MetricsCollectionService.class);
 
       // Get the Router
       router = injector.getInstance(NettyRouter.class);
@@ -87,14 +102,22 @@ public class RouterMain extends DaemonMain {
   @Override
   public void start() {
     LOG.info("Starting Router...");
-    Futures.getUnchecked(Services.chainStart(zkClientService, router));
+    if (kafkaClientService == null) {
+      Futures.getUnchecked(Services.chainStart(zkClientService, metricsCollectionService, router));
+    } else {
+      Futures.getUnchecked(Services.chainStart(zkClientService, kafkaClientService, metricsCollectionService, router));
+    }
     LOG.info("Router started.");
   }
 
   @Override
   public void stop() {
     LOG.info("Stopping Router...");
-    Futures.getUnchecked(Services.chainStop(router, zkClientService));
+    if (kafkaClientService == null) {
+      Futures.getUnchecked(Services.chainStop(router, metricsCollectionService, zkClientService));
+    } else {
+      Futures.getUnchecked(Services.chainStop(router, metricsCollectionService, kafkaClientService, zkClientService));
+    }
     LOG.info("Router stopped.");
   }
 
@@ -109,9 +132,30 @@ public class RouterMain extends DaemonMain {
       new ZKClientModule(),
       new LocationRuntimeModule().getDistributedModules(),
       new DiscoveryRuntimeModule().getDistributedModules(),
+      createMetricsModule(cConf),
       new RouterModules().getDistributedModules(),
       new SecurityModules().getDistributedModules(),
       new IOModule()
     );
   }
+
+  private static boolean isMetricsEnabled(CConfiguration cConf) {
+    return cConf.getBoolean(Constants.Router.METRICS_ENABLED, Constants.Router.DEFAULT_METRICS_ENABLED);
+  }
+
+  /**
+   * Returns the module for emitting the metrics of the router. Metrics are sent through Kafka, hence the router only
+   * connects to Kafka if its metrics are enabled. Otherwise the metrics are discarded.
+   */
+  private static Module createMetricsModule(CConfiguration cConf) {
+    if (isMetricsEnabled(cConf)) {
+      return Modules.combine(new KafkaClientModule(), new MetricsClientRuntimeModule().getDistributedModules());
+    }
+    return new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class).in(Scopes.SINGLETON);
+      }
+    };
+  }
 }
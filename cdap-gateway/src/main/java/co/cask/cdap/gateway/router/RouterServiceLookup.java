@@ -16,7 +16,12 @@
 
 package co.cask.cdap.gateway.router;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.discovery.EndpointLoadTracker;
 import co.cask.cdap.common.discovery.EndpointStrategy;
+import co.cask.cdap.common.discovery.LoadAwareEndpointStrategy;
 import co.cask.cdap.common.discovery.RandomEndpointStrategy;
 import co.cask.cdap.common.utils.Networks;
 import com.google.common.base.Objects;
@@ -44,17 +49,39 @@ import java.util.concurrent.atomic.AtomicReference;
 public class RouterServiceLookup {
   private static final Logger LOG = LoggerFactory.getLogger(RouterServiceLookup.class);
   private static final String DEFAULT_SERVICE_NAME = "default";
+  private static final String RANDOM_STRATEGY = "random";
+  private static final String LOAD_AWARE_STRATEGY = "load.aware";
 
   private final AtomicReference<Map<Integer, String>> serviceMapRef =
     new AtomicReference<Map<Integer, String>>(ImmutableMap.<Integer, String>of());
 
+  private final CConfiguration cConf;
   private final DiscoveryServiceClient discoveryServiceClient;
   private final LoadingCache<CacheKey, EndpointStrategy> discoverableCache;
   private final RouterPathLookup routerPathLookup;
+  private final EndpointLoadTracker loadTracker;
 
   @Inject
-  public RouterServiceLookup(DiscoveryServiceClient discoveryServiceClient, RouterPathLookup routerPathLookup) {
+  public RouterServiceLookup(CConfiguration cConf, DiscoveryServiceClient discoveryServiceClient,
+                             RouterPathLookup routerPathLookup, MetricsCollectionService metricsCollectionService) {
+    this(cConf, discoveryServiceClient, routerPathLookup, new EndpointLoadTracker(metricsCollectionService.getContext(
+      ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, Constants.SYSTEM_NAMESPACE,
+                      Constants.Metrics.Tag.COMPONENT, Constants.Service.GATEWAY))));
+  }
+
+  /**
+   * Creates a lookup that doesn't emit metrics of the load of the endpoints.
+   */
+  public RouterServiceLookup(CConfiguration cConf, DiscoveryServiceClient discoveryServiceClient,
+                             RouterPathLookup routerPathLookup) {
+    this(cConf, discoveryServiceClient, routerPathLookup, new EndpointLoadTracker());
+  }
+
+  private RouterServiceLookup(CConfiguration cConf, DiscoveryServiceClient discoveryServiceClient,
+                              RouterPathLookup routerPathLookup, EndpointLoadTracker loadTracker) {
+    this.cConf = cConf;
     this.discoveryServiceClient = discoveryServiceClient;
+    this.loadTracker = loadTracker;
     this.routerPathLookup = routerPathLookup;
     this.discoverableCache = CacheBuilder.newBuilder()
       .expireAfterAccess(1, TimeUnit.HOURS)
@@ -66,6 +93,14 @@ public class RouterServiceLookup {
       });
   }
 
+  /**
+   * @return the tracker of the load of the endpoints picked by load aware endpoint strategies, which must be told
+   *         about the requests sent to the endpoints.
+   */
+  public EndpointLoadTracker getLoadTracker() {
+    return loadTracker;
+  }
+
   /**
    * Lookup service name given port.
    *
@@ -141,7 +176,7 @@ public class RouterServiceLookup {
         endpointStrategy = discoverDefaultService(cacheKey);
       }
     } else {
-      endpointStrategy = discover(service);
+      endpointStrategy = discover(service, service);
     }
 
     if (endpointStrategy.pick() == null) {
@@ -157,12 +192,12 @@ public class RouterServiceLookup {
     throws UnsupportedEncodingException, ExecutionException {
     // First try with path routing
     String lookupService = genLookupName(key.getService(), key.getHost(), key.getFirstPathPart());
-    EndpointStrategy endpointStrategy = discover(lookupService);
+    EndpointStrategy endpointStrategy = discover(key.getService(), lookupService);
 
     if (endpointStrategy.pick() == null) {
       // Try without path routing
       lookupService = genLookupName(key.getService(), key.getHost());
-      endpointStrategy = discover(lookupService);
+      endpointStrategy = discover(key.getService(), lookupService);
     }
 
     return endpointStrategy;
@@ -172,19 +207,36 @@ public class RouterServiceLookup {
     throws UnsupportedEncodingException, ExecutionException {
     // Try only path routing
     String lookupService = genLookupName(key.getService(), DEFAULT_SERVICE_NAME, key.getFirstPathPart());
-    return discover(lookupService);
+    return discover(key.getService(), lookupService);
   }
 
-  private EndpointStrategy discover(String discoverName) throws ExecutionException {
+  private EndpointStrategy discover(String service, String discoverName) throws ExecutionException {
     LOG.debug("Looking up service name {}", discoverName);
 
-    EndpointStrategy endpointStrategy = new RandomEndpointStrategy(discoveryServiceClient.discover(discoverName));
+    EndpointStrategy endpointStrategy = createEndpointStrategy(service, discoverName);
     if (endpointStrategy.pick(300L, TimeUnit.MILLISECONDS) == null) {
       LOG.debug("Discoverable endpoint {} not found", discoverName);
     }
     return endpointStrategy;
   }
 
+  /**
+   * Creates the {@link EndpointStrategy} configured for the given service, which is the default strategy unless
+   * the service has its own.
+   */
+  private EndpointStrategy createEndpointStrategy(String service, String discoverName) {
+    String strategy = cConf.get(Constants.Router.ENDPOINT_STRATEGY + "." + service,
+                                cConf.get(Constants.Router.ENDPOINT_STRATEGY,
+                                          Constants.Router.DEFAULT_ENDPOINT_STRATEGY));
+    if (LOAD_AWARE_STRATEGY.equals(strategy)) {
+      return new LoadAwareEndpointStrategy(discoveryServiceClient.discover(discoverName), loadTracker);
+    }
+    if (!RANDOM_STRATEGY.equals(strategy)) {
+      LOG.warn("Unknown endpoint strategy {} for service {}, using {} strategy.", strategy, service, RANDOM_STRATEGY);
+    }
+    return new RandomEndpointStrategy(discoveryServiceClient.discover(discoverName));
+  }
+
   private String genLookupName(String service, String host) throws UnsupportedEncodingException {
     String normalizedHost = Networks.normalizeWebappDiscoveryName(host);
     return service.replace("$HOST", normalizedHost);
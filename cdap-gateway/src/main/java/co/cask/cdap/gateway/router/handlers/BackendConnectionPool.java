@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.metrics.MetricsTags;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.apache.twill.common.Threads;
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.Channels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * Pool of keep-alive connections from the router to the backend services, shared by all the client connections of
+ * the router. Connections are kept per {@link WrappedDiscoverable}. A connection borrowed from the pool is checked
+ * to be still connected, and idle connections are closed after the idle timeout. A backend that has no connection
+ * left and has not been used for the idle timeout is removed from the pool.
+ */
+public class BackendConnectionPool {
+  private static final Logger LOG = LoggerFactory.getLogger(BackendConnectionPool.class);
+
+  private final ClientBootstrap clientBootstrap;
+  private final int maxIdleConnections;
+  private final long idleTimeoutNanos;
+  private final MetricsContext metricsContext;
+  private final ConcurrentMap<WrappedDiscoverable, BackendConnections> backends;
+  private final ScheduledExecutorService evictionExecutor;
+
+  /**
+   * Creates a pool.
+   *
+   * @param clientBootstrap bootstrap for connecting to backends
+   * @param maxIdleConnections maximum number of idle connections kept for each backend
+   * @param idleTimeoutSecs time in seconds after which an idle connection is closed
+   * @param metricsCollectionService for emitting pool metrics, or {@code null} to not emit metrics
+   */
+  public BackendConnectionPool(ClientBootstrap clientBootstrap, int maxIdleConnections, long idleTimeoutSecs,
+                               @Nullable MetricsCollectionService metricsCollectionService) {
+    Preconditions.checkArgument(maxIdleConnections >= 0, "Maximum number of idle connections must not be negative.");
+    Preconditions.checkArgument(idleTimeoutSecs > 0, "Idle connection timeout must be positive.");
+
+    this.clientBootstrap = clientBootstrap;
+    this.maxIdleConnections = maxIdleConnections;
+    this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSecs);
+    this.metricsContext = metricsCollectionService == null ? null : metricsCollectionService.getContext(
+      ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, Constants.SYSTEM_NAMESPACE,
+                      Constants.Metrics.Tag.COMPONENT, Constants.Service.GATEWAY));
+    this.backends = Maps.newConcurrentMap();
+    this.evictionExecutor = Executors.newSingleThreadScheduledExecutor(
+      Threads.createDaemonThreadFactory("router-connection-evictor"));
+
+    long evictionIntervalSecs = Math.max(1, idleTimeoutSecs / 2);
+    evictionExecutor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        evictIdleConnections();
+      }
+    }, evictionIntervalSecs, evictionIntervalSecs, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Borrows a connection to the given backend. An idle connection is reused if there is one, otherwise a new
+   * connection is made. The connection must be given back with {@link #release(WrappedDiscoverable, Channel)} when
+   * it can be reused, or closed otherwise.
+   *
+   * @return future of the connection
+   */
+  public ChannelFuture acquire(WrappedDiscoverable discoverable) {
+    BackendConnections connections = getConnections(discoverable);
+
+    IdleConnection idle = connections.idle.pollFirst();
+    while (idle != null) {
+      if (idle.channel.isConnected()) {
+        connections.increment("backend.connections.reused", 1);
+        return Channels.succeededFuture(idle.channel);
+      }
+      idle = connections.idle.pollFirst();
+    }
+    return connect(connections, discoverable);
+  }
+
+  /**
+   * Gives back a connection borrowed from this pool, after the response of its last request is fully received.
+   */
+  public void release(WrappedDiscoverable discoverable, Channel channel) {
+    BackendConnections connections = getConnections(discoverable);
+    // Idle connections are reused most recently used first, so that connections that are not needed time out
+    if (!channel.isConnected() || connections.idle.size() >= maxIdleConnections
+      || !connections.idle.offerFirst(new IdleConnection(channel))) {
+      channel.close();
+    }
+  }
+
+  /**
+   * Closes all the idle connections and stops the eviction of idle connections.
+   */
+  public void close() {
+    evictionExecutor.shutdownNow();
+    for (BackendConnections connections : backends.values()) {
+      IdleConnection idle = connections.idle.pollFirst();
+      while (idle != null) {
+        idle.channel.close();
+        idle = connections.idle.pollFirst();
+      }
+    }
+  }
+
+  private BackendConnections getConnections(WrappedDiscoverable discoverable) {
+    BackendConnections connections = backends.get(discoverable);
+    if (connections == null) {
+      connections = new BackendConnections(discoverable);
+      BackendConnections existing = backends.putIfAbsent(discoverable, connections);
+      if (existing != null) {
+        connections = existing;
+      }
+    }
+    connections.lastUsed = System.nanoTime();
+    return connections;
+  }
+
+  private ChannelFuture connect(final BackendConnections connections, WrappedDiscoverable discoverable) {
+    final long startTime = System.nanoTime();
+    ChannelFuture future = clientBootstrap.connect(discoverable.getSocketAddress());
+    future.addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(ChannelFuture future) throws Exception {
+        if (!future.isSuccess()) {
+          connections.increment("backend.connect.failures", 1);
+          return;
+        }
+        connections.increment("backend.connects", 1);
+        connections.increment("backend.connect.time.ms",
+                              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        connections.open.incrementAndGet();
+        future.getChannel().getCloseFuture().addListener(new ChannelFutureListener() {
+          @Override
+          public void operationComplete(ChannelFuture future) throws Exception {
+            connections.open.decrementAndGet();
+          }
+        });
+      }
+    });
+    return future;
+  }
+
+  private void evictIdleConnections() {
+    try {
+      long now = System.nanoTime();
+      for (BackendConnections connections : backends.values()) {
+        int evicted = 0;
+        Iterator<IdleConnection> iterator = connections.idle.iterator();
+        while (iterator.hasNext()) {
+          IdleConnection idle = iterator.next();
+          if ((now - idle.idleSince >= idleTimeoutNanos || !idle.channel.isConnected())
+            && connections.idle.removeFirstOccurrence(idle)) {
+            idle.channel.close();
+            evicted++;
+          }
+        }
+        connections.increment("backend.connections.evicted", evicted);
+        connections.gauge("backend.connections.open", connections.open.get());
+        connections.gauge("backend.connections.idle", connections.idle.size());
+
+        // Backends come and go with service instances, so forget the ones that are no longer used. A connection
+        // that is being made was acquired less than the idle timeout ago, and a leased connection is open.
+        if (connections.idle.isEmpty() && connections.open.get() == 0
+          && now - connections.lastUsed >= idleTimeoutNanos) {
+          backends.remove(connections.discoverable, connections);
+        }
+      }
+    } catch (Throwable t) {
+      LOG.warn("Failed to evict idle backend connections.", t);
+    }
+  }
+
+  /**
+   * The connections to one backend.
+   */
+  private final class BackendConnections {
+    private final WrappedDiscoverable discoverable;
+    private final Deque<IdleConnection> idle;
+    private final AtomicInteger open;
+    private final MetricsContext backendMetrics;
+    private volatile long lastUsed;
+
+    private BackendConnections(WrappedDiscoverable discoverable) {
+      this.discoverable = discoverable;
+      this.lastUsed = System.nanoTime();
+      this.idle = new LinkedBlockingDeque<>();
+      this.open = new AtomicInteger();
+      this.backendMetrics = metricsContext == null ? null : metricsContext.childContext(
+        MetricsTags.serviceEndpoint(discoverable.getName(), discoverable.getSocketAddress()));
+    }
+
+    private void increment(String metricName, long value) {
+      if (backendMetrics != null && value != 0) {
+        backendMetrics.increment(metricName, value);
+      }
+    }
+
+    private void gauge(String metricName, long value) {
+      if (backendMetrics != null) {
+        backendMetrics.gauge(metricName, value);
+      }
+    }
+  }
+
+  /**
+   * A connection in the pool with the time it became idle.
+   */
+  private static final class IdleConnection {
+    private final Channel channel;
+    private final long idleSince;
+
+    private IdleConnection(Channel channel) {
+      this.channel = channel;
+      this.idleSince = System.nanoTime();
+    }
+  }
+}
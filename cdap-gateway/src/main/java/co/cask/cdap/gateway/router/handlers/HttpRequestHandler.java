@@ -16,20 +16,22 @@
 
 package co.cask.cdap.gateway.router.handlers;
 
+import co.cask.cdap.common.discovery.EndpointLoadTracker;
 import co.cask.cdap.common.discovery.EndpointStrategy;
 import co.cask.cdap.common.exception.HandlerException;
 import co.cask.cdap.gateway.router.ProxyRule;
 import co.cask.cdap.gateway.router.RouterServiceLookup;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 import com.google.common.io.Closeables;
 import org.apache.twill.discovery.Discoverable;
-import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.ExceptionEvent;
@@ -37,6 +39,7 @@ import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
 import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
 import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponse;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
@@ -47,6 +50,7 @@ import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -60,7 +64,7 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(HttpRequestHandler.class);
 
-  private final ClientBootstrap clientBootstrap;
+  private final BackendConnectionPool connectionPool;
   private final RouterServiceLookup serviceLookup;
   // Data structure is used to clean up the channel futures on connection close.
   private final Map<WrappedDiscoverable, MessageSender> discoveryLookup;
@@ -69,10 +73,10 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
   private MessageSender chunkSender;
   private volatile boolean channelClosed;
 
-  public HttpRequestHandler(ClientBootstrap clientBootstrap,
+  public HttpRequestHandler(BackendConnectionPool connectionPool,
                             RouterServiceLookup serviceLookup,
                             List<ProxyRule> proxyRules) {
-    this.clientBootstrap = clientBootstrap;
+    this.connectionPool = connectionPool;
     this.serviceLookup = serviceLookup;
     this.discoveryLookup = Maps.newHashMap();
     this.proxyRules = proxyRules;
@@ -101,39 +105,21 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
       HttpRequest request = (HttpRequest) msg;
       request = applyProxyRules(request);
 
-      // Suspend incoming traffic until connected to the outbound service.
+      // Suspend incoming traffic until connected to the outbound service. The backend is picked from the request
+      // line and headers only, and the request body chunks are forwarded as they are read.
       inboundChannel.setReadable(false);
       WrappedDiscoverable discoverable = getDiscoverable(request,
                                                          (InetSocketAddress) inboundChannel.getLocalAddress());
 
-      // If no event sender, make new connection, otherwise reuse existing one.
-      MessageSender sender =  discoveryLookup.get(discoverable);
-      if (sender == null || !sender.isConnected()) {
-        InetSocketAddress address = discoverable.getSocketAddress();
-
-        ChannelFuture future = clientBootstrap.connect(address);
-        final Channel outboundChannel = future.getChannel();
-        outboundChannel.getPipeline().addAfter("request-encoder",
-                                               "outbound-handler", new OutboundHandler(inboundChannel));
-        sender = new MessageSender(inboundChannel, future);
+      // Reuse the connection of this client to the backend if it has not been given back to the pool,
+      // otherwise borrow a connection from the pool.
+      MessageSender sender = discoveryLookup.get(discoverable);
+      if (sender == null || !sender.isConnected() || !sender.send(request)) {
+        sender = createMessageSender(inboundChannel, discoverable);
         discoveryLookup.put(discoverable, sender);
-
-        // Remember the in-flight outbound channel
-        inboundChannel.setAttachment(outboundChannel);
-        outboundChannel.getCloseFuture().addListener(new ChannelFutureListener() {
-          @Override
-          public void operationComplete(ChannelFuture future) throws Exception {
-            // When the outbound channel closed, close the inbound channel as well if it carries the in-flight request
-            if (outboundChannel.equals(inboundChannel.getAttachment())) {
-              closeOnFlush(inboundChannel);
-            }
-          }
-        });
+        sender.send(request);
       }
-
-      // Send the message.
-      sender.send(request);
-      inboundChannel.setReadable(true);
+      sender.resumeReading();
 
       //Save the channelFuture for subsequent chunks
       if (request.isChunked()) {
@@ -179,6 +165,22 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
     super.channelClosed(ctx, e);
   }
 
+  private MessageSender createMessageSender(Channel inboundChannel, WrappedDiscoverable discoverable) {
+    ChannelFuture future = connectionPool.acquire(discoverable);
+    MessageSender sender = new MessageSender(inboundChannel, discoverable, connectionPool,
+                                             serviceLookup.getLoadTracker(), future);
+
+    // Bind the backend connection to this client
+    OutboundHandler outboundHandler = new OutboundHandler(inboundChannel, sender);
+    ChannelPipeline pipeline = future.getChannel().getPipeline();
+    if (pipeline.get("outbound-handler") == null) {
+      pipeline.addLast("outbound-handler", outboundHandler);
+    } else {
+      pipeline.replace("outbound-handler", "outbound-handler", outboundHandler);
+    }
+    return sender;
+  }
+
   /**
    * Closes the specified channel after all queued write requests are flushed.
    */
@@ -214,16 +216,37 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
    * It uses a lock-free algorithm similar to the one
    * in {@link co.cask.cdap.data.stream.service.ConcurrentStreamWriter} to do the write through the
    * channel callback.
+   *
+   * The backend connection is given back to the pool when the responses of all the requests sent are received,
+   * unless a request or response doesn't keep the connection alive, or requests are pipelined.
+   *
+   * The start and completion of requests are given to the {@link EndpointLoadTracker} of the backends.
    */
-  private static final class MessageSender implements Closeable {
+  private static final class MessageSender implements Closeable, OutboundHandler.ResponseListener {
     private final Channel inBoundChannel;
+    private final WrappedDiscoverable discoverable;
+    private final BackendConnectionPool connectionPool;
+    private final EndpointLoadTracker loadTracker;
     private final ChannelFuture channelFuture;
     private final Queue<OutboundMessage> messages;
     private final AtomicBoolean writer;
 
-    private MessageSender(Channel inBoundChannel, ChannelFuture channelFuture) {
+    // Start time of the requests sent that have not received their response
+    private final Deque<Long> requestStartTimes;
+    private boolean requestCompleted = true;
+    private boolean reusable = true;
+    // Whether the connection is given back to the pool or closed
+    private boolean done;
+
+    private MessageSender(Channel inBoundChannel, WrappedDiscoverable discoverable,
+                          BackendConnectionPool connectionPool, EndpointLoadTracker loadTracker,
+                          ChannelFuture channelFuture) {
       this.inBoundChannel = inBoundChannel;
+      this.discoverable = discoverable;
+      this.connectionPool = connectionPool;
+      this.loadTracker = loadTracker;
       this.channelFuture = channelFuture;
+      this.requestStartTimes = Lists.newLinkedList();
       this.messages = Queues.newConcurrentLinkedQueue();
       this.writer = new AtomicBoolean(false);
     }
@@ -232,7 +255,29 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
       return channelFuture.getChannel().isConnected();
     }
 
-    private void send(Object msg) {
+    /**
+     * Sends a message to the backend.
+     *
+     * @return {@code false} if the message cannot be sent because the connection is no longer usable by the client
+     */
+    private boolean send(Object msg) {
+      synchronized (this) {
+        if (done) {
+          return false;
+        }
+        if (msg instanceof HttpRequest) {
+          HttpRequest request = (HttpRequest) msg;
+          reusable = reusable && requestStartTimes.isEmpty() && HttpHeaders.isKeepAlive(request);
+          requestStartTimes.add(System.nanoTime());
+          requestCompleted = !request.isChunked();
+        } else if (msg instanceof HttpChunk && ((HttpChunk) msg).isLast()) {
+          requestCompleted = true;
+        }
+      }
+      if (msg instanceof HttpRequest) {
+        loadTracker.requestStarted(discoverable);
+      }
+
       // Attach the outbound channel to the inbound to indicate the in-flight request outbound.
       inBoundChannel.setAttachment(channelFuture.getChannel());
 
@@ -253,6 +298,53 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
           }
         });
       }
+      return true;
+    }
+
+    /**
+     * Resumes reading from the client once the backend connection is established and can take more data, so that
+     * request chunks are not queued in the router while connecting. If the backend connection can't take more data,
+     * reading is resumed by the {@link OutboundHandler} when the backend connection is writable again.
+     */
+    void resumeReading() {
+      channelFuture.addListener(new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+          if (!future.isSuccess()) {
+            // The client connection is closed by the listener added by send
+            return;
+          }
+          final Channel outboundChannel = future.getChannel();
+          inBoundChannel.getPipeline().execute(new Runnable() {
+            @Override
+            public void run() {
+              if (outboundChannel.isWritable()) {
+                inBoundChannel.setReadable(true);
+              }
+            }
+          });
+        }
+      });
+    }
+
+    @Override
+    public boolean responseCompleted(boolean keepAlive) {
+      Long startTime;
+      boolean release;
+      synchronized (this) {
+        startTime = requestStartTimes.poll();
+        // A response that ends before its request is fully sent leaves the connection in an unknown state
+        reusable = reusable && keepAlive && requestCompleted;
+        release = !done && requestStartTimes.isEmpty() && reusable;
+        done = done || release;
+      }
+      if (startTime != null) {
+        loadTracker.requestCompleted(discoverable, System.nanoTime() - startTime);
+      }
+      if (release) {
+        connectionPool.release(discoverable, channelFuture.getChannel());
+      }
+      return release;
     }
 
     /**
@@ -284,7 +376,22 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
     @Override
     public void close() throws IOException {
-      closeOnFlush(channelFuture.getChannel());
+      boolean closeChannel;
+      List<Long> startTimes;
+      synchronized (this) {
+        closeChannel = !done;
+        done = true;
+        startTimes = Lists.newArrayList(requestStartTimes);
+        requestStartTimes.clear();
+      }
+      // Requests that get no response complete when the client connection is closed
+      long now = System.nanoTime();
+      for (long startTime : startTimes) {
+        loadTracker.requestCompleted(discoverable, now - startTime);
+      }
+      if (closeChannel) {
+        closeOnFlush(channelFuture.getChannel());
+      }
     }
   }
 
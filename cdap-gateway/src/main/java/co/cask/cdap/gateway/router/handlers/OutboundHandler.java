@@ -16,44 +16,91 @@
 
 package co.cask.cdap.gateway.router.handlers;
 
-import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Handles requests to and from a discoverable endpoint.
+ * Handles requests to and from a discoverable endpoint. The handler forwards the responses of a backend connection
+ * to the client connection it is bound to, and tells the {@link ResponseListener} when a response is complete, so
+ * that the backend connection can be reused by other clients.
  */
 public class OutboundHandler extends SimpleChannelUpstreamHandler {
   private static final Logger LOG = LoggerFactory.getLogger(OutboundHandler.class);
 
-  private final Channel inboundChannel;
+  private final ResponseListener responseListener;
+  // Set to null when the backend connection is given back to the pool
+  private volatile Channel inboundChannel;
 
-  public OutboundHandler(Channel inboundChannel) {
+  // Whether the response being received is chunked, and whether it ends when the backend closes the connection
+  private boolean inChunkedResponse;
+  private boolean readUntilClose;
+  private boolean keepAlive;
+
+  public OutboundHandler(Channel inboundChannel, ResponseListener responseListener) {
     this.inboundChannel = inboundChannel;
+    this.responseListener = responseListener;
   }
 
   @Override
   public void messageReceived(ChannelHandlerContext ctx, final MessageEvent e) throws Exception {
-    ChannelBuffer msg = (ChannelBuffer) e.getMessage();
+    Channel inboundChannel = this.inboundChannel;
+    if (inboundChannel == null) {
+      LOG.debug("Unexpected message from idle backend connection {}", ctx.getChannel());
+      ctx.getChannel().close();
+      return;
+    }
+
+    Object msg = e.getMessage();
+    boolean completed = false;
+    if (msg instanceof HttpResponse) {
+      HttpResponse response = (HttpResponse) msg;
+      keepAlive = HttpHeaders.isKeepAlive(response);
+      if (response.isChunked()) {
+        inChunkedResponse = true;
+        readUntilClose = HttpHeaders.getContentLength(response, -1L) < 0
+          && !HttpHeaders.Values.CHUNKED.equalsIgnoreCase(response.getHeader(HttpHeaders.Names.TRANSFER_ENCODING));
+      } else {
+        // Informational responses are followed by the actual response
+        completed = response.getStatus().getCode() >= 200;
+      }
+    } else if (msg instanceof HttpChunk && ((HttpChunk) msg).isLast()) {
+      inChunkedResponse = false;
+      completed = true;
+    }
+
+    // Give back the backend connection before the client gets the end of the response,
+    // so that the next request of the client can reuse it
+    if (completed && !readUntilClose && responseListener.responseCompleted(keepAlive)) {
+      this.inboundChannel = null;
+    }
     inboundChannel.write(msg);
   }
 
   @Override
   public void channelInterestChanged(ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+    final Channel inboundChannel = this.inboundChannel;
+    if (inboundChannel == null) {
+      return;
+    }
     inboundChannel.getPipeline().execute(new Runnable() {
       @Override
       public void run() {
         // If outboundChannel is not saturated anymore, continue accepting
-        // the incoming traffic from the inboundChannel.
+        // the incoming traffic from the inboundChannel, unless the in-flight request goes to another backend.
         if (e.getChannel().isWritable()) {
-          LOG.trace("Setting inboundChannel readable.");
-          inboundChannel.setReadable(true);
+          if (e.getChannel().equals(inboundChannel.getAttachment())) {
+            LOG.trace("Setting inboundChannel readable.");
+            inboundChannel.setReadable(true);
+          }
         } else {
           // If outboundChannel is saturated, do not read inboundChannel
           LOG.trace("Setting inboundChannel non-readable.");
@@ -63,9 +110,40 @@ public class OutboundHandler extends SimpleChannelUpstreamHandler {
     });
   }
 
+  @Override
+  public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+    Channel inboundChannel = this.inboundChannel;
+    if (inboundChannel != null) {
+      // A response without length is terminated by the closing of the connection
+      if (inChunkedResponse && readUntilClose) {
+        inboundChannel.write(HttpChunk.LAST_CHUNK);
+      }
+      // Close the inbound channel as well if it carries the in-flight request
+      if (ctx.getChannel().equals(inboundChannel.getAttachment())) {
+        HttpRequestHandler.closeOnFlush(inboundChannel);
+      }
+    }
+    super.channelClosed(ctx, e);
+  }
+
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
     LOG.error("Got exception {}", ctx.getChannel(), e.getCause());
     HttpRequestHandler.closeOnFlush(e.getChannel());
   }
+
+  /**
+   * Listener of the completion of responses from the backend.
+   */
+  public interface ResponseListener {
+
+    /**
+     * Called when a response is fully received from the backend.
+     *
+     * @param keepAlive whether the backend keeps the connection open after the response
+     * @return {@code true} if the backend connection is given back to the pool, in which case the handler is no
+     *         longer bound to the client connection
+     */
+    boolean responseCompleted(boolean keepAlive);
+  }
 }
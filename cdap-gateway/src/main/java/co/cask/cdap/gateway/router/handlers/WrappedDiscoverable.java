@@ -25,17 +25,19 @@ import java.net.InetSocketAddress;
  * Wrapped discoverable is used to be used in other containers e.g., HashMap. Since the DiscoverableWrapper
  * is not available as a public class.
  */
-public class WrappedDiscoverable {
+public class WrappedDiscoverable implements Discoverable {
   private final Discoverable discoverable;
 
   public WrappedDiscoverable(Discoverable discoverable) {
     this.discoverable = discoverable;
   }
 
+  @Override
   public String getName() {
     return discoverable.getName();
   }
 
+  @Override
   public InetSocketAddress getSocketAddress() {
     return discoverable.getSocketAddress();
   }
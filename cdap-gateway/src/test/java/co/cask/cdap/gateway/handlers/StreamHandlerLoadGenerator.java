@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.handlers;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.gateway.GatewayTestBase;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load generator for the stream handler. Many concurrent clients each send small events with one HTTP POST per
+ * event, and the throughput and latency of the requests are reported.
+ * <p>
+ * Usage: {@code StreamHandlerLoadGenerator [clients] [requestsPerClient] [eventSize] [groupCommitWindowMs] [url]}
+ * <p>
+ * If no url is given, a gateway is started in process using {@code groupCommitWindowMs} as the stream group commit
+ * window. Otherwise events are sent to the given router url, e.g. {@code http://localhost:10000}, and the group
+ * commit window is whatever that instance is configured with.
+ */
+public class StreamHandlerLoadGenerator {
+
+  private static final String STREAM = "loadgen";
+
+  public static void main(String[] args) throws Exception {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+    int eventSize = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+    long groupCommitWindowMs = args.length > 3 ? Long.parseLong(args[3]) : 0L;
+    String url = args.length > 4 ? args[4] : null;
+
+    CConfiguration cConf = null;
+    File tmpDir = null;
+    if (url == null) {
+      tmpDir = Files.createTempDir();
+      cConf = CConfiguration.create();
+      cConf.setBoolean(Constants.Dangerous.UNRECOVERABLE_RESET, true);
+      cConf.set(Constants.Router.ADDRESS, "127.0.0.1");
+      cConf.setInt(Constants.Router.ROUTER_PORT, 0);
+      cConf.set(Constants.CFG_LOCAL_DATA_DIR, tmpDir.getAbsolutePath());
+      cConf.setLong(Constants.Stream.GROUP_COMMIT_WINDOW_MS, groupCommitWindowMs);
+      GatewayTestBase.startGateway(cConf);
+      url = "http://127.0.0.1:" + GatewayTestBase.getPort();
+    }
+
+    try {
+      String streamUrl = url + "/v3/namespaces/default/streams/" + STREAM;
+      if (send(new URL(streamUrl), "PUT", new byte[0]) != 200) {
+        throw new IOException("Failed to create stream " + STREAM);
+      }
+      // warm up, then measure
+      run(streamUrl, clients, Math.max(1, requestsPerClient / 10), eventSize);
+      run(streamUrl, clients, requestsPerClient, eventSize);
+    } finally {
+      if (cConf != null) {
+        GatewayTestBase.stopGateway(cConf);
+        DirUtils.deleteDirectoryContents(tmpDir);
+      }
+    }
+    System.exit(0);
+  }
+
+  private static void run(final String streamUrl, int clients, final int requestsPerClient,
+                            int eventSize) throws Exception {
+    final byte[] body = Strings.repeat("x", eventSize).getBytes("UTF-8");
+    final long[] latencies = new long[clients * requestsPerClient];
+    final AtomicInteger failures = new AtomicInteger();
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final CountDownLatch completion = new CountDownLatch(clients);
+    ExecutorService executor = Executors.newFixedThreadPool(clients);
+    for (int i = 0; i < clients; i++) {
+      final int client = i;
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            URL url = new URL(streamUrl);
+            startLatch.await();
+            for (int j = 0; j < requestsPerClient; j++) {
+              long start = System.nanoTime();
+              if (send(url, "POST", body) != 200) {
+                failures.incrementAndGet();
+              }
+              latencies[client * requestsPerClient + j] = System.nanoTime() - start;
+            }
+          } catch (Exception e) {
+            failures.incrementAndGet();
+          } finally {
+            completion.countDown();
+          }
+        }
+      });
+    }
+
+    long start = System.nanoTime();
+    startLatch.countDown();
+    completion.await();
+    long elapsed = System.nanoTime() - start;
+    executor.shutdown();
+
+    Arrays.sort(latencies);
+    System.out.printf("clients: %d, requests: %d, event size: %d, failures: %d%n",
+                      clients, latencies.length, eventSize, failures.get());
+    System.out.printf("throughput: %d requests/s, latency p50: %.2f ms, p99: %.2f ms, max: %.2f ms%n",
+                      latencies.length * TimeUnit.SECONDS.toNanos(1) / elapsed,
+                      percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 1.0));
+  }
+
+  private static double percentile(long[] sortedLatencies, double percentile) {
+    int idx = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+    return sortedLatencies[Math.max(0, idx)] / 1000000d;
+  }
+
+  private static int send(URL url, String method, byte[] body) throws IOException {
+    HttpURLConnection urlConn = (HttpURLConnection) url.openConnection();
+    urlConn.setRequestMethod(method);
+    urlConn.setRequestProperty(Constants.Gateway.API_KEY, GatewayTestBase.getAuthHeader().getValue());
+    urlConn.setDoOutput(true);
+    urlConn.setFixedLengthStreamingMode(body.length);
+    OutputStream os = urlConn.getOutputStream();
+    try {
+      os.write(body);
+    } finally {
+      os.close();
+    }
+    int responseCode = urlConn.getResponseCode();
+    // Drain the response without disconnecting, so that the keep-alive connection is reused
+    InputStream is = responseCode == 200 ? urlConn.getInputStream() : urlConn.getErrorStream();
+    if (is != null) {
+      try {
+        ByteStreams.toByteArray(is);
+      } finally {
+        is.close();
+      }
+    }
+    return responseCode;
+  }
+}
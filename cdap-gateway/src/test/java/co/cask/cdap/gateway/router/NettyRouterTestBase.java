@@ -20,15 +20,18 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.discovery.ResolvingDiscoverable;
 import co.cask.cdap.common.utils.Networks;
 import co.cask.http.AbstractHttpHandler;
+import co.cask.http.BodyConsumer;
 import co.cask.http.ChunkResponder;
 import co.cask.http.HttpResponder;
 import co.cask.http.NettyHttpService;
+import com.google.common.base.Function;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.ning.http.client.AsyncCompletionHandler;
 import com.ning.http.client.AsyncHttpClient;
@@ -50,6 +53,10 @@ import org.apache.twill.discovery.DiscoveryService;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 import org.apache.twill.discovery.InMemoryDiscoveryService;
 import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
 import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
@@ -62,6 +69,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
@@ -388,6 +396,54 @@ public abstract class NettyRouterTestBase {
     Assert.assertEquals(times, defaultServer1.getNumRequests() + defaultServer2.getNumRequests());
   }
 
+  @Test
+  public void testBackendConnectionReuse() throws Exception {
+    // Requests made one after the other, each from a new client connection, reuse the backend connections
+    int times = 20;
+    for (int i = 0; i < times; i++) {
+      HttpResponse response = get(resolveURI(Constants.Router.GATEWAY_DISCOVERY_NAME, "/v1/ping/reuse-" + i));
+      Assert.assertEquals(HttpResponseStatus.OK.getCode(), response.getStatusLine().getStatusCode());
+      EntityUtils.consume(response.getEntity());
+    }
+
+    Assert.assertEquals(times, defaultServer1.getNumRequests() + defaultServer2.getNumRequests());
+    // At most one connection to each of the two servers
+    Assert.assertTrue(defaultServer1.getNumConnections() <= 1);
+    Assert.assertTrue(defaultServer2.getNumConnections() <= 1);
+  }
+
+  @Test
+  public void testStreamingUpload() throws Exception {
+    // An upload much larger than the chunk size of the router, sent as a chunked stream of unknown length
+    byte[] chunk = new byte[64 * 1024];
+    int numChunks = 1024;
+
+    HttpURLConnection urlConn = openURL(new URL(resolveURI(DEFAULT_SERVICE, "/v1/upload/count")));
+    try {
+      urlConn.setRequestMethod("POST");
+      urlConn.setDoOutput(true);
+      urlConn.setChunkedStreamingMode(chunk.length);
+      OutputStream os = urlConn.getOutputStream();
+      try {
+        for (int i = 0; i < numChunks; i++) {
+          os.write(chunk);
+        }
+      } finally {
+        os.close();
+      }
+      Assert.assertEquals(HttpURLConnection.HTTP_OK, urlConn.getResponseCode());
+      InputStream is = urlConn.getInputStream();
+      try {
+        Assert.assertEquals(Long.toString((long) chunk.length * numChunks),
+                            new String(ByteStreams.toByteArray(is), "UTF-8"));
+      } finally {
+        is.close();
+      }
+    } finally {
+      urlConn.disconnect();
+    }
+  }
+
   protected HttpURLConnection openURL(URL url) throws Exception {
     return (HttpURLConnection) url.openConnection();
   }
@@ -464,6 +520,7 @@ public abstract class NettyRouterTestBase {
     private final DiscoveryService discoveryService;
     private final Supplier<String> serviceNameSupplier;
     private final AtomicInteger numRequests = new AtomicInteger(0);
+    private final AtomicInteger numConnections = new AtomicInteger(0);
 
     private NettyHttpService httpService;
     private Cancellable cancelDiscovery;
@@ -480,6 +537,19 @@ public abstract class NettyRouterTestBase {
       builder.addHttpHandlers(ImmutableSet.of(new ServerHandler()));
       builder.setHost(hostname);
       builder.setPort(0);
+      builder.modifyChannelPipeline(new Function<ChannelPipeline, ChannelPipeline>() {
+        @Override
+        public ChannelPipeline apply(ChannelPipeline input) {
+          input.addFirst("connection-counter", new SimpleChannelUpstreamHandler() {
+            @Override
+            public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+              numConnections.incrementAndGet();
+              super.channelConnected(ctx, e);
+            }
+          });
+          return input;
+        }
+      });
       httpService = builder.build();
       httpService.startAndWait();
 
@@ -498,8 +568,13 @@ public abstract class NettyRouterTestBase {
       return numRequests.get();
     }
 
+    public int getNumConnections() {
+      return numConnections.get();
+    }
+
     public void clearNumRequests() {
       numRequests.set(0);
+      numConnections.set(0);
     }
 
     public void registerServer() {
@@ -595,6 +670,31 @@ public abstract class NettyRouterTestBase {
         }
         chunkResponder.close();
       }
+
+      @POST
+      @Path("/v1/upload/count")
+      public BodyConsumer uploadCount(@SuppressWarnings("UnusedParameters") HttpRequest request,
+                                      HttpResponder responder) {
+        numRequests.incrementAndGet();
+        return new BodyConsumer() {
+          private long count;
+
+          @Override
+          public void chunk(ChannelBuffer request, HttpResponder responder) {
+            count += request.readableBytes();
+          }
+
+          @Override
+          public void finished(HttpResponder responder) {
+            responder.sendString(HttpResponseStatus.OK, Long.toString(count));
+          }
+
+          @Override
+          public void handleError(Throwable cause) {
+            log.error("Failed to receive upload", cause);
+          }
+        };
+      }
     }
   }
 }
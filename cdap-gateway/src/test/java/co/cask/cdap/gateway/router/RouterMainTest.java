@@ -16,8 +16,13 @@
 
 package co.cask.cdap.gateway.router;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
 import com.google.inject.Injector;
+import com.google.inject.Key;
+import org.apache.twill.kafka.client.KafkaClientService;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -35,5 +40,20 @@ public class RouterMainTest {
 
     NettyRouter router = injector.getInstance(NettyRouter.class);
     Assert.assertNotNull(router);
+
+    // Without router metrics, there is no need for Kafka
+    Assert.assertTrue(injector.getInstance(MetricsCollectionService.class) instanceof NoOpMetricsCollectionService);
+    Assert.assertNull(injector.getExistingBinding(Key.get(KafkaClientService.class)));
+  }
+
+  @Test
+  public void testGuiceInjectionWithMetrics() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setBoolean(Constants.Router.METRICS_ENABLED, true);
+
+    Injector injector = RouterMain.createGuiceInjector(cConf);
+    Assert.assertNotNull(injector.getInstance(NettyRouter.class));
+    Assert.assertFalse(injector.getInstance(MetricsCollectionService.class) instanceof NoOpMetricsCollectionService);
+    Assert.assertNotNull(injector.getInstance(KafkaClientService.class));
   }
 }
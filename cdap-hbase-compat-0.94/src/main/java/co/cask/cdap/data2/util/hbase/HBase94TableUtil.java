@@ -36,6 +36,7 @@ import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.hfile.Compression;
 import org.apache.hadoop.hbase.regionserver.StoreFile;
 
@@ -186,6 +187,12 @@ public class HBase94TableUtil extends HBaseTableUtil {
     }
   }
 
+  @Override
+  public void setMaxResultSize(Scan scan, long maxResultSize) {
+    // not supported by the 0.94 client: the limit can only be set for the whole client with
+    // hbase.client.scanner.max.result.size
+  }
+
   @Override
   public CompressionType getCompression(HColumnDescriptor columnDescriptor) {
     Compression.Algorithm type = columnDescriptor.getCompressionType();
@@ -21,6 +21,7 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.queue.QueueName;
 import co.cask.cdap.data2.transaction.queue.ConsumerEntryState;
 import co.cask.cdap.data2.transaction.queue.QueueEntryRow;
+import co.cask.tephra.Transaction;
 import com.google.common.primitives.Ints;
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.Scan;
@@ -45,7 +46,7 @@ final class HBase96QueueConsumer extends HBaseQueueConsumer {
   }
 
   @Override
-  protected Scan createScan(byte[] startRow, byte[] stopRow, int numRows) {
+  protected Scan createScan(Transaction tx, byte[] startRow, byte[] stopRow, int numRows) {
     // Scan the table for queue entries.
     Scan scan = new Scan();
     scan.setStartRow(startRow);
@@ -53,7 +54,7 @@ final class HBase96QueueConsumer extends HBaseQueueConsumer {
     scan.addColumn(QueueEntryRow.COLUMN_FAMILY, QueueEntryRow.DATA_COLUMN);
     scan.addColumn(QueueEntryRow.COLUMN_FAMILY, QueueEntryRow.META_COLUMN);
     scan.addColumn(QueueEntryRow.COLUMN_FAMILY, stateColumnName);
-    scan.setFilter(createFilter());
+    scan.setFilter(createFilter(tx));
     scan.setMaxVersions(1);
     return scan;
   }
@@ -61,10 +62,10 @@ final class HBase96QueueConsumer extends HBaseQueueConsumer {
   /**
    * Creates a HBase filter that will filter out rows that that has committed state = PROCESSED.
    */
-  private Filter createFilter() {
+  private Filter createFilter(Transaction tx) {
     return new FilterList(FilterList.Operator.MUST_PASS_ONE, processedStateFilter, new SingleColumnValueFilter(
       QueueEntryRow.COLUMN_FAMILY, stateColumnName, CompareFilter.CompareOp.GREATER,
-      new BinaryPrefixComparator(Bytes.toBytes(transaction.getReadPointer()))
+      new BinaryPrefixComparator(Bytes.toBytes(tx.getReadPointer()))
     ));
   }
 
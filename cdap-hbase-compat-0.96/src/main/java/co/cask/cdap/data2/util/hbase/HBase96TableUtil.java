@@ -38,6 +38,7 @@ import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.compress.Compression;
 
 import java.io.IOException;
@@ -206,6 +207,11 @@ public class HBase96TableUtil extends HBaseTableUtil {
     }
   }
 
+  @Override
+  public void setMaxResultSize(Scan scan, long maxResultSize) {
+    scan.setMaxResultSize(maxResultSize);
+  }
+
   @Override
   public CompressionType getCompression(HColumnDescriptor columnDescriptor) {
     Compression.Algorithm type = columnDescriptor.getCompressionType();
@@ -32,6 +32,10 @@ public final class LoggingConfiguration {
   public static final String LOG_PATTERN = "log.pattern";
   public static final String LOG_BASE_DIR = "log.base.dir";
   public static final String LOG_FILE_SYNC_INTERVAL_BYTES = "log.file.sync.interval.bytes";
+  // Approximate number of bytes of a log file covered by one time index entry. Indexing is disabled if not positive.
+  public static final String LOG_FILE_INDEX_INTERVAL_BYTES = "log.file.index.interval.bytes";
+  // Maximum number of log files read concurrently for a log query
+  public static final String LOG_READER_PARALLELISM = "log.reader.parallelism";
 
   // Used only in Distributed mode
   public static final String NUM_PARTITIONS = "log.publish.num.partitions";
@@ -62,6 +66,8 @@ public final class LoggingConfiguration {
   public static final long DEFAULT_LOG_SAVER_INACTIVE_FILE_INTERVAL_MS = 60 * 60 * 1000;
   public static final long DEFAULT_LOG_SAVER_CHECKPOINT_INTERVAL_MS = 60 * 1000;
   public static final long DEFAULT_LOG_RETENTION_DURATION_DAYS = 30;
+  public static final int DEFAULT_LOG_FILE_INDEX_INTERVAL_BYTES = 256 * 1024;
+  public static final int DEFAULT_LOG_READER_PARALLELISM = 4;
   public static final long DEFAULT_LOG_SAVER_TOPIC_WAIT_SLEEP_MS = TimeUnit.MILLISECONDS.convert(10, TimeUnit.SECONDS);
 
   private LoggingConfiguration() {}
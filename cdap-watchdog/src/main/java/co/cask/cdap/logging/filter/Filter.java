@@ -17,6 +17,7 @@
 package co.cask.cdap.logging.filter;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import org.apache.avro.generic.GenericRecord;
 
 /**
  * Represents a generic filter to filter ILoggingEvent objects.
@@ -24,6 +25,13 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 public interface Filter {
   boolean match(ILoggingEvent event);
 
+  /**
+   * Matches the log event in the given Avro record of the log schema without decoding it into an
+   * {@link ILoggingEvent}. The result must be the same as {@link #match(ILoggingEvent)} of the decoded event, so
+   * that readers can skip decoding events that don't match.
+   */
+  boolean match(GenericRecord datum);
+
   Filter EMPTY_FILTER = new EmptyFilter();
 
   /**
@@ -34,5 +42,10 @@ public interface Filter {
     public boolean match(ILoggingEvent event) {
       return true;
     }
+
+    @Override
+    public boolean match(GenericRecord datum) {
+      return true;
+    }
   }
 }
@@ -18,6 +18,8 @@ package co.cask.cdap.logging.filter;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import co.cask.cdap.logging.serialize.LoggingEvent;
+import org.apache.avro.generic.GenericRecord;
 
 /**
  * Represents an expression that matches log level.
@@ -34,6 +36,11 @@ public class LogLevelExpression implements Filter {
     return event.getLevel().isGreaterOrEqual(getLevel());
   }
 
+  @Override
+  public boolean match(GenericRecord datum) {
+    return LoggingEvent.getLevel(datum).isGreaterOrEqual(getLevel());
+  }
+
   public Level getLevel() {
     return level;
   }
@@ -17,7 +17,9 @@
 package co.cask.cdap.logging.filter;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import co.cask.cdap.logging.serialize.LoggingEvent;
 import com.google.common.base.Objects;
+import org.apache.avro.generic.GenericRecord;
 
 /**
  * Represents an expression that can match a key,value in MDC.
@@ -37,6 +39,12 @@ public class MdcExpression implements Filter {
     return value != null && value.equals(getValue());
   }
 
+  @Override
+  public boolean match(GenericRecord datum) {
+    String value = LoggingEvent.getMdcValue(datum, getKey());
+    return value != null && value.equals(getValue());
+  }
+
   public String getKey() {
     return key;
   }
@@ -19,6 +19,7 @@ package co.cask.cdap.logging.filter;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
+import org.apache.avro.generic.GenericRecord;
 
 import java.util.List;
 
@@ -42,6 +43,16 @@ public class OrFilter implements Filter {
     return false;
   }
 
+  @Override
+  public boolean match(GenericRecord datum) {
+    for (Filter expression : expressions) {
+      if (expression.match(datum)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
@@ -16,11 +16,11 @@
 
 package co.cask.cdap.logging.read;
 
-import ch.qos.logback.classic.spi.ILoggingEvent;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.io.SeekableInputStream;
 import co.cask.cdap.logging.filter.Filter;
 import co.cask.cdap.logging.serialize.LoggingEvent;
+import co.cask.cdap.logging.write.LogFileIndex;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -37,9 +37,11 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 /**
- * Reads log events from an Avro file.
+ * Reads log events from an Avro file. If the file has a {@link LogFileIndex}, only the parts of the file having
+ * events of the requested time are read, otherwise the file is scanned.
  */
 public class AvroFileReader {
   private static final Logger LOG = LoggerFactory.getLogger(AvroFileReader.class);
@@ -54,24 +56,38 @@ public class AvroFileReader {
   public void readLog(Location file, Filter logFilter, long fromTimeMs, long toTimeMs,
                       int maxEvents, Callback callback) {
     try {
+      List<LogFileIndex.Segment> segments = LogFileIndex.read(file);
       DataFileReader<GenericRecord> dataFileReader = createReader(file);
       try {
-        ILoggingEvent loggingEvent;
+        if (segments != null && !segments.isEmpty()) {
+          // Seek to the first segment that may have events at or after fromTimeMs, or to the unindexed tail
+          long seekPos = segments.get(segments.size() - 1).getEnd();
+          for (LogFileIndex.Segment segment : segments) {
+            if (segment.getMaxTimestamp() >= fromTimeMs) {
+              seekPos = segment.getStart();
+              break;
+            }
+          }
+          dataFileReader.seek(seekPos);
+          readEvents(dataFileReader, null, logFilter, fromTimeMs, toTimeMs, maxEvents, callback);
+          return;
+        }
+
         GenericRecord datum;
         if (dataFileReader.hasNext()) {
           datum = dataFileReader.next();
-          loggingEvent = LoggingEvent.decode(datum);
+          long timestamp = LoggingEvent.getTimestamp(datum);
           long prevPrevSyncPos = 0;
           long prevSyncPos = 0;
           // Seek to time fromTimeMs
-          while (loggingEvent.getTimeStamp() < fromTimeMs && dataFileReader.hasNext()) {
+          while (timestamp < fromTimeMs && dataFileReader.hasNext()) {
             // Seek to the next sync point
             long curPos = dataFileReader.tell();
             prevPrevSyncPos = prevSyncPos;
             prevSyncPos = dataFileReader.previousSync();
             dataFileReader.sync(curPos);
             if (dataFileReader.hasNext()) {
-              loggingEvent = LoggingEvent.decode(dataFileReader.next(datum));
+              timestamp = LoggingEvent.getTimestamp(dataFileReader.next(datum));
             }
           }
 
@@ -79,21 +95,7 @@ public class AvroFileReader {
           dataFileReader.sync(prevPrevSyncPos);
 
           // Start reading events from file
-          int count = 0;
-          long prevTimestamp = -1;
-          while (dataFileReader.hasNext()) {
-            loggingEvent = LoggingEvent.decode(dataFileReader.next(datum));
-            if (loggingEvent.getTimeStamp() >= fromTimeMs && logFilter.match(loggingEvent)) {
-              ++count;
-              if ((count > maxEvents || loggingEvent.getTimeStamp() >= toTimeMs)
-                && loggingEvent.getTimeStamp() != prevTimestamp) {
-                break;
-              }
-              callback.handle(new LogEvent(loggingEvent,
-                                           new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, loggingEvent.getTimeStamp())));
-            }
-            prevTimestamp = loggingEvent.getTimeStamp();
-          }
+          readEvents(dataFileReader, datum, logFilter, fromTimeMs, toTimeMs, maxEvents, callback);
         }
       } finally {
         try {
@@ -102,14 +104,41 @@ public class AvroFileReader {
           LOG.error(String.format("Got exception while closing log file %s", file.toURI()), e);
         }
       }
+    } catch (CancellationException e) {
+      // The callback doesn't want more events
+      throw e;
     } catch (Exception e) {
       LOG.error(String.format("Got exception while reading log file %s", file.toURI()), e);
       throw Throwables.propagate(e);
     }
   }
 
+  /**
+   * Reads events from the current position of the reader up to toTimeMs or maxEvents. Only the events that match
+   * the filter are decoded.
+   */
+  private void readEvents(DataFileReader<GenericRecord> dataFileReader, GenericRecord datum, Filter logFilter,
+                          long fromTimeMs, long toTimeMs, int maxEvents, Callback callback) throws IOException {
+    int count = 0;
+    long prevTimestamp = -1;
+    while (dataFileReader.hasNext()) {
+      datum = dataFileReader.next(datum);
+      long timestamp = LoggingEvent.getTimestamp(datum);
+      if (timestamp >= fromTimeMs && logFilter.match(datum)) {
+        ++count;
+        if ((count > maxEvents || timestamp >= toTimeMs) && timestamp != prevTimestamp) {
+          break;
+        }
+        callback.handle(new LogEvent(LoggingEvent.decode(datum),
+                                     new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, timestamp)));
+      }
+      prevTimestamp = timestamp;
+    }
+  }
+
   public Collection<LogEvent> readLogPrev(Location file, Filter logFilter, long fromTimeMs, final int maxEvents) {
     try {
+      List<LogFileIndex.Segment> segments = LogFileIndex.read(file);
       DataFileReader<GenericRecord> dataFileReader = createReader(file);
 
       try {
@@ -117,7 +146,11 @@ public class AvroFileReader {
           return ImmutableList.of();
         }
 
-        GenericRecord datum;
+        if (segments != null && !segments.isEmpty()) {
+          return readLogPrev(dataFileReader, segments, file.length(), logFilter, fromTimeMs, maxEvents);
+        }
+
+        GenericRecord datum = null;
         List<List<LogEvent>> logSegments = Lists.newArrayList();
         int count = 0;
 
@@ -141,19 +174,18 @@ public class AvroFileReader {
           logSegment = logSegment.isEmpty() ? logSegment : Lists.<LogEvent>newArrayList();
           // read all the elements in the current segment (seekPos up to lastSeekPos)
           while (dataFileReader.hasNext() && !dataFileReader.pastSync(lastSeekPos)) {
-            datum = dataFileReader.next();
-
-            ILoggingEvent loggingEvent = LoggingEvent.decode(datum);
+            datum = dataFileReader.next(datum);
+            long timestamp = LoggingEvent.getTimestamp(datum);
 
             // Stop when reached fromTimeMs
-            if (loggingEvent.getTimeStamp() > fromTimeMs) {
+            if (timestamp > fromTimeMs) {
               break;
             }
 
-            if (logFilter.match(loggingEvent)) {
+            if (logFilter.match(datum)) {
               ++count;
-              logSegment.add(new LogEvent(loggingEvent,
-                                          new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, loggingEvent.getTimeStamp())));
+              logSegment.add(new LogEvent(LoggingEvent.decode(datum),
+                                          new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, timestamp)));
             }
           }
 
@@ -181,6 +213,63 @@ public class AvroFileReader {
     }
   }
 
+  /**
+   * Reads events before fromTimeMs using the index of the file. Segments are read from the end of the file, skipping
+   * the ones that only have events after fromTimeMs, until there are enough events.
+   */
+  private Collection<LogEvent> readLogPrev(DataFileReader<GenericRecord> dataFileReader,
+                                           List<LogFileIndex.Segment> segments, long fileLength,
+                                           Filter logFilter, long fromTimeMs, int maxEvents) throws IOException {
+    List<List<LogEvent>> logSegments = Lists.newArrayList();
+    int count = 0;
+    GenericRecord datum = null;
+
+    // Start with the unindexed tail of the file, which goes from the end of the last segment to the end of the file
+    for (int i = segments.size(); i >= 0 && count <= maxEvents; i--) {
+      long start;
+      long end;
+      if (i == segments.size()) {
+        start = segments.get(i - 1).getEnd();
+        end = fileLength;
+        if (start >= end) {
+          continue;
+        }
+      } else {
+        LogFileIndex.Segment segment = segments.get(i);
+        if (segment.getMinTimestamp() > fromTimeMs) {
+          continue;
+        }
+        start = segment.getStart();
+        end = segment.getEnd();
+      }
+
+      dataFileReader.seek(start);
+      List<LogEvent> logSegment = Lists.newArrayList();
+      while (dataFileReader.hasNext() && dataFileReader.previousSync() < end) {
+        datum = dataFileReader.next(datum);
+        long timestamp = LoggingEvent.getTimestamp(datum);
+
+        // Stop when reached fromTimeMs
+        if (timestamp > fromTimeMs) {
+          break;
+        }
+
+        if (logFilter.match(datum)) {
+          ++count;
+          logSegment.add(new LogEvent(LoggingEvent.decode(datum),
+                                      new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, timestamp)));
+        }
+      }
+
+      if (!logSegment.isEmpty()) {
+        logSegments.add(logSegment);
+      }
+    }
+
+    int skip = count >= maxEvents ? count - maxEvents : 0;
+    return Lists.newArrayList(Iterables.skip(Iterables.concat(Lists.reverse(logSegments)), skip));
+  }
+
   private DataFileReader<GenericRecord> createReader(Location location) throws IOException {
     return new DataFileReader<>(new LocationSeekableInput(location),
                                              new GenericDatumReader<GenericRecord>(schema));
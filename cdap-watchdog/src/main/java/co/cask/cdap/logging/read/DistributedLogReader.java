@@ -27,10 +27,12 @@ import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+
 /**
  * Reads logs in a distributed setup, using kafka for latest logs and files for older logs.
  */
-public final class DistributedLogReader implements LogReader {
+public final class DistributedLogReader implements LogReader, Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(DistributedLogReader.class);
 
   private final KafkaLogReader kafkaLogReader;
@@ -92,6 +94,11 @@ public final class DistributedLogReader implements LogReader {
     fileLogReader.getLog(loggingContext, fromTimeMs, toTimeMs, filter, callback);
   }
 
+  @Override
+  public void close() {
+    fileLogReader.close();
+  }
+
   private long getCheckpointTime(LoggingContext loggingContext) {
     int partition = partitioner.partition(loggingContext.getLogPartition(), -1);
     try {
@@ -25,6 +25,7 @@ import co.cask.cdap.logging.filter.Filter;
 import co.cask.cdap.logging.serialize.LogSchema;
 import co.cask.cdap.logging.write.FileMetaDataManager;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
@@ -32,30 +33,77 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import org.apache.avro.Schema;
+import org.apache.twill.common.Threads;
 import org.apache.twill.filesystem.Location;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
- * Reads log events from a file.
+ * Reads log events from a file. Log files of a query are read in parallel, and their events are merged by timestamp.
+ * The reader threads are released by {@link #close()}.
  */
-public class FileLogReader implements LogReader {
+public class FileLogReader implements LogReader, Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(FileLogReader.class);
 
+  // Maximum number of events read ahead for each file being read
+  private static final int FILE_QUEUE_SIZE = 1000;
+  // Number of queries that can read their files with full parallelism at the same time
+  private static final int MAX_CONCURRENT_READS = 4;
+  private static final Object END_OF_FILE = new Object();
+  private static final Comparator<LogEvent> TIMESTAMP_ORDER = new Comparator<LogEvent>() {
+    @Override
+    public int compare(LogEvent o1, LogEvent o2) {
+      long ts1 = o1.getLoggingEvent().getTimeStamp();
+      long ts2 = o2.getLoggingEvent().getTimeStamp();
+      return ts1 < ts2 ? -1 : (ts1 == ts2 ? 0 : 1);
+    }
+  };
+
   private final FileMetaDataManager fileMetaDataManager;
   private final Schema schema;
+  private final int parallelism;
+  private final ExecutorService executor;
+  // Permits to read a file in the executor, one for each thread
+  private final Semaphore readerPermits;
 
   @Inject
   public FileLogReader(CConfiguration cConf, FileMetaDataManager fileMetaDataManager) {
     String baseDir = cConf.get(LoggingConfiguration.LOG_BASE_DIR);
     Preconditions.checkNotNull(baseDir, "Log base dir cannot be null");
 
+    this.parallelism = cConf.getInt(LoggingConfiguration.LOG_READER_PARALLELISM,
+                                    LoggingConfiguration.DEFAULT_LOG_READER_PARALLELISM);
+    Preconditions.checkArgument(parallelism > 0, "Log reader parallelism is invalid: %s", parallelism);
+
+    int threads = parallelism * MAX_CONCURRENT_READS;
+    ThreadPoolExecutor threadPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                                           new LinkedBlockingQueue<Runnable>(),
+                                                           Threads.createDaemonThreadFactory("log-file-reader-%d"));
+    threadPool.allowCoreThreadTimeOut(true);
+    this.executor = threadPool;
+    this.readerPermits = new Semaphore(threads);
+
     try {
       this.schema = new LogSchema().getAvroSchema();
       this.fileMetaDataManager = fileMetaDataManager;
@@ -77,9 +125,9 @@ public class FileLogReader implements LogReader {
     callback.init();
 
     try {
-      Filter logFilter = new AndFilter(ImmutableList.of(LoggingContextHelper.createFilter(loggingContext),
-                                                        filter));
-      long fromTimeMs = readRange.getFromMillis() + 1;
+      final Filter logFilter = new AndFilter(ImmutableList.of(LoggingContextHelper.createFilter(loggingContext),
+                                                              filter));
+      final long fromTimeMs = readRange.getFromMillis() + 1;
 
       SortedMap<Long, Location> sortedFiles = fileMetaDataManager.listFiles(loggingContext);
       if (sortedFiles.isEmpty()) {
@@ -102,13 +150,29 @@ public class FileLogReader implements LogReader {
         tailFiles.add(prevPath);
       }
 
-      AvroFileReader logReader = new AvroFileReader(schema);
-      for (Location file : tailFiles) {
-        logReader.readLog(file, logFilter, fromTimeMs, Long.MAX_VALUE, maxEvents - callback.getCount(), callback);
-        if (callback.getCount() >= maxEvents) {
-          break;
+      final AvroFileReader logReader = new AvroFileReader(schema);
+      readFiles(tailFiles, new FileEventReader() {
+        @Override
+        public void read(Location file, Callback fileCallback) {
+          logReader.readLog(file, logFilter, fromTimeMs, Long.MAX_VALUE, maxEvents, fileCallback);
         }
-      }
+      }, new Predicate<LogEvent>() {
+        private int count;
+        private long prevTimestamp = -1;
+
+        @Override
+        public boolean apply(LogEvent event) {
+          // Same as reading a single file, events having the same timestamp as the last one are not cut off
+          long timestamp = event.getLoggingEvent().getTimeStamp();
+          if (count >= maxEvents && timestamp != prevTimestamp) {
+            return false;
+          }
+          ++count;
+          prevTimestamp = timestamp;
+          callback.handle(event);
+          return true;
+        }
+      });
     } catch (Throwable e) {
       LOG.error("Got exception: ", e);
       throw  Throwables.propagate(e);
@@ -120,8 +184,8 @@ public class FileLogReader implements LogReader {
                               final Filter filter, final Callback callback) {
     callback.init();
     try {
-      Filter logFilter = new AndFilter(ImmutableList.of(LoggingContextHelper.createFilter(loggingContext),
-                                                        filter));
+      final Filter logFilter = new AndFilter(ImmutableList.of(LoggingContextHelper.createFilter(loggingContext),
+                                                              filter));
 
       SortedMap<Long, Location> sortedFiles =
         ImmutableSortedMap.copyOf(fileMetaDataManager.listFiles(loggingContext), Collections.<Long>reverseOrder());
@@ -129,7 +193,8 @@ public class FileLogReader implements LogReader {
         return;
       }
 
-      long fromTimeMs = readRange != ReadRange.LATEST ? readRange.getToMillis() - 1 : System.currentTimeMillis();
+      final long fromTimeMs =
+        readRange != ReadRange.LATEST ? readRange.getToMillis() - 1 : System.currentTimeMillis();
 
       List<Location> tailFiles = Lists.newArrayListWithExpectedSize(sortedFiles.size());
       for (Map.Entry<Long, Location> entry : sortedFiles.entrySet()) {
@@ -140,13 +205,39 @@ public class FileLogReader implements LogReader {
 
       List<Collection<LogEvent>> logSegments = Lists.newLinkedList();
       AvroFileReader logReader = new AvroFileReader(schema);
+      Iterator<Location> fileIterator = tailFiles.iterator();
       int count = 0;
-      for (Location file : tailFiles) {
-        Collection<LogEvent> events = logReader.readLogPrev(file, logFilter, fromTimeMs, maxEvents - count);
-        logSegments.add(events);
-        count += events.size();
-        if (count >= maxEvents) {
-          break;
+      while (count < maxEvents && fileIterator.hasNext()) {
+        int limit = maxEvents - count;
+        List<Future<Collection<LogEvent>>> futures = Lists.newArrayListWithCapacity(parallelism);
+        try {
+          // Read up to parallelism files at a time, from the latest. As in readFiles, more than one file is only read
+          // if reader threads are available.
+          while (futures.size() < parallelism && fileIterator.hasNext()) {
+            if (futures.isEmpty()) {
+              readerPermits.acquire();
+            } else if (!readerPermits.tryAcquire()) {
+              break;
+            }
+            futures.add(readLogPrev(logReader, fileIterator.next(), logFilter, fromTimeMs, limit));
+          }
+
+          // Merge the events of the files by timestamp, and keep the latest ones
+          List<LogEvent> events = Lists.newArrayList();
+          for (Future<Collection<LogEvent>> future : futures) {
+            events.addAll(future.get());
+          }
+          Collections.sort(events, TIMESTAMP_ORDER);
+          if (events.size() > limit) {
+            events = events.subList(events.size() - limit, events.size());
+          }
+          logSegments.add(events);
+          count += events.size();
+        } finally {
+          // no-op for completed reads, stops the others in case of failure
+          for (Future<Collection<LogEvent>> future : futures) {
+            future.cancel(true);
+          }
         }
       }
 
@@ -164,8 +255,8 @@ public class FileLogReader implements LogReader {
                           final Filter filter, final Callback callback) {
     callback.init();
     try {
-      Filter logFilter = new AndFilter(ImmutableList.of(LoggingContextHelper.createFilter(loggingContext),
-                                                        filter));
+      final Filter logFilter = new AndFilter(ImmutableList.of(LoggingContextHelper.createFilter(loggingContext),
+                                                              filter));
 
       SortedMap<Long, Location> sortedFiles = fileMetaDataManager.listFiles(loggingContext);
       if (sortedFiles.isEmpty()) {
@@ -187,13 +278,233 @@ public class FileLogReader implements LogReader {
         files.add(prevPath);
       }
 
-      AvroFileReader avroFileReader = new AvroFileReader(schema);
-      for (Location file : files) {
-        avroFileReader.readLog(file, logFilter, fromTimeMs, toTimeMs, Integer.MAX_VALUE, callback);
-      }
+      final AvroFileReader avroFileReader = new AvroFileReader(schema);
+      readFiles(files, new FileEventReader() {
+        @Override
+        public void read(Location file, Callback fileCallback) {
+          avroFileReader.readLog(file, logFilter, fromTimeMs, toTimeMs, Integer.MAX_VALUE, fileCallback);
+        }
+      }, new Predicate<LogEvent>() {
+        @Override
+        public boolean apply(LogEvent event) {
+          callback.handle(event);
+          return true;
+        }
+      });
     } catch (Throwable e) {
       LOG.error("Got exception: ", e);
       throw  Throwables.propagate(e);
     }
   }
+
+  /**
+   * Stops reading log files, and releases the reader threads.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Reads the latest events of a file in the executor. It must be called with a permit of {@link #readerPermits},
+   * which is released once the read is done or cancelled.
+   */
+  private Future<Collection<LogEvent>> readLogPrev(final AvroFileReader logReader, final Location file,
+                                                   final Filter logFilter, final long fromTimeMs, final int limit) {
+    FutureTask<Collection<LogEvent>> task = new FutureTask<Collection<LogEvent>>(new Callable<Collection<LogEvent>>() {
+      @Override
+      public Collection<LogEvent> call() throws Exception {
+        return logReader.readLogPrev(file, logFilter, fromTimeMs, limit);
+      }
+    }) {
+      @Override
+      protected void done() {
+        // also called if the task is cancelled before it runs
+        readerPermits.release();
+      }
+    };
+    try {
+      executor.execute(task);
+    } catch (RuntimeException e) {
+      readerPermits.release();
+      throw e;
+    }
+    return task;
+  }
+
+  /**
+   * Reads the given files with up to {@link #parallelism} files being read at the same time, and passes their events
+   * merged in timestamp order to the consumer, until the consumer returns {@code false}. Events of each file are read
+   * ahead into a bounded queue, so that memory used doesn't depend on the size of the files.
+   * <p>
+   * Each file being read takes one reader thread. At least one file is always read, more are read in parallel only if
+   * reader threads are available, since a reader thread can't be waited for while holding others, which may only
+   * continue once this query consumes their events.
+   *
+   * @param files files to read, in the order of time
+   * @param fileReader reads the events of a file
+   * @param consumer consumer of the merged events
+   */
+  private void readFiles(List<Location> files, FileEventReader fileReader,
+                         Predicate<LogEvent> consumer) throws Exception {
+    Iterator<Location> fileIterator = files.iterator();
+    List<FileEventQueue> queues = Lists.newLinkedList();
+    try {
+      while (true) {
+        while (queues.size() < parallelism && fileIterator.hasNext()) {
+          if (queues.isEmpty()) {
+            readerPermits.acquire();
+          } else if (!readerPermits.tryAcquire()) {
+            break;
+          }
+          queues.add(new FileEventQueue(fileIterator.next(), fileReader));
+        }
+        if (queues.isEmpty()) {
+          return;
+        }
+
+        // Pick the file with the earliest next event, which waits for the next event of each file
+        FileEventQueue next = null;
+        boolean fileEnded = false;
+        for (Iterator<FileEventQueue> iterator = queues.iterator(); iterator.hasNext();) {
+          FileEventQueue queue = iterator.next();
+          LogEvent event = queue.peek();
+          if (event == null) {
+            iterator.remove();
+            fileEnded = true;
+          } else if (next == null || TIMESTAMP_ORDER.compare(event, next.peek()) < 0) {
+            next = queue;
+          }
+        }
+        // Start reading the next file before picking an event, as it may have an earlier event
+        if (!fileEnded && !consumer.apply(next.poll())) {
+          return;
+        }
+      }
+    } finally {
+      for (FileEventQueue queue : queues) {
+        queue.cancel();
+      }
+    }
+  }
+
+  /**
+   * Reads events of a log file into a {@link Callback}.
+   */
+  private interface FileEventReader {
+    void read(Location file, Callback callback);
+  }
+
+  /**
+   * Queue of the events of a log file, which is filled by reading the file in the executor. It must be created with
+   * a permit of {@link #readerPermits}, which is released once the file is read.
+   */
+  private final class FileEventQueue implements Callback {
+    private final BlockingQueue<Object> queue;
+    private volatile boolean cancelled;
+    private int count;
+    // Next element of the queue, taken by the consumer
+    private Object head;
+
+    FileEventQueue(final Location file, final FileEventReader fileReader) {
+      this.queue = new ArrayBlockingQueue<>(FILE_QUEUE_SIZE);
+      try {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              Object end = END_OF_FILE;
+              try {
+                fileReader.read(file, FileEventQueue.this);
+              } catch (Throwable t) {
+                end = t;
+              }
+              put(end);
+            } finally {
+              readerPermits.release();
+            }
+          }
+        });
+      } catch (RuntimeException e) {
+        readerPermits.release();
+        throw e;
+      }
+    }
+
+    /**
+     * Returns the next event without removing it, waiting for it if necessary.
+     *
+     * @return the next event, or {@code null} if the end of file is reached
+     */
+    @Nullable
+    LogEvent peek() throws InterruptedException {
+      if (head == null) {
+        head = queue.take();
+      }
+      if (head == END_OF_FILE) {
+        return null;
+      }
+      if (head instanceof Throwable) {
+        throw Throwables.propagate((Throwable) head);
+      }
+      return (LogEvent) head;
+    }
+
+    /**
+     * Removes and returns the next event, waiting for it if necessary.
+     */
+    @Nullable
+    LogEvent poll() throws InterruptedException {
+      LogEvent event = peek();
+      if (event != null) {
+        head = null;
+      }
+      return event;
+    }
+
+    /**
+     * Stops adding events to the queue, which stops reading of the file at the next event.
+     */
+    void cancel() {
+      cancelled = true;
+    }
+
+    @Override
+    public void init() {
+      // No-op
+    }
+
+    @Override
+    public void handle(LogEvent event) {
+      if (!put(event)) {
+        // Stops the file reader
+        throw new CancellationException("Reading of log file is cancelled");
+      }
+      count++;
+    }
+
+    @Override
+    public int getCount() {
+      return count;
+    }
+
+    @Override
+    public void close() {
+      // No-op
+    }
+
+    private boolean put(Object element) {
+      try {
+        boolean added = false;
+        while (!cancelled && !added) {
+          added = queue.offer(element, 100, TimeUnit.MILLISECONDS);
+        }
+        return added;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancelled = true;
+        return false;
+      }
+    }
+  }
 }
@@ -16,7 +16,6 @@
 
 package co.cask.cdap.logging.read;
 
-import ch.qos.logback.classic.spi.ILoggingEvent;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.logging.LoggingContext;
 import co.cask.cdap.logging.LoggingConfiguration;
@@ -27,10 +26,12 @@ import co.cask.cdap.logging.context.LoggingContextHelper;
 import co.cask.cdap.logging.filter.AndFilter;
 import co.cask.cdap.logging.filter.Filter;
 import co.cask.cdap.logging.kafka.KafkaConsumer;
+import co.cask.cdap.logging.serialize.LoggingEvent;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
+import org.apache.avro.generic.GenericRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -239,12 +240,14 @@ public class KafkaLogReader implements LogReader {
 
     @Override
     public void handle(long offset, ByteBuffer msgBuffer) {
-      ILoggingEvent event = serializer.fromBytes(msgBuffer);
-      LogOffset logOffset = new LogOffset(offset, event.getTimeStamp());
+      GenericRecord datum = serializer.toGenericRecord(msgBuffer);
+      long timestamp = LoggingEvent.getTimestamp(datum);
+      LogOffset logOffset = new LogOffset(offset, timestamp);
 
-      if (offset < stopOffset && count < maxEvents && logFilter.match(event) && event.getTimeStamp() > fromTimeMs) {
+      // Only decode the events that are returned
+      if (offset < stopOffset && count < maxEvents && timestamp > fromTimeMs && logFilter.match(datum)) {
         ++count;
-        callback.handle(new LogEvent(event, logOffset));
+        callback.handle(new LogEvent(serializer.fromGenericRecord(datum), logOffset));
       }
 
       if (firstOffset == null) {
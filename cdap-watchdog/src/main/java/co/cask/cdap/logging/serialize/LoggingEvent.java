@@ -28,6 +28,7 @@ import org.apache.avro.generic.GenericArray;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.reflect.Nullable;
+import org.apache.avro.util.Utf8;
 import org.slf4j.Marker;
 
 import java.util.Arrays;
@@ -260,6 +261,38 @@ public final class LoggingEvent implements ILoggingEvent {
     return loggingEvent;
   }
 
+  /**
+   * Returns the timestamp of the event in the given record, without decoding the event.
+   */
+  public static long getTimestamp(GenericRecord datum) {
+    return (Long) datum.get("timestamp");
+  }
+
+  /**
+   * Returns the level of the event in the given record, without decoding the event.
+   */
+  public static Level getLevel(GenericRecord datum) {
+    return Level.toLevel((Integer) datum.get("level"));
+  }
+
+  /**
+   * Returns the MDC value of the given key of the event in the given record, without decoding the event.
+   * Returns {@code null} if the key is not in the MDC, same as the MDC of the decoded event.
+   */
+  public static String getMdcValue(GenericRecord datum, String key) {
+    Map<?, ?> map = (Map<?, ?>) datum.get("mdc");
+    if (map == null || MDC_NULL_KEY.equals(key)) {
+      return null;
+    }
+    String mapKey = key == null ? MDC_NULL_KEY : key;
+    // Keys are Utf8 when the record is read by Avro, and String when the record is encoded by this class
+    Object value = map.get(new Utf8(mapKey));
+    if (value == null) {
+      value = map.get(mapKey);
+    }
+    return value == null ? null : value.toString();
+  }
+
   static Map<String, String> decodeMdcMap(Map<?, ?> map) {
     if (map == null) {
       return null;
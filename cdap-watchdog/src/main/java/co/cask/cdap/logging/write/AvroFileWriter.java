@@ -19,6 +19,7 @@ package co.cask.cdap.logging.write;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.logging.LoggingContext;
+import co.cask.cdap.logging.LoggingConfiguration;
 import com.google.common.collect.Maps;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileWriter;
@@ -55,6 +56,7 @@ public final class AvroFileWriter implements Closeable, Flushable {
   private final Map<String, AvroFile> fileMap;
   private final long maxFileSize;
   private final long inactiveIntervalMs;
+  private final int indexIntervalBytes;
 
   private final AtomicBoolean closed = new AtomicBoolean(false);
 
@@ -81,6 +83,8 @@ public final class AvroFileWriter implements Closeable, Flushable {
     this.fileMap = Maps.newHashMap();
     this.maxFileSize = maxFileSize;
     this.inactiveIntervalMs = inactiveIntervalMs;
+    this.indexIntervalBytes = cConf.getInt(LoggingConfiguration.LOG_FILE_INDEX_INTERVAL_BYTES,
+                                           LoggingConfiguration.DEFAULT_LOG_FILE_INDEX_INTERVAL_BYTES);
   }
 
   /**
@@ -206,21 +210,32 @@ public final class AvroFileWriter implements Closeable, Flushable {
       if (avroFile.getLocation().exists()) {
         avroFile.getLocation().delete();
       }
+      Location indexLocation = LogFileIndex.getIndexLocation(avroFile.getLocation());
+      if (indexLocation.exists()) {
+        indexLocation.delete();
+      }
     } catch (IOException e) {
       LOG.error("Error while closing and deleting file {}", avroFile.getLocation(), e);
     }
   }
 
   /**
-   * Represents an Avro file.
+   * Represents an Avro file. If indexing is enabled, a {@link LogFileIndex} of the file is written along with it.
    */
   public class AvroFile implements Closeable {
     private final Location location;
     private FSDataOutputStream outputStream;
     private DataFileWriter<GenericRecord> dataFileWriter;
+    private LogFileIndex.Writer indexWriter;
     private long lastModifiedTs;
     private boolean isOpen = false;
 
+    // Start position and timestamp range of the segment being written, for the index
+    private long segmentStart;
+    private long segmentMinTs;
+    private long segmentMaxTs;
+    private boolean segmentEmpty = true;
+
     public AvroFile(Location location) {
       this.location = location;
     }
@@ -235,6 +250,10 @@ public final class AvroFileWriter implements Closeable, Flushable {
       this.dataFileWriter = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema));
       this.dataFileWriter.create(schema, this.outputStream);
       this.dataFileWriter.setSyncInterval(syncIntervalBytes);
+      if (indexIntervalBytes > 0) {
+        this.segmentStart = dataFileWriter.sync();
+        this.indexWriter = new LogFileIndex.Writer(location);
+      }
       this.lastModifiedTs = System.currentTimeMillis();
       this.isOpen = true;
     }
@@ -244,8 +263,33 @@ public final class AvroFileWriter implements Closeable, Flushable {
     }
 
     public void append(LogWriteEvent event) throws IOException {
+      if (indexWriter != null && !segmentEmpty && getPos() - segmentStart >= indexIntervalBytes) {
+        closeSegment();
+      }
       dataFileWriter.append(event.getGenericRecord());
       lastModifiedTs = System.currentTimeMillis();
+
+      if (indexWriter != null) {
+        long timestamp = event.getLogEvent().getTimeStamp();
+        if (segmentEmpty) {
+          segmentMinTs = timestamp;
+          segmentMaxTs = timestamp;
+          segmentEmpty = false;
+        } else {
+          segmentMinTs = Math.min(segmentMinTs, timestamp);
+          segmentMaxTs = Math.max(segmentMaxTs, timestamp);
+        }
+      }
+    }
+
+    /**
+     * Ends the current segment at a sync point and adds it to the index.
+     */
+    private void closeSegment() throws IOException {
+      long segmentEnd = dataFileWriter.sync();
+      indexWriter.add(segmentStart, segmentEnd, segmentMinTs, segmentMaxTs);
+      segmentStart = segmentEnd;
+      segmentEmpty = true;
     }
 
     public long getPos() throws IOException {
@@ -259,11 +303,17 @@ public final class AvroFileWriter implements Closeable, Flushable {
     public void flush() throws IOException {
       dataFileWriter.flush();
       outputStream.hflush();
+      if (indexWriter != null) {
+        indexWriter.flush();
+      }
     }
 
     public void sync() throws IOException {
       dataFileWriter.flush();
       outputStream.hsync();
+      if (indexWriter != null) {
+        indexWriter.flush();
+      }
     }
 
     @Override
@@ -273,12 +323,21 @@ public final class AvroFileWriter implements Closeable, Flushable {
       }
 
       try {
+        if (indexWriter != null && dataFileWriter != null && !segmentEmpty) {
+          closeSegment();
+        }
         if (dataFileWriter != null) {
           dataFileWriter.close();
         }
       } finally {
-        if (outputStream != null) {
-          outputStream.close();
+        try {
+          if (outputStream != null) {
+            outputStream.close();
+          }
+        } finally {
+          if (indexWriter != null) {
+            indexWriter.close();
+          }
         }
       }
 
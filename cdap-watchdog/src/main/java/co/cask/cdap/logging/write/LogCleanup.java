@@ -63,6 +63,10 @@ public final class LogCleanup implements Runnable {
                                                 LOG.info("Deleting log file {}", location.toURI());
                                                 location.delete();
                                               }
+                                              Location indexLocation = LogFileIndex.getIndexLocation(location);
+                                              if (indexLocation.exists()) {
+                                                indexLocation.delete();
+                                              }
                                               parentDirs.put(namespacedLogBaseDir, getParent(location));
                                             } catch (IOException e) {
                                               LOG.error("Got exception when deleting path {}", location.toURI(), e);
@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.write;
+
+import co.cask.cdap.common.io.Locations;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Sparse time index of a log file, which is stored in a file next to the log file. The log file is divided into
+ * segments that start and end at Avro sync points, and the index has the position and the range of event timestamps
+ * of each segment. Readers use it to seek to the segments having the events of a given time.
+ * <p>
+ * Index file has a header of magic number and version, followed by the start position, end position, minimum
+ * timestamp and maximum timestamp of each segment. An entry is written when a segment is complete, hence data
+ * after the end of the last segment is not indexed, e.g. the tail of a file that is being written.
+ * </p>
+ */
+public final class LogFileIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LogFileIndex.class);
+
+  private static final String INDEX_FILE_SUFFIX = ".idx";
+  private static final int MAGIC = 0x4c494458;
+  private static final int VERSION = 1;
+
+  private LogFileIndex() {
+  }
+
+  /**
+   * Returns the {@link Location} of the index file of the given log file.
+   */
+  public static Location getIndexLocation(Location logFile) throws IOException {
+    Location parent = Locations.getParent(logFile);
+    if (parent == null) {
+      throw new IOException("Log file has no parent directory: " + logFile.toURI());
+    }
+    return parent.append(logFile.getName() + INDEX_FILE_SUFFIX);
+  }
+
+  /**
+   * Reads the index of the given log file.
+   *
+   * @return segments of the log file in file order, or {@code null} if there is no index for the file
+   */
+  @Nullable
+  public static List<Segment> read(Location logFile) throws IOException {
+    Location indexFile = getIndexLocation(logFile);
+    if (!indexFile.exists()) {
+      return null;
+    }
+
+    DataInputStream input = new DataInputStream(new BufferedInputStream(indexFile.getInputStream()));
+    try {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        LOG.warn("Ignoring index file {} of unknown format", indexFile.toURI());
+        return null;
+      }
+      ImmutableList.Builder<Segment> segments = ImmutableList.builder();
+      while (true) {
+        Segment segment;
+        try {
+          segment = new Segment(input.readLong(), input.readLong(), input.readLong(), input.readLong());
+        } catch (EOFException e) {
+          // End of index. An incomplete entry is ignored, as the segment is not fully written.
+          break;
+        }
+        segments.add(segment);
+      }
+      return segments.build();
+    } catch (EOFException e) {
+      // Header not written yet
+      return ImmutableList.of();
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * Writes the index of a log file. This class is not thread-safe.
+   */
+  public static final class Writer implements Closeable {
+
+    private final FSDataOutputStream outputStream;
+    private final DataOutputStream output;
+
+    /**
+     * Creates the index file of the given log file.
+     */
+    public Writer(Location logFile) throws IOException {
+      this.outputStream = new FSDataOutputStream(getIndexLocation(logFile).getOutputStream(), null);
+      this.output = new DataOutputStream(new BufferedOutputStream(outputStream));
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+    }
+
+    /**
+     * Adds a segment to the index.
+     */
+    public void add(long start, long end, long minTimestamp, long maxTimestamp) throws IOException {
+      output.writeLong(start);
+      output.writeLong(end);
+      output.writeLong(minTimestamp);
+      output.writeLong(maxTimestamp);
+    }
+
+    /**
+     * Flushes the index. It should be called after the log file is flushed, so that readers never see an index entry
+     * before the data it refers to.
+     */
+    public void flush() throws IOException {
+      output.flush();
+      outputStream.hflush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      output.close();
+    }
+  }
+
+  /**
+   * A segment of a log file.
+   */
+  public static final class Segment {
+    private final long start;
+    private final long end;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+
+    public Segment(long start, long end, long minTimestamp, long maxTimestamp) {
+      this.start = start;
+      this.end = end;
+      this.minTimestamp = minTimestamp;
+      this.maxTimestamp = maxTimestamp;
+    }
+
+    /**
+     * Returns the sync position where the segment starts.
+     */
+    public long getStart() {
+      return start;
+    }
+
+    /**
+     * Returns the sync position where the segment ends, which is the start of the next segment.
+     */
+    public long getEnd() {
+      return end;
+    }
+
+    public long getMinTimestamp() {
+      return minTimestamp;
+    }
+
+    public long getMaxTimestamp() {
+      return maxTimestamp;
+    }
+
+    @Override
+    public String toString() {
+      return Objects.toStringHelper(this)
+        .add("start", start)
+        .add("end", end)
+        .add("minTimestamp", minTimestamp)
+        .add("maxTimestamp", maxTimestamp)
+        .toString();
+    }
+  }
+}
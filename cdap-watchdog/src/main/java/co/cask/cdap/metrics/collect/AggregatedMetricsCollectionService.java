@@ -21,21 +21,21 @@ import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.common.conf.Constants;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.common.collect.AbstractIterator;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -43,6 +43,12 @@ import java.util.concurrent.TimeUnit;
 /**
  * Base class for {@link MetricsCollectionService} which collect metrics through a set of cached
  * {@link AggregatedMetricsEmitter}.
+ * <p>
+ * There is one {@link MetricsContext} instance per set of tags, which holds the emitters of its metrics and
+ * caches its child contexts. Incrementing a metric on a {@link MetricsContext} that is kept by the caller is a
+ * lookup by metric name followed by an atomic add, which allocates nothing. Contexts that have no metrics and
+ * no child contexts for a while are removed, and put back if they are used again.
+ * </p>
  */
 public abstract class AggregatedMetricsCollectionService extends AbstractScheduledService
                                                          implements MetricsCollectionService {
@@ -50,34 +56,26 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsCollectionService.class);
   private static final long CACHE_EXPIRE_MINUTES = 1;
 
-  private final LoadingCache<Map<String, String>, MetricsContext> collectors;
-  private final LoadingCache<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> emitters;
+  private final long expireSeconds;
+  // Context for each set of tags
+  private final ConcurrentMap<Map<String, String>, MetricsContextImpl> collectors;
+  // Contexts to emit metrics for. It can have a context that is not in collectors, if the context was
+  // removed and used again after another context was created for the same tags.
+  private final Set<MetricsContextImpl> activeCollectors;
 
   private ScheduledExecutorService executorService;
 
   public AggregatedMetricsCollectionService() {
-    this.collectors = CacheBuilder.newBuilder()
-      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
-      .build(createCollectorLoader());
-
-    this.emitters = CacheBuilder.newBuilder()
-      // NOTE : we don't need to have removalListener to  emit metrics, as we have expireAfterAccess set for a minute,
-      // emitters.get() is used to increment/gauge and that would reset the access time,
-      // and since runOneIteration() emits all the metrics for the scheduled duration (every 1 second)
-      // there wont be any loss of emitter entries.
-      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
-      .build(new CacheLoader<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>() {
-        @Override
-        public LoadingCache<String, AggregatedMetricsEmitter> load(Map<String, String> tags) throws Exception {
-          return CacheBuilder.newBuilder().expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES).
-            build(new CacheLoader<String, AggregatedMetricsEmitter>() {
-              @Override
-              public AggregatedMetricsEmitter load(String metricName) throws Exception {
-                return new AggregatedMetricsEmitter(metricName);
-              }
-            });
-        }
-      });
+    this(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Creates an instance that removes contexts after they have not been used for the given time.
+   */
+  AggregatedMetricsCollectionService(long expireTime, TimeUnit unit) {
+    this.expireSeconds = unit.toSeconds(expireTime);
+    this.collectors = Maps.newConcurrentMap();
+    this.activeCollectors = Sets.newSetFromMap(Maps.<MetricsContextImpl, Boolean>newConcurrentMap());
   }
 
   /**
@@ -129,7 +127,18 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
 
   @Override
   public final MetricsContext getContext(final Map<String, String> tags) {
-    return collectors.getUnchecked(tags);
+    MetricsContextImpl context = collectors.get(tags);
+    if (context != null) {
+      return context;
+    }
+    // copy the tags, as they are used as the key; tag values can be null
+    context = new MetricsContextImpl(Collections.unmodifiableMap(Maps.newHashMap(tags)));
+    MetricsContextImpl existing = collectors.putIfAbsent(context.tags, context);
+    if (existing != null) {
+      return existing;
+    }
+    activeCollectors.add(context);
+    return context;
   }
 
   @Override
@@ -145,71 +154,99 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
   }
 
   private Iterator<MetricValues> getMetrics(final long timestamp) {
-    // NOTE : emitters.asMap does not reset the access time in cache,
-    // so it's the preferred way to access the cache entries. as we access and emit metrics every second.
-    final Iterator<Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>> iterator =
-      emitters.asMap().entrySet().iterator();
+    final Iterator<MetricsContextImpl> iterator = activeCollectors.iterator();
     return new AbstractIterator<MetricValues>() {
       @Override
       protected MetricValues computeNext() {
         while (iterator.hasNext()) {
-          Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> entry = iterator.next();
-          Map<String, AggregatedMetricsEmitter> metricEmitters = entry.getValue().asMap();
-          List<MetricValue> metricValues = Lists.newArrayListWithCapacity(metricEmitters.size());
-          for (Map.Entry<String, AggregatedMetricsEmitter> emitterEntry : metricEmitters.entrySet()) {
-            MetricValue metricValue = emitterEntry.getValue().emit();
-            // skip increment by 0
-            if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
+          MetricsContextImpl context = iterator.next();
+          List<MetricValue> metricValues = context.emit();
+
+          if (!metricValues.isEmpty()) {
+            context.lastUsed = timestamp;
+            if (timestamp - context.lastPruned >= expireSeconds) {
+              context.pruneChildren();
+              context.lastPruned = timestamp;
+            }
+          } else {
+            // remove the context if it is not used for a while, and emit what is added to it during removal
+            if (timestamp - context.lastUsed < expireSeconds || !context.remove()) {
+              continue;
+            }
+            metricValues = context.emit();
+            if (metricValues.isEmpty()) {
               continue;
             }
-            metricValues.add(metricValue);
-          }
-
-          if (metricValues.isEmpty()) {
-            // skip if there are no metric values to send
-            continue;
           }
 
           LOG.trace("Emit metric {}", metricValues);
-          return new MetricValues(entry.getKey(), timestamp, metricValues);
+          return new MetricValues(context.tags, timestamp, metricValues);
         }
         return endOfData();
       }
     };
   }
 
-  private CacheLoader<Map<String, String>, MetricsContext> createCollectorLoader() {
-    return new CacheLoader<Map<String, String>, MetricsContext>() {
-      @Override
-      public MetricsContext load(final Map<String, String> collectorKey) throws Exception {
-        return new MetricsContextImpl(collectorKey);
-      }
-    };
-  }
-
   private final class MetricsContextImpl implements MetricsContext {
 
     private final Map<String, String> tags;
+    private final ConcurrentMap<String, AggregatedMetricsEmitter> emitters;
+    // child contexts created by childContext(String, String)
+    private final ConcurrentMap<String, ConcurrentMap<String, MetricsContextImpl>> children;
+    // last time in seconds that the context had metrics to emit and that removed children were dropped,
+    // only used by the metrics collection thread
+    private long lastUsed;
+    private long lastPruned;
+    // whether the context is removed from the active contexts
+    private volatile boolean removed;
 
-    private MetricsContextImpl(final Map<String, String> tags) {
+    private MetricsContextImpl(Map<String, String> tags) {
       this.tags = tags;
+      this.emitters = Maps.newConcurrentMap();
+      this.children = Maps.newConcurrentMap();
+      this.lastUsed = TimeUnit.SECONDS.convert(System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+      this.lastPruned = lastUsed;
     }
 
     @Override
     public void increment(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).increment(value);
+      getEmitter(metricName).increment(value);
+      // Checks after updating, so that either the update is emitted during removal, or the context is put back
+      if (removed) {
+        activate();
+      }
     }
 
     @Override
     public void gauge(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).gauge(value);
+      getEmitter(metricName).gauge(value);
+      if (removed) {
+        activate();
+      }
     }
 
     @Override
     public MetricsContext childContext(String tagName, String tagValue) {
-      ImmutableMap<String, String> allTags = ImmutableMap.<String, String>builder()
-        .putAll(tags).put(tagName, tagValue).build();
-      return collectors.getUnchecked(allTags);
+      ConcurrentMap<String, MetricsContextImpl> tagChildren = children.get(tagName);
+      if (tagChildren == null) {
+        ConcurrentMap<String, MetricsContextImpl> newChildren = Maps.newConcurrentMap();
+        tagChildren = children.putIfAbsent(tagName, newChildren);
+        if (tagChildren == null) {
+          tagChildren = newChildren;
+        }
+      }
+
+      MetricsContextImpl child = tagChildren.get(tagValue);
+      if (child == null || child.removed) {
+        Map<String, String> allTags = Maps.newHashMap(tags);
+        allTags.put(tagName, tagValue);
+        child = (MetricsContextImpl) getContext(allTags);
+        tagChildren.put(tagValue, child);
+      }
+      if (removed) {
+        activate();
+      }
+      return child;
     }
 
     @Override
@@ -221,7 +258,76 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
       Map<String, String> allTags = Maps.newHashMap();
       allTags.putAll(this.tags);
       allTags.putAll(tags);
-      return collectors.getUnchecked(allTags);
+      return getContext(allTags);
+    }
+
+    private AggregatedMetricsEmitter getEmitter(String metricName) {
+      AggregatedMetricsEmitter emitter = emitters.get(metricName);
+      if (emitter != null) {
+        return emitter;
+      }
+      emitter = new AggregatedMetricsEmitter(metricName);
+      AggregatedMetricsEmitter existing = emitters.putIfAbsent(metricName, emitter);
+      return existing == null ? emitter : existing;
+    }
+
+    /**
+     * Returns the metric values to emit, which skips counters with no increment.
+     */
+    private List<MetricValue> emit() {
+      List<MetricValue> metricValues = Lists.newArrayListWithCapacity(emitters.size());
+      for (AggregatedMetricsEmitter emitter : emitters.values()) {
+        MetricValue metricValue = emitter.emit();
+        // skip increment by 0
+        if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
+          continue;
+        }
+        metricValues.add(metricValue);
+      }
+      return metricValues;
+    }
+
+    /**
+     * Drops removed contexts from the cache of child contexts.
+     *
+     * @return {@code true} if there is any child context left
+     */
+    private boolean pruneChildren() {
+      boolean hasChildren = false;
+      for (ConcurrentMap<String, MetricsContextImpl> tagChildren : children.values()) {
+        for (Map.Entry<String, MetricsContextImpl> entry : tagChildren.entrySet()) {
+          if (entry.getValue().removed) {
+            tagChildren.remove(entry.getKey(), entry.getValue());
+          } else {
+            hasChildren = true;
+          }
+        }
+      }
+      return hasChildren;
+    }
+
+    /**
+     * Removes this context from the active contexts, unless it still has child contexts.
+     *
+     * @return {@code true} if the context is removed
+     */
+    private boolean remove() {
+      if (pruneChildren()) {
+        return false;
+      }
+      collectors.remove(tags, this);
+      activeCollectors.remove(this);
+      removed = true;
+      return true;
+    }
+
+    /**
+     * Puts back this context to the active contexts after it was removed.
+     */
+    private void activate() {
+      removed = false;
+      activeCollectors.add(this);
+      collectors.putIfAbsent(tags, this);
     }
   }
 }
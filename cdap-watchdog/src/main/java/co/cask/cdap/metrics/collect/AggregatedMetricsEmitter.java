@@ -22,19 +22,33 @@ import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * {@link MetricsEmitter} that aggregates  values for a metric
  * during collection and emit the aggregated value when emit.
+ * <p>
+ * Increments go to a single {@link AtomicLong} until there is contention on it. After that, each thread increments
+ * one of a set of counters, chosen by the thread id, and the counters are summed up when emit. This keeps the
+ * increment cheap for a metric updated by many threads, such as a dataset shared by the threads of a handler.
+ * </p>
  */
 final class AggregatedMetricsEmitter implements MetricsEmitter {
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsEmitter.class);
 
+  // Number of counters used under contention, a power of two
+  private static final int STRIPES = Math.min(64, Integer.highestOneBit(
+    Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1);
+  // Counters are placed 64 bytes apart to avoid false sharing
+  private static final int PADDING = 8;
+
   private final String name;
   // metric value
   private final AtomicLong value;
   // specifies if the metric type is gauge or counter
   private final AtomicBoolean gaugeUsed;
+  // counters used after contention is detected on value
+  private volatile AtomicLongArray stripes;
 
   public AggregatedMetricsEmitter(String name) {
     if (name == null || name.isEmpty()) {
@@ -47,20 +61,48 @@ final class AggregatedMetricsEmitter implements MetricsEmitter {
   }
 
   void increment(long value) {
-    this.value.addAndGet(value);
+    AtomicLongArray stripes = this.stripes;
+    if (stripes == null) {
+      long current = this.value.get();
+      if (this.value.compareAndSet(current, current + value)) {
+        return;
+      }
+      stripes = createStripes();
+    }
+    int index = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    stripes.addAndGet(index * PADDING, value);
   }
 
-
   @Override
   public MetricValue emit() {
     // todo CDAP-2195 - potential race condition , reseting value and type has to be done together
     long value = this.value.getAndSet(0);
+    AtomicLongArray stripes = this.stripes;
+    if (stripes != null) {
+      for (int i = 0; i < STRIPES; i++) {
+        value += stripes.getAndSet(i * PADDING, 0);
+      }
+    }
     MetricType type = gaugeUsed.getAndSet(false) ? MetricType.GAUGE : MetricType.COUNTER;
     return new MetricValue(name, type, value);
   }
 
   public void gauge(long value) {
+    // gauge overrides anything incremented before
+    AtomicLongArray stripes = this.stripes;
+    if (stripes != null) {
+      for (int i = 0; i < STRIPES; i++) {
+        stripes.set(i * PADDING, 0);
+      }
+    }
     this.value.set(value);
     this.gaugeUsed.set(true);
   }
+
+  private synchronized AtomicLongArray createStripes() {
+    if (stripes == null) {
+      stripes = new AtomicLongArray(STRIPES * PADDING);
+    }
+    return stripes;
+  }
 }
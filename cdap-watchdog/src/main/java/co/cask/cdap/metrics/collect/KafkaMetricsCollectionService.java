@@ -16,10 +16,9 @@
 package co.cask.cdap.metrics.collect;
 
 import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
-import co.cask.cdap.common.io.BinaryEncoder;
-import co.cask.cdap.common.io.Encoder;
-import co.cask.cdap.internal.io.DatumWriter;
+import com.google.common.base.Preconditions;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
@@ -29,14 +28,13 @@ import org.apache.twill.kafka.client.KafkaPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
 
 /**
  * A {@link AggregatedMetricsCollectionService} that publish {@link co.cask.cdap.api.metrics.MetricValues} to kafka.
- * The partition is determined by the metric context.
+ * The partition is determined by the metric context. All {@link MetricValues} of a partition collected at the same
+ * time are published as one kafka message, encoded with {@link MetricValuesBatchWriter}.
  */
 @Singleton
 public class KafkaMetricsCollectionService extends AggregatedMetricsCollectionService {
@@ -45,29 +43,30 @@ public class KafkaMetricsCollectionService extends AggregatedMetricsCollectionSe
   private final KafkaClient kafkaClient;
   private final String topicPrefix;
   private final KafkaPublisher.Ack ack;
-  private final DatumWriter<MetricValues> recordWriter;
-  private final ByteArrayOutputStream encoderOutputStream;
-  private final Encoder encoder;
+  private final MetricValuesBatchWriter[] batchWriters;
 
   private KafkaPublisher publisher;
 
   @Inject
   public KafkaMetricsCollectionService(KafkaClient kafkaClient,
                                        @Named(Constants.Metrics.KAFKA_TOPIC_PREFIX) String topicPrefix,
-                                       DatumWriter<MetricValues> recordWriter) {
-    this(kafkaClient, topicPrefix, KafkaPublisher.Ack.FIRE_AND_FORGET, recordWriter);
+                                       CConfiguration cConf) {
+    this(kafkaClient, topicPrefix, KafkaPublisher.Ack.FIRE_AND_FORGET,
+         cConf.getInt(Constants.Metrics.KAFKA_PARTITION_SIZE, Constants.Metrics.DEFAULT_KAFKA_PARTITION_SIZE));
   }
 
   public KafkaMetricsCollectionService(KafkaClient kafkaClient, String topicPrefix,
-                                       KafkaPublisher.Ack ack, DatumWriter<MetricValues> recordWriter) {
+                                       KafkaPublisher.Ack ack, int partitions) {
+    Preconditions.checkArgument(partitions > 0, "Number of partitions must be > 0: %s", partitions);
     this.kafkaClient = kafkaClient;
     this.topicPrefix = topicPrefix;
     this.ack = ack;
-    this.recordWriter = recordWriter;
 
     // Parent guarantees the publish method would not get called concurrently, hence safe to reuse the same instances.
-    this.encoderOutputStream = new ByteArrayOutputStream(1024);
-    this.encoder = new BinaryEncoder(encoderOutputStream);
+    this.batchWriters = new MetricValuesBatchWriter[partitions];
+    for (int i = 0; i < partitions; i++) {
+      batchWriters[i] = new MetricValuesBatchWriter();
+    }
   }
 
   @Override
@@ -82,28 +81,32 @@ public class KafkaMetricsCollectionService extends AggregatedMetricsCollectionSe
       LOG.warn("Unable to get kafka publisher, will not be able to publish metrics.");
       return;
     }
-    encoderOutputStream.reset();
 
-    KafkaPublisher.Preparer preparer = publisher.prepare(topicPrefix);
+    // Encode MetricValues of the same partition into one message
     while (metrics.hasNext()) {
-      // Encode each MetricRecord into bytes and make it an individual kafka message in a message set.
       MetricValues value = metrics.next();
-      publishMetric(preparer, value);
+      batchWriters[getPartition(value)].add(value);
     }
 
-    preparer.send();
-  }
-
-  private void publishMetric(KafkaPublisher.Preparer preparer, MetricValues value) throws IOException {
-    recordWriter.encode(value, encoder);
-    // partitioning by the context
-    preparer.add(ByteBuffer.wrap(encoderOutputStream.toByteArray()), getPartitionKey(value));
-    encoderOutputStream.reset();
+    KafkaPublisher.Preparer preparer = publisher.prepare(topicPrefix);
+    boolean hasMessage = false;
+    for (int i = 0; i < batchWriters.length; i++) {
+      if (!batchWriters[i].isEmpty()) {
+        preparer.add(ByteBuffer.wrap(batchWriters[i].toByteArray()), i);
+        hasMessage = true;
+      }
+    }
+    if (hasMessage) {
+      preparer.send();
+    }
   }
 
-  private Integer getPartitionKey(MetricValues value) {
-    // TODO: incredibly non-efficient: it is performed for each metrics data point,
-    return value.getTags().hashCode();
+  /**
+   * Returns the partition for the given {@link MetricValues}, which is determined by the context, so that
+   * metrics of the same context always go to the same partition.
+   */
+  private int getPartition(MetricValues value) {
+    return Math.abs(value.getTags().hashCode() % batchWriters.length);
   }
 
   private KafkaPublisher getPublisher() {
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.collect;
+
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.common.io.Encoder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Encodes a batch of {@link MetricValues} into a single message. Tag names, tag values and metric names are
+ * written once per batch into a string table, and records refer to them by index. The format is:
+ *
+ * <pre>
+ *   int      {@link #FORMAT_MARKER}
+ *   long     base timestamp
+ *   int      number of strings, followed by the strings
+ *   int      number of records, followed by the records, each having
+ *     long   timestamp, relative to the base timestamp
+ *     int    number of tags, followed by the tag name and tag value indices, -1 for a null tag value
+ *     int    number of metrics, followed by the metric name index, metric type ordinal and value of each
+ * </pre>
+ *
+ * Numbers are written with zig-zag variable length encoding of {@link BinaryEncoder}. The marker is written as a
+ * byte with the lowest bit set, which is never the case for a single {@link MetricValues} encoded with its schema,
+ * as it starts with the union index of the first field. This allows to tell the two formats apart.
+ */
+@NotThreadSafe
+public final class MetricValuesBatchWriter {
+
+  /**
+   * Marker at the start of a batch message.
+   */
+  public static final int FORMAT_MARKER = -1;
+
+  private final Map<String, Integer> stringIndices;
+  private final List<String> strings;
+  private final ByteArrayOutputStream recordsOutput;
+  private final Encoder recordsEncoder;
+  private long baseTimestamp;
+  private int records;
+
+  public MetricValuesBatchWriter() {
+    this.stringIndices = Maps.newHashMap();
+    this.strings = Lists.newArrayList();
+    this.recordsOutput = new ByteArrayOutputStream(1024);
+    this.recordsEncoder = new BinaryEncoder(recordsOutput);
+  }
+
+  /**
+   * Adds a {@link MetricValues} to the batch.
+   */
+  public void add(MetricValues metricValues) throws IOException {
+    if (records == 0) {
+      baseTimestamp = metricValues.getTimestamp();
+    }
+    recordsEncoder.writeLong(metricValues.getTimestamp() - baseTimestamp);
+
+    Map<String, String> tags = metricValues.getTags();
+    recordsEncoder.writeInt(tags.size());
+    for (Map.Entry<String, String> tag : tags.entrySet()) {
+      recordsEncoder.writeInt(getIndex(tag.getKey()));
+      recordsEncoder.writeInt(getIndex(tag.getValue()));
+    }
+
+    recordsEncoder.writeInt(metricValues.getMetrics().size());
+    for (MetricValue metricValue : metricValues.getMetrics()) {
+      recordsEncoder.writeInt(getIndex(metricValue.getName()));
+      recordsEncoder.writeInt(metricValue.getType().ordinal());
+      recordsEncoder.writeLong(metricValue.getValue());
+    }
+    records++;
+  }
+
+  /**
+   * Returns {@code true} if nothing is added since the last {@link #toByteArray()} call.
+   */
+  public boolean isEmpty() {
+    return records == 0;
+  }
+
+  /**
+   * Returns the encoded batch of all {@link MetricValues} added and resets this writer for a new batch.
+   */
+  public byte[] toByteArray() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(recordsOutput.size() + strings.size() * 16 + 16);
+    Encoder encoder = new BinaryEncoder(output);
+    encoder.writeInt(FORMAT_MARKER);
+    encoder.writeLong(baseTimestamp);
+    encoder.writeInt(strings.size());
+    for (String str : strings) {
+      encoder.writeString(str);
+    }
+    encoder.writeInt(records);
+    recordsOutput.writeTo(output);
+
+    stringIndices.clear();
+    strings.clear();
+    recordsOutput.reset();
+    records = 0;
+    return output.toByteArray();
+  }
+
+  private int getIndex(@Nullable String str) {
+    if (str == null) {
+      return -1;
+    }
+    Integer index = stringIndices.get(str);
+    if (index == null) {
+      index = strings.size();
+      stringIndices.put(str, index);
+      strings.add(str);
+    }
+    return index;
+  }
+}
@@ -15,21 +15,14 @@
  */
 package co.cask.cdap.metrics.guice;
 
-import co.cask.cdap.api.data.schema.UnsupportedTypeException;
 import co.cask.cdap.api.metrics.MetricStore;
-import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
-import co.cask.cdap.internal.io.DatumWriter;
-import co.cask.cdap.internal.io.DatumWriterFactory;
-import co.cask.cdap.internal.io.SchemaGenerator;
 import co.cask.cdap.metrics.collect.KafkaMetricsCollectionService;
 import co.cask.cdap.metrics.store.DefaultMetricDatasetFactory;
 import co.cask.cdap.metrics.store.DefaultMetricStore;
 import co.cask.cdap.metrics.store.MetricDatasetFactory;
-import com.google.common.base.Throwables;
-import com.google.common.reflect.TypeToken;
 import com.google.inject.PrivateModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
@@ -56,15 +49,4 @@ public final class DistributedMetricsClientModule extends PrivateModule {
   public String providesKafkaTopicPrefix(CConfiguration cConf) {
     return cConf.get(Constants.Metrics.KAFKA_TOPIC_PREFIX, Constants.Metrics.DEFAULT_KAFKA_TOPIC_PREFIX);
   }
-
-  @Provides
-  public DatumWriter<MetricValues> providesDatumWriter(SchemaGenerator schemaGenerator,
-                                                        DatumWriterFactory datumWriterFactory) {
-    try {
-      TypeToken<MetricValues> metricRecordType = TypeToken.of(MetricValues.class);
-      return datumWriterFactory.create(metricRecordType, schemaGenerator.generate(metricRecordType.getType()));
-    } catch (UnsupportedTypeException e) {
-      throw Throwables.propagate(e);
-    }
-  }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.metrics.collect.MetricValuesBatchWriter;
+import com.google.common.base.Objects;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decodes a batch of {@link MetricValues} encoded by {@link MetricValuesBatchWriter}. Strings of the batch are
+ * decoded once, and the tags of each {@link MetricValues} is a read-only {@link Map} view on the decoded strings.
+ */
+public final class MetricValuesBatchReader {
+
+  private static final MetricType[] METRIC_TYPES = MetricType.values();
+  // First byte of a batch, which is the zig-zag encoding of the marker
+  private static final int MARKER_BYTE =
+    (MetricValuesBatchWriter.FORMAT_MARKER << 1) ^ (MetricValuesBatchWriter.FORMAT_MARKER >> 31);
+
+  /**
+   * Returns {@code true} if the given message is a batch encoded by {@link MetricValuesBatchWriter}, as opposed to a
+   * single {@link MetricValues} encoded with its schema.
+   */
+  public static boolean isBatch(ByteBuffer message) {
+    return message.hasRemaining() && message.get(message.position()) == MARKER_BYTE;
+  }
+
+  /**
+   * Reads a batch of {@link MetricValues}.
+   *
+   * @param decoder {@link Decoder} for reading the batch
+   * @param records collection to add the decoded {@link MetricValues} to. Nothing is added if decoding failed.
+   * @throws IOException if failed to decode
+   */
+  public void read(Decoder decoder, Collection<MetricValues> records) throws IOException {
+    int marker = decoder.readInt();
+    if (marker != MetricValuesBatchWriter.FORMAT_MARKER) {
+      throw new IOException("Unsupported metrics batch format " + marker);
+    }
+    long baseTimestamp = decoder.readLong();
+    String[] strings = new String[decoder.readInt()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = decoder.readString();
+    }
+
+    int size = decoder.readInt();
+    List<MetricValues> result = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      long timestamp = baseTimestamp + decoder.readLong();
+
+      int[] tagIndices = new int[decoder.readInt() * 2];
+      for (int j = 0; j < tagIndices.length; j++) {
+        tagIndices[j] = checkIndex(decoder.readInt(), strings.length);
+      }
+
+      int metricCount = decoder.readInt();
+      List<MetricValue> metrics = Lists.newArrayListWithCapacity(metricCount);
+      for (int j = 0; j < metricCount; j++) {
+        int nameIndex = checkIndex(decoder.readInt(), strings.length);
+        String name = nameIndex < 0 ? null : strings[nameIndex];
+        int type = decoder.readInt();
+        if (type < 0 || type >= METRIC_TYPES.length) {
+          throw new IOException("Invalid metric type " + type);
+        }
+        metrics.add(new MetricValue(name, METRIC_TYPES[type], decoder.readLong()));
+      }
+      result.add(new MetricValues(new TagMap(strings, tagIndices), timestamp, metrics));
+    }
+    records.addAll(result);
+  }
+
+  /**
+   * Checks that the given index is -1 for a null string, or refers to one of the strings of the batch.
+   */
+  private int checkIndex(int index, int size) throws IOException {
+    if (index < -1 || index >= size) {
+      throw new IOException("Invalid string index " + index);
+    }
+    return index;
+  }
+
+  /**
+   * Read-only {@link Map} of tags, which keeps the indices of the tag names and values in the strings of a batch.
+   */
+  private static final class TagMap extends AbstractMap<String, String> {
+
+    private final String[] strings;
+    // tag name and value indices
+    private final int[] indices;
+
+    private TagMap(String[] strings, int[] indices) {
+      this.strings = strings;
+      this.indices = indices;
+    }
+
+    @Override
+    public int size() {
+      return indices.length / 2;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return indexOf(key) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+      int index = indexOf(key);
+      return index < 0 ? null : getString(index + 1);
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+      return new AbstractSet<Entry<String, String>>() {
+        @Override
+        public Iterator<Entry<String, String>> iterator() {
+          return new AbstractIterator<Entry<String, String>>() {
+            private int index;
+
+            @Override
+            protected Entry<String, String> computeNext() {
+              if (index >= indices.length) {
+                return endOfData();
+              }
+              Entry<String, String> entry = Maps.immutableEntry(getString(index), getString(index + 1));
+              index += 2;
+              return entry;
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return TagMap.this.size();
+        }
+      };
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < indices.length; i += 2) {
+        if (Objects.equal(getString(i), key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private String getString(int index) {
+      int stringIndex = indices[index];
+      return stringIndex < 0 ? null : strings[stringIndex];
+    }
+  }
+}
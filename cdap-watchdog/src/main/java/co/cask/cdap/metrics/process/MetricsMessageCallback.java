@@ -33,13 +33,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
  * A {@link KafkaConsumer.MessageCallback} that decodes message into {@link co.cask.cdap.api.metrics.MetricValues}
- * and stores it in {@link MetricStore}.
+ * and stores it in {@link MetricStore}. A message is either a batch encoded by
+ * {@link co.cask.cdap.metrics.collect.MetricValuesBatchWriter}, or a single {@link MetricValues} encoded with the
+ * record schema.
  */
 public final class MetricsMessageCallback implements KafkaConsumer.MessageCallback {
 
@@ -50,6 +53,7 @@ public final class MetricsMessageCallback implements KafkaConsumer.MessageCallba
 
   private final DatumReader<MetricValues> recordReader;
   private final Schema recordSchema;
+  private final MetricValuesBatchReader batchReader;
   private long recordProcessed;
   private MetricStore metricStore;
 
@@ -58,6 +62,7 @@ public final class MetricsMessageCallback implements KafkaConsumer.MessageCallba
                                 MetricStore metricStore) {
     this.recordReader = recordReader;
     this.recordSchema = recordSchema;
+    this.batchReader = new MetricValuesBatchReader();
     this.metricStore = metricStore;
   }
 
@@ -70,8 +75,13 @@ public final class MetricsMessageCallback implements KafkaConsumer.MessageCallba
     while (messages.hasNext()) {
       FetchedMessage input = messages.next();
       try {
-        MetricValues metricValues = recordReader.read(new BinaryDecoder(is.reset(input.getPayload())), recordSchema);
-        records.add(metricValues);
+        ByteBuffer payload = input.getPayload();
+        if (MetricValuesBatchReader.isBatch(payload)) {
+          batchReader.read(new BinaryDecoder(is.reset(payload)), records);
+        } else {
+          // Single MetricValues published before batching was introduced
+          records.add(recordReader.read(new BinaryDecoder(is.reset(payload)), recordSchema));
+        }
       } catch (IOException e) {
         LOG.info("Failed to decode message to MetricValue. Skipped. {}", e.getMessage());
       }
@@ -25,16 +25,19 @@ import co.cask.cdap.api.metrics.MetricSearchQuery;
 import co.cask.cdap.api.metrics.MetricStore;
 import co.cask.cdap.api.metrics.MetricTimeSeries;
 import co.cask.cdap.api.metrics.TagValue;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.utils.TimeMathParser;
 import co.cask.cdap.proto.MetricQueryRequest;
 import co.cask.cdap.proto.MetricQueryResult;
 import co.cask.cdap.proto.MetricTagValue;
 import co.cask.http.AbstractHttpHandler;
+import co.cask.http.HandlerContext;
 import co.cask.http.HttpResponder;
 import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.base.Predicates;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -44,6 +47,7 @@ import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
+import org.apache.twill.common.Threads;
 import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
@@ -55,6 +59,12 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import javax.ws.rs.POST;
@@ -84,6 +94,8 @@ public class MetricsHandler extends AbstractHttpHandler {
   public static final String ANY_TAG_VALUE = "*";
 
   private final MetricStore metricStore;
+  // Executor for running the queries of batch requests
+  private final ExecutorService batchQueryExecutor;
 
   private static final Map<String, String> tagNameToHuman;
   private static final Map<String, String> humanToTagName;
@@ -129,8 +141,21 @@ public class MetricsHandler extends AbstractHttpHandler {
   }
 
   @Inject
-  public MetricsHandler(MetricStore metricStore) {
+  public MetricsHandler(CConfiguration cConf, MetricStore metricStore) {
     this.metricStore = metricStore;
+
+    // Creates a thread pool that will shrink inactive threads
+    int parallelism = cConf.getInt(Constants.Metrics.QUERY_PARALLELISM);
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                                                         new LinkedBlockingQueue<Runnable>(),
+                                                         Threads.createDaemonThreadFactory("metrics-batch-query-%d"));
+    executor.allowCoreThreadTimeOut(true);
+    this.batchQueryExecutor = executor;
+  }
+
+  @Override
+  public void destroy(HandlerContext context) {
+    batchQueryExecutor.shutdownNow();
   }
 
   @POST
@@ -205,12 +230,7 @@ public class MetricsHandler extends AbstractHttpHandler {
 
         LOG.trace("Received Queries {}", queries);
 
-        Map<String, MetricQueryResult> queryFinalResponse = Maps.newHashMap();
-        for (Map.Entry<String, QueryRequestFormat> query : queries.entrySet()) {
-          MetricQueryRequest queryRequest = getQueryRequestFromFormat(query.getValue());
-          queryFinalResponse.put(query.getKey(), executeQuery(queryRequest));
-        }
-        responder.sendJson(HttpResponseStatus.OK, queryFinalResponse);
+        responder.sendJson(HttpResponseStatus.OK, executeQueries(queries));
       } catch (IllegalArgumentException e) {
         LOG.warn("Invalid request", e);
         responder.sendString(HttpResponseStatus.BAD_REQUEST, e.getMessage());
@@ -223,6 +243,44 @@ public class MetricsHandler extends AbstractHttpHandler {
     }
   }
 
+  /**
+   * Executes the given queries in parallel.
+   */
+  private Map<String, MetricQueryResult> executeQueries(Map<String, QueryRequestFormat> queries) throws Exception {
+    // Parse all queries first, so that invalid requests fail before executing any query
+    Map<String, MetricQueryRequest> queryRequests = Maps.newHashMap();
+    for (Map.Entry<String, QueryRequestFormat> query : queries.entrySet()) {
+      queryRequests.put(query.getKey(), getQueryRequestFromFormat(query.getValue()));
+    }
+
+    Map<String, Future<MetricQueryResult>> futures = Maps.newHashMap();
+    try {
+      for (Map.Entry<String, MetricQueryRequest> queryRequest : queryRequests.entrySet()) {
+        final MetricQueryRequest request = queryRequest.getValue();
+        futures.put(queryRequest.getKey(), batchQueryExecutor.submit(new Callable<MetricQueryResult>() {
+          @Override
+          public MetricQueryResult call() throws Exception {
+            return executeQuery(request);
+          }
+        }));
+      }
+
+      Map<String, MetricQueryResult> queryFinalResponse = Maps.newHashMap();
+      for (Map.Entry<String, Future<MetricQueryResult>> future : futures.entrySet()) {
+        queryFinalResponse.put(future.getKey(), future.getValue().get());
+      }
+      return queryFinalResponse;
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), Exception.class);
+      throw e;
+    } finally {
+      // no-op for completed queries, stops the others in case of failure
+      for (Future<MetricQueryResult> future : futures.values()) {
+        future.cancel(true);
+      }
+    }
+  }
+
   private MetricQueryRequest getQueryRequestFromFormat(QueryRequestFormat queryRequestFormat) {
     Map<String, List<String>> queryParams = Maps.newHashMap();
 
@@ -319,12 +377,11 @@ public class MetricsHandler extends AbstractHttpHandler {
                                              "should be provided to determine resolution");
       }
     } else {
-      // if not auto, check if the given resolution matches available resolutions that we support.
+      // if not auto, the metric store serves any resolution that is a multiple of the 1 second, 1 minute or
+      // 1 hour resolutions, by aggregating the coarsest of them.
       int resolutionInterval = TimeMathParser.resolutionInSeconds(resolution);
-      if (!((resolutionInterval == Integer.MAX_VALUE) || (resolutionInterval == 3600) ||
-        (resolutionInterval == 60) || (resolutionInterval == 1))) {
-        throw new IllegalArgumentException("Resolution interval not supported, only 1 second, 1 minute and " +
-                                             "1 hour resolutions are supported currently");
+      if (resolutionInterval <= 0) {
+        throw new IllegalArgumentException("Resolution interval not supported: " + resolution);
       }
       return resolutionInterval;
     }
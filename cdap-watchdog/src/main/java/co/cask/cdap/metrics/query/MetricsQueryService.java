@@ -24,9 +24,11 @@ import co.cask.cdap.common.http.CommonNettyHttpServiceBuilder;
 import co.cask.cdap.common.logging.LoggingContextAccessor;
 import co.cask.cdap.common.logging.ServiceLoggingContext;
 import co.cask.cdap.common.metrics.MetricsReporterHook;
+import co.cask.cdap.metrics.store.MetricQueryCache;
 import co.cask.http.HttpHandler;
 import co.cask.http.NettyHttpService;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
@@ -53,7 +55,8 @@ public class MetricsQueryService extends AbstractIdleService {
   @Inject
   public MetricsQueryService(CConfiguration cConf, @Named(Constants.Service.METRICS) Set<HttpHandler> handlers,
                              DiscoveryService discoveryService,
-                             @Nullable MetricsCollectionService metricsCollectionService) {
+                             @Nullable MetricsCollectionService metricsCollectionService,
+                             MetricQueryCache queryCache) {
     // netty http server config
     String address = cConf.get(Constants.Metrics.ADDRESS);
     int backlogcnxs = cConf.getInt(Constants.Metrics.BACKLOG_CONNECTIONS, 20000);
@@ -76,6 +79,12 @@ public class MetricsQueryService extends AbstractIdleService {
     this.httpService = builder.build();
     this.discoveryService = discoveryService;
 
+    if (metricsCollectionService != null) {
+      queryCache.setMetricsContext(metricsCollectionService.getContext(
+        ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, Constants.SYSTEM_NAMESPACE,
+                        Constants.Metrics.Tag.COMPONENT, Constants.Service.METRICS)));
+    }
+
     LOG.info("Configuring MetricsService " +
                ", address: " + address +
                ", backlog connections: " + backlogcnxs +
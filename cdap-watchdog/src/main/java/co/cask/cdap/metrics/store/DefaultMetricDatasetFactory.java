@@ -107,6 +107,13 @@ public class DefaultMetricDatasetFactory implements MetricDatasetFactory {
     }
   }
 
+  @Override
+  public QueryCacheGenerationTable createQueryCacheGeneration() {
+    // stored in the kafka meta table, to not have another table for a single row
+    String tableName = cConf.get(Constants.Metrics.KAFKA_META_TABLE, Constants.Metrics.DEFAULT_KAFKA_META_TABLE);
+    return new QueryCacheGenerationTable(getOrCreateMetricsTable(tableName, DatasetProperties.EMPTY));
+  }
+
   private MetricsTable getOrCreateMetricsTable(String tableName, DatasetProperties props) {
     MetricsTable table = null;
     // metrics tables are in the system namespace
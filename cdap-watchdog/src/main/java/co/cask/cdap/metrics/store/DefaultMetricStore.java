@@ -16,7 +16,6 @@
 
 package co.cask.cdap.metrics.store;
 
-import co.cask.cdap.api.dataset.lib.cube.Cube;
 import co.cask.cdap.api.dataset.lib.cube.CubeDeleteQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeExploreQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeFact;
@@ -34,6 +33,7 @@ import co.cask.cdap.api.metrics.MetricType;
 import co.cask.cdap.api.metrics.MetricValue;
 import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.api.metrics.TagValue;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.data2.dataset2.lib.cube.Aggregation;
 import co.cask.cdap.data2.dataset2.lib.cube.DefaultAggregation;
@@ -46,11 +46,13 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.Nullable;
 
 /**
@@ -59,16 +61,35 @@ import javax.annotation.Nullable;
 public class DefaultMetricStore implements MetricStore {
   public static final int TOTALS_RESOLUTION = Integer.MAX_VALUE;
   private final int resolutions[];
-  private final Supplier<Cube> cube;
+  private final Supplier<DefaultCube> cube;
+  private final MetricQueryCache queryCache;
 
-  @Inject
-  public DefaultMetricStore(final MetricDatasetFactory dsFactory) {
+  public DefaultMetricStore(MetricDatasetFactory dsFactory) {
     this(dsFactory, new int[] {1, 60, 3600, TOTALS_RESOLUTION});
   }
 
+  /**
+   * Creates an instance that executes the scans of each query in parallel with the shared {@link MetricQueryExecutor},
+   * with parallelism as configured by {@link Constants.Metrics#QUERY_PARALLELISM}, and caches query results with the
+   * given {@link MetricQueryCache}.
+   */
+  @Inject
+  public DefaultMetricStore(MetricDatasetFactory dsFactory, CConfiguration cConf, MetricQueryCache queryCache,
+                            MetricQueryExecutor queryExecutor) {
+    this(dsFactory, new int[] {1, 60, 3600, TOTALS_RESOLUTION}, cConf.getInt(Constants.Metrics.QUERY_PARALLELISM),
+         queryExecutor, queryCache);
+  }
+
   // NOTE: should never be used apart from data migration during cdap upgrade
-  public DefaultMetricStore(final MetricDatasetFactory dsFactory, final int resolutions[]) {
+  public DefaultMetricStore(MetricDatasetFactory dsFactory, int resolutions[]) {
+    this(dsFactory, resolutions, 1, MoreExecutors.sameThreadExecutor(), null);
+  }
+
+  private DefaultMetricStore(final MetricDatasetFactory dsFactory, final int resolutions[],
+                             final int queryParallelism, ExecutorService queryExecutor,
+                             @Nullable MetricQueryCache queryCache) {
     this.resolutions = resolutions;
+    this.queryCache = queryCache;
     final FactTableSupplier factTableSupplier = new FactTableSupplier() {
       @Override
       public FactTable get(int resolution, int ignoredRollTime) {
@@ -76,11 +97,14 @@ public class DefaultMetricStore implements MetricStore {
         return dsFactory.get(resolution);
       }
     };
-    this.cube = Suppliers.memoize(new Supplier<Cube>() {
+    // scans are not split without parallelism, so they run in the querying thread
+    final ExecutorService cubeExecutor = queryParallelism <= 1 ? MoreExecutors.sameThreadExecutor() : queryExecutor;
+    this.cube = Suppliers.memoize(new Supplier<DefaultCube>() {
       @Override
-      public Cube get() {
+      public DefaultCube get() {
         // 1 sec, 1 min, 1 hour and "all time totals"
-        return new DefaultCube(resolutions, factTableSupplier, createAggregations());
+        return new DefaultCube(resolutions, factTableSupplier, createAggregations(),
+                               cubeExecutor, queryParallelism);
       }
     });
   }
@@ -204,6 +228,7 @@ public class DefaultMetricStore implements MetricStore {
   @Override
   public void add(Collection<? extends MetricValues> metricValues) throws Exception {
     List<CubeFact> facts = Lists.newArrayListWithCapacity(metricValues.size());
+    long minTimestamp = Long.MAX_VALUE;
     for (MetricValues metricValue : metricValues) {
       String scope = metricValue.getTags().get(Constants.Metrics.Tag.SCOPE);
       List<Measurement> metrics = Lists.newArrayList();
@@ -218,13 +243,19 @@ public class DefaultMetricStore implements MetricStore {
         .addDimensionValues(metricValue.getTags())
         .addMeasurements(metrics);
       facts.add(fact);
+      minTimestamp = Math.min(minTimestamp, metricValue.getTimestamp());
     }
     cube.get().add(facts);
+    if (queryCache != null) {
+      queryCache.invalidate(minTimestamp);
+    }
   }
 
   @Override
   public Collection<MetricTimeSeries> query(MetricDataQuery q) throws Exception {
-    Collection<TimeSeries> cubeResult = cube.get().query(buildCubeQuery(q));
+    CubeQuery cubeQuery = buildCubeQuery(q);
+    Collection<TimeSeries> cubeResult = queryCache == null ? cube.get().query(cubeQuery)
+                                                           : queryCache.query(cube.get(), cubeQuery);
     List<MetricTimeSeries> result = Lists.newArrayList();
     for (TimeSeries timeSeries : cubeResult) {
       result.add(new MetricTimeSeries(timeSeries.getMeasureName(),
@@ -250,11 +281,19 @@ public class DefaultMetricStore implements MetricStore {
       CubeDeleteQuery query = new CubeDeleteQuery(0, timestamp, resolution, Maps.<String, String>newHashMap());
       cube.get().delete(query);
     }
+    invalidateQueryCache();
   }
 
   @Override
   public void delete(MetricDeleteQuery query) throws Exception {
     cube.get().delete(buildCubeDeleteQuery(query));
+    invalidateQueryCache();
+  }
+
+  private void invalidateQueryCache() {
+    if (queryCache != null) {
+      queryCache.invalidateAll();
+    }
   }
 
   @Override
@@ -34,4 +34,9 @@ public interface MetricDatasetFactory {
    * @return A new instance of {@link KafkaConsumerMetaTable}.
    */
   KafkaConsumerMetaTable createKafkaConsumerMeta();
+
+  /**
+   * @return A new instance of {@link QueryCacheGenerationTable}.
+   */
+  QueryCacheGenerationTable createQueryCacheGeneration();
 }
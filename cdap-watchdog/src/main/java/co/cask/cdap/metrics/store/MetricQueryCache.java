@@ -0,0 +1,427 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.store;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
+import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.TimeSeriesInterpolator;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.data2.dataset2.lib.cube.DefaultCube;
+import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of {@link DefaultCube} query results, for serving queries that are repeated over recent metrics, such as
+ * those polled by dashboards, without scanning the whole time range again.
+ * <p>
+ * The time range of a query is divided into buckets of {@link #BUCKET_INTERVALS} intervals of the query resolution.
+ * Buckets that ended more than the completion delay ago are not expected to receive more metrics, so their results
+ * are cached, keyed by the query without its time range. The trailing buckets are always queried from the cube.
+ * Results truncated by the limit of records the cube scans for a query are not cached.
+ * Cached buckets are evicted in LRU order once the number of cached time values exceeds the configured maximum.
+ * </p>
+ * <p>
+ * Adding metrics into completed buckets, which happens if the metrics processor lags behind, or deleting metrics
+ * invalidates all cached buckets. As metrics are added by the metrics processor, which runs in another process
+ * in distributed mode, invalidation goes through the {@link QueryCacheGenerationTable} shared by all processes,
+ * which is checked on every query.
+ * </p>
+ * <p>
+ * The number of bucket hits, misses and evictions are emitted with the {@link MetricsContext} set by
+ * {@link #setMetricsContext(MetricsContext)}.
+ * </p>
+ */
+@Singleton
+public class MetricQueryCache {
+
+  // Number of intervals of the query resolution in a bucket
+  static final int BUCKET_INTERVALS = 60;
+
+  private final Cache<BucketKey, List<TimeSeries>> cache;
+  private final long completionDelay;
+  private final Supplier<QueryCacheGenerationTable> sharedGeneration;
+  // Incremented on invalidation, to avoid caching results of queries that ran concurrently with it
+  private final AtomicLong generation;
+  // Shared generation seen by the last query
+  private final AtomicLong lastSharedGeneration;
+  private volatile MetricsContext metricsContext;
+
+  @Inject
+  MetricQueryCache(CConfiguration cConf, final MetricDatasetFactory dsFactory) {
+    this(cConf.getLong(Constants.Metrics.QUERY_CACHE_MAX_VALUES),
+         cConf.getLong(Constants.Metrics.QUERY_CACHE_COMPLETION_DELAY_SECONDS), TimeUnit.SECONDS,
+         Suppliers.memoize(new Supplier<QueryCacheGenerationTable>() {
+           @Override
+           public QueryCacheGenerationTable get() {
+             return dsFactory.createQueryCacheGeneration();
+           }
+         }));
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param maxValues max number of time values to cache, {@code 0} to disable caching
+   * @param completionDelay time after the end of a bucket that it is considered complete
+   * @param unit unit of the completion delay
+   * @param sharedGeneration supplier of the generation shared with the caches of other processes
+   */
+  MetricQueryCache(long maxValues, long completionDelay, TimeUnit unit,
+                   Supplier<QueryCacheGenerationTable> sharedGeneration) {
+    this.completionDelay = unit.toSeconds(completionDelay);
+    this.sharedGeneration = sharedGeneration;
+    this.generation = new AtomicLong();
+    this.lastSharedGeneration = new AtomicLong(-1L);
+    // Single segment, so that the max weight and LRU order apply to the whole cache
+    this.cache = maxValues <= 0 ? null : CacheBuilder.newBuilder()
+      .concurrencyLevel(1)
+      .maximumWeight(maxValues)
+      .weigher(new Weigher<BucketKey, List<TimeSeries>>() {
+        @Override
+        public int weigh(BucketKey key, List<TimeSeries> value) {
+          int weight = 1;
+          for (TimeSeries timeSeries : value) {
+            weight += timeSeries.getTimeValues().size();
+          }
+          return weight;
+        }
+      })
+      .removalListener(new RemovalListener<BucketKey, List<TimeSeries>>() {
+        @Override
+        public void onRemoval(RemovalNotification<BucketKey, List<TimeSeries>> notification) {
+          if (notification.wasEvicted()) {
+            increment("query.cache.evictions", 1);
+          }
+        }
+      })
+      .build();
+  }
+
+  /**
+   * Sets the {@link MetricsContext} for emitting metrics about the cache.
+   */
+  public void setMetricsContext(MetricsContext metricsContext) {
+    this.metricsContext = metricsContext;
+  }
+
+  /**
+   * Executes the given query on the given {@link Cube}, using cached results for completed buckets.
+   */
+  public Collection<TimeSeries> query(DefaultCube cube, CubeQuery query) {
+    int resolution = query.getResolution();
+    if (cache == null || resolution == Integer.MAX_VALUE || query.getStartTs() > query.getEndTs()) {
+      return cube.query(query);
+    }
+
+    long currentGeneration = syncGeneration();
+    long bucketSize = (long) resolution * BUCKET_INTERVALS;
+    long completeBefore = getCompleteBefore();
+
+    // {measure name, dimension values} -> time values from all buckets
+    Map<SeriesKey, List<TimeValue>> result = Maps.newHashMap();
+
+    // Start of the consecutive buckets that are not in the cache
+    long missedStart = -1L;
+    int hits = 0;
+    int misses = 0;
+    long bucket = query.getStartTs() / bucketSize * bucketSize;
+    for (; bucket <= query.getEndTs() && bucket + bucketSize <= completeBefore; bucket += bucketSize) {
+      List<TimeSeries> cached = cache.getIfPresent(new BucketKey(query, bucket));
+      if (cached == null) {
+        misses++;
+        if (missedStart < 0) {
+          missedStart = bucket;
+        }
+        continue;
+      }
+      hits++;
+      if (missedStart >= 0) {
+        queryBuckets(cube, query, missedStart, bucket, currentGeneration, result);
+        missedStart = -1L;
+      }
+      addTimeValues(result, cached, query.getStartTs(), query.getEndTs());
+    }
+    if (missedStart >= 0) {
+      queryBuckets(cube, query, missedStart, bucket, currentGeneration, result);
+    }
+
+    // Trailing buckets are not complete, hence not cached
+    if (bucket <= query.getEndTs()) {
+      addTimeValues(result, cube.query(subQuery(query, Math.max(bucket, query.getStartTs()), query.getEndTs())),
+                    query.getStartTs(), query.getEndTs());
+    }
+
+    increment("query.cache.hits", hits);
+    increment("query.cache.misses", misses);
+    return toTimeSeries(query, result);
+  }
+
+  /**
+   * Invalidates all cached buckets, of this and other processes, if a bucket containing the given timestamp could be
+   * cached. It is called with the earliest timestamp of metrics being added.
+   *
+   * @param timestamp timestamp in seconds
+   */
+  public void invalidate(long timestamp) {
+    if (timestamp < getCompleteBefore()) {
+      invalidateAll();
+    }
+  }
+
+  /**
+   * Invalidates all cached buckets, of this and other processes.
+   */
+  public void invalidateAll() {
+    // Other processes may cache results even if this one doesn't
+    sharedGeneration.get().increment();
+    invalidateLocal();
+  }
+
+  /**
+   * Returns the time before which buckets are considered complete, in seconds.
+   */
+  private long getCompleteBefore() {
+    return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - completionDelay;
+  }
+
+  /**
+   * Invalidates the cached buckets if the shared generation changed since the last query, and returns the
+   * generation to cache the results of a query with.
+   */
+  private long syncGeneration() {
+    long shared = sharedGeneration.get().get();
+    if (lastSharedGeneration.getAndSet(shared) != shared) {
+      invalidateLocal();
+    }
+    return generation.get();
+  }
+
+  private void invalidateLocal() {
+    if (cache != null) {
+      generation.incrementAndGet();
+      cache.invalidateAll();
+    }
+  }
+
+  /**
+   * Queries the buckets in the given range from the cube, caches them, and adds their time values to the result.
+   *
+   * @param start start of the first bucket
+   * @param end end of the last bucket, exclusive
+   */
+  private void queryBuckets(DefaultCube cube, CubeQuery query, long start, long end, long currentGeneration,
+                            Map<SeriesKey, List<TimeValue>> result) {
+    AtomicBoolean truncated = new AtomicBoolean();
+    Collection<TimeSeries> timeSeries = cube.query(subQuery(query, start, end - 1), truncated);
+    addTimeValues(result, timeSeries, query.getStartTs(), query.getEndTs());
+    if (truncated.get()) {
+      // Some buckets miss time values
+      return;
+    }
+
+    // Split the time series into buckets
+    long bucketSize = (long) query.getResolution() * BUCKET_INTERVALS;
+    Map<Long, List<TimeSeries>> buckets = Maps.newTreeMap();
+    for (long bucket = start; bucket < end; bucket += bucketSize) {
+      buckets.put(bucket, Lists.<TimeSeries>newArrayList());
+    }
+    for (TimeSeries series : timeSeries) {
+      Map<Long, List<TimeValue>> bucketValues = Maps.newHashMap();
+      for (TimeValue timeValue : series.getTimeValues()) {
+        long bucket = timeValue.getTimestamp() / bucketSize * bucketSize;
+        List<TimeValue> values = bucketValues.get(bucket);
+        if (values == null) {
+          values = Lists.newArrayList();
+          bucketValues.put(bucket, values);
+        }
+        values.add(timeValue);
+      }
+      for (Map.Entry<Long, List<TimeValue>> entry : bucketValues.entrySet()) {
+        buckets.get(entry.getKey()).add(new TimeSeries(series.getMeasureName(), series.getDimensionValues(),
+                                                       ImmutableList.copyOf(entry.getValue())));
+      }
+    }
+
+    // Don't cache if invalidated while querying, as the results could be stale
+    if (generation.get() == currentGeneration) {
+      for (Map.Entry<Long, List<TimeSeries>> entry : buckets.entrySet()) {
+        cache.put(new BucketKey(query, entry.getKey()), ImmutableList.copyOf(entry.getValue()));
+      }
+    }
+  }
+
+  /**
+   * Creates a query for all time values in the given time range, without interpolation.
+   */
+  private CubeQuery subQuery(CubeQuery query, long startTs, long endTs) {
+    return new CubeQuery(query.getAggregation(), startTs, endTs, query.getResolution(), Integer.MAX_VALUE,
+                         query.getMeasurements(), query.getDimensionValues(), query.getGroupByDimensions(), null);
+  }
+
+  /**
+   * Adds time values of the given time series within the given time range to the result.
+   */
+  private void addTimeValues(Map<SeriesKey, List<TimeValue>> result, Collection<TimeSeries> timeSeries,
+                             long startTs, long endTs) {
+    for (TimeSeries series : timeSeries) {
+      SeriesKey key = new SeriesKey(series.getMeasureName(), series.getDimensionValues());
+      List<TimeValue> values = result.get(key);
+      for (TimeValue timeValue : series.getTimeValues()) {
+        if (timeValue.getTimestamp() < startTs || timeValue.getTimestamp() > endTs) {
+          continue;
+        }
+        if (values == null) {
+          values = Lists.newArrayList();
+          result.put(key, values);
+        }
+        values.add(timeValue);
+      }
+    }
+  }
+
+  /**
+   * Creates the query result from the time values of all buckets, applying interpolation and limit of the query,
+   * as done by the {@link Cube}.
+   */
+  private Collection<TimeSeries> toTimeSeries(CubeQuery query, Map<SeriesKey, List<TimeValue>> result) {
+    List<TimeSeries> timeSeries = Lists.newArrayList();
+    for (Map.Entry<SeriesKey, List<TimeValue>> entry : result.entrySet()) {
+      List<TimeValue> timeValues = entry.getValue();
+      Collections.sort(timeValues);
+      List<TimeValue> resultTimeValues = Lists.newArrayList();
+      for (TimeValue timeValue : new TimeSeriesInterpolator(timeValues, query.getInterpolator(),
+                                                            query.getResolution())) {
+        resultTimeValues.add(timeValue);
+        if (resultTimeValues.size() >= query.getLimit()) {
+          break;
+        }
+      }
+      SeriesKey key = entry.getKey();
+      timeSeries.add(new TimeSeries(key.measureName, key.dimensionValues, resultTimeValues));
+    }
+    return timeSeries;
+  }
+
+  private void increment(String metricName, int value) {
+    MetricsContext context = metricsContext;
+    if (context != null && value > 0) {
+      context.increment(metricName, value);
+    }
+  }
+
+  /**
+   * Key of a time series in query results.
+   */
+  private static final class SeriesKey {
+    private final String measureName;
+    private final Map<String, String> dimensionValues;
+
+    SeriesKey(String measureName, Map<String, String> dimensionValues) {
+      this.measureName = measureName;
+      this.dimensionValues = dimensionValues;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      SeriesKey other = (SeriesKey) o;
+      return measureName.equals(other.measureName) && dimensionValues.equals(other.dimensionValues);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(measureName, dimensionValues);
+    }
+  }
+
+  /**
+   * Key of a cached bucket, which is the query without the time range, limit and interpolator,
+   * plus the start of the bucket.
+   */
+  private static final class BucketKey {
+    private final String aggregation;
+    private final int resolution;
+    private final Map<String, AggregationFunction> measurements;
+    private final Map<String, String> dimensionValues;
+    private final List<String> groupByDimensions;
+    private final long bucket;
+    private final int hashCode;
+
+    BucketKey(CubeQuery query, long bucket) {
+      this.aggregation = query.getAggregation();
+      this.resolution = query.getResolution();
+      this.measurements = ImmutableMap.copyOf(query.getMeasurements());
+      // dimension values can have null values, meaning any value
+      this.dimensionValues = Maps.newHashMap(query.getDimensionValues());
+      this.groupByDimensions = ImmutableList.copyOf(query.getGroupByDimensions());
+      this.bucket = bucket;
+      this.hashCode = Objects.hashCode(aggregation, resolution, measurements, dimensionValues,
+                                       groupByDimensions, bucket);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      BucketKey other = (BucketKey) o;
+      return bucket == other.bucket
+        && resolution == other.resolution
+        && Objects.equal(aggregation, other.aggregation)
+        && measurements.equals(other.measurements)
+        && dimensionValues.equals(other.dimensionValues)
+        && groupByDimensions.equals(other.groupByDimensions);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
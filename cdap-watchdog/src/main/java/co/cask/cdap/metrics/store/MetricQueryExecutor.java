@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.store;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.twill.common.Threads;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread pool that runs the parallel scans of metrics queries, shared by all the {@link DefaultMetricStore}s created
+ * by an injector. Its size is the {@link Constants.Metrics#QUERY_PARALLELISM}. Threads stop after being idle for a
+ * minute, so the pool keeps no thread while there are no queries.
+ */
+@Singleton
+public final class MetricQueryExecutor extends ThreadPoolExecutor {
+
+  @Inject
+  MetricQueryExecutor(CConfiguration cConf) {
+    this(cConf.getInt(Constants.Metrics.QUERY_PARALLELISM));
+  }
+
+  MetricQueryExecutor(int queryParallelism) {
+    super(Math.max(1, queryParallelism), Math.max(1, queryParallelism), 60, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), Threads.createDaemonThreadFactory("metrics-query-%d"));
+    allowCoreThreadTimeOut(true);
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.store;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.data2.dataset2.lib.table.MetricsTable;
+
+/**
+ * Generation of the metrics data that {@link MetricQueryCache}s hold results of, shared by all processes that write
+ * and query metrics. It is incremented when metrics are added or deleted in a time range that results may have been
+ * cached for, so that caches of other processes invalidate their results.
+ */
+public final class QueryCacheGenerationTable {
+
+  private static final byte[] GENERATION_ROW = Bytes.toBytes("query.cache.generation");
+  private static final byte[] GENERATION_COLUMN = Bytes.toBytes("g");
+
+  private final MetricsTable table;
+
+  public QueryCacheGenerationTable(MetricsTable table) {
+    this.table = table;
+  }
+
+  /**
+   * @return the current generation, {@code 0} if it was never incremented
+   */
+  public long get() {
+    byte[] value = table.get(GENERATION_ROW, GENERATION_COLUMN);
+    return value == null ? 0L : Bytes.toLong(value);
+  }
+
+  /**
+   * Increments the generation, which invalidates all cached query results.
+   */
+  public void increment() {
+    table.incrementAndGet(GENERATION_ROW, GENERATION_COLUMN, 1L);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.filter;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import co.cask.cdap.common.logging.LoggingContext;
+import co.cask.cdap.logging.appender.kafka.LoggingEventSerializer;
+import co.cask.cdap.logging.context.FlowletLoggingContext;
+import co.cask.cdap.logging.serialize.LoggingEvent;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests that filters match Avro records of log events the same way as decoded log events.
+ */
+public class FilterTest {
+
+  @Test
+  public void testRecordMatch() throws Exception {
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+    LoggingContext loggingContext = new FlowletLoggingContext("ns", "app", "flow", "flowlet", "run", "0");
+
+    List<GenericRecord> records = Lists.newArrayList();
+    for (Level level : ImmutableList.of(Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR)) {
+      for (Map<String, String> mdc : ImmutableList.<Map<String, String>>of(
+        ImmutableMap.<String, String>of(), ImmutableMap.of("MDC:user", "alice"), ImmutableMap.of("MDC:user", "bob"))) {
+        ch.qos.logback.classic.spi.LoggingEvent event = new ch.qos.logback.classic.spi.LoggingEvent();
+        event.setLevel(level);
+        event.setMessage("message");
+        event.setMDCPropertyMap(mdc);
+        event.setTimeStamp(1000L);
+        // Records as encoded, and as read by Avro
+        byte[] bytes = serializer.toBytes(event, loggingContext);
+        records.add(serializer.toGenericRecord(ByteBuffer.wrap(bytes)));
+        records.add(LoggingEvent.encode(serializer.getAvroSchema(), event, loggingContext));
+      }
+    }
+
+    List<Filter> filters = ImmutableList.of(
+      Filter.EMPTY_FILTER,
+      FilterParser.parse("loglevel=WARN"),
+      FilterParser.parse("MDC:user=alice"),
+      FilterParser.parse("MDC:user=alice OR loglevel=ERROR"),
+      FilterParser.parse("MDC:user=bob AND loglevel=INFO"),
+      FilterParser.parse(".flowletId=flowlet AND MDC:user=bob"),
+      FilterParser.parse(".flowletId=other"),
+      FilterParser.parse("MDC:unknown=alice"));
+
+    int matches = 0;
+    for (Filter filter : filters) {
+      for (GenericRecord record : records) {
+        ILoggingEvent event = LoggingEvent.decode(record);
+        Assert.assertEquals(filter.toString(), filter.match(event), filter.match(record));
+        matches += filter.match(record) ? 1 : 0;
+      }
+    }
+    // Make sure that there are both matches and non-matches
+    Assert.assertTrue(matches > 0 && matches < filters.size() * records.size());
+  }
+}
@@ -473,6 +473,10 @@ public class LogSaverPluginTest extends KafkaTestBase {
 
     SortedMap<Long, Location> map = Maps.newTreeMap();
     for (Location file : files) {
+      // skip the index files
+      if (!"avro".equals(FilenameUtils.getExtension(file.getName()))) {
+        continue;
+      }
       String filename = FilenameUtils.getBaseName(file.getName());
       map.put(Long.parseLong(filename), file);
     }
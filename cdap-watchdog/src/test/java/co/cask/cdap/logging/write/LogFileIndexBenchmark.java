@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.write;
+
+import ch.qos.logback.classic.Level;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.logging.LoggingContext;
+import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.logging.context.FlowletLoggingContext;
+import co.cask.cdap.logging.filter.Filter;
+import co.cask.cdap.logging.read.AvroFileReader;
+import co.cask.cdap.logging.read.Callback;
+import co.cask.cdap.logging.read.LogEvent;
+import co.cask.cdap.logging.serialize.LogSchema;
+import co.cask.cdap.logging.serialize.LoggingEvent;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import org.apache.avro.Schema;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time of reading log events at random times from a log file, with and without {@link LogFileIndex}.
+ * The log file is written with the default sync and index intervals, with one event per millisecond.
+ * <p>
+ * Usage: {@code LogFileIndexBenchmark [fileSizeMB] [queries]}
+ */
+public class LogFileIndexBenchmark {
+
+  private static final long BASE_TIME = 1000000000L;
+  private static final int MAX_EVENTS = 100;
+
+  public static void main(String[] args) throws Exception {
+    long fileSize = (args.length > 0 ? Long.parseLong(args[0]) : 1024) * 1024 * 1024;
+    int queries = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    File dir = Files.createTempDir();
+    try {
+      Schema schema = new LogSchema().getAvroSchema();
+      Location location = new LocalLocationFactory(dir).create("log.avro");
+      long events = writeFile(schema, location, fileSize);
+      System.out.printf("Log file of %d bytes, %d events, %d index entries%n",
+                        location.length(), events, LogFileIndex.read(location).size());
+
+      AvroFileReader reader = new AvroFileReader(schema);
+      Location indexLocation = LogFileIndex.getIndexLocation(location);
+      Location movedIndexLocation = location.getTempFile(".idx");
+
+      // warm up, then measure
+      for (int round = 0; round < 2; round++) {
+        long[] indexed = query(reader, location, events, queries);
+        indexLocation.renameTo(movedIndexLocation);
+        long[] scan = query(reader, location, events, queries);
+        movedIndexLocation.renameTo(indexLocation);
+        if (round > 0) {
+          print("indexed", queries, indexed);
+          print("scan", queries, scan);
+        }
+      }
+    } finally {
+      DirUtils.deleteDirectoryContents(dir);
+    }
+  }
+
+  private static long writeFile(Schema schema, Location location, long fileSize) throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    LoggingContext loggingContext = new FlowletLoggingContext("ns", "app", "flow", "flowlet", "run", "0");
+    AvroFileWriter fileWriter = new AvroFileWriter(null, cConf, location, "logs", schema, Long.MAX_VALUE, 50 * 1024,
+                                                   Long.MAX_VALUE);
+    AvroFileWriter.AvroFile avroFile = fileWriter.new AvroFile(location);
+    avroFile.open();
+    String padding = Strings.repeat("x", 100);
+    long events = 0;
+    try {
+      while (avroFile.getPos() < fileSize) {
+        ch.qos.logback.classic.spi.LoggingEvent event = new ch.qos.logback.classic.spi.LoggingEvent();
+        event.setLevel(Level.INFO);
+        event.setLoggerName("co.cask.cdap.logging.LogFileIndexBenchmark");
+        event.setThreadName("main");
+        event.setMessage("Processed event " + events + " " + padding);
+        event.setTimeStamp(BASE_TIME + events);
+        avroFile.append(new LogWriteEvent(LoggingEvent.encode(schema, event, loggingContext), event, loggingContext));
+        events++;
+      }
+    } finally {
+      avroFile.close();
+    }
+    return events;
+  }
+
+  /**
+   * Runs next and prev queries at random times and returns the time taken by them.
+   */
+  private static long[] query(AvroFileReader reader, Location location, long events, int queries) {
+    Random random = new Random(0);
+    long nextTime = 0;
+    long prevTime = 0;
+    for (int i = 0; i < queries; i++) {
+      long fromTime = BASE_TIME + (long) (random.nextDouble() * events);
+
+      long startTime = System.nanoTime();
+      CountingCallback callback = new CountingCallback();
+      reader.readLog(location, Filter.EMPTY_FILTER, fromTime, Long.MAX_VALUE, MAX_EVENTS, callback);
+      nextTime += System.nanoTime() - startTime;
+
+      startTime = System.nanoTime();
+      int count = reader.readLogPrev(location, Filter.EMPTY_FILTER, fromTime, MAX_EVENTS).size();
+      prevTime += System.nanoTime() - startTime;
+
+      if (callback.getCount() != MAX_EVENTS || count != MAX_EVENTS) {
+        throw new IllegalStateException("Unexpected number of events: " + callback.getCount() + ", " + count);
+      }
+    }
+    return new long[] { nextTime, prevTime };
+  }
+
+  private static void print(String type, int queries, long[] times) {
+    System.out.printf("%s: next %.2f ms/query, prev %.2f ms/query%n", type,
+                      (double) times[0] / queries / TimeUnit.MILLISECONDS.toNanos(1),
+                      (double) times[1] / queries / TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  /**
+   * {@link Callback} that counts the events.
+   */
+  private static final class CountingCallback implements Callback {
+    private int count;
+
+    @Override
+    public void init() {
+    }
+
+    @Override
+    public void handle(LogEvent event) {
+      count++;
+    }
+
+    @Override
+    public int getCount() {
+      return count;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
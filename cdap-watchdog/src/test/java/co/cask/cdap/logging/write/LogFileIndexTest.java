@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.write;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.logging.LoggingContext;
+import co.cask.cdap.logging.LoggingConfiguration;
+import co.cask.cdap.logging.context.FlowletLoggingContext;
+import co.cask.cdap.logging.filter.Filter;
+import co.cask.cdap.logging.read.AvroFileReader;
+import co.cask.cdap.logging.read.Callback;
+import co.cask.cdap.logging.read.LogEvent;
+import co.cask.cdap.logging.serialize.LogSchema;
+import co.cask.cdap.logging.serialize.LoggingEvent;
+import com.google.common.collect.Lists;
+import org.apache.avro.Schema;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Tests reading log files with {@link LogFileIndex}.
+ */
+public class LogFileIndexTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final long BASE_TIME = 1000000L;
+  private static final int EVENTS = 6000;
+
+  @Test
+  public void testIndexedRead() throws Exception {
+    Schema schema = new LogSchema().getAvroSchema();
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(LoggingConfiguration.LOG_FILE_INDEX_INTERVAL_BYTES, 8 * 1024);
+
+    Location location = new LocalLocationFactory(TEMP_FOLDER.newFolder()).create("log.avro");
+    LoggingContext loggingContext = new FlowletLoggingContext("ns", "app", "flow", "flowlet", "run", "0");
+    AvroFileWriter fileWriter = new AvroFileWriter(null, cConf, location, "logs", schema, Long.MAX_VALUE, 1024,
+                                                   Long.MAX_VALUE);
+    AvroFileWriter.AvroFile avroFile = fileWriter.new AvroFile(location);
+    avroFile.open();
+    try {
+      for (int i = 0; i < EVENTS; i++) {
+        // three events per millisecond
+        ch.qos.logback.classic.spi.LoggingEvent event = new ch.qos.logback.classic.spi.LoggingEvent();
+        event.setLevel(Level.INFO);
+        event.setLoggerName("logger");
+        event.setMessage("Test log message " + i);
+        event.setTimeStamp(BASE_TIME + i / 3);
+        avroFile.append(new LogWriteEvent(LoggingEvent.encode(schema, event, loggingContext), event, loggingContext));
+      }
+      avroFile.flush();
+
+      // Index of an open file doesn't cover the tail of the file
+      List<LogFileIndex.Segment> segments = LogFileIndex.read(location);
+      Assert.assertNotNull(segments);
+      Assert.assertTrue(segments.size() > 10);
+      Assert.assertTrue(segments.get(segments.size() - 1).getEnd() < location.length());
+      verifyReads(schema, location);
+    } finally {
+      avroFile.close();
+    }
+
+    // Closed file is fully indexed
+    List<LogFileIndex.Segment> segments = LogFileIndex.read(location);
+    Assert.assertNotNull(segments);
+    Assert.assertEquals(location.length(), segments.get(segments.size() - 1).getEnd());
+    long prevEnd = segments.get(0).getStart();
+    for (LogFileIndex.Segment segment : segments) {
+      Assert.assertEquals(prevEnd, segment.getStart());
+      Assert.assertTrue(segment.getMinTimestamp() <= segment.getMaxTimestamp());
+      prevEnd = segment.getEnd();
+    }
+    verifyReads(schema, location);
+  }
+
+  /**
+   * Verifies that reads with the index return the same events as reads by scanning the file.
+   */
+  private void verifyReads(Schema schema, Location location) throws Exception {
+    AvroFileReader reader = new AvroFileReader(schema);
+    Location indexLocation = LogFileIndex.getIndexLocation(location);
+    Location movedIndexLocation = location.getTempFile(".idx");
+    long endTime = BASE_TIME + EVENTS / 3;
+
+    long[] fromTimes = {0, BASE_TIME, BASE_TIME + 1, BASE_TIME + EVENTS / 6, endTime - 2, endTime, Long.MAX_VALUE};
+    int[] maxEvents = {1, 10, 500, EVENTS * 2};
+    for (long fromTime : fromTimes) {
+      for (int max : maxEvents) {
+        List<String> indexedNext = readLog(reader, location, fromTime, Long.MAX_VALUE, max);
+        List<String> indexedPrev = toMessages(reader.readLogPrev(location, Filter.EMPTY_FILTER, fromTime, max));
+        Assert.assertTrue(indexLocation.renameTo(movedIndexLocation) != null);
+        try {
+          Assert.assertEquals(readLog(reader, location, fromTime, Long.MAX_VALUE, max), indexedNext);
+          Assert.assertEquals(toMessages(reader.readLogPrev(location, Filter.EMPTY_FILTER, fromTime, max)),
+                              indexedPrev);
+        } finally {
+          Assert.assertTrue(movedIndexLocation.renameTo(indexLocation) != null);
+        }
+
+        int expectedNext = (int) Math.min(max, Math.max(0, Math.min(EVENTS, (endTime - fromTime) * 3)));
+        Assert.assertTrue(indexedNext.size() >= expectedNext);
+        if (fromTime == BASE_TIME + EVENTS / 6) {
+          // events up to and including fromTime
+          Assert.assertEquals(Math.min(max, EVENTS / 2 + 3), indexedPrev.size());
+        }
+      }
+    }
+
+    // Read with an end time
+    Assert.assertEquals(30, readLog(reader, location, BASE_TIME + 100, BASE_TIME + 110, EVENTS).size());
+  }
+
+  private List<String> readLog(AvroFileReader reader, Location location,
+                               long fromTime, long toTime, int maxEvents) {
+    final List<LogEvent> events = Lists.newArrayList();
+    reader.readLog(location, Filter.EMPTY_FILTER, fromTime, toTime, maxEvents, new Callback() {
+      @Override
+      public void init() {
+      }
+
+      @Override
+      public void handle(LogEvent event) {
+        events.add(event);
+      }
+
+      @Override
+      public int getCount() {
+        return events.size();
+      }
+
+      @Override
+      public void close() {
+      }
+    });
+    return toMessages(events);
+  }
+
+  private List<String> toMessages(Collection<LogEvent> events) {
+    List<String> messages = Lists.newArrayList();
+    for (LogEvent event : events) {
+      ILoggingEvent loggingEvent = event.getLoggingEvent();
+      messages.add(loggingEvent.getTimeStamp() + ":" + loggingEvent.getFormattedMessage());
+    }
+    return messages;
+  }
+}
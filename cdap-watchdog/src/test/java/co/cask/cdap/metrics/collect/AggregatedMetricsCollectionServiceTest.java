@@ -22,6 +22,7 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.test.SlowTests;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -29,8 +30,14 @@ import org.junit.experimental.categories.Category;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -155,6 +162,89 @@ public class AggregatedMetricsCollectionServiceTest {
     }
   }
 
+  @Test
+  public void testContextRemoval() throws Exception {
+    final BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+
+    // contexts are removed as soon as they have nothing to emit
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(0, TimeUnit.SECONDS) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    Map<String, String> tags = ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NAMESPACE);
+    MetricsContext context = service.getContext(tags);
+    Assert.assertSame(context, service.getContext(tags));
+    MetricsContext child = context.childContext(Constants.Metrics.Tag.APP, APP);
+    Assert.assertSame(child, context.childContext(Constants.Metrics.Tag.APP, APP));
+    Assert.assertSame(child, service.getContext(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NAMESPACE,
+                                                                Constants.Metrics.Tag.APP, APP)));
+
+    child.increment(METRIC, 2);
+    service.runOneIteration();
+    Assert.assertEquals(1, published.size());
+    verifyMetricsValue(published.poll(), 2L);
+
+    // the child context is removed, then the parent once it has no child contexts
+    service.runOneIteration();
+    service.runOneIteration();
+    Assert.assertTrue(published.isEmpty());
+    Assert.assertNotSame(context, service.getContext(tags));
+
+    // removed contexts still collect metrics
+    child.increment(METRIC, 3);
+    child.increment(METRIC, 4);
+    context.gauge(METRIC, 5);
+    service.runOneIteration();
+    Assert.assertEquals(2, published.size());
+    for (MetricValues metricValues : published) {
+      verifyMetricsValue(metricValues, metricValues.getTags().size() == 1 ? 5L : 7L);
+    }
+  }
+
+  @Test
+  public void testConcurrentIncrement() throws Exception {
+    final BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService() {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    final MetricsContext context = service.getContext(EMPTY_TAGS);
+    final int threads = 8;
+    final int increments = 100000;
+    final CyclicBarrier barrier = new CyclicBarrier(threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = Lists.newArrayList();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            barrier.await();
+            for (int j = 0; j < increments; j++) {
+              context.increment(METRIC, 1);
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    service.runOneIteration();
+    Assert.assertEquals(1, published.size());
+    verifyMetricsValue(published.poll(), (long) threads * increments);
+  }
+
   private void verifyCounterMetricsValue(MetricValues metricValues) {
     Assert.assertNotNull(metricValues);
     Map<String, String> tags = metricValues.getTags();
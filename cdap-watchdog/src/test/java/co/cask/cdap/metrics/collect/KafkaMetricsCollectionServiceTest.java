@@ -15,25 +15,20 @@
  */
 package co.cask.cdap.metrics.collect;
 
-import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.data.schema.UnsupportedTypeException;
 import co.cask.cdap.api.metrics.MetricValue;
 import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.io.BinaryDecoder;
-import co.cask.cdap.internal.io.ASMDatumWriterFactory;
-import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
-import co.cask.cdap.internal.io.DatumWriter;
-import co.cask.cdap.internal.io.ReflectionDatumReader;
-import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
+import co.cask.cdap.metrics.process.MetricValuesBatchReader;
 import co.cask.cdap.test.SlowTests;
 import co.cask.common.io.ByteBufferInputStream;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Table;
-import com.google.common.reflect.TypeToken;
 import org.apache.twill.internal.kafka.EmbeddedKafkaServer;
 import org.apache.twill.internal.kafka.client.ZKKafkaClientService;
 import org.apache.twill.internal.utils.Networks;
@@ -56,6 +51,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Semaphore;
@@ -90,14 +86,9 @@ public class KafkaMetricsCollectionServiceTest {
     KafkaClientService kafkaClient = new ZKKafkaClientService(zkClient);
     kafkaClient.startAndWait();
 
-    final TypeToken<MetricValues> metricValueType = TypeToken.of(MetricValues.class);
-    final Schema schema = new ReflectionSchemaGenerator().generate(metricValueType.getType());
-    DatumWriter<MetricValues> metricRecordDatumWriter = new ASMDatumWriterFactory(new ASMFieldAccessorFactory())
-      .create(metricValueType, schema);
-
     MetricsCollectionService collectionService = new KafkaMetricsCollectionService(kafkaClient, "metrics",
                                                                                    KafkaPublisher.Ack.FIRE_AND_FORGET,
-                                                                                   metricRecordDatumWriter);
+                                                                                   1);
     collectionService.startAndWait();
 
     // publish metrics for different context
@@ -116,7 +107,7 @@ public class KafkaMetricsCollectionServiceTest {
     expected.put("tag.2", "processed", 2L);
     expected.put("tag.3", "processed", 3L);
 
-    assertMetricsFromKafka(kafkaClient, schema, metricValueType, expected);
+    assertMetricsFromKafka(kafkaClient, expected);
   }
 
   @Test
@@ -129,14 +120,9 @@ public class KafkaMetricsCollectionServiceTest {
     KafkaClientService kafkaClient = new ZKKafkaClientService(zkClient);
     kafkaClient.startAndWait();
 
-    final TypeToken<MetricValues> metricRecordType = TypeToken.of(MetricValues.class);
-    final Schema schema = new ReflectionSchemaGenerator().generate(metricRecordType.getType());
-    DatumWriter<MetricValues> metricRecordDatumWriter = new ASMDatumWriterFactory(new ASMFieldAccessorFactory())
-      .create(metricRecordType, schema);
-
     MetricsCollectionService collectionService = new KafkaMetricsCollectionService(kafkaClient, "metrics",
                                                                                    KafkaPublisher.Ack.FIRE_AND_FORGET,
-                                                                                   metricRecordDatumWriter);
+                                                                                   1);
     collectionService.startAndWait();
 
     // start the kafka server
@@ -158,11 +144,10 @@ public class KafkaMetricsCollectionServiceTest {
     // <Context, metricName, value>
     Table<String, String, Long> expected = HashBasedTable.create();
     expected.put("tag.test", "metric", 5L);
-    assertMetricsFromKafka(kafkaClient, schema, metricRecordType, expected);
+    assertMetricsFromKafka(kafkaClient, expected);
   }
 
-  private void assertMetricsFromKafka(KafkaClientService kafkaClient, final Schema schema,
-                                      final TypeToken<MetricValues> metricRecordType,
+  private void assertMetricsFromKafka(KafkaClientService kafkaClient,
                                       Table<String, String, Long> expected) throws InterruptedException {
 
     // Consume from kafka
@@ -171,14 +156,17 @@ public class KafkaMetricsCollectionServiceTest {
     kafkaClient.getConsumer().prepare().addFromBeginning("metrics", 0)
                                        .consume(new KafkaConsumer.MessageCallback() {
 
-      ReflectionDatumReader<MetricValues> reader = new ReflectionDatumReader<>(schema, metricRecordType);
+      MetricValuesBatchReader reader = new MetricValuesBatchReader();
 
       @Override
       public void onReceived(Iterator<FetchedMessage> messages) {
         try {
+          List<MetricValues> records = Lists.newArrayList();
           while (messages.hasNext()) {
             ByteBuffer payload = messages.next().getPayload();
-            MetricValues metricsRecord = reader.read(new BinaryDecoder(new ByteBufferInputStream(payload)), schema);
+            reader.read(new BinaryDecoder(new ByteBufferInputStream(payload)), records);
+          }
+          for (MetricValues metricsRecord : records) {
             StringBuilder flattenContext = new StringBuilder();
             // for verifying expected results, sorting tags
             Map<String, String> tags = Maps.newTreeMap();
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.collect;
+
+import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.conf.Constants;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the number of {@link MetricsContext#increment(String, long)} calls per second on a shared
+ * {@link MetricsContext} of {@link AggregatedMetricsCollectionService}, from 1 up to the given number of threads,
+ * as done by the threads of a handler or a flowlet using the same dataset. Metrics are emitted every second as in
+ * the running service. Also prints the number of bytes allocated per increment with a single thread.
+ * <p>
+ * Usage: {@code MetricsContextBenchmark [maxThreads] [increments]}
+ */
+public class MetricsContextBenchmark {
+
+  private static final String[] METRICS = { "dataset.store.writes", "dataset.store.bytes" };
+
+  public static void main(String[] args) throws Exception {
+    int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    final int increments = args.length > 1 ? Integer.parseInt(args[1]) : 10000000;
+
+    final AtomicLong emitted = new AtomicLong();
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService() {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) throws Exception {
+        while (metrics.hasNext()) {
+          emitted.addAndGet(metrics.next().getMetrics().size());
+        }
+      }
+    };
+    service.startAndWait();
+
+    Map<String, String> tags = ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, "default",
+                                               Constants.Metrics.Tag.APP, "app",
+                                               Constants.Metrics.Tag.FLOW, "flow",
+                                               Constants.Metrics.Tag.FLOWLET, "flowlet");
+    final MetricsContext context = service.getContext(tags).childContext(Constants.Metrics.Tag.DATASET, "store");
+    try {
+      printAllocation(context, increments);
+
+      // warm up, then measure
+      for (int round = 0; round < 2; round++) {
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+          final int perThread = increments / threads;
+          final CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+          ExecutorService executor = Executors.newFixedThreadPool(threads);
+          try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < threads; i++) {
+              futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                  barrier.await();
+                  increment(context, perThread);
+                  return null;
+                }
+              }));
+            }
+            long startTime = System.nanoTime();
+            barrier.await();
+            for (Future<?> future : futures) {
+              future.get();
+            }
+            long elapsed = System.nanoTime() - startTime;
+
+            if (round > 0) {
+              System.out.printf("%d threads: %d increments/s%n",
+                                threads, perThread * threads * TimeUnit.SECONDS.toNanos(1) / elapsed);
+            }
+          } finally {
+            executor.shutdownNow();
+          }
+        }
+      }
+    } finally {
+      service.stopAndWait();
+    }
+    System.out.printf("%d metric values emitted%n", emitted.get());
+  }
+
+  private static void increment(MetricsContext context, int increments) {
+    for (int i = 0; i < increments; i++) {
+      context.increment(METRICS[i & 1], 1);
+    }
+  }
+
+  private static void printAllocation(MetricsContext context, int increments) {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+      return;
+    }
+    com.sun.management.ThreadMXBean mxBean = (com.sun.management.ThreadMXBean) threadMXBean;
+    long threadId = Thread.currentThread().getId();
+
+    // warm up, so that the JIT compiled code is measured
+    increment(context, increments);
+    long allocated = mxBean.getThreadAllocatedBytes(threadId);
+    increment(context, increments);
+    allocated = mxBean.getThreadAllocatedBytes(threadId) - allocated;
+    System.out.printf("%d increments, %.3f bytes allocated per increment%n",
+                      increments, (double) allocated / increments);
+  }
+}
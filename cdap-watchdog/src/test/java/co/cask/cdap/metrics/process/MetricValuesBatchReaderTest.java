@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.internal.io.ASMDatumWriterFactory;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.DatumWriter;
+import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
+import co.cask.cdap.metrics.collect.MetricValuesBatchWriter;
+import co.cask.common.io.ByteBufferInputStream;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link MetricValuesBatchReader} and {@link MetricValuesBatchWriter}.
+ */
+public class MetricValuesBatchReaderTest {
+
+  @Test
+  public void testReadWrite() throws Exception {
+    Map<String, String> nullTag = Maps.newHashMap();
+    nullTag.put("ns", "default");
+    nullTag.put("run", null);
+
+    List<MetricValues> records = ImmutableList.of(
+      new MetricValues(ImmutableMap.of("ns", "default", "app", "app1", "flow", "flow1"), 1000L,
+                       ImmutableList.of(new MetricValue("process.events", MetricType.COUNTER, 10),
+                                        new MetricValue("process.pending", MetricType.GAUGE, -5))),
+      new MetricValues(ImmutableMap.of("ns", "default", "app", "app2"), 999L,
+                       ImmutableList.of(new MetricValue("process.events", MetricType.COUNTER, Long.MAX_VALUE))),
+      new MetricValues(ImmutableMap.<String, String>of(), 1001L,
+                       ImmutableList.of(new MetricValue("default", MetricType.GAUGE, 0))),
+      new MetricValues(nullTag, 1000L, ImmutableList.<MetricValue>of()));
+
+    MetricValuesBatchWriter writer = new MetricValuesBatchWriter();
+    Assert.assertTrue(writer.isEmpty());
+
+    // writer is reusable after each batch
+    for (int i = 0; i < 2; i++) {
+      for (MetricValues record : records) {
+        writer.add(record);
+      }
+      Assert.assertFalse(writer.isEmpty());
+      ByteBuffer message = ByteBuffer.wrap(writer.toByteArray());
+      Assert.assertTrue(writer.isEmpty());
+      Assert.assertTrue(MetricValuesBatchReader.isBatch(message));
+
+      List<MetricValues> decoded = Lists.newArrayList();
+      new MetricValuesBatchReader().read(new BinaryDecoder(new ByteBufferInputStream(message)), decoded);
+      Assert.assertEquals(records.size(), decoded.size());
+      for (int j = 0; j < records.size(); j++) {
+        assertEquals(records.get(j), decoded.get(j));
+      }
+    }
+  }
+
+  @Test
+  public void testSingleRecordFormat() throws Exception {
+    TypeToken<MetricValues> type = TypeToken.of(MetricValues.class);
+    Schema schema = new ReflectionSchemaGenerator().generate(type.getType());
+    DatumWriter<MetricValues> datumWriter = new ASMDatumWriterFactory(new ASMFieldAccessorFactory())
+      .create(type, schema);
+
+    // MetricValues encoded with the schema is never taken as a batch, regardless of null fields
+    for (MetricValues record : Arrays.asList(
+      new MetricValues(ImmutableMap.of("ns", "default"), "metric", 1000L, 1L, MetricType.COUNTER),
+      new MetricValues(null, 1000L, null))) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      datumWriter.encode(record, new BinaryEncoder(output));
+      Assert.assertFalse(MetricValuesBatchReader.isBatch(ByteBuffer.wrap(output.toByteArray())));
+    }
+  }
+
+  @Test
+  public void testInvalidBatch() throws Exception {
+    MetricValuesBatchWriter writer = new MetricValuesBatchWriter();
+    writer.add(new MetricValues(ImmutableMap.of("ns", "default"), "metric", 1000L, 1L, MetricType.COUNTER));
+    writer.add(new MetricValues(ImmutableMap.of("ns", "system"), "metric", 1000L, 1L, MetricType.COUNTER));
+    byte[] message = writer.toByteArray();
+
+    // truncated message adds nothing
+    List<MetricValues> decoded = Lists.newArrayList();
+    try {
+      new MetricValuesBatchReader().read(
+        new BinaryDecoder(new ByteBufferInputStream(ByteBuffer.wrap(message, 0, message.length - 2))), decoded);
+      Assert.fail("Expected IOException");
+    } catch (IOException e) {
+      // expected
+    }
+    Assert.assertTrue(decoded.isEmpty());
+  }
+
+  private void assertEquals(MetricValues expected, MetricValues actual) {
+    Assert.assertEquals(expected.getTimestamp(), actual.getTimestamp());
+    Assert.assertEquals(expected.getTags(), actual.getTags());
+    for (String tagName : expected.getTags().keySet()) {
+      Assert.assertTrue(actual.getTags().containsKey(tagName));
+      Assert.assertEquals(expected.getTags().get(tagName), actual.getTags().get(tagName));
+    }
+    Assert.assertEquals(expected.getMetrics().size(), actual.getMetrics().size());
+    List<MetricValue> actualMetrics = ImmutableList.copyOf(actual.getMetrics());
+    int i = 0;
+    for (MetricValue metricValue : expected.getMetrics()) {
+      Assert.assertEquals(metricValue.getName(), actualMetrics.get(i).getName());
+      Assert.assertEquals(metricValue.getType(), actualMetrics.get(i).getType());
+      Assert.assertEquals(metricValue.getValue(), actualMetrics.get(i).getValue());
+      i++;
+    }
+  }
+}
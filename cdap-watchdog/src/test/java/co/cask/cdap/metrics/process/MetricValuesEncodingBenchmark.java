@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.internal.io.ASMDatumWriterFactory;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.DatumReader;
+import co.cask.cdap.internal.io.DatumWriter;
+import co.cask.cdap.internal.io.ReflectionDatumReaderFactory;
+import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
+import co.cask.cdap.metrics.collect.MetricValuesBatchWriter;
+import co.cask.common.io.ByteBufferInputStream;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.reflect.TypeToken;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the size, encoding time and decoding time of the kafka messages for {@link MetricValues}, with one
+ * message per {@link MetricValues} encoded with its schema, and with one message per second encoded by
+ * {@link MetricValuesBatchWriter}. Records are the ones emitted by a number of flows with 5 flowlets of 2 instances
+ * each, every second, as done by the metrics collection service of a container.
+ * <p>
+ * Usage: {@code MetricValuesEncodingBenchmark [flows] [seconds]}
+ */
+public class MetricValuesEncodingBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int flows = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+
+    List<List<MetricValues>> batches = createRecords(flows, seconds);
+    int records = flows * 10 * seconds;
+
+    TypeToken<MetricValues> type = TypeToken.of(MetricValues.class);
+    Schema schema = new ReflectionSchemaGenerator().generate(type.getType());
+    DatumWriter<MetricValues> datumWriter = new ASMDatumWriterFactory(new ASMFieldAccessorFactory())
+      .create(type, schema);
+    DatumReader<MetricValues> datumReader = new ReflectionDatumReaderFactory().create(type, schema);
+    MetricValuesBatchWriter batchWriter = new MetricValuesBatchWriter();
+    MetricValuesBatchReader batchReader = new MetricValuesBatchReader();
+
+    // warm up, then measure
+    for (int round = 0; round < 2; round++) {
+      // single record messages
+      List<byte[]> messages = Lists.newArrayList();
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      BinaryEncoder encoder = new BinaryEncoder(output);
+      long startTime = System.nanoTime();
+      for (List<MetricValues> batch : batches) {
+        for (MetricValues record : batch) {
+          datumWriter.encode(record, encoder);
+          messages.add(output.toByteArray());
+          output.reset();
+        }
+      }
+      long encodeTime = System.nanoTime() - startTime;
+
+      ByteBufferInputStream is = new ByteBufferInputStream(null);
+      List<MetricValues> decoded = Lists.newArrayList();
+      startTime = System.nanoTime();
+      for (byte[] message : messages) {
+        decoded.add(datumReader.read(new BinaryDecoder(is.reset(ByteBuffer.wrap(message))), schema));
+      }
+      long decodeTime = System.nanoTime() - startTime;
+      if (round > 0) {
+        print("single", records, messages, encodeTime, decodeTime);
+      }
+
+      // batch messages
+      messages.clear();
+      startTime = System.nanoTime();
+      for (List<MetricValues> batch : batches) {
+        for (MetricValues record : batch) {
+          batchWriter.add(record);
+        }
+        messages.add(batchWriter.toByteArray());
+      }
+      encodeTime = System.nanoTime() - startTime;
+
+      decoded.clear();
+      startTime = System.nanoTime();
+      for (byte[] message : messages) {
+        batchReader.read(new BinaryDecoder(is.reset(ByteBuffer.wrap(message))), decoded);
+      }
+      decodeTime = System.nanoTime() - startTime;
+      if (round > 0) {
+        print("batch", records, messages, encodeTime, decodeTime);
+      }
+    }
+  }
+
+  private static void print(String format, int records, List<byte[]> messages, long encodeTime, long decodeTime) {
+    long bytes = 0;
+    for (byte[] message : messages) {
+      bytes += message.length;
+    }
+    System.out.printf("%s: %d records, %d messages, %d bytes, encode %d records/s, decode %d records/s%n",
+                      format, records, messages.size(), bytes,
+                      records * TimeUnit.SECONDS.toNanos(1) / encodeTime,
+                      records * TimeUnit.SECONDS.toNanos(1) / decodeTime);
+  }
+
+  private static List<List<MetricValues>> createRecords(int flows, int seconds) {
+    List<List<MetricValues>> batches = Lists.newArrayList();
+    long startTime = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - seconds;
+    for (int second = 0; second < seconds; second++) {
+      List<MetricValues> records = Lists.newArrayList();
+      for (int flow = 0; flow < flows; flow++) {
+        for (int flowlet = 0; flowlet < 5; flowlet++) {
+          for (int instance = 0; instance < 2; instance++) {
+            Map<String, String> tags = ImmutableMap.<String, String>builder()
+              .put(Constants.Metrics.Tag.NAMESPACE, "default")
+              .put(Constants.Metrics.Tag.APP, "app" + (flow % 5))
+              .put(Constants.Metrics.Tag.FLOW, "flow" + flow)
+              .put(Constants.Metrics.Tag.RUN_ID, "run" + flow)
+              .put(Constants.Metrics.Tag.FLOWLET, "flowlet" + flowlet)
+              .put(Constants.Metrics.Tag.INSTANCE_ID, Integer.toString(instance))
+              .put(Constants.Metrics.Tag.FLOWLET_QUEUE, "queue")
+              .build();
+            records.add(new MetricValues(tags, startTime + second, ImmutableList.of(
+              new MetricValue("process.events.processed", MetricType.COUNTER, 100),
+              new MetricValue("process.tuples.read", MetricType.COUNTER, 100),
+              new MetricValue("process.events.pending", MetricType.GAUGE, second))));
+          }
+        }
+      }
+      batches.add(records);
+    }
+    return batches;
+  }
+}
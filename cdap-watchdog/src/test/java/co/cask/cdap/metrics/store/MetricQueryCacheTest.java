@@ -0,0 +1,231 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.store;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.CubeFact;
+import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
+import co.cask.cdap.api.dataset.lib.cube.Interpolator;
+import co.cask.cdap.api.dataset.lib.cube.Interpolators;
+import co.cask.cdap.api.dataset.lib.cube.MeasureType;
+import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
+import co.cask.cdap.data2.dataset2.lib.cube.Aggregation;
+import co.cask.cdap.data2.dataset2.lib.cube.DefaultAggregation;
+import co.cask.cdap.data2.dataset2.lib.cube.DefaultCube;
+import co.cask.cdap.data2.dataset2.lib.cube.FactTableSupplier;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
+import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link MetricQueryCache}.
+ */
+public class MetricQueryCacheTest {
+
+  @Test
+  public void testCompletedBuckets() {
+    CountingCube cube = createCube("completed");
+    MetricQueryCache cache = new MetricQueryCache(100000, 120, TimeUnit.SECONDS, createGeneration("completed"));
+
+    // a value every 7 seconds, long ago
+    addFacts(cube, 0, 3000, 7);
+
+    // first query scans all buckets at once, second is served from the cache
+    CubeQuery query = createQuery(100, 1000, 1, null);
+    verifyQuery(cube, cache, query, 1);
+    verifyQuery(cube, cache, query, 0);
+
+    // overlapping query only scans the buckets that are not cached, before and after the cached ones
+    verifyQuery(cube, cache, createQuery(50, 1500, 1, null), 2);
+    verifyQuery(cube, cache, createQuery(0, 1499, 1, null), 0);
+
+    // interpolation and limit are applied after combining the buckets
+    verifyQuery(cube, cache, createQuery(10, 1400, 1, new Interpolators.Step()), 0);
+    verifyQuery(cube, cache, createQuery(10, 1400, 1, new Interpolators.Linear()), 0);
+    CubeQuery limitQuery = new CubeQuery(null, 10, 1400, 1, 30, ImmutableMap.of("metric", AggregationFunction.SUM),
+                                         ImmutableMap.<String, String>of(), ImmutableList.of("dim1"),
+                                         new Interpolators.Step());
+    Assert.assertEquals(Sets.newHashSet(cube.query(limitQuery)), Sets.newHashSet(cache.query(cube, limitQuery)));
+
+    // different resolution is cached separately
+    verifyQuery(cube, cache, createQuery(0, 2999, 60, null), 1);
+    verifyQuery(cube, cache, createQuery(0, 2999, 60, null), 0);
+
+    // adding metrics into completed buckets invalidates the cache
+    addFacts(cube, 1, 3000, 7);
+    cache.invalidate(1);
+    verifyQuery(cube, cache, query, 1);
+    verifyQuery(cube, cache, query, 0);
+  }
+
+  @Test
+  public void testTrailingBuckets() throws InterruptedException {
+    CountingCube cube = createCube("trailing");
+    MetricQueryCache cache = new MetricQueryCache(100000, 120, TimeUnit.SECONDS, createGeneration("trailing"));
+
+    // make sure no bucket becomes complete during the test, which happens at the start of every minute
+    long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    if (now % 60 > 50) {
+      TimeUnit.SECONDS.sleep(60 - now % 60);
+      now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+    addFacts(cube, now - 3600, now, 5);
+
+    // buckets within the completion delay are queried every time
+    CubeQuery query = createQuery(now - 3600, now, 1, null);
+    verifyQuery(cube, cache, query, 2);
+    verifyQuery(cube, cache, query, 1);
+
+    // adding recent metrics doesn't invalidate the cache
+    addFacts(cube, now - 10, now, 1);
+    cache.invalidate(now - 10);
+    verifyQuery(cube, cache, query, 1);
+  }
+
+  @Test
+  public void testEviction() {
+    CountingCube cube = createCube("eviction");
+    // room for about two buckets of 2 time series with 60 time values each
+    Supplier<QueryCacheGenerationTable> generation = createGeneration("eviction");
+    MetricQueryCache cache = new MetricQueryCache(250, 120, TimeUnit.SECONDS, generation);
+    addFacts(cube, 0, 600, 1);
+
+    CubeQuery query = createQuery(0, 119, 1, null);
+    verifyQuery(cube, cache, query, 1);
+    verifyQuery(cube, cache, query, 0);
+
+    // caching other buckets evicts the least recently used ones
+    verifyQuery(cube, cache, createQuery(240, 359, 1, null), 1);
+    verifyQuery(cube, cache, query, 1);
+
+    // disabled cache always queries the cube
+    cache = new MetricQueryCache(0, 120, TimeUnit.SECONDS, generation);
+    verifyQuery(cube, cache, query, 1);
+    verifyQuery(cube, cache, query, 1);
+  }
+
+  @Test
+  public void testSharedInvalidation() {
+    CountingCube cube = createCube("shared");
+    // caches of two processes, the first one adds metrics and the second one queries them
+    Supplier<QueryCacheGenerationTable> generation = createGeneration("shared");
+    MetricQueryCache writerCache = new MetricQueryCache(100000, 120, TimeUnit.SECONDS, generation);
+    MetricQueryCache queryCache = new MetricQueryCache(100000, 120, TimeUnit.SECONDS, generation);
+    addFacts(cube, 0, 600, 1);
+
+    CubeQuery query = createQuery(0, 599, 1, null);
+    verifyQuery(cube, queryCache, query, 1);
+    verifyQuery(cube, queryCache, query, 0);
+
+    // late metrics added by the other process invalidate the cache
+    addFacts(cube, 0, 600, 3);
+    writerCache.invalidate(0);
+    verifyQuery(cube, queryCache, query, 1);
+    verifyQuery(cube, queryCache, query, 0);
+
+    // so do deletes
+    writerCache.invalidateAll();
+    verifyQuery(cube, queryCache, query, 1);
+  }
+
+  /**
+   * Verifies that the result of the given query from the cache is the same as from the cube, and that
+   * the cache queried the cube the given number of times.
+   */
+  private void verifyQuery(CountingCube cube, MetricQueryCache cache, CubeQuery query, int expectedCubeQueries) {
+    int queries = cube.queries.get();
+    Collection<TimeSeries> result = cache.query(cube, query);
+    Assert.assertEquals(expectedCubeQueries, cube.queries.get() - queries);
+
+    Collection<TimeSeries> expected = cube.query(query);
+    cube.queries.decrementAndGet();
+    Assert.assertEquals(expected.size(), result.size());
+    Assert.assertEquals(Sets.newHashSet(expected), Sets.newHashSet(result));
+  }
+
+  private void addFacts(CountingCube cube, long startTs, long endTs, int step) {
+    List<CubeFact> facts = Lists.newArrayList();
+    for (long ts = startTs; ts < endTs; ts += step) {
+      for (String dim1 : new String[] {"a", "b"}) {
+        facts.add(new CubeFact(ts)
+                    .addDimensionValues(ImmutableMap.of("dim1", dim1, "dim2", "x"))
+                    .addMeasurement("metric", MeasureType.COUNTER, ts % 10));
+      }
+    }
+    cube.add(facts);
+  }
+
+  private CubeQuery createQuery(long startTs, long endTs, int resolution, @Nullable Interpolator interpolator) {
+    return new CubeQuery(null, startTs, endTs, resolution, Integer.MAX_VALUE,
+                         ImmutableMap.of("metric", AggregationFunction.SUM),
+                         ImmutableMap.of("dim2", "x"), ImmutableList.of("dim1"), interpolator);
+  }
+
+  private Supplier<QueryCacheGenerationTable> createGeneration(String name) {
+    InMemoryTableService.create(name + ".generation");
+    return Suppliers.ofInstance(new QueryCacheGenerationTable(new InMemoryMetricsTable(name + ".generation")));
+  }
+
+  private CountingCube createCube(final String name) {
+    FactTableSupplier supplier = new FactTableSupplier() {
+      @Override
+      public FactTable get(int resolution, int rollTime) {
+        InMemoryTableService.create(name + ".entity");
+        InMemoryTableService.create(name + ".data." + resolution);
+        return new FactTable(new InMemoryMetricsTable(name + ".data." + resolution),
+                             new EntityTable(new InMemoryMetricsTable(name + ".entity")),
+                             resolution, rollTime);
+      }
+    };
+    return new CountingCube(supplier, ImmutableMap.<String, Aggregation>of(
+      "agg", new DefaultAggregation(ImmutableList.of("dim1", "dim2"))));
+  }
+
+  /**
+   * {@link DefaultCube} that counts queries.
+   */
+  private static final class CountingCube extends DefaultCube {
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    CountingCube(FactTableSupplier factTableSupplier, ImmutableMap<String, Aggregation> aggregations) {
+      super(new int[] {1, 60}, factTableSupplier, aggregations);
+    }
+
+    @Override
+    public Collection<TimeSeries> query(CubeQuery query, @Nullable AtomicBoolean truncated) {
+      queries.incrementAndGet();
+      return super.query(query, truncated);
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright © 2015 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.store;
+
+import co.cask.cdap.api.dataset.DatasetContext;
+import co.cask.cdap.api.metrics.MetricStore;
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.data2.dataset2.lib.table.MetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.PrefixedNamespaces;
+import co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBMetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBTableService;
+import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import co.cask.cdap.metrics.process.KafkaConsumerMetaTable;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the number of {@link MetricValues} records per second written through {@link DefaultMetricStore}, with
+ * the in-memory and the LevelDB {@link MetricsTable}. Records are added in batches, as done by the metrics processor
+ * for each Kafka fetch. Each record has two counters and one gauge of a flowlet, for a number of flows with 5
+ * flowlets of 2 instances each, emitted every second.
+ * <p>
+ * Usage: {@code MetricStoreBenchmark [flows] [seconds] [batchSize]}
+ */
+public class MetricStoreBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int flows = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 120;
+    int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+    List<MetricValues> records = createRecords(flows, seconds);
+
+    File dir = Files.createTempDir();
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_DATA_LEVELDB_DIR, dir.getAbsolutePath());
+    LevelDBTableService service = new LevelDBTableService();
+    service.setConfiguration(cConf);
+    try {
+      // warm up, then measure
+      for (int round = 0; round < 2; round++) {
+        for (boolean levelDB : new boolean[] { false, true }) {
+          MetricDatasetFactory factory = levelDB
+            ? new LevelDBMetricDatasetFactory(service, cConf, "round" + round)
+            : new InMemoryMetricDatasetFactory("round" + round);
+          MetricStore store = new DefaultMetricStore(factory);
+
+          long startTime = System.nanoTime();
+          for (int i = 0; i < records.size(); i += batchSize) {
+            store.add(records.subList(i, Math.min(records.size(), i + batchSize)));
+          }
+          long elapsed = System.nanoTime() - startTime;
+
+          if (round > 0) {
+            System.out.printf("%s metrics table, %d records, batch size %d: %d records/s%n",
+                              levelDB ? "LevelDB" : "in-memory", records.size(), batchSize,
+                              records.size() * TimeUnit.SECONDS.toNanos(1) / elapsed);
+          }
+        }
+      }
+    } finally {
+      // Closes the LevelDB tables, which stops the compaction threads
+      for (String table : service.list()) {
+        service.dropTable(table);
+      }
+      DirUtils.deleteDirectoryContents(dir);
+    }
+  }
+
+  private static List<MetricValues> createRecords(int flows, int seconds) {
+    List<MetricValues> records = Lists.newArrayList();
+    long startTime = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - seconds;
+    for (int second = 0; second < seconds; second++) {
+      for (int flow = 0; flow < flows; flow++) {
+        for (int flowlet = 0; flowlet < 5; flowlet++) {
+          for (int instance = 0; instance < 2; instance++) {
+            Map<String, String> tags = ImmutableMap.<String, String>builder()
+              .put(Constants.Metrics.Tag.NAMESPACE, "default")
+              .put(Constants.Metrics.Tag.APP, "app" + (flow % 5))
+              .put(Constants.Metrics.Tag.FLOW, "flow" + flow)
+              .put(Constants.Metrics.Tag.RUN_ID, "run" + flow)
+              .put(Constants.Metrics.Tag.FLOWLET, "flowlet" + flowlet)
+              .put(Constants.Metrics.Tag.INSTANCE_ID, Integer.toString(instance))
+              .put(Constants.Metrics.Tag.FLOWLET_QUEUE, "queue")
+              .build();
+            records.add(new MetricValues(tags, startTime + second, ImmutableList.of(
+              new MetricValue("process.events.processed", MetricType.COUNTER, 100),
+              new MetricValue("process.tuples.read", MetricType.COUNTER, 100),
+              new MetricValue("process.events.pending", MetricType.GAUGE, second))));
+          }
+        }
+      }
+    }
+    return records;
+  }
+
+  /**
+   * {@link MetricDatasetFactory} that creates {@link FactTable}s with {@link InMemoryMetricsTable}.
+   */
+  private static final class InMemoryMetricDatasetFactory implements MetricDatasetFactory {
+
+    private final String prefix;
+    private final EntityTable entityTable;
+
+    InMemoryMetricDatasetFactory(String prefix) {
+      this.prefix = prefix;
+      this.entityTable = new EntityTable(createTable(prefix + ".entity"));
+    }
+
+    @Override
+    public FactTable get(int resolution) {
+      return new FactTable(createTable(prefix + ".ts." + resolution), entityTable, resolution, 3600);
+    }
+
+    @Override
+    public KafkaConsumerMetaTable createKafkaConsumerMeta() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public QueryCacheGenerationTable createQueryCacheGeneration() {
+      throw new UnsupportedOperationException();
+    }
+
+    private MetricsTable createTable(String name) {
+      InMemoryTableService.create(name);
+      return new InMemoryMetricsTable(name);
+    }
+  }
+
+  /**
+   * {@link MetricDatasetFactory} that creates {@link FactTable}s with {@link LevelDBMetricsTable}.
+   */
+  private static final class LevelDBMetricDatasetFactory implements MetricDatasetFactory {
+
+    private final LevelDBTableService service;
+    private final CConfiguration cConf;
+    private final String prefix;
+    private final EntityTable entityTable;
+
+    LevelDBMetricDatasetFactory(LevelDBTableService service, CConfiguration cConf, String prefix) throws IOException {
+      this.service = service;
+      this.cConf = cConf;
+      this.prefix = prefix;
+      this.entityTable = new EntityTable(createTable(prefix + ".entity"));
+    }
+
+    @Override
+    public FactTable get(int resolution) {
+      try {
+        return new FactTable(createTable(prefix + ".ts." + resolution), entityTable, resolution, 3600);
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+
+    @Override
+    public KafkaConsumerMetaTable createKafkaConsumerMeta() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public QueryCacheGenerationTable createQueryCacheGeneration() {
+      throw new UnsupportedOperationException();
+    }
+
+    private MetricsTable createTable(String name) throws IOException {
+      DatasetContext context = DatasetContext.from(Constants.SYSTEM_NAMESPACE);
+      service.ensureTableExists(PrefixedNamespaces.namespace(cConf, context.getNamespaceId(), name));
+      return new LevelDBMetricsTable(context, name, service, cConf);
+    }
+  }
+}